@@ -170,6 +170,15 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver {
         a.recycle();
 
         mLongPressHelper = new CheckLongPressHelper(this);
+        mLongPressHelper.setPrepareForLongPress(new Runnable() {
+            @Override
+            public void run() {
+                // Load the popup content while waiting for the long press.
+                if (getTag() instanceof ItemInfo) {
+                    mLauncher.getPopupDataProvider().getPrefetcher().prefetch((ItemInfo) getTag());
+                }
+            }
+        });
         mStylusEventHelper = new StylusEventHelper(new SimpleOnStylusPressListener(this), this);
 
         mOutlineHelper = HolographicOutlineHelper.getInstance(getContext());
@@ -478,6 +487,49 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver {
         mLongPressHelper.cancelLongPress();
     }
 
+    /**
+     * Resets the view to its state after inflation, so that it can be reused for another item by
+     * {@link BubbleTextViewPool}. The listeners are cleared, and set again by the next owner.
+     */
+    public void reset() {
+        if (mIconLoadRequest != null) {
+            mIconLoadRequest.cancel();
+            mIconLoadRequest = null;
+        }
+        cancelLongPress();
+        mLongPressHelper.setLongPressTimeout(CheckLongPressHelper.DEFAULT_LONG_PRESS_TIMEOUT);
+        setOnClickListener(null);
+        setOnLongClickListener(null);
+        setOnFocusChangeListener(null);
+        setOnKeyListener(null);
+        setHapticFeedbackEnabled(true);
+
+        super.setTag(null);
+        mIcon = null;
+        mIsIconVisible = true;
+        applyCompoundDrawables(null);
+        setText(null);
+        setContentDescription(null);
+        setTextVisibility(true);
+
+        mBadgeInfo = null;
+        mBadgePalette = null;
+        mBadgeScale = 0;
+        mForceHideBadge = false;
+
+        setPressed(false);
+        mStayPressed = false;
+        mPressedBackground = null;
+        refreshDrawableState();
+
+        setAlpha(1f);
+        setScaleX(1f);
+        setScaleY(1f);
+        setTranslationX(0);
+        setTranslationY(0);
+        setVisibility(VISIBLE);
+    }
+
     public void applyPromiseState(boolean promiseStateChanged) {
         if (getTag() instanceof ShortcutInfo) {
             ShortcutInfo info = (ShortcutInfo) getTag();
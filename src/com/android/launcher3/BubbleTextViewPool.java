@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3;
+
+import android.annotation.SuppressLint;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import com.android.launcher3.util.Preconditions;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Pool of the {@link BubbleTextView}s used by the workspace, folders and all apps.
+ *
+ * The views are inflated ahead of time while the UI thread is idle, a few at a time, so that
+ * binding does not inflate the icons one by one. Each layout has its own pool, sized from the
+ * grid of the device profile. Views are {@link BubbleTextView#reset() reset} when recycled, and
+ * the owner of a view sets its listeners and layout params again when it obtains it.
+ *
+ * Only accessed on the UI thread.
+ */
+public class BubbleTextViewPool implements MessageQueue.IdleHandler {
+
+    // Number of views inflated in a single idle callback, so that input is not delayed.
+    private static final int INFLATE_BATCH_SIZE = 4;
+
+    private final LayoutInflater mInflater;
+    private final SparseArray<ArrayList<BubbleTextView>> mPools = new SparseArray<>();
+    private final SparseIntArray mPoolSizes = new SparseIntArray();
+    private boolean mIdleHandlerAdded;
+
+    // Statistics, reported in dumps.
+    private int mPrewarmCount;
+    private long mPrewarmNanos;
+    private int mHitCount;
+    private int mMissCount;
+    private long mMissNanos;
+    private int mRecycleCount;
+
+    public BubbleTextViewPool(Launcher launcher, InvariantDeviceProfile idp) {
+        mInflater = launcher.getLayoutInflater();
+        mPoolSizes.put(R.layout.app_icon, idp.numRows * idp.numColumns + idp.numHotseatIcons);
+        mPoolSizes.put(R.layout.folder_application, idp.numFolderRows * idp.numFolderColumns);
+        // All apps shows about as many rows of icons as the workspace, with the predictions.
+        mPoolSizes.put(R.layout.all_apps_icon, (idp.numRows + 1) * idp.numColumns);
+    }
+
+    /**
+     * Fills the pools while the UI thread is idle.
+     */
+    public void prewarm() {
+        if (!mIdleHandlerAdded) {
+            Looper.myQueue().addIdleHandler(this);
+            mIdleHandlerAdded = true;
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        long start = System.nanoTime();
+        int inflated = 0;
+        for (int i = 0; i < mPoolSizes.size() && inflated < INFLATE_BATCH_SIZE; i++) {
+            int layoutId = mPoolSizes.keyAt(i);
+            ArrayList<BubbleTextView> pool = getPool(layoutId);
+            while (pool.size() < mPoolSizes.valueAt(i) && inflated < INFLATE_BATCH_SIZE) {
+                pool.add(inflate(layoutId));
+                inflated++;
+            }
+        }
+        mPrewarmCount += inflated;
+        mPrewarmNanos += System.nanoTime() - start;
+        // The pools are full once a callback does not inflate a whole batch.
+        mIdleHandlerAdded = inflated == INFLATE_BATCH_SIZE;
+        return mIdleHandlerAdded;
+    }
+
+    /**
+     * Returns a view inflated from the layout, taken from the pool if possible. The view has no
+     * listeners, and may have the layout params of its previous parent.
+     */
+    public BubbleTextView obtain(int layoutId) {
+        Preconditions.assertUIThread();
+        ArrayList<BubbleTextView> pool = mPools.get(layoutId);
+        BubbleTextView view;
+        if (pool != null && !pool.isEmpty()) {
+            view = pool.remove(pool.size() - 1);
+            mHitCount++;
+        } else {
+            long start = System.nanoTime();
+            view = inflate(layoutId);
+            mMissCount++;
+            mMissNanos += System.nanoTime() - start;
+        }
+        // Refill the pool for the next views.
+        prewarm();
+        return view;
+    }
+
+    /**
+     * Removes the view from its parent and returns it to the pool of the layout it was inflated
+     * from. The view should not be used by the caller afterwards.
+     */
+    public void recycle(BubbleTextView view, int layoutId) {
+        Preconditions.assertUIThread();
+        ViewParent parent = view.getParent();
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).removeView(view);
+        }
+        ArrayList<BubbleTextView> pool = getPool(layoutId);
+        if (pool.size() < mPoolSizes.get(layoutId)) {
+            view.reset();
+            pool.add(view);
+            mRecycleCount++;
+        }
+    }
+
+    private ArrayList<BubbleTextView> getPool(int layoutId) {
+        ArrayList<BubbleTextView> pool = mPools.get(layoutId);
+        if (pool == null) {
+            pool = new ArrayList<>(mPoolSizes.get(layoutId));
+            mPools.put(layoutId, pool);
+        }
+        return pool;
+    }
+
+    @SuppressLint("InflateParams")
+    private BubbleTextView inflate(int layoutId) {
+        return (BubbleTextView) mInflater.inflate(layoutId, null, false);
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "BubbleTextViewPool:");
+        for (int i = 0; i < mPoolSizes.size(); i++) {
+            int layoutId = mPoolSizes.keyAt(i);
+            ArrayList<BubbleTextView> pool = mPools.get(layoutId);
+            writer.println(prefix + "  " + mInflater.getContext().getResources()
+                    .getResourceEntryName(layoutId) + ": " + (pool == null ? 0 : pool.size())
+                    + "/" + mPoolSizes.valueAt(i));
+        }
+        writer.println(prefix + String.format(Locale.US,
+                "  prewarmed=%d (%.1fms) hits=%d misses=%d (%.1fms) recycled=%d",
+                mPrewarmCount, mPrewarmNanos / 1e6f, mHitCount, mMissCount, mMissNanos / 1e6f,
+                mRecycleCount));
+    }
+}
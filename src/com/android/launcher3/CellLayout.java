@@ -56,6 +56,8 @@ import com.android.launcher3.folder.FolderIcon;
 import com.android.launcher3.folder.PreviewBackground;
 import com.android.launcher3.graphics.DragPreviewProvider;
 import com.android.launcher3.util.CellAndSpan;
+import com.android.launcher3.util.FocusLogic;
+import com.android.launcher3.util.FocusMap;
 import com.android.launcher3.util.GridOccupancy;
 import com.android.launcher3.util.ParcelableSparseArray;
 import com.android.launcher3.util.Themes;
@@ -145,6 +147,14 @@ public class CellLayout extends ViewGroup implements BubbleTextShadowHandler {
     private final TimeInterpolator mEaseOutInterpolator;
     private final ShortcutAndWidgetContainer mShortcutsAndWidgets;
 
+    // Focus navigation of the items, built on the first key event after the items change.
+    private FocusMap mFocusMap;
+    // Focus navigation merging the items with the hotseat, valid for the map of the hotseat and
+    // the device profile it was built with.
+    private FocusMap mHotseatFocusMap;
+    private FocusMap mHotseatFocusMapSource;
+    private DeviceProfile mHotseatFocusMapProfile;
+
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({WORKSPACE, HOTSEAT, FOLDER})
     public @interface ContainerType{}
@@ -374,12 +384,50 @@ public class CellLayout extends ViewGroup implements BubbleTextShadowHandler {
         mTmpOccupied = new GridOccupancy(mCountX, mCountY);
         mTempRectStack.clear();
         mShortcutsAndWidgets.setCellDimensions(mCellWidth, mCellHeight, mCountX, mCountY);
+        invalidateFocusMap();
+        onCellsChanged(0, 0, mCountX, mCountY);
         requestLayout();
     }
 
     // Set whether or not to invert the layout horizontally if the layout is in RTL mode.
     public void setInvertIfRtl(boolean invert) {
         mShortcutsAndWidgets.setInvertIfRtl(invert);
+        invalidateFocusMap();
+    }
+
+    /**
+     * Returns the focus navigation of the items of this layout, used for key events.
+     */
+    public FocusMap getFocusMap() {
+        if (mFocusMap == null) {
+            mFocusMap = FocusMap.forLayout(this);
+        }
+        return mFocusMap;
+    }
+
+    /**
+     * Returns the focus navigation merging the items of this page with the ones of
+     * {@param hotseatLayout}, see {@link FocusLogic#createSparseMatrixWithHotseat}.
+     */
+    public FocusMap getFocusMapWithHotseat(CellLayout hotseatLayout, DeviceProfile dp) {
+        FocusMap hotseatMap = hotseatLayout.getFocusMap();
+        if (mHotseatFocusMap == null || mHotseatFocusMapSource != hotseatMap
+                || mHotseatFocusMapProfile != dp) {
+            mHotseatFocusMap = FocusMap.forMatrix(
+                    FocusLogic.createSparseMatrixWithHotseat(this, hotseatLayout, dp));
+            mHotseatFocusMapSource = hotseatMap;
+            mHotseatFocusMapProfile = dp;
+        }
+        return mHotseatFocusMap;
+    }
+
+    /**
+     * Called when the items change, or move in the grid.
+     */
+    void invalidateFocusMap() {
+        mFocusMap = null;
+        mHotseatFocusMap = null;
+        mHotseatFocusMapSource = null;
     }
 
     public void setDropPending(boolean pending) {
@@ -636,6 +684,7 @@ public class CellLayout extends ViewGroup implements BubbleTextShadowHandler {
     @Override
     public void removeAllViews() {
         mOccupied.clear();
+        onCellsChanged(0, 0, mCountX, mCountY);
         mShortcutsAndWidgets.removeAllViews();
     }
 
@@ -643,6 +692,7 @@ public class CellLayout extends ViewGroup implements BubbleTextShadowHandler {
     public void removeAllViewsInLayout() {
         if (mShortcutsAndWidgets.getChildCount() > 0) {
             mOccupied.clear();
+            onCellsChanged(0, 0, mCountX, mCountY);
             mShortcutsAndWidgets.removeAllViewsInLayout();
         }
     }
@@ -926,6 +976,8 @@ public class CellLayout extends ViewGroup implements BubbleTextShadowHandler {
             }
             lp.isLockedToGrid = true;
             if (permanent) {
+                onCellsChanged(lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan);
+                onCellsChanged(cellX, cellY, lp.cellHSpan, lp.cellVSpan);
                 lp.cellX = info.cellX = cellX;
                 lp.cellY = info.cellY = cellY;
             } else {
@@ -2113,6 +2165,7 @@ public class CellLayout extends ViewGroup implements BubbleTextShadowHandler {
 
     private void commitTempPlacement() {
         mTmpOccupied.copyTo(mOccupied);
+        onCellsChanged(0, 0, mCountX, mCountY);
 
         long screenId = mLauncher.getWorkspace().getIdForScreen(this);
         int container = Favorites.CONTAINER_DESKTOP;
@@ -2568,12 +2621,23 @@ public class CellLayout extends ViewGroup implements BubbleTextShadowHandler {
         if (view == null || view.getParent() != mShortcutsAndWidgets) return;
         LayoutParams lp = (LayoutParams) view.getLayoutParams();
         mOccupied.markCells(lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan, true);
+        onCellsChanged(lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan);
     }
 
     public void markCellsAsUnoccupiedForView(View view) {
         if (view == null || view.getParent() != mShortcutsAndWidgets) return;
         LayoutParams lp = (LayoutParams) view.getLayoutParams();
         mOccupied.markCells(lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan, false);
+        onCellsChanged(lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan);
+    }
+
+    /**
+     * Called when the occupancy of the given cells changes.
+     */
+    private void onCellsChanged(int cellX, int cellY, int spanX, int spanY) {
+        if (mTouchHelper != null) {
+            mTouchHelper.onCellsChanged(cellX, cellY, spanX, spanY);
+        }
     }
 
     public int getDesiredWidth() {
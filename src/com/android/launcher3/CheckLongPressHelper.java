@@ -29,6 +29,7 @@ public class CheckLongPressHelper {
     @Thunk boolean mHasPerformedLongPress;
     private int mLongPressTimeout = DEFAULT_LONG_PRESS_TIMEOUT;
     private CheckForLongPress mPendingCheckForLongPress;
+    private Runnable mPrepareForLongPress;
 
     class CheckForLongPress implements Runnable {
         public void run() {
@@ -64,6 +65,14 @@ public class CheckLongPressHelper {
         mLongPressTimeout = longPressTimeout;
     }
 
+    /**
+     * Sets a callback run halfway through the long press timeout, unless the long press is
+     * cancelled before, to prepare what the long press needs.
+     */
+    public void setPrepareForLongPress(Runnable prepareForLongPress) {
+        mPrepareForLongPress = prepareForLongPress;
+    }
+
     public void postCheckForLongPress() {
         mHasPerformedLongPress = false;
 
@@ -71,6 +80,9 @@ public class CheckLongPressHelper {
             mPendingCheckForLongPress = new CheckForLongPress();
         }
         mView.postDelayed(mPendingCheckForLongPress, mLongPressTimeout);
+        if (mPrepareForLongPress != null) {
+            mView.postDelayed(mPrepareForLongPress, mLongPressTimeout / 2);
+        }
     }
 
     public void cancelLongPress() {
@@ -79,6 +91,9 @@ public class CheckLongPressHelper {
             mView.removeCallbacks(mPendingCheckForLongPress);
             mPendingCheckForLongPress = null;
         }
+        if (mPrepareForLongPress != null) {
+            mView.removeCallbacks(mPrepareForLongPress);
+        }
     }
 
     public boolean hasPerformedLongPress() {
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3;
+
+import android.util.SparseArray;
+
+import com.android.launcher3.Workspace.ItemOperator;
+import com.android.launcher3.util.LongArrayMap;
+
+import java.util.ArrayList;
+
+/**
+ * The workspace items which are not bound to views yet, by screen. The items are also indexed
+ * by id and by app widget id, so that the lookups of the workspace do not go through all of them.
+ */
+class DeferredWorkspaceItems {
+
+    private final LongArrayMap<ArrayList<ItemInfo>> mItemsByScreen = new LongArrayMap<>();
+    private final LongArrayMap<ItemInfo> mItemsById = new LongArrayMap<>();
+    private final SparseArray<LauncherAppWidgetInfo> mWidgetsById = new SparseArray<>();
+
+    /**
+     * Adds the item to the items of its screen.
+     */
+    public void add(ItemInfo item) {
+        ArrayList<ItemInfo> items = mItemsByScreen.get(item.screenId);
+        if (items == null) {
+            items = new ArrayList<>();
+            mItemsByScreen.put(item.screenId, items);
+        }
+        items.add(item);
+        mItemsById.put(item.id, item);
+        if (item instanceof LauncherAppWidgetInfo) {
+            LauncherAppWidgetInfo widget = (LauncherAppWidgetInfo) item;
+            mWidgetsById.put(widget.appWidgetId, widget);
+        }
+    }
+
+    /**
+     * Removes and returns the items of the screen, or null if it has none.
+     */
+    public ArrayList<ItemInfo> removeScreen(long screenId) {
+        ArrayList<ItemInfo> items = mItemsByScreen.get(screenId);
+        if (items == null) {
+            return null;
+        }
+        mItemsByScreen.remove(screenId);
+        for (ItemInfo item : items) {
+            mItemsById.remove(item.id);
+            if (item instanceof LauncherAppWidgetInfo) {
+                mWidgetsById.remove(((LauncherAppWidgetInfo) item).appWidgetId);
+            }
+        }
+        return items;
+    }
+
+    public void clear() {
+        mItemsByScreen.clear();
+        mItemsById.clear();
+        mWidgetsById.clear();
+    }
+
+    public boolean isEmpty() {
+        return mItemsByScreen.isEmpty();
+    }
+
+    public boolean containsScreen(long screenId) {
+        return mItemsByScreen.containsKey(screenId);
+    }
+
+    public int getScreenCount() {
+        return mItemsByScreen.size();
+    }
+
+    public long getScreenIdAt(int index) {
+        return mItemsByScreen.keyAt(index);
+    }
+
+    public ArrayList<ItemInfo> getItemsAt(int index) {
+        return mItemsByScreen.valueAt(index);
+    }
+
+    /**
+     * Returns the items of the screen, or null if it has none.
+     */
+    public ArrayList<ItemInfo> getItems(long screenId) {
+        return mItemsByScreen.get(screenId);
+    }
+
+    /**
+     * Returns the item with the id, or null if it is not deferred. The items in folders are not
+     * indexed, only the folders.
+     */
+    public ItemInfo getItem(long id) {
+        return mItemsById.get(id);
+    }
+
+    /**
+     * Returns the widget with the app widget id, or null if it is not deferred.
+     */
+    public LauncherAppWidgetInfo getWidget(int appWidgetId) {
+        return mWidgetsById.get(appWidgetId);
+    }
+
+    /**
+     * Maps the operator over the items, without views, as done by
+     * {@link Workspace#mapOverItems} for the bound items.
+     *
+     * @return true if the operator is done.
+     */
+    public boolean mapOverItems(boolean recurse, ItemOperator op) {
+        for (int i = 0; i < mItemsByScreen.size(); i++) {
+            ArrayList<ItemInfo> items = mItemsByScreen.valueAt(i);
+            for (int j = 0; j < items.size(); j++) {
+                ItemInfo info = items.get(j);
+                if (recurse && info instanceof FolderInfo) {
+                    ArrayList<ShortcutInfo> contents = ((FolderInfo) info).contents;
+                    for (int k = 0; k < contents.size(); k++) {
+                        if (op.evaluate(contents.get(k), null)) {
+                            return true;
+                        }
+                    }
+                } else if (op.evaluate(info, null)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
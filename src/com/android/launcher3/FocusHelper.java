@@ -26,6 +26,7 @@ import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderPagedView;
 import com.android.launcher3.util.FocusLogic;
+import com.android.launcher3.util.FocusMap;
 import com.android.launcher3.util.Thunk;
 
 /**
@@ -111,9 +112,10 @@ public class FocusHelper {
             final int pageCount = pagedView.getPageCount();
             final boolean isLayoutRtl = Utilities.isRtl(v.getResources());
 
-            int[][] matrix = FocusLogic.createSparseMatrix(cellLayout);
+            FocusMap focusMap = cellLayout.getFocusMap();
+            int[][] matrix = focusMap.matrix;
             // Process focus.
-            int newIconIndex = FocusLogic.handleKeyEvent(keyCode, matrix, iconIndex, pageIndex,
+            int newIconIndex = FocusLogic.handleKeyEvent(keyCode, focusMap, iconIndex, pageIndex,
                     pageCount, isLayoutRtl);
             if (newIconIndex == FocusLogic.NOOP) {
                 handleNoopKey(keyCode, v);
@@ -235,16 +237,16 @@ public class FocusHelper {
         final ViewGroup iconParent = iconLayout.getShortcutsAndWidgets();
 
         ViewGroup parent = null;
-        int[][] matrix = null;
+        FocusMap focusMap = null;
 
         if (keyCode == KeyEvent.KEYCODE_DPAD_UP &&
                 !profile.isVerticalBarLayout()) {
-            matrix = FocusLogic.createSparseMatrixWithHotseat(iconLayout, hotseatLayout, profile);
+            focusMap = iconLayout.getFocusMapWithHotseat(hotseatLayout, profile);
             iconIndex += iconParent.getChildCount();
             parent = iconParent;
         } else if (keyCode == KeyEvent.KEYCODE_DPAD_LEFT &&
                 profile.isVerticalBarLayout()) {
-            matrix = FocusLogic.createSparseMatrixWithHotseat(iconLayout, hotseatLayout, profile);
+            focusMap = iconLayout.getFocusMapWithHotseat(hotseatLayout, profile);
             iconIndex += iconParent.getChildCount();
             parent = iconParent;
         } else if (keyCode == KeyEvent.KEYCODE_DPAD_RIGHT &&
@@ -253,12 +255,12 @@ public class FocusHelper {
         } else {
             // For other KEYCODE_DPAD_LEFT and KEYCODE_DPAD_RIGHT navigation, do not use the
             // matrix extended with hotseat.
-            matrix = FocusLogic.createSparseMatrix(hotseatLayout);
+            focusMap = hotseatLayout.getFocusMap();
             parent = hotseatParent;
         }
 
         // Process the focus.
-        int newIconIndex = FocusLogic.handleKeyEvent(keyCode, matrix, iconIndex, pageIndex,
+        int newIconIndex = FocusLogic.handleKeyEvent(keyCode, focusMap, iconIndex, pageIndex,
                 pageCount, Utilities.isRtl(v.getResources()));
 
         View newIcon = null;
@@ -356,22 +358,22 @@ public class FocusHelper {
 
         CellLayout hotseatLayout = (CellLayout) hotseat.getChildAt(0);
         ShortcutAndWidgetContainer hotseatParent = hotseatLayout.getShortcutsAndWidgets();
-        int[][] matrix;
+        FocusMap focusMap;
 
         // KEYCODE_DPAD_DOWN in portrait (KEYCODE_DPAD_RIGHT in landscape) is the only key allowed
         // to take a user to the hotseat. For other dpad navigation, do not use the matrix extended
         // with the hotseat.
         if (keyCode == KeyEvent.KEYCODE_DPAD_DOWN && !profile.isVerticalBarLayout()) {
-            matrix = FocusLogic.createSparseMatrixWithHotseat(iconLayout, hotseatLayout, profile);
+            focusMap = iconLayout.getFocusMapWithHotseat(hotseatLayout, profile);
         } else if (keyCode == KeyEvent.KEYCODE_DPAD_RIGHT &&
                 profile.isVerticalBarLayout()) {
-            matrix = FocusLogic.createSparseMatrixWithHotseat(iconLayout, hotseatLayout, profile);
+            focusMap = iconLayout.getFocusMapWithHotseat(hotseatLayout, profile);
         } else {
-            matrix = FocusLogic.createSparseMatrix(iconLayout);
+            focusMap = iconLayout.getFocusMap();
         }
 
         // Process the focus.
-        int newIconIndex = FocusLogic.handleKeyEvent(keyCode, matrix, iconIndex, pageIndex,
+        int newIconIndex = FocusLogic.handleKeyEvent(keyCode, focusMap, iconIndex, pageIndex,
                 pageCount, Utilities.isRtl(v.getResources()));
         boolean isRtl = Utilities.isRtl(v.getResources());
         View newIcon = null;
@@ -392,10 +394,8 @@ public class FocusHelper {
                 parent = getCellLayoutChildrenForIndex(workspace, newPageIndex);
                 if (parent != null) {
                     iconLayout = (CellLayout) parent.getParent();
-                    matrix = FocusLogic.createSparseMatrixWithPivotColumn(iconLayout,
-                            iconLayout.getCountX(), row);
-                    newIconIndex = FocusLogic.handleKeyEvent(keyCode, matrix, FocusLogic.PIVOT,
-                            newPageIndex, pageCount, Utilities.isRtl(v.getResources()));
+                    newIconIndex = FocusLogic.handlePageEntry(keyCode, iconLayout.getFocusMap(),
+                            row, isRtl);
                     if (newIconIndex == FocusLogic.NEXT_PAGE_FIRST_ITEM) {
                         newIcon = handleNextPageFirstItem(workspace, hotseatLayout, pageIndex,
                                 isRtl);
@@ -432,9 +432,8 @@ public class FocusHelper {
                 parent = getCellLayoutChildrenForIndex(workspace, newPageIndex);
                 if (parent != null) {
                     iconLayout = (CellLayout) parent.getParent();
-                    matrix = FocusLogic.createSparseMatrixWithPivotColumn(iconLayout, -1, row);
-                    newIconIndex = FocusLogic.handleKeyEvent(keyCode, matrix, FocusLogic.PIVOT,
-                            newPageIndex, pageCount, Utilities.isRtl(v.getResources()));
+                    newIconIndex = FocusLogic.handlePageEntry(keyCode, iconLayout.getFocusMap(),
+                            row, isRtl);
                     if (newIconIndex == FocusLogic.NEXT_PAGE_FIRST_ITEM) {
                         newIcon = handleNextPageFirstItem(workspace, hotseatLayout, pageIndex,
                                 isRtl);
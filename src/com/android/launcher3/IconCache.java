@@ -44,7 +44,9 @@ import android.util.Log;
 import com.android.launcher3.compat.LauncherAppsCompat;
 import com.android.launcher3.compat.UserManagerCompat;
 import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.graphics.BitmapAccounting;
 import com.android.launcher3.graphics.LauncherIcons;
+import com.android.launcher3.logging.StartupTracer;
 import com.android.launcher3.model.PackageItemInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.InstantAppResolver;
@@ -188,7 +190,7 @@ public class IconCache {
      * Remove any records for the supplied ComponentName.
      */
     public synchronized void remove(ComponentName componentName, UserHandle user) {
-        mCache.remove(new ComponentKey(componentName, user));
+        untrackEntryIcon(mCache.remove(new ComponentKey(componentName, user)), user);
     }
 
     /**
@@ -203,7 +205,7 @@ public class IconCache {
             }
         }
         for (ComponentKey condemned: forDeletion) {
-            mCache.remove(condemned);
+            untrackEntryIcon(mCache.remove(condemned), user);
         }
     }
 
@@ -224,6 +226,26 @@ public class IconCache {
         }
     }
 
+    /**
+     * Re-renders the icons of the given components of a package in memory and persistent DB, for
+     * when the icon provider returns different icons without the package being updated.
+     */
+    public synchronized void updateIconsForComponents(String packageName,
+            Set<ComponentName> components, UserHandle user) {
+        try {
+            PackageInfo info = mPackageManager.getPackageInfo(packageName,
+                    PackageManager.GET_UNINSTALLED_PACKAGES);
+            long userSerial = mUserManager.getSerialNumberForUser(user);
+            for (LauncherActivityInfo app : mLauncherApps.getActivityList(packageName, user)) {
+                if (components.contains(app.getComponentName())) {
+                    addIconToDBAndMemCache(app, info, userSerial, true /*replace existing*/);
+                }
+            }
+        } catch (NameNotFoundException e) {
+            Log.d(TAG, "Package not found", e);
+        }
+    }
+
     /**
      * Removes the entries related to the given package in memory and persistent DB.
      */
@@ -371,6 +393,7 @@ public class IconCache {
         entry.title = app.getLabel();
         entry.contentDescription = mUserManager.getBadgedLabelForUser(entry.title, app.getUser());
         mCache.put(key, entry);
+        trackEntryIcon(entry, app.getUser());
 
         Bitmap lowResIcon = generateLowResIcon(entry.icon);
         ContentValues values = newContentValues(entry.icon, lowResIcon, entry.title.toString(),
@@ -489,7 +512,9 @@ public class IconCache {
 
     public synchronized Bitmap getDefaultIcon(UserHandle user) {
         if (!mDefaultIcons.containsKey(user)) {
-            mDefaultIcons.put(user, makeDefaultIcon(user));
+            Bitmap icon = makeDefaultIcon(user);
+            mDefaultIcons.put(user, icon);
+            BitmapAccounting.track(BitmapAccounting.OWNER_DEFAULT_ICONS, icon);
         }
         return mDefaultIcons.get(user);
     }
@@ -498,6 +523,24 @@ public class IconCache {
         return mDefaultIcons.get(user) == icon;
     }
 
+    /**
+     * Counts the icon of {@param entry} as held by the memory cache, unless it is the default icon.
+     */
+    private void trackEntryIcon(CacheEntry entry, UserHandle user) {
+        if (entry.icon != null && entry.icon != mDefaultIcons.get(user)) {
+            BitmapAccounting.track(BitmapAccounting.OWNER_ICON_CACHE, entry.icon);
+        }
+    }
+
+    /**
+     * Stops counting the icon of {@param entry}, removed from the memory cache.
+     */
+    private void untrackEntryIcon(CacheEntry entry, UserHandle user) {
+        if (entry != null && entry.icon != null && entry.icon != mDefaultIcons.get(user)) {
+            BitmapAccounting.untrack(entry.icon);
+        }
+    }
+
     /**
      * Retrieves the entry from the cache. If the entry is not present, it creates a new entry.
      * This method is not thread safe, it must be called from a synchronized method.
@@ -555,6 +598,7 @@ public class IconCache {
                     entry.contentDescription = mUserManager.getBadgedLabelForUser(entry.title, user);
                 }
             }
+            trackEntryIcon(entry, user);
         }
         return entry;
     }
@@ -587,6 +631,7 @@ public class IconCache {
         }
         if (!TextUtils.isEmpty(title) && entry.icon != null) {
             mCache.put(cacheKey, entry);
+            trackEntryIcon(entry, user);
         }
     }
 
@@ -650,12 +695,20 @@ public class IconCache {
             // Only add a filled-out entry to the cache
             if (entryUpdated) {
                 mCache.put(cacheKey, entry);
+                trackEntryIcon(entry, user);
             }
         }
         return entry;
     }
 
     private boolean getEntryFromDB(ComponentKey cacheKey, CacheEntry entry, boolean lowRes) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        boolean found = readEntryFromDB(cacheKey, entry, lowRes);
+        StartupTracer.onIconDbLookup(found, SystemClock.elapsedRealtimeNanos() - start);
+        return found;
+    }
+
+    private boolean readEntryFromDB(ComponentKey cacheKey, CacheEntry entry, boolean lowRes) {
         Cursor c = null;
         try {
             c = mIconDb.query(
@@ -22,6 +22,8 @@ import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.graphics.Point;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.DisplayMetrics;
 import android.util.Xml;
 import android.view.Display;
@@ -137,25 +139,20 @@ public class InvariantDeviceProfile {
         minWidthDps = Utilities.dpiFromPx(Math.min(smallestSize.x, smallestSize.y), dm);
         minHeightDps = Utilities.dpiFromPx(Math.min(largestSize.x, largestSize.y), dm);
 
-        ArrayList<InvariantDeviceProfile> closestProfiles = findClosestDeviceProfiles(
-                minWidthDps, minHeightDps, getPredefinedDeviceProfiles(context));
-        InvariantDeviceProfile interpolatedDeviceProfileOut =
-                invDistWeightedInterpolate(minWidthDps,  minHeightDps, closestProfiles);
-
-        InvariantDeviceProfile closestProfile = closestProfiles.get(0);
-        numRows = closestProfile.numRows;
-        numColumns = closestProfile.numColumns;
-        numHotseatIcons = closestProfile.numHotseatIcons;
-        defaultLayoutId = closestProfile.defaultLayoutId;
-        demoModeLayoutId = closestProfile.demoModeLayoutId;
-        numFolderRows = closestProfile.numFolderRows;
-        numFolderColumns = closestProfile.numFolderColumns;
-        minAllAppsPredictionColumns = closestProfile.minAllAppsPredictionColumns;
-
-        iconSize = interpolatedDeviceProfileOut.iconSize;
-        landscapeIconSize = interpolatedDeviceProfileOut.landscapeIconSize;
+        InvariantDeviceProfile resolvedProfile = resolveDeviceProfile(context, dm);
+        numRows = resolvedProfile.numRows;
+        numColumns = resolvedProfile.numColumns;
+        numHotseatIcons = resolvedProfile.numHotseatIcons;
+        defaultLayoutId = resolvedProfile.defaultLayoutId;
+        demoModeLayoutId = resolvedProfile.demoModeLayoutId;
+        numFolderRows = resolvedProfile.numFolderRows;
+        numFolderColumns = resolvedProfile.numFolderColumns;
+        minAllAppsPredictionColumns = resolvedProfile.minAllAppsPredictionColumns;
+
+        iconSize = resolvedProfile.iconSize;
+        landscapeIconSize = resolvedProfile.landscapeIconSize;
         iconBitmapSize = Utilities.pxFromDp(iconSize, dm);
-        iconTextSize = interpolatedDeviceProfileOut.iconTextSize;
+        iconTextSize = resolvedProfile.iconTextSize;
         fillResIconDpi = getLauncherIconDensity(iconBitmapSize);
 
         // If the partner customization apk contains any grid overrides, apply them
@@ -185,6 +182,53 @@ public class InvariantDeviceProfile {
         }
     }
 
+    /**
+     * Returns the profile matching {@link #minWidthDps} and {@link #minHeightDps}, combining the
+     * grid of the closest predefined profile with the interpolated icon sizes. The result is
+     * persisted in {@link InvariantDeviceProfileCache}, so that only the first start for a given
+     * display configuration pays for parsing and interpolating the predefined profiles.
+     */
+    private InvariantDeviceProfile resolveDeviceProfile(Context context, DisplayMetrics dm) {
+        InvariantDeviceProfileCache cache =
+                new InvariantDeviceProfileCache(context, minWidthDps, minHeightDps, dm);
+        if (LauncherAppState.PROFILE_STARTUP) {
+            Trace.beginSection("InvariantDeviceProfile-cachedResolve");
+        }
+        InvariantDeviceProfile resolvedProfile = cache.load();
+        if (LauncherAppState.PROFILE_STARTUP) {
+            Trace.endSection();
+        }
+        if (resolvedProfile != null) {
+            return resolvedProfile;
+        }
+
+        if (LauncherAppState.PROFILE_STARTUP) {
+            Trace.beginSection("InvariantDeviceProfile-resolve");
+        }
+        long startTime = SystemClock.elapsedRealtimeNanos();
+        ArrayList<InvariantDeviceProfile> closestProfiles = findClosestDeviceProfiles(
+                minWidthDps, minHeightDps, getPredefinedDeviceProfiles(context));
+        InvariantDeviceProfile interpolatedDeviceProfileOut =
+                invDistWeightedInterpolate(minWidthDps,  minHeightDps, closestProfiles);
+
+        InvariantDeviceProfile closestProfile = closestProfiles.get(0);
+        resolvedProfile = new InvariantDeviceProfile(closestProfile.name,
+                minWidthDps, minHeightDps,
+                closestProfile.numRows, closestProfile.numColumns,
+                closestProfile.numFolderRows, closestProfile.numFolderColumns,
+                closestProfile.minAllAppsPredictionColumns,
+                interpolatedDeviceProfileOut.iconSize,
+                interpolatedDeviceProfileOut.landscapeIconSize,
+                interpolatedDeviceProfileOut.iconTextSize,
+                closestProfile.numHotseatIcons,
+                closestProfile.defaultLayoutId, closestProfile.demoModeLayoutId);
+        cache.save(resolvedProfile, (SystemClock.elapsedRealtimeNanos() - startTime) / 1000);
+        if (LauncherAppState.PROFILE_STARTUP) {
+            Trace.endSection();
+        }
+        return resolvedProfile;
+    }
+
     ArrayList<InvariantDeviceProfile> getPredefinedDeviceProfiles(Context context) {
         ArrayList<InvariantDeviceProfile> profiles = new ArrayList<>();
         try (XmlResourceParser parser = context.getResources().getXml(R.xml.device_profiles)) {
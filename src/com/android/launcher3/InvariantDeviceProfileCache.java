@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+/**
+ * Persists the result of resolving {@link InvariantDeviceProfile} against
+ * {@code device_profiles.xml}, so that subsequent process starts can skip the xml parse and the
+ * nearest-neighbour interpolation.
+ *
+ * The entry is keyed by the version code and the last update time of the apk, the display
+ * metrics and the font scale; any change in those produces a cache miss and the entry is replaced
+ * on the next resolution. Since the key changes with every install of the apk, the stored layout
+ * resource ids remain valid. The values are stored before partner overrides are applied, as the
+ * partner apk can change independently.
+ */
+class InvariantDeviceProfileCache {
+
+    private static final String TAG = "IDPCache";
+
+    // Key of the entry
+    private static final String KEY_VERSION_CODE = "pref_resolved_idp_version_code";
+    private static final String KEY_LAST_UPDATE_TIME = "pref_resolved_idp_last_update_time";
+    private static final String KEY_DISPLAY_MIN_WIDTH_DPS = "pref_resolved_idp_display_min_width";
+    private static final String KEY_DISPLAY_MIN_HEIGHT_DPS =
+            "pref_resolved_idp_display_min_height";
+    private static final String KEY_DENSITY_DPI = "pref_resolved_idp_density_dpi";
+    private static final String KEY_FONT_SCALE = "pref_resolved_idp_font_scale";
+
+    // Resolved profile
+    private static final String KEY_NAME = "pref_resolved_idp_name";
+    private static final String KEY_MIN_WIDTH_DPS = "pref_resolved_idp_min_width_dps";
+    private static final String KEY_MIN_HEIGHT_DPS = "pref_resolved_idp_min_height_dps";
+    private static final String KEY_NUM_ROWS = "pref_resolved_idp_num_rows";
+    private static final String KEY_NUM_COLUMNS = "pref_resolved_idp_num_columns";
+    private static final String KEY_NUM_FOLDER_ROWS = "pref_resolved_idp_num_folder_rows";
+    private static final String KEY_NUM_FOLDER_COLUMNS = "pref_resolved_idp_num_folder_columns";
+    private static final String KEY_MIN_ALL_APPS_PREDICTION_COLUMNS =
+            "pref_resolved_idp_min_all_apps_prediction_columns";
+    private static final String KEY_ICON_SIZE = "pref_resolved_idp_icon_size";
+    private static final String KEY_LANDSCAPE_ICON_SIZE = "pref_resolved_idp_landscape_icon_size";
+    private static final String KEY_ICON_TEXT_SIZE = "pref_resolved_idp_icon_text_size";
+    private static final String KEY_NUM_HOTSEAT_ICONS = "pref_resolved_idp_num_hotseat_icons";
+    private static final String KEY_DEFAULT_LAYOUT_ID = "pref_resolved_idp_default_layout_id";
+    private static final String KEY_DEMO_MODE_LAYOUT_ID = "pref_resolved_idp_demo_mode_layout_id";
+
+    private static final String KEY_RESOLVE_DURATION = "pref_resolved_idp_duration";
+
+    private final SharedPreferences mPrefs;
+    private final float mMinWidthDps;
+    private final float mMinHeightDps;
+    private final int mDensityDpi;
+    private final float mFontScale;
+
+    /** Version of the installed apk, or null if it could not be read. */
+    private final PackageInfo mPackageInfo;
+
+    InvariantDeviceProfileCache(Context context, float minWidthDps, float minHeightDps,
+            DisplayMetrics dm) {
+        mPrefs = Utilities.getDevicePrefs(context);
+        mMinWidthDps = minWidthDps;
+        mMinHeightDps = minHeightDps;
+        mDensityDpi = dm.densityDpi;
+        Configuration config = context.getResources().getConfiguration();
+        mFontScale = config.fontScale;
+
+        PackageInfo packageInfo = null;
+        try {
+            packageInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "Unable to read the version of the launcher, not caching", e);
+        }
+        mPackageInfo = packageInfo;
+    }
+
+    /**
+     * Returns the previously resolved profile for the current key, or null if there is no valid
+     * entry.
+     */
+    InvariantDeviceProfile load() {
+        if (mPackageInfo == null
+                || mPrefs.getInt(KEY_VERSION_CODE, -1) != mPackageInfo.versionCode
+                || mPrefs.getLong(KEY_LAST_UPDATE_TIME, -1) != mPackageInfo.lastUpdateTime
+                || mPrefs.getFloat(KEY_DISPLAY_MIN_WIDTH_DPS, -1) != mMinWidthDps
+                || mPrefs.getFloat(KEY_DISPLAY_MIN_HEIGHT_DPS, -1) != mMinHeightDps
+                || mPrefs.getInt(KEY_DENSITY_DPI, -1) != mDensityDpi
+                || mPrefs.getFloat(KEY_FONT_SCALE, -1) != mFontScale) {
+            return null;
+        }
+        String name = mPrefs.getString(KEY_NAME, null);
+        if (name == null) {
+            return null;
+        }
+        try {
+            InvariantDeviceProfile p = new InvariantDeviceProfile(
+                    name,
+                    mPrefs.getFloat(KEY_MIN_WIDTH_DPS, 0),
+                    mPrefs.getFloat(KEY_MIN_HEIGHT_DPS, 0),
+                    mPrefs.getInt(KEY_NUM_ROWS, 0),
+                    mPrefs.getInt(KEY_NUM_COLUMNS, 0),
+                    mPrefs.getInt(KEY_NUM_FOLDER_ROWS, 0),
+                    mPrefs.getInt(KEY_NUM_FOLDER_COLUMNS, 0),
+                    mPrefs.getInt(KEY_MIN_ALL_APPS_PREDICTION_COLUMNS, 0),
+                    mPrefs.getFloat(KEY_ICON_SIZE, 0),
+                    mPrefs.getFloat(KEY_LANDSCAPE_ICON_SIZE, 0),
+                    mPrefs.getFloat(KEY_ICON_TEXT_SIZE, 0),
+                    mPrefs.getInt(KEY_NUM_HOTSEAT_ICONS, 0),
+                    mPrefs.getInt(KEY_DEFAULT_LAYOUT_ID, 0),
+                    mPrefs.getInt(KEY_DEMO_MODE_LAYOUT_ID, 0));
+            if (LauncherAppState.PROFILE_STARTUP) {
+                Log.d(TAG, "Using cached device profile, saved "
+                        + mPrefs.getLong(KEY_RESOLVE_DURATION, 0) + "us of resolution");
+            }
+            return p;
+        } catch (ClassCastException e) {
+            // An entry written with a different type, by an older version of the cache.
+            Log.e(TAG, "Invalid cached device profile", e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the resolved profile for the current key.
+     * @param resolveDurationUs the time it took to resolve the profile, reported on cache hits.
+     */
+    void save(InvariantDeviceProfile p, long resolveDurationUs) {
+        if (mPackageInfo == null) {
+            return;
+        }
+        mPrefs.edit()
+                .putInt(KEY_VERSION_CODE, mPackageInfo.versionCode)
+                .putLong(KEY_LAST_UPDATE_TIME, mPackageInfo.lastUpdateTime)
+                .putFloat(KEY_DISPLAY_MIN_WIDTH_DPS, mMinWidthDps)
+                .putFloat(KEY_DISPLAY_MIN_HEIGHT_DPS, mMinHeightDps)
+                .putInt(KEY_DENSITY_DPI, mDensityDpi)
+                .putFloat(KEY_FONT_SCALE, mFontScale)
+                .putString(KEY_NAME, p.name)
+                .putFloat(KEY_MIN_WIDTH_DPS, p.minWidthDps)
+                .putFloat(KEY_MIN_HEIGHT_DPS, p.minHeightDps)
+                .putInt(KEY_NUM_ROWS, p.numRows)
+                .putInt(KEY_NUM_COLUMNS, p.numColumns)
+                .putInt(KEY_NUM_FOLDER_ROWS, p.numFolderRows)
+                .putInt(KEY_NUM_FOLDER_COLUMNS, p.numFolderColumns)
+                .putInt(KEY_MIN_ALL_APPS_PREDICTION_COLUMNS, p.minAllAppsPredictionColumns)
+                .putFloat(KEY_ICON_SIZE, p.iconSize)
+                .putFloat(KEY_LANDSCAPE_ICON_SIZE, p.landscapeIconSize)
+                .putFloat(KEY_ICON_TEXT_SIZE, p.iconTextSize)
+                .putInt(KEY_NUM_HOTSEAT_ICONS, p.numHotseatIcons)
+                .putInt(KEY_DEFAULT_LAYOUT_ID, p.defaultLayoutId)
+                .putInt(KEY_DEMO_MODE_LAYOUT_ID, p.demoModeLayoutId)
+                .putLong(KEY_RESOLVE_DURATION, resolveDurationUs)
+                .apply();
+    }
+}
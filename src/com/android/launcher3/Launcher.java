@@ -30,7 +30,6 @@ import android.app.AlertDialog;
 import android.app.SearchManager;
 import android.appwidget.AppWidgetHostView;
 import android.appwidget.AppWidgetManager;
-import android.appwidget.AppWidgetProviderInfo;
 import android.content.ActivityNotFoundException;
 import android.content.BroadcastReceiver;
 import android.content.ComponentCallbacks2;
@@ -56,7 +55,6 @@ import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
-import android.os.Message;
 import android.os.StrictMode;
 import android.os.SystemClock;
 import android.os.Trace;
@@ -81,7 +79,6 @@ import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
 import android.view.animation.OvershootInterpolator;
 import android.view.inputmethod.InputMethodManager;
-import android.widget.Advanceable;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -106,8 +103,12 @@ import com.android.launcher3.dragndrop.DragView;
 import com.android.launcher3.dynamicui.ExtractedColors;
 import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderIcon;
+import com.android.launcher3.graphics.BitmapAccounting;
+import com.android.launcher3.graphics.DragPreviewProvider;
 import com.android.launcher3.keyboard.ViewGroupFocusHelper;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.FrameTracker;
+import com.android.launcher3.logging.StartupTracer;
 import com.android.launcher3.logging.UserEventDispatcher;
 import com.android.launcher3.model.WidgetsModel;
 import com.android.launcher3.pageindicators.PageIndicator;
@@ -271,6 +272,7 @@ public class Launcher extends Activity
 
     private LauncherModel mModel;
     private IconCache mIconCache;
+    private BubbleTextViewPool mBubbleTextViewPool;
     private ExtractedColors mExtractedColors;
     private LauncherAccessibilityDelegate mAccessibilityDelegate;
     private boolean mIsResumeFromActionScreenOff;
@@ -284,15 +286,8 @@ public class Launcher extends Activity
 
     private View.OnTouchListener mHapticFeedbackTouchListener;
 
-    // Related to the auto-advancing of widgets
-    private final int ADVANCE_MSG = 1;
-    private static final int ADVANCE_INTERVAL = 20000;
-    private static final int ADVANCE_STAGGER = 250;
-
-    private boolean mAutoAdvanceRunning = false;
-    private long mAutoAdvanceSentTime;
-    private long mAutoAdvanceTimeLeft = -1;
-    @Thunk HashMap<View, AppWidgetProviderInfo> mWidgetsToAdvance = new HashMap<>();
+    // Auto-advance and updates of the widgets
+    private final WidgetUpdateScheduler mWidgetUpdateScheduler = new WidgetUpdateScheduler();
 
     // Determines how long to wait after a rotation before restoring the screen orientation to
     // match the sensor state.
@@ -387,6 +382,7 @@ public class Launcher extends Activity
         if (LauncherAppState.PROFILE_STARTUP) {
             Trace.beginSection("Launcher-onCreate");
         }
+        StartupTracer.beginSession();
 
         if (mLauncherCallbacks != null) {
             mLauncherCallbacks.preOnCreate();
@@ -406,6 +402,7 @@ public class Launcher extends Activity
         mIsSafeModeEnabled = getPackageManager().isSafeMode();
         mModel = app.setLauncher(this);
         mIconCache = app.getIconCache();
+        mBubbleTextViewPool = new BubbleTextViewPool(this, app.getInvariantDeviceProfile());
         mAccessibilityDelegate = new LauncherAccessibilityDelegate(this);
 
         mDragController = new DragController(this);
@@ -425,6 +422,7 @@ public class Launcher extends Activity
         setContentView(R.layout.launcher);
 
         setupViews();
+        StartupTracer.trackFirstDraw(mDragLayer);
         mDeviceProfile.layout(this, false /* notifyListeners */);
         mExtractedColors = new ExtractedColors();
         loadExtractedColorsAndColorItems();
@@ -433,10 +431,13 @@ public class Launcher extends Activity
                 .addAccessibilityStateChangeListener(this);
 
         lockAllApps();
+        mBubbleTextViewPool.prewarm();
+        FrameTracker.setRefreshRate(getWindowManager().getDefaultDisplay().getRefreshRate());
 
         mSavedState = savedInstanceState;
         restoreState(mSavedState);
 
+        StartupTracer.end(StartupTracer.SPAN_ON_CREATE);
         if (LauncherAppState.PROFILE_STARTUP) {
             Trace.endSection();
         }
@@ -642,7 +643,8 @@ public class Launcher extends Activity
         // activity. Since most user event logging is done on the UI, the object is retrieved
         // from the callback for convenience.
         if (mUserEventDispatcher == null) {
-            mUserEventDispatcher = new UserEventDispatcher();
+            mUserEventDispatcher = UserEventDispatcher.newInstance(this,
+                    mDeviceProfile.isLandscape, Utilities.ATLEAST_NOUGAT && isInMultiWindowMode());
         }
         return mUserEventDispatcher;
     }
@@ -1471,8 +1473,8 @@ public class Launcher extends Activity
      * @return A View inflated from layoutResId.
      */
     public View createShortcut(ViewGroup parent, ShortcutInfo info) {
-        BubbleTextView favorite = (BubbleTextView) getLayoutInflater().inflate(R.layout.app_icon,
-                parent, false);
+        BubbleTextView favorite = mBubbleTextViewPool.obtain(R.layout.app_icon);
+        favorite.setLayoutParams(new CellLayout.LayoutParams(0, 0, 1, 1));
         favorite.applyFromShortcutInfo(info, mIconCache);
         favorite.setCompoundDrawablePadding(mDeviceProfile.iconDrawablePaddingPx);
         favorite.setOnClickListener(this);
@@ -1582,10 +1584,6 @@ public class Launcher extends Activity
 
         mWorkspace.addInScreen(hostView, item.container, item.screenId,
                 item.cellX, item.cellY, item.spanX, item.spanY, insert);
-
-        if (!item.isCustomWidget()) {
-            addWidgetToAutoAdvanceIfNeeded(hostView, appWidgetInfo);
-        }
     }
 
     private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
@@ -1692,70 +1690,14 @@ public class Launcher extends Activity
         }
     }
 
-    @Thunk void sendAdvanceMessage(long delay) {
-        mHandler.removeMessages(ADVANCE_MSG);
-        Message msg = mHandler.obtainMessage(ADVANCE_MSG);
-        mHandler.sendMessageDelayed(msg, delay);
-        mAutoAdvanceSentTime = System.currentTimeMillis();
-    }
-
     @Thunk void updateAutoAdvanceState() {
-        boolean autoAdvanceRunning = mVisible && mUserPresent && !mWidgetsToAdvance.isEmpty();
-        if (autoAdvanceRunning != mAutoAdvanceRunning) {
-            mAutoAdvanceRunning = autoAdvanceRunning;
-            if (autoAdvanceRunning) {
-                long delay = mAutoAdvanceTimeLeft == -1 ? ADVANCE_INTERVAL : mAutoAdvanceTimeLeft;
-                sendAdvanceMessage(delay);
-            } else {
-                if (!mWidgetsToAdvance.isEmpty()) {
-                    mAutoAdvanceTimeLeft = Math.max(0, ADVANCE_INTERVAL -
-                            (System.currentTimeMillis() - mAutoAdvanceSentTime));
-                }
-                mHandler.removeMessages(ADVANCE_MSG);
-                mHandler.removeMessages(0); // Remove messages sent using postDelayed()
-            }
-        }
+        mWidgetUpdateScheduler.setHostVisible(mVisible && mUserPresent);
     }
 
-    @Thunk final Handler mHandler = new Handler(new Handler.Callback() {
+    @Thunk final Handler mHandler = new Handler();
 
-        @Override
-        public boolean handleMessage(Message msg) {
-            if (msg.what == ADVANCE_MSG) {
-                int i = 0;
-                for (View key: mWidgetsToAdvance.keySet()) {
-                    final View v = key.findViewById(mWidgetsToAdvance.get(key).autoAdvanceViewId);
-                    final int delay = ADVANCE_STAGGER * i;
-                    if (v instanceof Advanceable) {
-                        mHandler.postDelayed(new Runnable() {
-                           public void run() {
-                               ((Advanceable) v).advance();
-                           }
-                       }, delay);
-                    }
-                    i++;
-                }
-                sendAdvanceMessage(ADVANCE_INTERVAL);
-            }
-            return true;
-        }
-    });
-
-    private void addWidgetToAutoAdvanceIfNeeded(View hostView, AppWidgetProviderInfo appWidgetInfo) {
-        if (appWidgetInfo == null || appWidgetInfo.autoAdvanceViewId == -1) return;
-        View v = hostView.findViewById(appWidgetInfo.autoAdvanceViewId);
-        if (v instanceof Advanceable) {
-            mWidgetsToAdvance.put(hostView, appWidgetInfo);
-            ((Advanceable) v).fyiWillBeAdvancedByHostKThx();
-            updateAutoAdvanceState();
-        }
-    }
-
-    private void removeWidgetToAutoAdvance(View hostView) {
-        if (mWidgetsToAdvance.containsKey(hostView)) {
-            mWidgetsToAdvance.remove(hostView);
-            updateAutoAdvanceState();
-        }
+    public WidgetUpdateScheduler getWidgetUpdateScheduler() {
+        return mWidgetUpdateScheduler;
     }
 
     public void showOutOfSpaceMessage(boolean isHotseatLayout) {
@@ -1811,6 +1753,10 @@ public class Launcher extends Activity
         return mDeviceProfile;
     }
 
+    public BubbleTextViewPool getBubbleTextViewPool() {
+        return mBubbleTextViewPool;
+    }
+
     public void closeSystemDialogs() {
         getWindow().closeAllPanels();
 
@@ -1955,7 +1901,6 @@ public class Launcher extends Activity
         super.onDestroy();
 
         // Remove all pending runnables
-        mHandler.removeMessages(ADVANCE_MSG);
         mHandler.removeMessages(0);
         mWorkspace.removeCallbacks(mBuildLayersRunnable);
         mWorkspace.removeFolderListeners();
@@ -1979,7 +1924,7 @@ public class Launcher extends Activity
         }
         mAppWidgetHost = null;
 
-        mWidgetsToAdvance.clear();
+        mWidgetUpdateScheduler.clear();
 
         TextKeyListener.getInstance().release();
 
@@ -2302,7 +2247,6 @@ public class Launcher extends Activity
         } else if (itemInfo instanceof LauncherAppWidgetInfo) {
             final LauncherAppWidgetInfo widgetInfo = (LauncherAppWidgetInfo) itemInfo;
             mWorkspace.removeWorkspaceItem(v);
-            removeWidgetToAutoAdvance(v);
             if (deleteFromDb) {
                 deleteWidgetInfo(widgetInfo);
             }
@@ -3212,6 +3156,15 @@ public class Launcher extends Activity
             // This clears all widget bitmaps from the widget tray
             // TODO(hyunyoungs)
         }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                && level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // Under memory pressure, only keep the views of the pages around the current page.
+            mWorkspace.dematerializeDistantScreens();
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            // The outlines are regenerated the next time the items are dragged.
+            DragPreviewProvider.clearOutlineCache();
+        }
         if (mLauncherCallbacks != null) {
             mLauncherCallbacks.onTrimMemory(level);
         }
@@ -3573,9 +3526,10 @@ public class Launcher extends Activity
 
         // Clear the workspace because it's going to be rebound
         mWorkspace.clearDropTargets();
+        recycleWorkspaceIcons();
         mWorkspace.removeAllWorkspaceScreens();
 
-        mWidgetsToAdvance.clear();
+        mWidgetUpdateScheduler.clear();
         if (mHotseat != null) {
             mHotseat.resetLayout();
         }
@@ -3584,6 +3538,22 @@ public class Launcher extends Activity
         }
     }
 
+    /**
+     * Returns the icons of the workspace and hotseat to the pool, so that binding reuses them.
+     */
+    private void recycleWorkspaceIcons() {
+        for (CellLayout layout : mWorkspace.getWorkspaceAndHotseatCellLayouts()) {
+            ShortcutAndWidgetContainer container = layout.getShortcutsAndWidgets();
+            for (int i = container.getChildCount() - 1; i >= 0; i--) {
+                View child = container.getChildAt(i);
+                if (child instanceof BubbleTextView) {
+                    layout.removeViewInLayout(child);
+                    mBubbleTextViewPool.recycle((BubbleTextView) child, R.layout.app_icon);
+                }
+            }
+        }
+    }
+
     @Override
     public void bindScreens(ArrayList<Long> orderedScreenIds) {
         // Make sure the first screen is always at the start.
@@ -3690,6 +3660,9 @@ public class Launcher extends Activity
                     mHotseat == null) {
                 continue;
             }
+            if (!forceAnimateIcons && workspace.deferItemIfOffscreen(item)) {
+                continue;
+            }
 
             final View view;
             switch (item.itemType) {
@@ -3793,6 +3766,9 @@ public class Launcher extends Activity
         if (waitUntilResume(r)) {
             return;
         }
+        if (mWorkspace.deferItemIfOffscreen(item)) {
+            return;
+        }
 
         if (mIsSafeModeEnabled) {
             bindSafeModeWidget(item);
@@ -4452,6 +4428,10 @@ public class Launcher extends Activity
                     writer.println(prefix + "    " + tag.toString());
                 }
             }
+            long screenId = mWorkspace.getScreenIdForPageIndex(i);
+            for (ItemInfo info : mWorkspace.getDeferredItems(screenId)) {
+                writer.println(prefix + "    (deferred) " + info);
+            }
         }
 
         writer.println(prefix + "  Hotseat");
@@ -4469,6 +4449,13 @@ public class Launcher extends Activity
             // Ignore
         }
 
+        getUserEventDispatcher().dump(prefix, writer);
+        mBubbleTextViewPool.dump(prefix, writer);
+        FrameTracker.dump(prefix, writer);
+        StartupTracer.dump(prefix, writer);
+        BitmapAccounting.dump(prefix, writer);
+        mWidgetUpdateScheduler.dump(prefix, writer);
+
         if (mLauncherCallbacks != null) {
             mLauncherCallbacks.dump(prefix, fd, writer, args);
         }
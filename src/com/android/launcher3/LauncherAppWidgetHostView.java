@@ -21,9 +21,6 @@ import android.appwidget.AppWidgetProviderInfo;
 import android.content.Context;
 import android.graphics.PointF;
 import android.graphics.Rect;
-import android.os.Handler;
-import android.os.SystemClock;
-import android.util.SparseBooleanArray;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
@@ -47,18 +44,12 @@ import java.util.ArrayList;
 public class LauncherAppWidgetHostView extends AppWidgetHostView
         implements TouchCompleteListener, View.OnLongClickListener {
 
-    // Related to the auto-advancing of widgets
-    private static final long ADVANCE_INTERVAL = 20000;
-    private static final long ADVANCE_STAGGER = 250;
-
-    // Maintains a list of widget ids which are supposed to be auto advanced.
-    private static final SparseBooleanArray sAutoAdvanceWidgetIds = new SparseBooleanArray();
-
     protected final LayoutInflater mInflater;
 
     private final CheckLongPressHelper mLongPressHelper;
     private final StylusEventHelper mStylusEventHelper;
     private final Context mContext;
+    private final WidgetUpdateScheduler mUpdateScheduler;
 
     @ViewDebug.ExportedProperty(category = "launcher")
     private int mPreviousOrientation;
@@ -70,8 +61,6 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView
 
     private boolean mIsScrollable;
     private boolean mIsAttachedToWindow;
-    private boolean mIsAutoAdvanceRegistered;
-    private Runnable mAutoAdvanceRunnable;
 
     /**
      * The scaleX and scaleY value such that the widget fits within its cellspans, scaleX = scaleY.
@@ -89,7 +78,9 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView
         mLongPressHelper = new CheckLongPressHelper(this, this);
         mStylusEventHelper = new StylusEventHelper(new SimpleOnStylusPressListener(this), this);
         mInflater = LayoutInflater.from(context);
-        setAccessibilityDelegate(Launcher.getLauncher(context).getAccessibilityDelegate());
+        Launcher launcher = Launcher.getLauncher(context);
+        mUpdateScheduler = launcher.getWidgetUpdateScheduler();
+        setAccessibilityDelegate(launcher.getAccessibilityDelegate());
         setBackgroundResource(R.drawable.widget_internal_focus_bg);
 
         if (Utilities.ATLEAST_OREO) {
@@ -118,6 +109,16 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView
 
     @Override
     public void updateAppWidget(RemoteViews remoteViews) {
+        // Bursts of updates, and updates of widgets which are not shown, are applied later.
+        if (!mUpdateScheduler.onUpdateReceived(this, remoteViews)) {
+            applyRemoteViews(remoteViews);
+        }
+    }
+
+    /**
+     * Applies the views of the provider, without going through the {@link WidgetUpdateScheduler}.
+     */
+    void applyRemoteViews(RemoteViews remoteViews) {
         // Store the orientation in which the widget was inflated
         updateLastInflationOrientation();
         super.updateAppWidget(remoteViews);
@@ -233,6 +234,7 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView
         // state is updated. So isAttachedToWindow() will return true until next frame.
         mIsAttachedToWindow = false;
         checkIfAutoAdvance();
+        mUpdateScheduler.onViewDetached(this);
     }
 
     @Override
@@ -354,7 +356,7 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView
 
     public void switchToErrorView() {
         // Update the widget with 0 Layout id, to reset the view to error view.
-        updateAppWidget(new RemoteViews(getAppWidgetInfo().provider.getPackageName(), 0));
+        applyRemoteViews(new RemoteViews(getAppWidgetInfo().provider.getPackageName(), 0));
     }
 
     @Override
@@ -379,12 +381,6 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView
         info.setClassName(getClass().getName());
     }
 
-    @Override
-    protected void onWindowVisibilityChanged(int visibility) {
-        super.onWindowVisibilityChanged(visibility);
-        maybeRegisterAutoAdvance();
-    }
-
     private void checkIfAutoAdvance() {
         boolean isAutoAdvance = false;
         Advanceable target = getAdvanceable();
@@ -393,15 +389,7 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView
             target.fyiWillBeAdvancedByHostKThx();
         }
 
-        boolean wasAutoAdvance = sAutoAdvanceWidgetIds.indexOfKey(getAppWidgetId()) >= 0;
-        if (isAutoAdvance != wasAutoAdvance) {
-            if (isAutoAdvance) {
-                sAutoAdvanceWidgetIds.put(getAppWidgetId(), true);
-            } else {
-                sAutoAdvanceWidgetIds.delete(getAppWidgetId());
-            }
-            maybeRegisterAutoAdvance();
-        }
+        mUpdateScheduler.setAutoAdvance(this, isAutoAdvance);
     }
 
     private Advanceable getAdvanceable() {
@@ -413,45 +401,16 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView
         return (v instanceof Advanceable) ? (Advanceable) v : null;
     }
 
-    private void maybeRegisterAutoAdvance() {
-        Handler handler = getHandler();
-        boolean shouldRegisterAutoAdvance = getWindowVisibility() == VISIBLE && handler != null
-                && (sAutoAdvanceWidgetIds.indexOfKey(getAppWidgetId()) >= 0);
-        if (shouldRegisterAutoAdvance != mIsAutoAdvanceRegistered) {
-            mIsAutoAdvanceRegistered = shouldRegisterAutoAdvance;
-            if (mAutoAdvanceRunnable == null) {
-                mAutoAdvanceRunnable = new Runnable() {
-                    @Override
-                    public void run() {
-                        runAutoAdvance();
-                    }
-                };
-            }
-
-            handler.removeCallbacks(mAutoAdvanceRunnable);
-            scheduleNextAdvance();
-        }
-    }
-
-    private void scheduleNextAdvance() {
-        if (!mIsAutoAdvanceRegistered) {
-            return;
-        }
-        long now = SystemClock.uptimeMillis();
-        long advanceTime = now + (ADVANCE_INTERVAL - (now % ADVANCE_INTERVAL)) +
-                ADVANCE_STAGGER * sAutoAdvanceWidgetIds.indexOfKey(getAppWidgetId());
-        Handler handler = getHandler();
-        if (handler != null) {
-            handler.postAtTime(mAutoAdvanceRunnable, advanceTime);
-        }
-    }
-
-    private void runAutoAdvance() {
+    /**
+     * Advances the auto-advance view of the widget, returns false if there is none.
+     */
+    boolean advance() {
         Advanceable target = getAdvanceable();
         if (target != null) {
             target.advance();
+            return true;
         }
-        scheduleNextAdvance();
+        return false;
     }
 
     public void setScaleToFit(float scale) {
@@ -58,7 +58,10 @@ import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.dynamicui.ExtractionUtils;
 import com.android.launcher3.graphics.IconShapeOverride;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.StartupTracer;
 import com.android.launcher3.model.DbDowngradeHelper;
+import com.android.launcher3.provider.BulkRestoreWriter;
+import com.android.launcher3.provider.ImportDataTask;
 import com.android.launcher3.provider.LauncherDbUtils;
 import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
 import com.android.launcher3.provider.RestoreDbTask;
@@ -85,7 +88,7 @@ public class LauncherProvider extends ContentProvider {
     /**
      * Represents the schema of the database. Changes in scheme need not be backwards compatible.
      */
-    public static final int SCHEMA_VERSION = 27;
+    public static final int SCHEMA_VERSION = 28;
 
     public static final String AUTHORITY = (BuildConfig.APPLICATION_ID + ".settings").intern();
 
@@ -121,6 +124,7 @@ public class LauncherProvider extends ContentProvider {
         // is the first component to get created. Initializing FileLog here ensures that it's
         // always available in the main process.
         FileLog.setDir(getContext().getApplicationContext().getFilesDir());
+        StartupTracer.setDir(getContext().getApplicationContext().getFilesDir());
         IconShapeOverride.apply(getContext());
         SessionCommitReceiver.applyDefaultUserPrefs(getContext());
         return true;
@@ -152,6 +156,7 @@ public class LauncherProvider extends ContentProvider {
             if (LauncherAppState.PROFILE_STARTUP) {
                 Trace.beginSection("Opening workspace DB");
             }
+            StartupTracer.begin(StartupTracer.SPAN_OPEN_DB);
             mOpenHelper = new DatabaseHelper(getContext(), mListenerHandler);
 
             if (RestoreDbTask.isPending(getContext())) {
@@ -163,6 +168,7 @@ public class LauncherProvider extends ContentProvider {
                 RestoreDbTask.setPending(getContext(), false);
             }
 
+            StartupTracer.end(StartupTracer.SPAN_OPEN_DB);
             if (LauncherAppState.PROFILE_STARTUP) {
                 Trace.endSection();
             }
@@ -194,6 +200,9 @@ public class LauncherProvider extends ContentProvider {
             throw new RuntimeException("Error: attempting to add item without specifying an id");
         }
         helper.checkId(table, values);
+        if (Favorites.TABLE_NAME.equals(table)) {
+            Favorites.putLaunchComponent(values);
+        }
         return db.insert(table, nullColumnHack, values);
     }
 
@@ -422,10 +431,38 @@ public class LauncherProvider extends ContentProvider {
                 mOpenHelper.removeGhostWidgets(mOpenHelper.getWritableDatabase());
                 return null;
             }
+            case LauncherSettings.Settings.METHOD_IMPORT_DATA: {
+                Bundle result = new Bundle();
+                result.putBoolean(LauncherSettings.Settings.EXTRA_VALUE, importData(arg));
+                return result;
+            }
         }
         return null;
     }
 
+    /**
+     * Imports the workspace of the launcher with the given authority, in a single transaction.
+     * @return true if the data was imported, false if there was no data or the import failed, in
+     *         which case the DB is not changed.
+     */
+    private boolean importData(String sourceAuthority) {
+        ImportDataTask task;
+        try (BulkRestoreWriter writer = new BulkRestoreWriter(mOpenHelper, null)) {
+            task = ImportDataTask.importWorkspace(getContext(), sourceAuthority, writer);
+            if (task == null) {
+                return false;
+            }
+            writer.commit();
+        } catch (Exception e) {
+            FileLog.e(TAG, "Failed to import data", e);
+            return false;
+        }
+        task.markForMigration();
+        clearFlagEmptyDbCreated();
+        notifyListeners();
+        return true;
+    }
+
     /**
      * Deletes any empty folder from the DB.
      * @return Ids of deleted folders.
@@ -826,6 +863,10 @@ public class LauncherProvider extends ContentProvider {
                         break;
                     }
                 case 27:
+                    if (!addLaunchComponentColumn(db)) {
+                        break;
+                    }
+                case 28:
                     // DB Upgraded successfully
                     return;
             }
@@ -1007,6 +1048,25 @@ public class LauncherProvider extends ContentProvider {
             return true;
         }
 
+        /**
+         * Adds the {@link Favorites#LAUNCH_COMPONENT} column and its trigger, and fills it for
+         * the existing items.
+         */
+        private boolean addLaunchComponentColumn(SQLiteDatabase db) {
+            try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+                db.execSQL("ALTER TABLE favorites ADD COLUMN "
+                        + Favorites.LAUNCH_COMPONENT + " TEXT;");
+                Favorites.addLaunchComponentTrigger(db);
+                db.execSQL("UPDATE favorites SET " + Favorites.LAUNCH_COMPONENT + " = "
+                        + Favorites.getLaunchComponentSql(Favorites.INTENT) + ";");
+                t.commit();
+            } catch (SQLException ex) {
+                Log.e(TAG, ex.getMessage(), ex);
+                return false;
+            }
+            return true;
+        }
+
         private boolean addProfileColumn(SQLiteDatabase db) {
             return addIntegerColumn(db, Favorites.PROFILE_ID, getDefaultUserSerial());
         }
@@ -17,6 +17,7 @@
 package com.android.launcher3;
 
 import android.content.ContentResolver;
+import android.content.ContentValues;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Bundle;
@@ -257,6 +258,27 @@ public class LauncherSettings {
          */
         public static final String OPTIONS = "options";
 
+        /**
+         * The flattened component of {@link #INTENT} when it is the launch intent of an activity,
+         * as created by {@link com.android.launcher3.AppInfo#makeLaunchIntent}, or null for any
+         * other intent, so that the loader can create the intent without parsing it. The column is
+         * set by the writers when inserting a row, see {@link #putLaunchComponent}, and by a trigger
+         * on the table when the intent is updated.
+         * <p>Type: TEXT</p>
+         */
+        public static final String LAUNCH_COMPONENT = "launchComponent";
+
+        /**
+         * Prefix of {@link #INTENT} for the launch intent of an activity, which is followed by the
+         * encoded flattened component and {@link #LAUNCH_INTENT_SUFFIX}.
+         */
+        public static final String LAUNCH_INTENT_PREFIX = "#Intent;"
+                + "action=android.intent.action.MAIN;"
+                + "category=android.intent.category.LAUNCHER;"
+                + "launchFlags=0x10200000;"
+                + "component=";
+        public static final String LAUNCH_INTENT_SUFFIX = ";end";
+
         public static void addTableToDb(SQLiteDatabase db, long myProfileId, boolean optional) {
             String ifNotExists = optional ? " IF NOT EXISTS " : "";
             db.execSQL("CREATE TABLE " + ifNotExists + TABLE_NAME + " (" +
@@ -279,8 +301,66 @@ public class LauncherSettings {
                     "restored INTEGER NOT NULL DEFAULT 0," +
                     "profileId INTEGER DEFAULT " + myProfileId + "," +
                     "rank INTEGER NOT NULL DEFAULT 0," +
-                    "options INTEGER NOT NULL DEFAULT 0" +
+                    "options INTEGER NOT NULL DEFAULT 0," +
+                    "launchComponent TEXT" +
                     ");");
+            addLaunchComponentTrigger(db);
+        }
+
+        /**
+         * Creates the trigger which updates {@link #LAUNCH_COMPONENT} whenever {@link #INTENT} is
+         * updated, whichever the writer.
+         */
+        public static void addLaunchComponentTrigger(SQLiteDatabase db) {
+            // A renamed table keeps its trigger, so it may exist for another table.
+            db.execSQL("DROP TRIGGER IF EXISTS favorites_launch_component_update;");
+            db.execSQL("CREATE TRIGGER favorites_launch_component_update AFTER UPDATE OF "
+                    + INTENT + " ON " + TABLE_NAME + " BEGIN UPDATE " + TABLE_NAME + " SET "
+                    + LAUNCH_COMPONENT + " = " + getLaunchComponentSql("NEW." + INTENT)
+                    + " WHERE _id = NEW._id; END;");
+        }
+
+        /**
+         * Sets {@link #LAUNCH_COMPONENT} for the {@link #INTENT} of the values of a new row.
+         */
+        public static void putLaunchComponent(ContentValues values) {
+            values.put(LAUNCH_COMPONENT, getLaunchComponent(values.getAsString(INTENT)));
+        }
+
+        /**
+         * Returns the component of the provided intent if it is the launch intent of an
+         * activity, or null otherwise. Same as {@link #getLaunchComponentSql}.
+         */
+        public static String getLaunchComponent(String intent) {
+            int start = LAUNCH_INTENT_PREFIX.length();
+            if (intent == null || intent.length() <= start + LAUNCH_INTENT_SUFFIX.length()
+                    || !intent.startsWith(LAUNCH_INTENT_PREFIX)
+                    || !intent.endsWith(LAUNCH_INTENT_SUFFIX)) {
+                return null;
+            }
+            String component = intent.substring(start,
+                    intent.length() - LAUNCH_INTENT_SUFFIX.length());
+            // Any other field would follow the component.
+            return component.indexOf(';') < 0 ? component : null;
+        }
+
+        /**
+         * Returns the SQL expression evaluating to the component of the provided intent column,
+         * if it holds the launch intent of an activity, or NULL otherwise.
+         */
+        public static String getLaunchComponentSql(String intentColumn) {
+            int start = LAUNCH_INTENT_PREFIX.length();
+            int extraLength = start + LAUNCH_INTENT_SUFFIX.length();
+            String component = "substr(" + intentColumn + ", " + (start + 1) + ", length("
+                    + intentColumn + ") - " + extraLength + ")";
+            return "CASE WHEN substr(" + intentColumn + ", 1, " + start + ") = '"
+                    + LAUNCH_INTENT_PREFIX + "'"
+                    + " AND substr(" + intentColumn + ", -" + LAUNCH_INTENT_SUFFIX.length()
+                    + ") = '" + LAUNCH_INTENT_SUFFIX + "'"
+                    + " AND length(" + intentColumn + ") > " + extraLength
+                    // Any other field would follow the component.
+                    + " AND instr(" + component + ", ';') = 0"
+                    + " THEN " + component + " ELSE NULL END";
         }
     }
 
@@ -311,10 +391,16 @@ public class LauncherSettings {
 
         public static final String METHOD_REMOVE_GHOST_WIDGETS = "remove_ghost_widgets";
 
+        public static final String METHOD_IMPORT_DATA = "import_data";
+
         public static final String EXTRA_VALUE = "value";
 
         public static Bundle call(ContentResolver cr, String method) {
             return cr.call(CONTENT_URI, method, null, null);
         }
+
+        public static Bundle call(ContentResolver cr, String method, String arg) {
+            return cr.call(CONTENT_URI, method, arg, null);
+        }
     }
 }
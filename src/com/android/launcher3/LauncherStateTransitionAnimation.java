@@ -33,6 +33,8 @@ import com.android.launcher3.allapps.AllAppsTransitionController;
 import com.android.launcher3.anim.AnimationLayerSet;
 import com.android.launcher3.anim.CircleRevealOutlineProvider;
 import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.logging.FrameTracker;
+import com.android.launcher3.model.nano.LauncherDumpProto.InteractionType;
 import com.android.launcher3.util.Thunk;
 import com.android.launcher3.widget.WidgetsContainerView;
 
@@ -713,6 +715,7 @@ public class LauncherStateTransitionAnimation {
             if (mViewToFocus != null) {
                 mViewToFocus.requestFocus();
             }
+            FrameTracker.trackAnimator(mAnim, InteractionType.STATE_TRANSITION);
             mAnim.start();
         }
     }
@@ -23,7 +23,8 @@ import android.graphics.Rect;
 import android.view.View;
 import android.view.ViewGroup;
 
-public class ShortcutAndWidgetContainer extends ViewGroup {
+public class ShortcutAndWidgetContainer extends ViewGroup
+        implements ViewGroup.OnHierarchyChangeListener {
     static final String TAG = "CellLayoutChildren";
 
     // These are temporary variables to prevent having to allocate a new object just to
@@ -50,6 +51,7 @@ public class ShortcutAndWidgetContainer extends ViewGroup {
         super(context);
         mLauncher = Launcher.getLauncher(context);
         mWallpaperManager = WallpaperManager.getInstance(context);
+        setOnHierarchyChangeListener(this);
     }
 
     public void setCellDimensions(int cellWidth, int cellHeight, int widthGap, int heightGap,
@@ -101,6 +103,22 @@ public class ShortcutAndWidgetContainer extends ViewGroup {
         mInvertIfRtl = invert;
     }
 
+    @Override
+    public void onChildViewAdded(View parent, View child) {
+        invalidateFocusMap();
+    }
+
+    @Override
+    public void onChildViewRemoved(View parent, View child) {
+        invalidateFocusMap();
+    }
+
+    private void invalidateFocusMap() {
+        if (getParent() instanceof CellLayout) {
+            ((CellLayout) getParent()).invalidateFocusMap();
+        }
+    }
+
     public void setIsHotseat(boolean isHotseat) {
         mIsHotseatLayout = isHotseat;
     }
@@ -152,6 +170,8 @@ public class ShortcutAndWidgetContainer extends ViewGroup {
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        // Items are laid out again when they move in the grid.
+        invalidateFocusMap();
         int count = getChildCount();
         for (int i = 0; i < count; i++) {
             final View child = getChildAt(i);
@@ -33,6 +33,7 @@ import android.util.LongSparseArray;
 import com.android.launcher3.compat.AppWidgetManagerCompat;
 import com.android.launcher3.compat.ShortcutConfigActivityInfo;
 import com.android.launcher3.compat.UserManagerCompat;
+import com.android.launcher3.graphics.BitmapAccounting;
 import com.android.launcher3.graphics.LauncherIcons;
 import com.android.launcher3.graphics.ShadowGenerator;
 import com.android.launcher3.model.WidgetItem;
@@ -520,6 +521,16 @@ public class WidgetPreviewLoader {
         }
     }
 
+    /**
+     * Returns {@param bitmap} to the set of bitmaps which can be reused by the next previews.
+     */
+    @Thunk void addUnusedBitmap(Bitmap bitmap) {
+        synchronized (mUnusedBitmaps) {
+            mUnusedBitmaps.add(bitmap);
+        }
+        BitmapAccounting.track(BitmapAccounting.OWNER_WIDGET_PREVIEWS_UNUSED, bitmap);
+    }
+
     public class PreviewLoadTask extends AsyncTask<Void, Void, Bitmap>
             implements CancellationSignal.OnCancelListener {
         @Thunk final WidgetCacheKey mKey;
@@ -590,6 +601,11 @@ public class WidgetPreviewLoader {
                 // it's not in the db... we need to generate it
                 preview = generatePreview(mActivity, mInfo, unusedBitmap, mPreviewWidth, mPreviewHeight);
             }
+            if (preview != unusedBitmap) {
+                // The bitmap taken from the unused set was not reused for the preview.
+                BitmapAccounting.untrack(unusedBitmap);
+            }
+            BitmapAccounting.track(BitmapAccounting.OWNER_WIDGET_PREVIEWS, preview);
             return preview;
         }
 
@@ -610,9 +626,7 @@ public class WidgetPreviewLoader {
                         } else {
                             // If we've already cancelled, then skip writing the bitmap to the DB
                             // and manually add the bitmap back to the recycled set
-                            synchronized (mUnusedBitmaps) {
-                                mUnusedBitmaps.add(preview);
-                            }
+                            addUnusedBitmap(preview);
                         }
                     }
                 });
@@ -632,9 +646,7 @@ public class WidgetPreviewLoader {
                 mWorkerHandler.post(new Runnable() {
                     @Override
                     public void run() {
-                        synchronized (mUnusedBitmaps) {
-                            mUnusedBitmaps.add(preview);
-                        }
+                        addUnusedBitmap(preview);
                     }
                 });
             }
@@ -653,9 +665,7 @@ public class WidgetPreviewLoader {
                 mWorkerHandler.post(new Runnable() {
                     @Override
                     public void run() {
-                        synchronized (mUnusedBitmaps) {
-                            mUnusedBitmaps.add(mBitmapToRecycle);
-                        }
+                        addUnusedBitmap(mBitmapToRecycle);
                         mBitmapToRecycle = null;
                     }
                 });
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3;
+
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.ComponentName;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewParent;
+import android.widget.RemoteViews;
+
+import com.android.launcher3.util.Preconditions;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Schedules the work done for the widgets of the launcher on the UI thread: the auto-advance of
+ * widgets like stacks and flippers, and the updates of {@link RemoteViews} sent by the providers.
+ *
+ * The widgets are auto-advanced together by a single runnable, and only the widgets on the shown
+ * pages are advanced. Updates are applied at most once per frame for each widget: when a provider
+ * sends several updates before the next frame, only the last one is applied. Updates of widgets
+ * away from the shown pages, or sent while the launcher is not visible, are kept until the page of
+ * the widget comes close.
+ *
+ * Only accessed on the UI thread.
+ */
+public class WidgetUpdateScheduler implements Choreographer.FrameCallback {
+
+    private static final long ADVANCE_INTERVAL = 20000;
+    private static final long ADVANCE_STAGGER = 250;
+
+    private static final ComponentName UNKNOWN_PROVIDER = new ComponentName("unknown", "unknown");
+
+    private final Handler mHandler = new Handler();
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+
+    private boolean mHostVisible;
+    private int mFirstShownPage;
+    private int mLastShownPage;
+
+    // Widgets which are auto-advanced, in the order in which they were registered.
+    private final ArrayList<LauncherAppWidgetHostView> mAutoAdvanceViews = new ArrayList<>();
+    // Widgets left to advance in the current round, staggered to spread the work.
+    private final ArrayList<LauncherAppWidgetHostView> mAdvanceQueue = new ArrayList<>();
+    private boolean mAdvanceScheduled;
+    private final Runnable mAdvanceRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mAdvanceScheduled = false;
+            runAdvance();
+        }
+    };
+
+    // Last update received for each widget id, which is not applied yet.
+    private final SparseArray<PendingUpdate> mPendingUpdates = new SparseArray<>();
+    private boolean mFrameCallbackPosted;
+
+    private final HashMap<ComponentName, UpdateStats> mStats = new HashMap<>();
+
+    /**
+     * Sets whether the launcher is visible to the user. Nothing is advanced or updated otherwise.
+     */
+    public void setHostVisible(boolean visible) {
+        Preconditions.assertUIThread();
+        if (mHostVisible != visible) {
+            mHostVisible = visible;
+            onVisibilityChanged();
+        }
+    }
+
+    /**
+     * Sets the range of the workspace pages which are shown. The pages next to this range are
+     * considered close enough to apply the updates of their widgets.
+     */
+    public void setShownPages(int firstPage, int lastPage) {
+        Preconditions.assertUIThread();
+        if (mFirstShownPage != firstPage || mLastShownPage != lastPage) {
+            mFirstShownPage = firstPage;
+            mLastShownPage = lastPage;
+            onVisibilityChanged();
+        }
+    }
+
+    /**
+     * Adds or removes {@param view} from the widgets which are auto-advanced.
+     */
+    void setAutoAdvance(LauncherAppWidgetHostView view, boolean autoAdvance) {
+        if (autoAdvance == mAutoAdvanceViews.contains(view)) {
+            return;
+        }
+        if (autoAdvance) {
+            mAutoAdvanceViews.add(view);
+        } else {
+            mAutoAdvanceViews.remove(view);
+            mAdvanceQueue.remove(view);
+        }
+        scheduleNextAdvance();
+    }
+
+    /**
+     * Called when {@param view} receives new views from its provider.
+     *
+     * @return false if the views should be applied now, true if they are applied later by
+     * {@link LauncherAppWidgetHostView#applyRemoteViews(RemoteViews)}.
+     */
+    boolean onUpdateReceived(LauncherAppWidgetHostView view, RemoteViews remoteViews) {
+        int appWidgetId = view.getAppWidgetId();
+        PendingUpdate pending = mPendingUpdates.get(appWidgetId);
+        // Before N, partial updates are sent without the rest of the views, so an update can only
+        // replace an older one from N on. Detached views are being bound, or are not shown.
+        if (!Utilities.ATLEAST_NOUGAT || !view.isAttachedToWindow()) {
+            if (pending != null) {
+                mPendingUpdates.remove(appWidgetId);
+                getStats(view).coalesced++;
+            }
+            getStats(view).applied++;
+            return false;
+        }
+
+        if (pending != null && pending.view == view) {
+            pending.remoteViews = remoteViews;
+            getStats(view).coalesced++;
+        } else {
+            mPendingUpdates.put(appWidgetId, new PendingUpdate(view, remoteViews));
+        }
+        if (isNearby(view)) {
+            postFrameCallback();
+        }
+        return true;
+    }
+
+    /**
+     * Applies the update kept for {@param view}, if any, as it is not shown anymore.
+     */
+    void onViewDetached(LauncherAppWidgetHostView view) {
+        PendingUpdate pending = mPendingUpdates.get(view.getAppWidgetId());
+        if (pending != null && pending.view == view) {
+            mPendingUpdates.remove(view.getAppWidgetId());
+            applyUpdate(pending);
+        }
+    }
+
+    /**
+     * Forgets all the widgets, when the workspace is rebound.
+     */
+    public void clear() {
+        mAutoAdvanceViews.clear();
+        mAdvanceQueue.clear();
+        mPendingUpdates.clear();
+        scheduleNextAdvance();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameCallbackPosted = false;
+        for (int i = mPendingUpdates.size() - 1; i >= 0; i--) {
+            PendingUpdate pending = mPendingUpdates.valueAt(i);
+            if (isNearby(pending.view)) {
+                mPendingUpdates.removeAt(i);
+                applyUpdate(pending);
+            }
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "WidgetUpdateScheduler: hostVisible=" + mHostVisible
+                + " shownPages=" + mFirstShownPage + "-" + mLastShownPage
+                + " autoAdvance=" + mAutoAdvanceViews.size()
+                + " pendingUpdates=" + mPendingUpdates.size());
+        for (Map.Entry<ComponentName, UpdateStats> entry : mStats.entrySet()) {
+            UpdateStats stats = entry.getValue();
+            writer.println(prefix + "  " + entry.getKey().flattenToShortString()
+                    + ": applied=" + stats.applied
+                    + " coalesced=" + stats.coalesced
+                    + " advanced=" + stats.advanced);
+        }
+    }
+
+    private void onVisibilityChanged() {
+        if (mPendingUpdates.size() > 0) {
+            postFrameCallback();
+        }
+        scheduleNextAdvance();
+    }
+
+    private void applyUpdate(PendingUpdate pending) {
+        getStats(pending.view).applied++;
+        pending.view.applyRemoteViews(pending.remoteViews);
+    }
+
+    private void postFrameCallback() {
+        if (!mFrameCallbackPosted) {
+            mChoreographer.postFrameCallback(this);
+            mFrameCallbackPosted = true;
+        }
+    }
+
+    private void scheduleNextAdvance() {
+        boolean shouldAdvance = mHostVisible && !mAutoAdvanceViews.isEmpty();
+        if (!shouldAdvance) {
+            if (mAdvanceScheduled) {
+                mHandler.removeCallbacks(mAdvanceRunnable);
+                mAdvanceScheduled = false;
+            }
+            mAdvanceQueue.clear();
+            return;
+        }
+        if (mAdvanceScheduled) {
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        long advanceTime = mAdvanceQueue.isEmpty()
+                ? now + ADVANCE_INTERVAL - (now % ADVANCE_INTERVAL)
+                : now + ADVANCE_STAGGER;
+        mHandler.postAtTime(mAdvanceRunnable, advanceTime);
+        mAdvanceScheduled = true;
+    }
+
+    /**
+     * Advances the next widget of the current round, or starts a new round.
+     */
+    private void runAdvance() {
+        if (mAdvanceQueue.isEmpty()) {
+            for (LauncherAppWidgetHostView view : mAutoAdvanceViews) {
+                if (isShown(view)) {
+                    mAdvanceQueue.add(view);
+                }
+            }
+        }
+        if (!mAdvanceQueue.isEmpty()) {
+            LauncherAppWidgetHostView view = mAdvanceQueue.remove(0);
+            if (isShown(view) && view.advance()) {
+                getStats(view).advanced++;
+            }
+        }
+        scheduleNextAdvance();
+    }
+
+    private boolean isShown(View view) {
+        if (!mHostVisible) {
+            return false;
+        }
+        int page = getWorkspacePage(view);
+        return page < 0 || (page >= mFirstShownPage && page <= mLastShownPage);
+    }
+
+    private boolean isNearby(View view) {
+        if (!mHostVisible) {
+            return false;
+        }
+        int page = getWorkspacePage(view);
+        return page < 0 || (page >= mFirstShownPage - 1 && page <= mLastShownPage + 1);
+    }
+
+    /**
+     * Returns the index of the workspace page of {@param view}, or -1 if it is not on a page of
+     * the workspace, in which case it is always shown with the workspace.
+     */
+    private static int getWorkspacePage(View view) {
+        ViewParent container = view.getParent();
+        ViewParent cellLayout = container == null ? null : container.getParent();
+        if (cellLayout instanceof CellLayout && cellLayout.getParent() instanceof Workspace) {
+            return ((Workspace) cellLayout.getParent()).indexOfChild((View) cellLayout);
+        }
+        return -1;
+    }
+
+    private UpdateStats getStats(LauncherAppWidgetHostView view) {
+        AppWidgetProviderInfo info = view.getAppWidgetInfo();
+        ComponentName provider = info == null ? UNKNOWN_PROVIDER : info.provider;
+        UpdateStats stats = mStats.get(provider);
+        if (stats == null) {
+            stats = new UpdateStats();
+            mStats.put(provider, stats);
+        }
+        return stats;
+    }
+
+    private static class PendingUpdate {
+
+        final LauncherAppWidgetHostView view;
+        RemoteViews remoteViews;
+
+        PendingUpdate(LauncherAppWidgetHostView view, RemoteViews remoteViews) {
+            this.view = view;
+            this.remoteViews = remoteViews;
+        }
+    }
+
+    private static class UpdateStats {
+        int applied;
+        int coalesced;
+        int advanced;
+    }
+}
@@ -73,8 +73,11 @@ import com.android.launcher3.dragndrop.SpringLoadedDragController;
 import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderIcon;
 import com.android.launcher3.folder.PreviewBackground;
+import com.android.launcher3.graphics.BitmapAccounting;
 import com.android.launcher3.graphics.DragPreviewProvider;
 import com.android.launcher3.graphics.PreloadIconDrawable;
+import com.android.launcher3.logging.FrameTracker;
+import com.android.launcher3.model.nano.LauncherDumpProto.InteractionType;
 import com.android.launcher3.popup.PopupContainerWithArrow;
 import com.android.launcher3.shortcuts.ShortcutDragPreviewProvider;
 import com.android.launcher3.userevent.nano.LauncherLogProto.Action;
@@ -141,6 +144,18 @@ public class Workspace extends PagedView
     @Thunk final LongArrayMap<CellLayout> mWorkspaceScreens = new LongArrayMap<>();
     @Thunk final ArrayList<Long> mScreenOrder = new ArrayList<>();
 
+    // Items of the pages away from the current page, which are not bound to views yet, by screen.
+    private final DeferredWorkspaceItems mDeferredItems = new DeferredWorkspaceItems();
+    private boolean mIsMaterializingScreen;
+    private boolean mMaterializePending;
+    private final Runnable mMaterializeNearbyScreens = new Runnable() {
+        @Override
+        public void run() {
+            mMaterializePending = false;
+            materializeNearbyScreens();
+        }
+    };
+
     @Thunk Runnable mRemoveEmptyScreenRunnable;
     @Thunk boolean mDeferRemoveExtraEmptyScreen = false;
 
@@ -245,6 +260,15 @@ public class Workspace extends PagedView
     private boolean mStripScreensOnPageStopMoving = false;
 
     private DragPreviewProvider mOutlineProvider = null;
+    // Shows the outline of the dragged item as soon as it is generated.
+    private final Runnable mOnDragOutlineReady = new Runnable() {
+        @Override
+        public void run() {
+            if (mDragController.isDragging()) {
+                mDragController.forceTouchMove();
+            }
+        }
+    };
     private final boolean mWorkspaceFadeInAdjacentScreens;
 
     final WallpaperOffsetInterpolator mWallpaperOffset;
@@ -428,8 +452,9 @@ public class Workspace extends PagedView
         }
 
         if (mOutlineProvider != null) {
-            // The outline is used to visualize where the item will land if dropped
-            mOutlineProvider.generateDragOutline(mCanvas);
+            // The outline is used to visualize where the item will land if dropped. It is usually
+            // already requested by beginDragShared.
+            mOutlineProvider.generateDragOutline(mCanvas, mOnDragOutlineReady);
         }
 
         updateChildrenLayersEnabled(false);
@@ -635,6 +660,7 @@ public class Workspace extends PagedView
         removeAllViews();
         mScreenOrder.clear();
         mWorkspaceScreens.clear();
+        mDeferredItems.clear();
 
         // Ensure that the first page is always present
         bindAndInitFirstWorkspaceScreen(qsb);
@@ -805,7 +831,7 @@ public class Workspace extends PagedView
 
         // If the final screen is empty, convert it to the extra empty screen
         if (finalScreen.getShortcutsAndWidgets().getChildCount() == 0 &&
-                !finalScreen.isDropPending()) {
+                !finalScreen.isDropPending() && !mDeferredItems.containsScreen(finalScreenId)) {
             mWorkspaceScreens.remove(finalScreenId);
             mScreenOrder.remove(finalScreenId);
 
@@ -979,7 +1005,8 @@ public class Workspace extends PagedView
             CellLayout cl = mWorkspaceScreens.valueAt(i);
             // FIRST_SCREEN_ID can never be removed.
             if ((!FeatureFlags.QSB_ON_FIRST_SCREEN || id > FIRST_SCREEN_ID)
-                    && cl.getShortcutsAndWidgets().getChildCount() == 0) {
+                    && cl.getShortcutsAndWidgets().getChildCount() == 0
+                    && !mDeferredItems.containsScreen(id)) {
                 removeScreens.add(id);
             }
         }
@@ -1280,11 +1307,15 @@ public class Workspace extends PagedView
     protected void onPageBeginTransition() {
         super.onPageBeginTransition();
         updateChildrenLayersEnabled(false);
+        FrameTracker.begin(InteractionType.WORKSPACE_SCROLL);
+        updateShownWidgetPages();
     }
 
     protected void onPageEndTransition() {
         super.onPageEndTransition();
         updateChildrenLayersEnabled(false);
+        FrameTracker.end(InteractionType.WORKSPACE_SCROLL);
+        updateShownWidgetPages();
 
         if (mDragController.isDragging()) {
             if (workspaceInModalState()) {
@@ -1366,6 +1397,12 @@ public class Workspace extends PagedView
         updatePageAlphaValues();
         updateStateForCustomContent();
         enableHwLayersOnVisiblePages();
+
+        // Bind the pages as they get closer, after the scroll is applied.
+        if (!mDeferredItems.isEmpty() && !mMaterializePending) {
+            mMaterializePending = true;
+            post(mMaterializeNearbyScreens);
+        }
     }
 
     private void showPageIndicatorAtCurrentScroll() {
@@ -1541,6 +1578,8 @@ public class Workspace extends PagedView
     @Override
     protected void notifyPageSwitchListener(int prevPage) {
         super.notifyPageSwitchListener(prevPage);
+        materializeNearbyScreens();
+        updateShownWidgetPages();
         if (prevPage != mCurrentPage) {
             int swipeDirection = (prevPage < mCurrentPage) ? Action.Direction.RIGHT : Action.Direction.LEFT;
             mLauncher.getUserEventDispatcher().logActionOnContainer(Action.Touch.SWIPE,
@@ -1994,6 +2033,10 @@ public class Workspace extends PagedView
         }
 
         onPrepareStateTransition(mState.hasMultipleVisiblePages);
+        if (mState.hasMultipleVisiblePages) {
+            materializeNearbyScreens();
+        }
+        updateShownWidgetPages();
 
         StateTransitionListener listener = new StateTransitionListener();
         if (animated) {
@@ -2142,6 +2185,8 @@ public class Workspace extends PagedView
         child.clearFocus();
         child.setPressed(false);
         mOutlineProvider = previewProvider;
+        // Start generating the outline now, so that it is ready when the drag view moves.
+        previewProvider.generateDragOutline(mCanvas, mOnDragOutlineReady);
 
         // The drag bitmap follows the touch point around on the screen
         final Bitmap b = previewProvider.createDragBitmap(mCanvas);
@@ -2192,6 +2237,7 @@ public class Workspace extends PagedView
         DragView dv = mDragController.startDrag(b, dragLayerX, dragLayerY, source,
                 dragObject, dragVisualizeOffset, dragRect, scale, dragOptions);
         dv.setIntrinsicIconScaleFactor(source.getIntrinsicIconScaleFactor());
+        BitmapAccounting.untrack(b);
         b.recycle();
         return dv;
     }
@@ -3698,7 +3744,11 @@ public class Workspace extends PagedView
     }
 
     public View getHomescreenIconByItemId(final long id) {
-        return getFirstMatch(new ItemOperator() {
+        ItemInfo deferred = mDeferredItems.getItem(id);
+        if (deferred != null) {
+            materializeScreen(deferred.screenId);
+        }
+        return getFirstBoundMatch(new ItemOperator() {
 
             @Override
             public boolean evaluate(ItemInfo info, View v) {
@@ -3708,7 +3758,13 @@ public class Workspace extends PagedView
     }
 
     public View getViewForTag(final Object tag) {
-        return getFirstMatch(new ItemOperator() {
+        if (tag instanceof ItemInfo) {
+            ItemInfo info = (ItemInfo) tag;
+            if (mDeferredItems.getItem(info.id) == info) {
+                materializeScreen(info.screenId);
+            }
+        }
+        return getFirstBoundMatch(new ItemOperator() {
 
             @Override
             public boolean evaluate(ItemInfo info, View v) {
@@ -3718,7 +3774,11 @@ public class Workspace extends PagedView
     }
 
     public LauncherAppWidgetHostView getWidgetForAppWidgetId(final int appWidgetId) {
-        return (LauncherAppWidgetHostView) getFirstMatch(new ItemOperator() {
+        LauncherAppWidgetInfo deferred = mDeferredItems.getWidget(appWidgetId);
+        if (deferred != null) {
+            materializeScreen(deferred.screenId);
+        }
+        return (LauncherAppWidgetHostView) getFirstBoundMatch(new ItemOperator() {
 
             @Override
             public boolean evaluate(ItemInfo info, View v) {
@@ -3728,9 +3788,36 @@ public class Workspace extends PagedView
         });
     }
 
+    /**
+     * Returns the view of the first item matching the operator. If the item is on a page which is
+     * not bound yet, the page is bound first.
+     */
     public View getFirstMatch(final ItemOperator operator) {
+        View view = getFirstBoundMatch(operator);
+        if (view != null) {
+            return view;
+        }
+        final ItemInfo[] deferred = new ItemInfo[1];
+        mDeferredItems.mapOverItems(MAP_NO_RECURSE, new ItemOperator() {
+            @Override
+            public boolean evaluate(ItemInfo info, View v) {
+                if (operator.evaluate(info, v)) {
+                    deferred[0] = info;
+                    return true;
+                }
+                return false;
+            }
+        });
+        if (deferred[0] == null) {
+            return null;
+        }
+        materializeScreen(deferred[0].screenId);
+        return getViewForTag(deferred[0]);
+    }
+
+    private View getFirstBoundMatch(final ItemOperator operator) {
         final View[] value = new View[1];
-        mapOverItems(MAP_NO_RECURSE, new ItemOperator() {
+        mapOverBoundItems(MAP_NO_RECURSE, new ItemOperator() {
             @Override
             public boolean evaluate(ItemInfo info, View v) {
                 if (operator.evaluate(info, v)) {
@@ -3762,6 +3849,13 @@ public class Workspace extends PagedView
      * shortcuts are not removed.
      */
     public void removeItemsByMatcher(final ItemInfoMatcher matcher) {
+        // Bind the pages which have items to remove, so that their folders are updated as well.
+        for (int i = mDeferredItems.getScreenCount() - 1; i >= 0; i--) {
+            if (!matcher.filterItemInfos(mDeferredItems.getItemsAt(i)).isEmpty()) {
+                materializeScreen(mDeferredItems.getScreenIdAt(i));
+            }
+        }
+
         ArrayList<CellLayout> cellLayouts = getWorkspaceAndHotseatCellLayouts();
         for (final CellLayout layoutParent: cellLayouts) {
             final ViewGroup layout = layoutParent.getShortcutsAndWidgets();
@@ -3808,7 +3902,7 @@ public class Workspace extends PagedView
          * Process the next itemInfo, possibly with side-effect on the next item.
          *
          * @param info info for the shortcut
-         * @param view view for the shortcut
+         * @param view view for the shortcut, or null if the page of the shortcut is not bound yet
          * @return true if done, false to continue the map
          */
         boolean evaluate(ItemInfo info, View view);
@@ -3817,10 +3911,24 @@ public class Workspace extends PagedView
     /**
      * Map the operator over the shortcuts and widgets, return the first-non-null value.
      *
+     * The items of the pages which are not bound yet are visited after the bound items, with a
+     * null view. Their views are created from their latest state when the pages are bound.
+     *
      * @param recurse true: iterate over folder children. false: op get the folders themselves.
      * @param op the operator to map over the shortcuts
      */
     void mapOverItems(boolean recurse, ItemOperator op) {
+        if (!mapOverBoundItems(recurse, op)) {
+            mDeferredItems.mapOverItems(recurse, op);
+        }
+    }
+
+    /**
+     * Map the operator over the shortcuts and widgets which have views.
+     *
+     * @return true if the operator is done.
+     */
+    private boolean mapOverBoundItems(boolean recurse, ItemOperator op) {
         ArrayList<ShortcutAndWidgetContainer> containers = getAllShortcutAndWidgetContainers();
         final int containerCount = containers.size();
         for (int containerIdx = 0; containerIdx < containerCount; containerIdx++) {
@@ -3839,16 +3947,140 @@ public class Workspace extends PagedView
                         View child = folderChildren.get(childIdx);
                         info = (ItemInfo) child.getTag();
                         if (op.evaluate(info, child)) {
-                            return;
+                            return true;
                         }
                     }
                 } else {
                     if (op.evaluate(info, item)) {
-                        return;
+                        return true;
                     }
                 }
             }
         }
+        return false;
+    }
+
+    /**
+     * Defers binding the item if its page is away from the current page, until the page is
+     * scrolled to. Only items bound while the workspace is loading, or to pages which were
+     * released, are deferred.
+     *
+     * @return true if the item is deferred, false if its view should be bound.
+     */
+    public boolean deferItemIfOffscreen(ItemInfo item) {
+        if (!FeatureFlags.LAZY_WORKSPACE_PAGES || mIsMaterializingScreen
+                || item.container != LauncherSettings.Favorites.CONTAINER_DESKTOP
+                || isScreenNearby(item.screenId)) {
+            return false;
+        }
+        if (!mDeferredItems.containsScreen(item.screenId) && !mLauncher.isWorkspaceLoading()) {
+            return false;
+        }
+        mDeferredItems.add(item);
+        return true;
+    }
+
+    /**
+     * Returns whether the page of the screen is shown, or next to the shown page.
+     */
+    private boolean isScreenNearby(long screenId) {
+        int page = getPageIndexForScreenId(screenId);
+        if (page < 0 || mState.hasMultipleVisiblePages) {
+            return true;
+        }
+        return Math.abs(page - getPageNearestToCenterOfScreen()) <= 1
+                || Math.abs(page - getNextPage()) <= 1;
+    }
+
+    /**
+     * Tells the {@link WidgetUpdateScheduler} which pages are shown. While scrolling, the pages
+     * on both sides of the current and next pages can be shown.
+     */
+    private void updateShownWidgetPages() {
+        int firstPage, lastPage;
+        if (mState.hasMultipleVisiblePages) {
+            firstPage = 0;
+            lastPage = getChildCount() - 1;
+        } else if (isPageInTransition()) {
+            firstPage = Math.min(getCurrentPage(), getNextPage()) - 1;
+            lastPage = Math.max(getCurrentPage(), getNextPage()) + 1;
+        } else {
+            firstPage = lastPage = getCurrentPage();
+        }
+        mLauncher.getWidgetUpdateScheduler().setShownPages(firstPage, lastPage);
+    }
+
+    private void materializeNearbyScreens() {
+        for (int i = mDeferredItems.getScreenCount() - 1; i >= 0; i--) {
+            long screenId = mDeferredItems.getScreenIdAt(i);
+            if (isScreenNearby(screenId)) {
+                materializeScreen(screenId);
+            }
+        }
+    }
+
+    private void materializeScreen(long screenId) {
+        ArrayList<ItemInfo> items = mDeferredItems.removeScreen(screenId);
+        if (items == null) {
+            return;
+        }
+        ArrayList<ItemInfo> shortcuts = new ArrayList<>(items.size());
+        mIsMaterializingScreen = true;
+        for (ItemInfo item : items) {
+            if (item instanceof LauncherAppWidgetInfo) {
+                mLauncher.bindAppWidget((LauncherAppWidgetInfo) item);
+            } else {
+                shortcuts.add(item);
+            }
+        }
+        if (!shortcuts.isEmpty()) {
+            mLauncher.bindItems(shortcuts, 0, shortcuts.size(), false);
+        }
+        mIsMaterializingScreen = false;
+    }
+
+    /**
+     * Releases the icons and folders of the pages away from the current page, keeping their items
+     * to bind them again when the pages are scrolled to. The widgets are kept, as their host views
+     * hold the state of the widgets.
+     */
+    public void dematerializeDistantScreens() {
+        if (!FeatureFlags.LAZY_WORKSPACE_PAGES || mLauncher.isWorkspaceLoading()
+                || mState != State.NORMAL || isPageInTransition() || mDragController.isDragging()) {
+            return;
+        }
+        BubbleTextViewPool iconPool = mLauncher.getBubbleTextViewPool();
+        for (int i = 0; i < mWorkspaceScreens.size(); i++) {
+            long screenId = mWorkspaceScreens.keyAt(i);
+            if (screenId == CUSTOM_CONTENT_SCREEN_ID || screenId == EXTRA_EMPTY_SCREEN_ID
+                    || isScreenNearby(screenId)) {
+                continue;
+            }
+            ShortcutAndWidgetContainer container =
+                    mWorkspaceScreens.valueAt(i).getShortcutsAndWidgets();
+            for (int j = container.getChildCount() - 1; j >= 0; j--) {
+                View child = container.getChildAt(j);
+                Object tag = child.getTag();
+                if (!(tag instanceof ShortcutInfo || tag instanceof FolderInfo)) {
+                    // Not an icon or a folder, like a widget or the QSB.
+                    continue;
+                }
+                ItemInfo info = (ItemInfo) tag;
+                mLauncher.removeItem(child, info, false /* deleteFromDb */);
+                if (child instanceof BubbleTextView) {
+                    iconPool.recycle((BubbleTextView) child, R.layout.app_icon);
+                }
+                mDeferredItems.add(info);
+            }
+        }
+    }
+
+    /**
+     * Returns the items of the screen which are not bound to views yet.
+     */
+    public ArrayList<ItemInfo> getDeferredItems(long screenId) {
+        ArrayList<ItemInfo> deferred = mDeferredItems.getItems(screenId);
+        return deferred == null ? new ArrayList<ItemInfo>() : deferred;
     }
 
     void updateShortcuts(ArrayList<ShortcutInfo> shortcuts) {
@@ -3979,10 +4211,12 @@ public class Workspace extends PagedView
                 mapOverItems(MAP_NO_RECURSE, new ItemOperator() {
                     @Override
                     public boolean evaluate(ItemInfo info, View view) {
-                        if (view instanceof PendingAppWidgetHostView
+                        if ((view == null || view instanceof PendingAppWidgetHostView)
                                 && changedInfo.contains(info)) {
                             ((LauncherAppWidgetInfo) info).installProgress = 100;
-                            ((PendingAppWidgetHostView) view).applyState();
+                            if (view != null) {
+                                ((PendingAppWidgetHostView) view).applyState();
+                            }
                         }
                         // process all the shortcuts
                         return false;
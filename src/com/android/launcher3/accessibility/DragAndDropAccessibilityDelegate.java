@@ -28,15 +28,22 @@ import android.view.accessibility.AccessibilityEvent;
 import com.android.launcher3.CellLayout;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.R;
+import com.android.launcher3.accessibility.LauncherAccessibilityDelegate.DragInfo;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Helper class to make drag-and-drop in a {@link CellLayout} accessible.
+ *
+ * The drop target and the descriptions of each cell are cached for the current drag, as they are
+ * requested for every cell on each hover and traversal. The cells around the ones whose occupancy
+ * changes are computed again, see {@link #onCellsChanged(int, int, int, int)}.
  */
 public abstract class DragAndDropAccessibilityDelegate extends ExploreByTouchHelper
         implements OnClickListener {
     protected static final int INVALID_POSITION = -1;
+    private static final int UNKNOWN_POSITION = Integer.MIN_VALUE;
 
     private static final int[] sTempArray = new int[2];
 
@@ -46,6 +53,12 @@ public abstract class DragAndDropAccessibilityDelegate extends ExploreByTouchHel
 
     private final Rect mTempRect = new Rect();
 
+    // Cached values indexed by cell id, valid for the drag of mCachedDragInfo.
+    private DragInfo mCachedDragInfo;
+    private int[] mDropTargets = new int[0];
+    private String[] mLocationDescriptions = new String[0];
+    private String[] mConfirmations = new String[0];
+
     public DragAndDropAccessibilityDelegate(CellLayout forView) {
         super(forView);
         mView = forView;
@@ -62,7 +75,7 @@ public abstract class DragAndDropAccessibilityDelegate extends ExploreByTouchHel
 
         // Map cell to id
         int id = sTempArray[0] + sTempArray[1] * mView.getCountX();
-        return intersectsValidDropTarget(id);
+        return getDropTarget(id);
     }
 
     /**
@@ -78,7 +91,7 @@ public abstract class DragAndDropAccessibilityDelegate extends ExploreByTouchHel
         int nCells = mView.getCountX() * mView.getCountY();
 
         for (int i = 0; i < nCells; i++) {
-            if (intersectsValidDropTarget(i) == i) {
+            if (getDropTarget(i) == i) {
                 virtualViews.add(i);
             }
         }
@@ -87,7 +100,7 @@ public abstract class DragAndDropAccessibilityDelegate extends ExploreByTouchHel
     @Override
     protected boolean onPerformActionForVirtualView(int viewId, int action, Bundle args) {
         if (action == AccessibilityNodeInfoCompat.ACTION_CLICK && viewId != INVALID_ID) {
-            String confirmation = getConfirmationForIconDrop(viewId);
+            String confirmation = getConfirmation(viewId);
             mDelegate.handleAccessibleDrop(mView, getItemBounds(viewId), confirmation);
             return true;
         }
@@ -114,7 +127,7 @@ public abstract class DragAndDropAccessibilityDelegate extends ExploreByTouchHel
             throw new IllegalArgumentException("Invalid virtual view id");
         }
 
-        node.setContentDescription(getLocationDescriptionForIconDrop(id));
+        node.setContentDescription(getLocationDescription(id));
         node.setBoundsInParent(getItemBounds(id));
 
         node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
@@ -126,10 +139,96 @@ public abstract class DragAndDropAccessibilityDelegate extends ExploreByTouchHel
 
     protected abstract String getConfirmationForIconDrop(int id);
 
+    protected DragInfo getDragInfo() {
+        return mDelegate.getDragInfo();
+    }
+
+    /**
+     * Called when the occupancy of the given cells of the layout changes.
+     */
+    public void onCellsChanged(int cellX, int cellY, int spanX, int spanY) {
+        DragInfo dragInfo = mCachedDragInfo;
+        if (dragInfo == null) {
+            return;
+        }
+        int countX = mView.getCountX();
+        int countY = mView.getCountY();
+        if (mDropTargets.length != countX * countY) {
+            mCachedDragInfo = null;
+            return;
+        }
+
+        // The drop target of a cell depends on the cells covered by the item when dropped on
+        // either side of it, see WorkspaceAccessibilityHelper#intersectsValidDropTarget.
+        int marginX = Math.max(dragInfo.info.spanX - 1, 0);
+        int marginY = Math.max(dragInfo.info.spanY - 1, 0);
+        int endX = Math.min(cellX + spanX + marginX, countX);
+        int endY = Math.min(cellY + spanY + marginY, countY);
+        for (int y = Math.max(cellY - marginY, 0); y < endY; y++) {
+            for (int x = Math.max(cellX - marginX, 0); x < endX; x++) {
+                int id = x + y * countX;
+                mDropTargets[id] = UNKNOWN_POSITION;
+                mLocationDescriptions[id] = null;
+                mConfirmations[id] = null;
+            }
+        }
+    }
+
+    private int getDropTarget(int id) {
+        if (!validateCache(id)) {
+            return intersectsValidDropTarget(id);
+        }
+        if (mDropTargets[id] == UNKNOWN_POSITION) {
+            mDropTargets[id] = intersectsValidDropTarget(id);
+        }
+        return mDropTargets[id];
+    }
+
+    private String getLocationDescription(int id) {
+        if (!validateCache(id)) {
+            return getLocationDescriptionForIconDrop(id);
+        }
+        if (mLocationDescriptions[id] == null) {
+            mLocationDescriptions[id] = getLocationDescriptionForIconDrop(id);
+        }
+        return mLocationDescriptions[id];
+    }
+
+    private String getConfirmation(int id) {
+        if (!validateCache(id)) {
+            return getConfirmationForIconDrop(id);
+        }
+        if (mConfirmations[id] == null) {
+            mConfirmations[id] = getConfirmationForIconDrop(id);
+        }
+        return mConfirmations[id];
+    }
+
+    /**
+     * Clears the cache if the drag or the grid changed, and returns whether {@param id} can be
+     * cached.
+     */
+    private boolean validateCache(int id) {
+        DragInfo dragInfo = getDragInfo();
+        int cellCount = mView.getCountX() * mView.getCountY();
+        if (dragInfo != mCachedDragInfo || mDropTargets.length != cellCount) {
+            if (mDropTargets.length != cellCount) {
+                mDropTargets = new int[cellCount];
+                mLocationDescriptions = new String[cellCount];
+                mConfirmations = new String[cellCount];
+            }
+            Arrays.fill(mDropTargets, UNKNOWN_POSITION);
+            Arrays.fill(mLocationDescriptions, null);
+            Arrays.fill(mConfirmations, null);
+            mCachedDragInfo = dragInfo;
+        }
+        return dragInfo != null && id >= 0 && id < cellCount;
+    }
+
     private Rect getItemBounds(int id) {
         int cellX = id % mView.getCountX();
         int cellY = id / mView.getCountX();
-        LauncherAccessibilityDelegate.DragInfo dragInfo = mDelegate.getDragInfo();
+        DragInfo dragInfo = getDragInfo();
         mView.cellToRect(cellX, cellY, dragInfo.info.spanX, dragInfo.info.spanY, mTempRect);
         return mTempRect;
     }
@@ -29,6 +29,7 @@ import com.android.launcher3.ItemInfo;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.R;
 import com.android.launcher3.ShortcutInfo;
+import com.android.launcher3.accessibility.LauncherAccessibilityDelegate.DragInfo;
 import com.android.launcher3.accessibility.LauncherAccessibilityDelegate.DragType;
 import com.android.launcher3.dragndrop.DragLayer;
 
@@ -55,7 +56,7 @@ public class WorkspaceAccessibilityHelper extends DragAndDropAccessibilityDelega
 
         int x = id % mCountX;
         int y = id / mCountX;
-        LauncherAccessibilityDelegate.DragInfo dragInfo = mDelegate.getDragInfo();
+        DragInfo dragInfo = getDragInfo();
 
         if (dragInfo.dragType == DragType.WIDGET && !mView.acceptsWidget()) {
             return INVALID_POSITION;
@@ -117,7 +118,7 @@ public class WorkspaceAccessibilityHelper extends DragAndDropAccessibilityDelega
     protected String getConfirmationForIconDrop(int id) {
         int x = id % mView.getCountX();
         int y = id / mView.getCountX();
-        LauncherAccessibilityDelegate.DragInfo dragInfo = mDelegate.getDragInfo();
+        DragInfo dragInfo = getDragInfo();
 
         View child = mView.getChildAt(x, y);
         if (child == null || child == dragInfo.item) {
@@ -157,7 +158,7 @@ public class WorkspaceAccessibilityHelper extends DragAndDropAccessibilityDelega
     protected String getLocationDescriptionForIconDrop(int id) {
         int x = id % mView.getCountX();
         int y = id / mView.getCountX();
-        LauncherAccessibilityDelegate.DragInfo dragInfo = mDelegate.getDragInfo();
+        DragInfo dragInfo = getDragInfo();
 
         View child = mView.getChildAt(x, y);
         if (child == null || child == dragInfo.item) {
@@ -18,8 +18,6 @@ package com.android.launcher3.allapps;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
-import android.support.animation.DynamicAnimation;
-import android.support.animation.SpringAnimation;
 import android.support.v4.view.accessibility.AccessibilityEventCompat;
 import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
 import android.support.v4.view.accessibility.AccessibilityRecordCompat;
@@ -41,6 +39,7 @@ import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.allapps.AlphabeticalAppsList.AdapterItem;
 import com.android.launcher3.anim.SpringAnimationHandler;
+import com.android.launcher3.anim.SpringSystem;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.discovery.AppDiscoveryAppInfo;
 import com.android.launcher3.discovery.AppDiscoveryItemView;
@@ -287,8 +286,10 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
         switch (viewType) {
             case VIEW_TYPE_ICON:
             case VIEW_TYPE_PREDICTION_ICON:
-                BubbleTextView icon = (BubbleTextView) mLayoutInflater.inflate(
-                        R.layout.all_apps_icon, parent, false);
+                BubbleTextView icon = mLauncher.getBubbleTextViewPool()
+                        .obtain(R.layout.all_apps_icon);
+                icon.setLayoutParams(new RecyclerView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
                 icon.setOnClickListener(mIconClickListener);
                 icon.setOnLongClickListener(mIconLongClickListener);
                 icon.setLongPressTimeout(ViewConfiguration.getLongPressTimeout());
@@ -407,7 +408,7 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
     }
 
     /**
-     * Helper class to set the SpringAnimation values for an item in the adapter.
+     * Helper class to set the spring values for an item in the adapter.
      */
     private class AllAppsSpringAnimationFactory
             implements SpringAnimationHandler.AnimationFactory<ViewHolder> {
@@ -424,17 +425,13 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
         // The amount by which each adjacent rows' stiffness will differ.
         private static final float ROW_STIFFNESS_COEFFICIENT = 50f;
 
-        @Override
-        public SpringAnimation initialize(ViewHolder vh) {
-            return SpringAnimationHandler.forView(vh.itemView, DynamicAnimation.TRANSLATION_Y, 0);
-        }
-
         /**
-         * @param spring A new or recycled SpringAnimation.
-         * @param vh The ViewHolder that {@param spring} is related to.
+         * @param springs The springs of the adapter.
+         * @param view The view of {@param vh}, whose spring is added or updated.
+         * @param vh The ViewHolder that the spring is related to.
          */
         @Override
-        public void update(SpringAnimation spring, ViewHolder vh) {
+        public void update(SpringSystem springs, View view, ViewHolder vh) {
             int numPredictedApps = Math.min(mAppsPerRow, mApps.getPredictedApps().size());
             int appPosition = getAppPosition(vh.getAdapterPosition(), numPredictedApps,
                     mAppsPerRow);
@@ -448,12 +445,7 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
                 row = Math.abs(numTotalRows - row);
             }
 
-            calculateSpringValues(spring, row, col);
-        }
-
-        @Override
-        public void setDefaultValues(SpringAnimation spring) {
-            calculateSpringValues(spring, 0, mAppsPerRow / 2);
+            calculateSpringValues(springs, view, row, col);
         }
 
         /**
@@ -461,7 +453,7 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
          * first row and the items distance to the center column to create the ^-shaped motion
          * effect.
          */
-        private void calculateSpringValues(SpringAnimation spring, int row, int col) {
+        private void calculateSpringValues(SpringSystem springs, View view, int row, int col) {
             float rowFactor = (1 + row) * 0.5f;
             float colFactor = getColumnFactor(col, mAppsPerRow);
 
@@ -473,11 +465,7 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
                     MIN_SPRING_STIFFNESS,
                     MAX_SPRING_STIFFNESS);
 
-            spring.setMinValue(minValue)
-                    .setMaxValue(maxValue)
-                    .getSpring()
-                    .setStiffness(stiffness)
-                    .setDampingRatio(SPRING_DAMPING_RATIO);
+            springs.setSpring(view, stiffness, SPRING_DAMPING_RATIO, minValue, maxValue);
         }
 
         /**
@@ -27,6 +27,8 @@ import com.android.launcher3.R;
 import com.android.launcher3.ShortcutAndWidgetContainer;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.Workspace;
+import com.android.launcher3.logging.FrameTracker;
+import com.android.launcher3.model.nano.LauncherDumpProto.InteractionType;
 import com.android.launcher3.userevent.nano.LauncherLogProto;
 import com.android.launcher3.util.TouchController;
 
@@ -198,6 +200,7 @@ public class AllAppsTransitionController implements TouchController, VerticalPul
     public void onDragStart(boolean start) {
         mCaretController.onDragStart();
         cancelAnimation();
+        FrameTracker.begin(InteractionType.ALL_APPS_TRANSITION);
         mCurrentAnimation = LauncherAnimUtils.createAnimatorSet();
         mShiftStart = mAppsView.getTranslationY();
         preparePull(start);
@@ -385,6 +388,7 @@ public class AllAppsTransitionController implements TouchController, VerticalPul
             @Override
             public void onAnimationCancel(Animator animation) {
                 canceled = true;
+                FrameTracker.end(InteractionType.ALL_APPS_TRANSITION);
             }
 
             @Override
@@ -399,6 +403,7 @@ public class AllAppsTransitionController implements TouchController, VerticalPul
             }
         });
         mCurrentAnimation = animationOut;
+        FrameTracker.begin(InteractionType.ALL_APPS_TRANSITION);
         return shouldPost;
     }
 
@@ -468,6 +473,7 @@ public class AllAppsTransitionController implements TouchController, VerticalPul
             @Override
             public void onAnimationCancel(Animator animation) {
                 canceled = true;
+                FrameTracker.end(InteractionType.ALL_APPS_TRANSITION);
             }
 
             @Override
@@ -482,12 +488,14 @@ public class AllAppsTransitionController implements TouchController, VerticalPul
             }
         });
         mCurrentAnimation = animationOut;
+        FrameTracker.begin(InteractionType.ALL_APPS_TRANSITION);
         return shouldPost;
     }
 
     public void finishPullUp() {
         mHotseat.setVisibility(View.INVISIBLE);
         setProgress(0f);
+        FrameTracker.end(InteractionType.ALL_APPS_TRANSITION);
     }
 
     public void finishPullDown() {
@@ -496,6 +504,7 @@ public class AllAppsTransitionController implements TouchController, VerticalPul
         mHotseat.setVisibility(View.VISIBLE);
         mAppsView.reset();
         setProgress(1f);
+        FrameTracker.end(InteractionType.ALL_APPS_TRANSITION);
     }
 
     private void cancelAnimation() {
@@ -15,26 +15,22 @@
  */
 package com.android.launcher3.anim;
 
-import android.support.animation.FloatPropertyCompat;
-import android.support.animation.SpringAnimation;
-import android.support.animation.SpringForce;
 import android.support.annotation.IntDef;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 
-import com.android.launcher3.R;
-
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.ArrayList;
 
 /**
  * Handler class that manages springs for a set of views that should all move based on the same
  * {@link MotionEvent}s.
  *
- * Supports setting either X or Y velocity on the list of springs added to this handler.
+ * Supports setting either X or Y velocity on the list of springs added to this handler. The springs
+ * translate the views in the same direction, and are all stepped together by a
+ * {@link SpringSystem}.
  */
 public class SpringAnimationHandler<T> {
 
@@ -56,63 +52,40 @@ public class SpringAnimationHandler<T> {
 
     private AnimationFactory<T> mAnimationFactory;
 
-    private ArrayList<SpringAnimation> mAnimations = new ArrayList<>();
+    private final SpringSystem mSprings;
 
     /**
      * @param direction Either {@link #X_DIRECTION} or {@link #Y_DIRECTION}.
      *                  Determines which direction we use to calculate and set the velocity.
-     * @param factory   The AnimationFactory is responsible for initializing and updating the
-     *                  SpringAnimations added to this class.
+     * @param factory   The AnimationFactory is responsible for setting the values of the springs
+     *                  added to this class.
      */
     public SpringAnimationHandler(@Direction int direction, AnimationFactory<T> factory) {
         mVelocityDirection = direction;
         mAnimationFactory = factory;
+        mSprings = new SpringSystem(isVerticalDirection());
     }
 
     /**
-     * Adds a spring to the list of springs handled by this class.
-     * @param spring The new spring to be added.
-     * @param setDefaultValues If True, sets the spring to the default
-     *                         {@link AnimationFactory} values.
-     */
-    public void add(SpringAnimation spring, boolean setDefaultValues) {
-        if (setDefaultValues) {
-            mAnimationFactory.setDefaultValues(spring);
-        }
-        spring.setStartVelocity(mCurrentVelocity);
-        mAnimations.add(spring);
-    }
-
-    /**
-     * Adds a new or recycled animation to the list of springs handled by this class.
+     * Adds a new spring or updates the existing spring of {@param view}. A new spring starts with
+     * the current velocity, so that views bound during an animation move with the others.
      *
      * @param view The view the spring is attached to.
-     * @param object Used to initialize and update the spring.
+     * @param object Used to set the values of the spring.
      */
     public void add(View view, T object) {
-        SpringAnimation spring = (SpringAnimation) view.getTag(R.id.spring_animation_tag);
-        if (spring == null) {
-            spring = mAnimationFactory.initialize(object);
-            view.setTag(R.id.spring_animation_tag, spring);
+        boolean isNew = !mSprings.hasSpring(view);
+        mAnimationFactory.update(mSprings, view, object);
+        if (isNew) {
+            mSprings.setStartVelocity(view, mCurrentVelocity);
         }
-        mAnimationFactory.update(spring, object);
-        add(spring, false /* setDefaultValues */);
     }
 
     /**
      * Stops and removes the spring attached to {@param view}.
      */
     public void remove(View view) {
-        remove((SpringAnimation) view.getTag(R.id.spring_animation_tag));
-    }
-
-    public void remove(SpringAnimation animation) {
-        if (animation.canSkipToEnd()) {
-            animation.skipToEnd();
-        }
-        while (mAnimations.contains(animation)) {
-            mAnimations.remove(animation);
-        }
+        mSprings.remove(view);
     }
 
     public void addMovement(MotionEvent event) {
@@ -149,14 +122,10 @@ public class SpringAnimationHandler<T> {
             mCurrentVelocity = computeVelocity();
         }
 
-        int size = mAnimations.size();
-        for (int i = 0; i < size; ++i) {
-            mAnimations.get(i).setStartValue(startValue);
-            if (setVelocity) {
-                mAnimations.get(i).setStartVelocity(mCurrentVelocity);
-            }
-            mAnimations.get(i).animateToFinalPosition(position);
+        if (setVelocity) {
+            mSprings.setStartVelocity(mCurrentVelocity);
         }
+        mSprings.animateToFinalPosition(position, startValue);
 
         reset();
     }
@@ -178,20 +147,14 @@ public class SpringAnimationHandler<T> {
 
 
     public boolean isRunning() {
-        // All the animations run at the same time so we can just check the first one.
-        return !mAnimations.isEmpty() && mAnimations.get(0).isRunning();
+        return mSprings.isRunning();
     }
 
     public void skipToEnd() {
         if (DEBUG) Log.d(TAG, "setStartVelocity#skipToEnd");
         if (DEBUG) Log.v(TAG, "setStartVelocity#skipToEnd", new Exception());
 
-        int size = mAnimations.size();
-        for (int i = 0; i < size; ++i) {
-            if (mAnimations.get(i).canSkipToEnd()) {
-                mAnimations.get(i).skipToEnd();
-            }
-        }
+        mSprings.skipToEnd();
     }
 
     public void reset() {
@@ -228,36 +191,16 @@ public class SpringAnimationHandler<T> {
     }
 
     /**
-     * This interface is used to initialize and update the SpringAnimations added to the
+     * This interface is used to set the values of the springs added to the
      * {@link SpringAnimationHandler}.
      *
-     * @param <T> The object that each SpringAnimation is attached to.
+     * @param <T> The object that each spring is attached to.
      */
     public interface AnimationFactory<T> {
 
         /**
-         * Initializes a new Spring for {@param object}.
+         * Sets the spring of {@param view} in {@param springs}, based on {@param object}.
          */
-        SpringAnimation initialize(T object);
-
-        /**
-         * Updates the value of {@param spring} based on {@param object}.
-         */
-        void update(SpringAnimation spring, T object);
-
-        /**
-         * Sets the factory default values for the given {@param spring}.
-         */
-        void setDefaultValues(SpringAnimation spring);
+        void update(SpringSystem springs, View view, T object);
     }
-
-    /**
-     * Helper method to create a new SpringAnimation for {@param view}.
-     */
-    public static SpringAnimation forView(View view, FloatPropertyCompat property, float finalPos) {
-        SpringAnimation spring = new SpringAnimation(view, property, finalPos);
-        spring.setSpring(new SpringForce(finalPos));
-        return spring;
-    }
-
 }
@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.anim;
+
+import android.support.animation.DynamicAnimation;
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.Arrays;
+
+/**
+ * A set of springs which translate views towards the same final position, stepped together once
+ * per frame instead of running one {@link android.support.animation.SpringAnimation} per view.
+ *
+ * The state of the springs is kept in primitive arrays. Springs with the same stiffness and damping
+ * ratio share a group, and the solution of the spring equation over the frame is computed once for
+ * each group, as a 2x2 transition of the displacement and velocity. Each spring is then updated
+ * with a few multiplications, and all the translations are applied in a single pass.
+ *
+ * The springs behave as a {@link android.support.animation.SpringAnimation} on the translation
+ * property with a mass of 1: values are bound to the min and max values of the spring, and a
+ * spring stops when it is close enough to the final position.
+ *
+ * Only accessed on the UI thread.
+ */
+public class SpringSystem implements Choreographer.FrameCallback {
+
+    // Same thresholds as SpringAnimation on the translation properties.
+    private static final float VALUE_THRESHOLD = DynamicAnimation.MIN_VISIBLE_CHANGE_PIXELS * 0.75f;
+    private static final float VELOCITY_THRESHOLD = VALUE_THRESHOLD * 1000f / 16f;
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final boolean mVertical;
+    private final Choreographer mChoreographer;
+
+    // State of each spring.
+    private View[] mViews = new View[INITIAL_CAPACITY];
+    private float[] mValues = new float[INITIAL_CAPACITY];
+    private float[] mVelocities = new float[INITIAL_CAPACITY];
+    private float[] mMinValues = new float[INITIAL_CAPACITY];
+    private float[] mMaxValues = new float[INITIAL_CAPACITY];
+    private int[] mGroups = new int[INITIAL_CAPACITY];
+    private boolean[] mRunning = new boolean[INITIAL_CAPACITY];
+    private int mCount;
+    private int mRunningCount;
+
+    // Parameters of each group, and the transition of the last step: {x, v} -> {x', v'} with
+    // x' = t00 * x + t01 * v and v' = t10 * x + t11 * v.
+    private float[] mStiffness = new float[0];
+    private float[] mDampingRatios = new float[0];
+    private float[] mTransitions = new float[0];
+    private int mGroupCount;
+    private float mTransitionDeltaT = -1;
+
+    private float mFinalPosition;
+    private long mLastFrameTimeNanos;
+    private boolean mFrameCallbackPosted;
+
+    /**
+     * @param vertical If true, the springs set the translation Y of the views, otherwise the
+     *                 translation X.
+     */
+    public SpringSystem(boolean vertical) {
+        mVertical = vertical;
+        mChoreographer = Choreographer.getInstance();
+    }
+
+    /**
+     * Adds a spring for {@param view}, or updates its existing spring. A new spring is at rest
+     * until the next call to {@link #animateToFinalPosition(float, float)}, or until it is given a
+     * velocity with {@link #setStartVelocity(View, float)}.
+     *
+     * @param minValue The lowest translation of the view.
+     * @param maxValue The highest translation of the view.
+     */
+    public void setSpring(View view, float stiffness, float dampingRatio, float minValue,
+            float maxValue) {
+        int index = indexOf(view);
+        if (index < 0) {
+            index = mCount++;
+            ensureCapacity(mCount);
+            mViews[index] = view;
+            mValues[index] = mFinalPosition;
+            mVelocities[index] = 0;
+            mRunning[index] = false;
+        }
+        mMinValues[index] = minValue;
+        mMaxValues[index] = maxValue;
+        mGroups[index] = getGroup(stiffness, dampingRatio);
+    }
+
+    /**
+     * Ends the spring of {@param view}, moving it to the final position, and removes it.
+     */
+    public void remove(View view) {
+        int index = indexOf(view);
+        if (index < 0) {
+            return;
+        }
+        if (mRunning[index]) {
+            mRunningCount--;
+            setTranslation(view, mFinalPosition);
+        }
+
+        // Move the last spring in place of the removed one.
+        int last = --mCount;
+        mViews[index] = mViews[last];
+        mValues[index] = mValues[last];
+        mVelocities[index] = mVelocities[last];
+        mMinValues[index] = mMinValues[last];
+        mMaxValues[index] = mMaxValues[last];
+        mGroups[index] = mGroups[last];
+        mRunning[index] = mRunning[last];
+        mViews[last] = null;
+
+        if (mRunningCount == 0) {
+            stop();
+        }
+    }
+
+    public boolean hasSpring(View view) {
+        return indexOf(view) >= 0;
+    }
+
+    /**
+     * Sets the velocity of all the springs, in pixels per second.
+     */
+    public void setStartVelocity(float velocity) {
+        Arrays.fill(mVelocities, 0, mCount, velocity);
+    }
+
+    /**
+     * Sets the velocity of the spring of {@param view}, in pixels per second. If the other springs
+     * are running, the spring joins them with this velocity.
+     */
+    public void setStartVelocity(View view, float velocity) {
+        int index = indexOf(view);
+        if (index < 0) {
+            return;
+        }
+        mVelocities[index] = velocity;
+        if (!mRunning[index] && mRunningCount > 0 && velocity != 0) {
+            mRunning[index] = true;
+            mRunningCount++;
+        }
+    }
+
+    /**
+     * Moves all the springs to {@param startValue}, and starts them towards {@param position}.
+     */
+    public void animateToFinalPosition(float position, float startValue) {
+        mFinalPosition = position;
+        Arrays.fill(mValues, 0, mCount, startValue);
+        Arrays.fill(mRunning, 0, mCount, true);
+        mRunningCount = mCount;
+        if (mRunningCount > 0 && !mFrameCallbackPosted) {
+            mChoreographer.postFrameCallback(this);
+            mFrameCallbackPosted = true;
+        }
+    }
+
+    public boolean isRunning() {
+        return mRunningCount > 0;
+    }
+
+    /**
+     * Moves all the springs to the final position and stops them.
+     */
+    public void skipToEnd() {
+        Arrays.fill(mValues, 0, mCount, mFinalPosition);
+        Arrays.fill(mVelocities, 0, mCount, 0);
+        Arrays.fill(mRunning, 0, mCount, false);
+        mRunningCount = 0;
+        applyTranslations();
+        stop();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameCallbackPosted = false;
+        if (mRunningCount == 0) {
+            return;
+        }
+        // As with SpringAnimation, the first frame only applies the start values.
+        if (mLastFrameTimeNanos != 0) {
+            step((frameTimeNanos - mLastFrameTimeNanos) / 1e9f);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        applyTranslations();
+
+        if (mRunningCount > 0) {
+            mChoreographer.postFrameCallback(this);
+            mFrameCallbackPosted = true;
+        } else {
+            mLastFrameTimeNanos = 0;
+        }
+    }
+
+    /**
+     * Advances all the running springs by {@param deltaT} seconds, without applying the values.
+     */
+    void step(float deltaT) {
+        if (deltaT != mTransitionDeltaT) {
+            for (int i = 0; i < mGroupCount; i++) {
+                computeTransition(i, deltaT);
+            }
+            mTransitionDeltaT = deltaT;
+        }
+
+        final float[] transitions = mTransitions;
+        final float finalPosition = mFinalPosition;
+        for (int i = 0; i < mCount; i++) {
+            if (!mRunning[i]) {
+                continue;
+            }
+            int t = mGroups[i] * 4;
+            float x = mValues[i] - finalPosition;
+            float v = mVelocities[i];
+            float value = finalPosition + transitions[t] * x + transitions[t + 1] * v;
+            float velocity = transitions[t + 2] * x + transitions[t + 3] * v;
+
+            if (Math.abs(velocity) < VELOCITY_THRESHOLD
+                    && Math.abs(value - finalPosition) < VALUE_THRESHOLD) {
+                value = finalPosition;
+                velocity = 0;
+                mRunning[i] = false;
+                mRunningCount--;
+            }
+            mValues[i] = Math.max(Math.min(value, mMaxValues[i]), mMinValues[i]);
+            mVelocities[i] = velocity;
+        }
+    }
+
+    /**
+     * Returns the current value of the spring of {@param view}, for tests.
+     */
+    float getValue(View view) {
+        return mValues[indexOf(view)];
+    }
+
+    private void applyTranslations() {
+        for (int i = 0; i < mCount; i++) {
+            setTranslation(mViews[i], mValues[i]);
+        }
+    }
+
+    private void setTranslation(View view, float value) {
+        if (mVertical) {
+            view.setTranslationY(value);
+        } else {
+            view.setTranslationX(value);
+        }
+    }
+
+    private void stop() {
+        if (mFrameCallbackPosted) {
+            mChoreographer.removeFrameCallback(this);
+            mFrameCallbackPosted = false;
+        }
+        mLastFrameTimeNanos = 0;
+    }
+
+    /**
+     * Solves the equation of a spring with a mass of 1 over {@param deltaT}, for the parameters of
+     * the group.
+     */
+    private void computeTransition(int group, double deltaT) {
+        double omega = Math.sqrt(mStiffness[group]);
+        double zeta = mDampingRatios[group];
+        double t00, t01, t10, t11;
+        if (zeta < 1) {
+            // Under damped
+            double dampedOmega = omega * Math.sqrt(1 - zeta * zeta);
+            double decay = Math.exp(-zeta * omega * deltaT);
+            double cos = Math.cos(dampedOmega * deltaT);
+            double sin = Math.sin(dampedOmega * deltaT);
+            t00 = decay * (cos + zeta * omega / dampedOmega * sin);
+            t01 = decay * sin / dampedOmega;
+            t10 = -decay * omega * omega / dampedOmega * sin;
+            t11 = decay * (cos - zeta * omega / dampedOmega * sin);
+        } else if (zeta == 1) {
+            // Critically damped
+            double decay = Math.exp(-omega * deltaT);
+            t00 = decay * (1 + omega * deltaT);
+            t01 = decay * deltaT;
+            t10 = -decay * omega * omega * deltaT;
+            t11 = decay * (1 - omega * deltaT);
+        } else {
+            // Over damped
+            double root = omega * Math.sqrt(zeta * zeta - 1);
+            double gammaPlus = -zeta * omega + root;
+            double gammaMinus = -zeta * omega - root;
+            double expPlus = Math.exp(gammaPlus * deltaT);
+            double expMinus = Math.exp(gammaMinus * deltaT);
+            double diff = gammaMinus - gammaPlus;
+            t00 = (gammaMinus * expPlus - gammaPlus * expMinus) / diff;
+            t01 = (expMinus - expPlus) / diff;
+            t10 = gammaMinus * gammaPlus * (expPlus - expMinus) / diff;
+            t11 = (gammaMinus * expMinus - gammaPlus * expPlus) / diff;
+        }
+        int t = group * 4;
+        mTransitions[t] = (float) t00;
+        mTransitions[t + 1] = (float) t01;
+        mTransitions[t + 2] = (float) t10;
+        mTransitions[t + 3] = (float) t11;
+    }
+
+    private int getGroup(float stiffness, float dampingRatio) {
+        for (int i = 0; i < mGroupCount; i++) {
+            if (mStiffness[i] == stiffness && mDampingRatios[i] == dampingRatio) {
+                return i;
+            }
+        }
+        // There is only a group for each row of the grid, so the groups are never removed.
+        int group = mGroupCount++;
+        mStiffness = Arrays.copyOf(mStiffness, mGroupCount);
+        mDampingRatios = Arrays.copyOf(mDampingRatios, mGroupCount);
+        mTransitions = Arrays.copyOf(mTransitions, mGroupCount * 4);
+        mStiffness[group] = stiffness;
+        mDampingRatios[group] = dampingRatio;
+        if (mTransitionDeltaT >= 0) {
+            computeTransition(group, mTransitionDeltaT);
+        }
+        return group;
+    }
+
+    private int indexOf(View view) {
+        for (int i = 0; i < mCount; i++) {
+            if (mViews[i] == view) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mViews.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mViews.length * 2);
+        mViews = Arrays.copyOf(mViews, newCapacity);
+        mValues = Arrays.copyOf(mValues, newCapacity);
+        mVelocities = Arrays.copyOf(mVelocities, newCapacity);
+        mMinValues = Arrays.copyOf(mMinValues, newCapacity);
+        mMaxValues = Arrays.copyOf(mMaxValues, newCapacity);
+        mGroups = Arrays.copyOf(mGroups, newCapacity);
+        mRunning = Arrays.copyOf(mRunning, newCapacity);
+    }
+}
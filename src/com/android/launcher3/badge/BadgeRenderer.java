@@ -29,6 +29,7 @@ import android.support.annotation.Nullable;
 import android.util.SparseArray;
 
 import com.android.launcher3.R;
+import com.android.launcher3.graphics.BitmapAccounting;
 import com.android.launcher3.graphics.IconPalette;
 import com.android.launcher3.graphics.ShadowGenerator;
 
@@ -110,6 +111,7 @@ public class BadgeRenderer {
             backgroundWithShadow = new ShadowGenerator.Builder(Color.WHITE)
                     .setupBlurForSize(mSize).createPill(width, mSize);
             mBackgroundsWithShadow.put(numChars, backgroundWithShadow);
+            BitmapAccounting.track(BitmapAccounting.OWNER_BADGES, backgroundWithShadow);
         }
         canvas.save(Canvas.MATRIX_SAVE_FLAG);
         // We draw the badge relative to its center.
@@ -23,6 +23,7 @@ import android.content.Context;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 
 import com.android.launcher3.LauncherAppWidgetProviderInfo;
 import com.android.launcher3.Utilities;
@@ -50,10 +51,21 @@ public abstract class AppWidgetManagerCompat {
         }
     }
 
+    /**
+     * Replaces the instance returned by {@link #getInstance(Context)}, or resets it when
+     * {@param instance} is null.
+     */
+    @VisibleForTesting
+    public static void setInstance(AppWidgetManagerCompat instance) {
+        synchronized (sInstanceLock) {
+            sInstance = instance;
+        }
+    }
+
     final AppWidgetManager mAppWidgetManager;
     final Context mContext;
 
-    AppWidgetManagerCompat(Context context) {
+    protected AppWidgetManagerCompat(Context context) {
         mContext = context;
         mAppWidgetManager = AppWidgetManager.getInstance(context);
     }
@@ -25,6 +25,7 @@ import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.shortcuts.ShortcutInfoCompat;
 import com.android.launcher3.util.PackageUserKey;
@@ -63,6 +64,17 @@ public abstract class LauncherAppsCompat {
         }
     }
 
+    /**
+     * Replaces the instance returned by {@link #getInstance(Context)}, or resets it when
+     * {@param instance} is null.
+     */
+    @VisibleForTesting
+    public static void setInstance(LauncherAppsCompat instance) {
+        synchronized (sInstanceLock) {
+            sInstance = instance;
+        }
+    }
+
     public abstract List<LauncherActivityInfo> getActivityList(String packageName,
             UserHandle user);
     public abstract LauncherActivityInfo resolveActivity(Intent intent,
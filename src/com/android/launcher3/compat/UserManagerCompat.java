@@ -18,6 +18,7 @@ package com.android.launcher3.compat;
 
 import android.content.Context;
 import android.os.UserHandle;
+import android.support.annotation.VisibleForTesting;
 
 import com.android.launcher3.Utilities;
 
@@ -47,6 +48,17 @@ public abstract class UserManagerCompat {
         }
     }
 
+    /**
+     * Replaces the instance returned by {@link #getInstance(Context)}, or resets it when
+     * {@param instance} is null.
+     */
+    @VisibleForTesting
+    public static void setInstance(UserManagerCompat instance) {
+        synchronized (sInstanceLock) {
+            sInstance = instance;
+        }
+    }
+
     /**
      * Creates a cache for users.
      */
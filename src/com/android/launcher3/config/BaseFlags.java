@@ -64,6 +64,10 @@ abstract class BaseFlags {
     public static final boolean DISCOVERY_ENABLED = false;
     // When enabled, the qsb will be moved to the hotseat.
     public static final boolean QSB_IN_HOTSEAT = true;
+    // When enabled, workspace pages away from the current page are bound when scrolled to.
+    public static final boolean LAZY_WORKSPACE_PAGES = true;
+    // When enabled, the items of static folder previews are drawn from a cached bitmap.
+    public static final boolean FOLDER_PREVIEW_CACHE = true;
 
     // Features to control Launcher3Go behavior
     public static final boolean GO_DISABLE_WIDGETS = false;
@@ -37,6 +37,8 @@ import com.android.launcher3.R;
 import com.android.launcher3.ShortcutInfo;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.accessibility.DragViewStateAnnouncer;
+import com.android.launcher3.logging.FrameTracker;
+import com.android.launcher3.model.nano.LauncherDumpProto.InteractionType;
 import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.Thunk;
 import com.android.launcher3.util.TouchController;
@@ -71,6 +73,9 @@ public class DragController implements DragDriver.EventListener, TouchController
     /** Y coordinate of the down event. */
     private int mMotionDownY;
 
+    /** Uptime of the down event. */
+    private long mMotionDownTime;
+
     private DropTarget.DragObject mDragObject;
 
     /** Who can receive drop events */
@@ -137,6 +142,7 @@ public class DragController implements DragDriver.EventListener, TouchController
         if (PROFILE_DRAWING_DURING_DRAG) {
             android.os.Debug.startMethodTracing("Launcher");
         }
+        FrameTracker.begin(InteractionType.DRAG);
 
         if (Utilities.ATLEAST_MARSHMALLOW) {
             // Hide soft keyboard, if visible
@@ -169,6 +175,10 @@ public class DragController implements DragDriver.EventListener, TouchController
         final DragView dragView = mDragObject.dragView = new DragView(mLauncher, b, registrationX,
                 registrationY, initialDragViewScale, scaleDps);
         dragView.setItemInfo(dragInfo);
+        if (!mOptions.isAccessibleDrag && mOptions.systemDndStartPoint == null) {
+            // The latency of a drag started by a long press is measured from its touch down.
+            dragView.setTouchDownTime(mMotionDownTime);
+        }
         mDragObject.dragComplete = false;
         if (mOptions.isAccessibleDrag) {
             // For an accessible drag, we assume the view is being dragged from the center.
@@ -319,6 +329,7 @@ public class DragController implements DragDriver.EventListener, TouchController
         for (DragListener listener : new ArrayList<>(mListeners)) {
             listener.onDragEnd();
         }
+        FrameTracker.end(InteractionType.DRAG);
     }
 
     /**
@@ -411,6 +422,7 @@ public class DragController implements DragDriver.EventListener, TouchController
                 // Remember location of down touch
                 mMotionDownX = dragLayerX;
                 mMotionDownY = dragLayerY;
+                mMotionDownTime = ev.getDownTime();
                 break;
             case MotionEvent.ACTION_UP:
                 mLastTouchUpTime = System.currentTimeMillis();
@@ -519,6 +531,7 @@ public class DragController implements DragDriver.EventListener, TouchController
                 // Remember where the motion event started
                 mMotionDownX = dragLayerX;
                 mMotionDownY = dragLayerY;
+                mMotionDownTime = ev.getDownTime();
                 break;
         }
 
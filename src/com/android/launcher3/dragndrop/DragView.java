@@ -39,6 +39,7 @@ import android.graphics.drawable.InsetDrawable;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.support.animation.FloatPropertyCompat;
 import android.support.animation.SpringAnimation;
 import android.support.animation.SpringForce;
@@ -57,8 +58,10 @@ import com.android.launcher3.Utilities;
 import com.android.launcher3.compat.LauncherAppsCompat;
 import com.android.launcher3.compat.ShortcutConfigActivityInfo;
 import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.graphics.BitmapAccounting;
 import com.android.launcher3.graphics.IconNormalizer;
 import com.android.launcher3.graphics.LauncherIcons;
+import com.android.launcher3.logging.FrameTracker;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.shortcuts.ShortcutInfoCompat;
 import com.android.launcher3.shortcuts.ShortcutKey;
@@ -94,6 +97,8 @@ public class DragView extends View {
     private final DragLayer mDragLayer;
     @Thunk final DragController mDragController;
     private boolean mHasDrawn = false;
+    // Uptime of the touch down which started the drag, to measure the time to the first frame.
+    private long mTouchDownTime;
     @Thunk float mCrossFadeProgress = 0f;
     private boolean mAnimationCancelled = false;
 
@@ -170,6 +175,7 @@ public class DragView extends View {
         });
 
         mBitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight());
+        BitmapAccounting.track(BitmapAccounting.OWNER_DRAG, mBitmap);
         setDragRegion(new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight()));
 
         // The point in our scaled bitmap that the touch events are located
@@ -427,8 +433,15 @@ public class DragView extends View {
         return mDragRegion;
     }
 
+    public void setTouchDownTime(long uptimeMillis) {
+        mTouchDownTime = uptimeMillis;
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
+        if (!mHasDrawn && mTouchDownTime > 0) {
+            FrameTracker.recordDragStartLatency(SystemClock.uptimeMillis() - mTouchDownTime);
+        }
         mHasDrawn = true;
 
         if (mDrawBitmap) {
@@ -614,6 +627,7 @@ public class DragView extends View {
         if (getParent() != null) {
             mDragLayer.removeView(DragView.this);
         }
+        BitmapAccounting.untrack(mBitmap);
     }
 
     public int getBlurSizeOutline() {
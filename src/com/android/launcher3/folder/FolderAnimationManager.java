@@ -40,6 +40,8 @@ import com.android.launcher3.Utilities;
 import com.android.launcher3.anim.PropertyResetListener;
 import com.android.launcher3.anim.RoundedRectRevealOutlineProvider;
 import com.android.launcher3.dragndrop.DragLayer;
+import com.android.launcher3.logging.FrameTracker;
+import com.android.launcher3.model.nano.LauncherDumpProto.InteractionType;
 import com.android.launcher3.util.Themes;
 
 import java.util.List;
@@ -234,6 +236,9 @@ public class FolderAnimationManager {
                 // Background can have a scaled radius in drag and drop mode, so we need to add the
                 // difference to keep the preview items centered.
                 previewItemOffsetX + radiusDiff, radiusDiff);
+
+        FrameTracker.trackAnimator(a, mIsOpening
+                ? InteractionType.FOLDER_OPEN : InteractionType.FOLDER_CLOSE);
         return a;
     }
 
@@ -20,7 +20,9 @@ import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.Region;
@@ -119,6 +121,12 @@ public class FolderIcon extends FrameLayout implements FolderListener {
     private float mBadgeScale;
     private Point mTempSpaceForBadgeOffset = new Point();
 
+    // Static preview items, see canUseCachedPreview().
+    private final Rect mPreviewBitmapBounds = new Rect();
+    private Bitmap mPreviewBitmap;
+    private Canvas mPreviewCanvas;
+    private boolean mPreviewBitmapValid;
+
     private static final Property<FolderIcon, Float> BADGE_SCALE_PROPERTY
             = new Property<FolderIcon, Float>(Float.TYPE, "badgeScale") {
         @Override
@@ -467,9 +475,30 @@ public class FolderIcon extends FrameLayout implements FolderListener {
         if (mFolder == null) return;
         if (mFolder.getItemCount() == 0 && !mAnimating) return;
 
+        if (canUseCachedPreview()) {
+            drawCachedPreviewItems(canvas);
+        } else {
+            // Render the cache again once the preview is static.
+            mPreviewBitmapValid = false;
+            drawPreviewItems(canvas, canvas.isHardwareAccelerated());
+        }
+
+        if (mPreviewLayoutRule.clipToBackground() && !mBackground.drawingDelegated()) {
+            mBackground.drawBackgroundStroke(canvas);
+        }
+
+        drawBadge(canvas);
+    }
+
+    /**
+     * Draws the preview items, clipped to the background if needed.
+     * @param clipWithLayer whether to clip the items by drawing them in a layer, rather than by
+     *                      clipping the canvas.
+     */
+    private void drawPreviewItems(Canvas canvas, boolean clipWithLayer) {
         final int saveCount;
 
-        if (canvas.isHardwareAccelerated()) {
+        if (clipWithLayer) {
             saveCount = canvas.saveLayer(0, 0, getWidth(), getHeight(), null,
                     Canvas.HAS_ALPHA_LAYER_SAVE_FLAG | Canvas.CLIP_TO_LAYER_SAVE_FLAG);
         } else {
@@ -481,16 +510,79 @@ public class FolderIcon extends FrameLayout implements FolderListener {
 
         mPreviewItemManager.draw(canvas);
 
-        if (mPreviewLayoutRule.clipToBackground() && canvas.isHardwareAccelerated()) {
+        if (mPreviewLayoutRule.clipToBackground() && clipWithLayer) {
             mBackground.clipCanvasHardware(canvas);
         }
         canvas.restoreToCount(saveCount);
+    }
 
-        if (mPreviewLayoutRule.clipToBackground() && !mBackground.drawingDelegated()) {
-            mBackground.drawBackgroundStroke(canvas);
+    /**
+     * Returns whether the preview items are static, in which case they are drawn from a bitmap
+     * rather than in a layer on every frame. The items only fit in the bounds of the background
+     * when they are clipped to it. The bitmap is not used while the workspace is scaled, as it
+     * would be filtered.
+     */
+    private boolean canUseCachedPreview() {
+        if (!FeatureFlags.FOLDER_PREVIEW_CACHE || mAnimating
+                || !mPreviewLayoutRule.clipToBackground() || !mBackground.isAtRest()
+                || mPreviewItemManager.isAnimating()) {
+            return false;
         }
+        Workspace workspace = mLauncher.getWorkspace();
+        return workspace != null && !workspace.workspaceInModalState()
+                && !workspace.isSwitchingState();
+    }
 
-        drawBadge(canvas);
+    private void drawCachedPreviewItems(Canvas canvas) {
+        mBackground.getClipBounds(mPreviewBitmapBounds);
+        if (mPreviewBitmapBounds.isEmpty()) {
+            return;
+        }
+        if (mPreviewBitmap == null || mPreviewBitmap.getWidth() != mPreviewBitmapBounds.width()
+                || mPreviewBitmap.getHeight() != mPreviewBitmapBounds.height()) {
+            mPreviewBitmap = Bitmap.createBitmap(mPreviewBitmapBounds.width(),
+                    mPreviewBitmapBounds.height(), Bitmap.Config.ARGB_8888);
+            mPreviewCanvas = new Canvas(mPreviewBitmap);
+            mPreviewBitmapValid = false;
+        }
+        if (!mPreviewBitmapValid) {
+            mPreviewBitmap.eraseColor(Color.TRANSPARENT);
+            int saveCount = mPreviewCanvas.save();
+            mPreviewCanvas.translate(-mPreviewBitmapBounds.left, -mPreviewBitmapBounds.top);
+            // The bitmap canvas is not hardware accelerated, but clipping it would not be
+            // anti-aliased.
+            drawPreviewItems(mPreviewCanvas, true /* clipWithLayer */);
+            mPreviewCanvas.restoreToCount(saveCount);
+            mPreviewBitmapValid = true;
+        }
+        // Drawn at its size, the bitmap is not filtered.
+        canvas.drawBitmap(mPreviewBitmap, mPreviewBitmapBounds.left, mPreviewBitmapBounds.top,
+                null);
+    }
+
+    /**
+     * Called when the content of the preview changed, so that the cached preview is rendered again
+     * on the next draw.
+     */
+    void invalidatePreviewBitmap() {
+        mPreviewBitmapValid = false;
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable drawable) {
+        if (mPreviewItemManager.verifyDrawable(drawable)) {
+            mPreviewBitmapValid = false;
+        }
+        super.invalidateDrawable(drawable);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // Only kept for the icons which are shown.
+        mPreviewBitmap = null;
+        mPreviewCanvas = null;
+        mPreviewBitmapValid = false;
     }
 
     public void drawBadge(Canvas canvas) {
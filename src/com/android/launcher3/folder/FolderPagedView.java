@@ -243,10 +243,9 @@ public class FolderPagedView extends PagedView {
                 view, -1, mFolder.mLauncher.getViewIdForItem(item), lp, true);
     }
 
-    @SuppressLint("InflateParams")
     public View createNewView(ShortcutInfo item) {
-        final BubbleTextView textView = (BubbleTextView) mInflater.inflate(
-                R.layout.folder_application, null, false);
+        final BubbleTextView textView = mFolder.mLauncher.getBubbleTextViewPool()
+                .obtain(R.layout.folder_application);
         textView.applyFromShortcutInfo(item);
         textView.setHapticFeedbackEnabled(false);
         textView.setOnClickListener(mFolder);
@@ -28,6 +28,7 @@ import android.graphics.Path;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.RadialGradient;
+import android.graphics.Rect;
 import android.graphics.Region;
 import android.graphics.Shader;
 import android.support.v4.graphics.ColorUtils;
@@ -353,6 +354,24 @@ public class PreviewBackground {
         return mDrawingDelegate != null;
     }
 
+    /**
+     * Returns whether the background is drawn by its folder icon in its rest state, without any
+     * running animation.
+     */
+    boolean isAtRest() {
+        return mDrawingDelegate == null && mScale == 1f && mScaleAnimator == null
+                && mStrokeAlphaAnimator == null && mShadowAnimator == null;
+    }
+
+    /**
+     * Sets the bounds of the circle the preview items are clipped to.
+     */
+    void getClipBounds(Rect outBounds) {
+        int radius = getScaledRadius();
+        outBounds.set(getOffsetX(), getOffsetY(), getOffsetX() + 2 * radius,
+                getOffsetY() + 2 * radius);
+    }
+
     private void animateScale(float finalScale, float finalMultiplier,
                               final Runnable onStart, final Runnable onEnd) {
         final float scale0 = mScale;
@@ -162,9 +162,26 @@ public class PreviewItemManager {
     }
 
     public void onParamsChanged() {
+        mIcon.invalidatePreviewBitmap();
         mIcon.invalidate();
     }
 
+    /**
+     * Returns whether any of the preview items is animating.
+     */
+    boolean isAnimating() {
+        if (!mCurrentPageParams.isEmpty()) {
+            // Sliding in the first page.
+            return true;
+        }
+        for (int i = 0; i < mFirstPageParams.size(); i++) {
+            if (mFirstPageParams.get(i).anim != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void drawPreviewItem(Canvas canvas, PreviewItemDrawingParams params) {
         canvas.save(Canvas.MATRIX_SAVE_FLAG);
         canvas.translate(params.transX, params.transY);
@@ -187,12 +204,14 @@ public class PreviewItemManager {
                 mFirstPageParams.get(index) : null;
         if (params != null) {
             params.hidden = hidden;
+            mIcon.invalidatePreviewBitmap();
         }
     }
 
     void buildParamsForPage(int page, ArrayList<PreviewItemDrawingParams> params, boolean animate) {
         List<BubbleTextView> items = mIcon.getPreviewItemsOnPage(page);
         int prevNumItems = params.size();
+        mIcon.invalidatePreviewBitmap();
 
         // We adjust the size of the list to match the number of items in the preview.
         while (items.size() < params.size()) {
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.graphics;
+
+import android.graphics.Bitmap;
+
+import java.io.PrintWriter;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the number of bytes of the bitmaps held by each subsystem of the launcher, to know what to
+ * trim on low memory devices. The process wide numbers are shown by
+ * {@link com.android.launcher3.testing.WeightWatcher}.
+ *
+ * Bitmaps are tracked with weak references: a bitmap is counted for its owner from the call to
+ * {@link #track(int, Bitmap)} until it is untracked or garbage collected. So the totals
+ * include the bitmaps which were dropped but not collected yet, which still use memory.
+ *
+ * Can be called from any thread.
+ */
+public class BitmapAccounting {
+
+    public static final int OWNER_ICON_CACHE = 0;
+    public static final int OWNER_DEFAULT_ICONS = 1;
+    public static final int OWNER_WIDGET_PREVIEWS = 2;
+    public static final int OWNER_WIDGET_PREVIEWS_UNUSED = 3;
+    public static final int OWNER_OUTLINES = 4;
+    public static final int OWNER_BADGES = 5;
+    public static final int OWNER_DRAG = 6;
+    public static final int OWNER_SMARTSPACE = 7;
+
+    // Owners are indexed by their constant.
+    private static final String[] OWNER_NAMES = {"icon_cache", "default_icons", "widget_previews",
+            "widget_previews_unused", "outlines", "badges", "drag", "smartspace"};
+    private static final int OWNER_COUNT = OWNER_NAMES.length;
+
+    // All the fields are guarded by the class.
+    private static final WeakHashMap<Bitmap, TrackedBitmap> sTracked = new WeakHashMap<>();
+    private static final ReferenceQueue<Bitmap> sCollected = new ReferenceQueue<>();
+    private static final long[] sBytes = new long[OWNER_COUNT];
+    private static final long[] sHighWaterBytes = new long[OWNER_COUNT];
+    private static final int[] sCounts = new int[OWNER_COUNT];
+
+    /**
+     * Counts {@param bitmap} for {@param owner}. If the bitmap was already tracked, it is moved to
+     * the new owner.
+     */
+    public static synchronized void track(int owner, Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        expungeCollected();
+        TrackedBitmap tracked = sTracked.get(bitmap);
+        if (tracked != null) {
+            if (tracked.owner == owner) {
+                return;
+            }
+            release(tracked);
+        }
+        tracked = new TrackedBitmap(bitmap, owner, bitmap.getAllocationByteCount());
+        sTracked.put(bitmap, tracked);
+        sBytes[owner] += tracked.bytes;
+        sCounts[owner]++;
+        sHighWaterBytes[owner] = Math.max(sHighWaterBytes[owner], sBytes[owner]);
+    }
+
+    /**
+     * Stops counting {@param bitmap}, for example before it is recycled.
+     */
+    public static synchronized void untrack(Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        expungeCollected();
+        TrackedBitmap tracked = sTracked.remove(bitmap);
+        if (tracked != null) {
+            release(tracked);
+        }
+    }
+
+    /**
+     * Returns the bytes currently held by each owner, indexed by owner.
+     */
+    public static synchronized long[] getBytes() {
+        expungeCollected();
+        return sBytes.clone();
+    }
+
+    /**
+     * Returns a short summary of the owners holding bitmaps, in KB, as {@code name=current/max}.
+     */
+    public static synchronized String getSummary() {
+        expungeCollected();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < OWNER_COUNT; i++) {
+            if (sHighWaterBytes[i] > 0) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(OWNER_NAMES[i]).append('=')
+                        .append(sBytes[i] / 1024).append('/').append(sHighWaterBytes[i] / 1024);
+            }
+        }
+        return sb.toString();
+    }
+
+    public static synchronized void dump(String prefix, PrintWriter writer) {
+        expungeCollected();
+        long total = 0;
+        for (long bytes : sBytes) {
+            total += bytes;
+        }
+        writer.println(prefix + "BitmapAccounting: totalKb=" + total / 1024);
+        for (int i = 0; i < OWNER_COUNT; i++) {
+            writer.println(prefix + "  " + OWNER_NAMES[i]
+                    + ": bitmaps=" + sCounts[i]
+                    + " kb=" + sBytes[i] / 1024
+                    + " maxKb=" + sHighWaterBytes[i] / 1024);
+        }
+    }
+
+    private static void expungeCollected() {
+        Reference<? extends Bitmap> ref;
+        while ((ref = sCollected.poll()) != null) {
+            // The map entry itself is removed by the WeakHashMap.
+            TrackedBitmap tracked = (TrackedBitmap) ref;
+            sBytes[tracked.owner] -= tracked.bytes;
+            sCounts[tracked.owner]--;
+        }
+    }
+
+    private static void release(TrackedBitmap tracked) {
+        // Cleared references are not enqueued, so they are not released twice.
+        tracked.clear();
+        sBytes[tracked.owner] -= tracked.bytes;
+        sCounts[tracked.owner]--;
+    }
+
+    private static class TrackedBitmap extends WeakReference<Bitmap> {
+
+        final int owner;
+        final int bytes;
+
+        TrackedBitmap(Bitmap bitmap, int owner, int bytes) {
+            super(bitmap, sCollected);
+            this.owner = owner;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -22,20 +22,43 @@ import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.graphics.Region.Op;
 import android.graphics.drawable.Drawable;
+import android.util.LruCache;
 import android.view.View;
 
 import com.android.launcher3.BubbleTextView;
+import com.android.launcher3.ItemInfo;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.LauncherAppWidgetHostView;
+import com.android.launcher3.MainThreadExecutor;
 import com.android.launcher3.R;
-import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.Utilities;
 import com.android.launcher3.folder.FolderIcon;
+import com.android.launcher3.util.Thunk;
+
+import java.util.Arrays;
 
 /**
  * A utility class to generate preview bitmap for dragging.
  */
 public class DragPreviewProvider {
 
+    // Outlines of the items dragged recently, so that dragging an item again starts with its
+    // outline. Sized in bytes, as the outlines of widgets are much larger than those of icons.
+    private static final int OUTLINE_CACHE_BYTES = 2 * 1024 * 1024;
+    private static final LruCache<OutlineKey, CachedOutline> sOutlineCache =
+            new LruCache<OutlineKey, CachedOutline>(OUTLINE_CACHE_BYTES) {
+                @Override
+                protected int sizeOf(OutlineKey key, CachedOutline value) {
+                    return value.shape.getByteCount() + value.outline.getByteCount();
+                }
+
+                @Override
+                protected void entryRemoved(boolean evicted, OutlineKey key,
+                        CachedOutline oldValue, CachedOutline newValue) {
+                    BitmapAccounting.untrack(oldValue.outline);
+                }
+            };
+
     private final Rect mTempRect = new Rect();
 
     protected final View mView;
@@ -46,6 +69,8 @@ public class DragPreviewProvider {
     protected final int blurSizeOutline;
 
     public Bitmap generatedDragOutline;
+    private boolean mDragOutlineRequested;
+    private Runnable mOnDragOutlineReady;
 
     public DragPreviewProvider(View view) {
         this(view, view.getContext());
@@ -65,6 +90,13 @@ public class DragPreviewProvider {
         }
     }
 
+    /**
+     * Drops the cached outlines, when the memory is low.
+     */
+    public static void clearOutlineCache() {
+        sOutlineCache.evictAll();
+    }
+
     /**
      * Draws the {@link #mView} into the given {@param destCanvas}.
      */
@@ -133,22 +165,70 @@ public class DragPreviewProvider {
 
         canvas.setBitmap(null);
 
+        BitmapAccounting.track(BitmapAccounting.OWNER_DRAG, b);
         return b;
     }
 
-    public final void generateDragOutline(Canvas canvas) {
-        if (FeatureFlags.IS_DOGFOOD_BUILD && generatedDragOutline != null) {
-            throw new RuntimeException("Drag outline generated twice");
+    /**
+     * Generates {@link #generatedDragOutline}, used to visualize the drop location. The shape of
+     * the view is drawn on the UI thread, and the outline effect, which is expensive, is applied
+     * in the background. If the item was dragged recently with the same shape, the outline is
+     * reused right away.
+     *
+     * Calling this again before the outline is ready only replaces {@param onReady}.
+     *
+     * @param onReady called on the UI thread when the outline is set, if it was not set before
+     *                this returns.
+     */
+    public final void generateDragOutline(Canvas canvas, Runnable onReady) {
+        if (mDragOutlineRequested) {
+            mOnDragOutlineReady = generatedDragOutline == null ? onReady : null;
+            return;
         }
+        mDragOutlineRequested = true;
 
-        generatedDragOutline = createDragOutline(canvas);
+        final Bitmap shape = createDragOutlineShape(canvas);
+        canvas.setBitmap(null);
+        final OutlineKey key = new OutlineKey(mView.getTag(), shape);
+        CachedOutline cached = sOutlineCache.get(key);
+        if (cached != null && cached.shape.sameAs(shape)) {
+            generatedDragOutline = cached.outline;
+            return;
+        }
+
+        mOnDragOutlineReady = onReady;
+        final Bitmap outline = shape.copy(Bitmap.Config.ALPHA_8, true);
+        final HolographicOutlineHelper helper =
+                HolographicOutlineHelper.getInstance(mView.getContext());
+        Utilities.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                helper.applyExpensiveOutlineWithBlur(outline);
+                new MainThreadExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDragOutlineGenerated(key, shape, outline);
+                    }
+                });
+            }
+        });
+    }
+
+    @Thunk void onDragOutlineGenerated(OutlineKey key, Bitmap shape, Bitmap outline) {
+        sOutlineCache.put(key, new CachedOutline(shape, outline));
+        BitmapAccounting.track(BitmapAccounting.OWNER_DRAG, outline);
+        generatedDragOutline = outline;
+        if (mOnDragOutlineReady != null) {
+            mOnDragOutlineReady.run();
+            mOnDragOutlineReady = null;
+        }
     }
 
     /**
-     * Returns a new bitmap to be used as the object outline, e.g. to visualize the drop location.
-     * Responsibility for the bitmap is transferred to the caller.
+     * Returns a new alpha bitmap with the shape of the object, on which the outline effect is
+     * applied to visualize the drop location. Can leave a bitmap set on {@param canvas}.
      */
-    public Bitmap createDragOutline(Canvas canvas) {
+    protected Bitmap createDragOutlineShape(Canvas canvas) {
         float scale = 1f;
         int width = mView.getWidth();
         int height = mView.getHeight();
@@ -167,11 +247,6 @@ public class DragPreviewProvider {
         canvas.scale(scale, scale);
         drawDragView(canvas);
         canvas.restore();
-
-        HolographicOutlineHelper.getInstance(mView.getContext())
-                .applyExpensiveOutlineWithBlur(b, canvas);
-
-        canvas.setBitmap(null);
         return b;
     }
 
@@ -201,4 +276,48 @@ public class DragPreviewProvider {
                 - previewPadding / 2);
         return scale;
     }
+
+    /**
+     * Key of a cached outline: the item and the size of its shape.
+     */
+    private static class OutlineKey {
+
+        private final Object mItem;
+        private final int mWidth;
+        private final int mHeight;
+
+        OutlineKey(Object tag, Bitmap shape) {
+            // Items of the workspace are compared by id, as their views are recreated on bind.
+            mItem = tag instanceof ItemInfo && ((ItemInfo) tag).id != ItemInfo.NO_ID
+                    ? ((ItemInfo) tag).id : tag;
+            mWidth = shape.getWidth();
+            mHeight = shape.getHeight();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof OutlineKey)) {
+                return false;
+            }
+            OutlineKey other = (OutlineKey) o;
+            return mWidth == other.mWidth && mHeight == other.mHeight
+                    && (mItem == null ? other.mItem == null : mItem.equals(other.mItem));
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[] {mItem, mWidth, mHeight});
+        }
+    }
+
+    private static class CachedOutline {
+
+        final Bitmap shape;
+        final Bitmap outline;
+
+        CachedOutline(Bitmap shape, Bitmap outline) {
+            this.shape = shape;
+            this.outline = outline;
+        }
+    }
 }
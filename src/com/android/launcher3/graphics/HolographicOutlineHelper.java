@@ -48,6 +48,12 @@ public class HolographicOutlineHelper {
     private final Paint mBlurPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
     private final Paint mErasePaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
 
+    // Used by applyExpensiveOutlineWithBlur, which can run on any thread, guarded by this.
+    private final Canvas mOutlineCanvas = new Canvas();
+    private final Paint mOutlineBlurPaint =
+            new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private byte[] mOutlinePixels = new byte[0];
+
     private final BlurMaskFilter mMediumOuterBlurMaskFilter;
     private final BlurMaskFilter mThinOuterBlurMaskFilter;
     private final BlurMaskFilter mMediumInnerBlurMaskFilter;
@@ -83,68 +89,73 @@ public class HolographicOutlineHelper {
 
     /**
      * Applies a more expensive and accurate outline to whatever is currently drawn in a specified
-     * bitmap.
+     * bitmap. Can be called on any thread.
      */
-    public void applyExpensiveOutlineWithBlur(Bitmap srcDst, Canvas srcDstCanvas) {
+    public synchronized void applyExpensiveOutlineWithBlur(Bitmap srcDst) {
         if (FeatureFlags.IS_DOGFOOD_BUILD && srcDst.getConfig() != Bitmap.Config.ALPHA_8) {
             throw new RuntimeException("Outline blue is only supported on alpha bitmaps");
         }
 
+        // The buffer is kept across calls, as widget outlines can be large.
+        int byteCount = srcDst.getByteCount();
+        if (mOutlinePixels.length < byteCount) {
+            mOutlinePixels = new byte[byteCount];
+        }
+
         // We start by removing most of the alpha channel so as to ignore shadows, and
         // other types of partial transparency when defining the shape of the object
-        byte[] pixels = new byte[srcDst.getWidth() * srcDst.getHeight()];
-        ByteBuffer buffer = ByteBuffer.wrap(pixels);
-        buffer.rewind();
+        byte[] pixels = mOutlinePixels;
+        ByteBuffer buffer = ByteBuffer.wrap(pixels, 0, byteCount);
         srcDst.copyPixelsToBuffer(buffer);
 
-        for (int i = 0; i < pixels.length; i++) {
+        for (int i = 0; i < byteCount; i++) {
             if ((pixels[i] & 0xFF) < 188) {
                 pixels[i] = 0;
             }
         }
 
-        buffer.rewind();
+        buffer.position(0);
         srcDst.copyPixelsFromBuffer(buffer);
 
         // calculate the outer blur first
-        mBlurPaint.setMaskFilter(mMediumOuterBlurMaskFilter);
+        mOutlineBlurPaint.setMaskFilter(mMediumOuterBlurMaskFilter);
         int[] outerBlurOffset = new int[2];
-        Bitmap thickOuterBlur = srcDst.extractAlpha(mBlurPaint, outerBlurOffset);
+        Bitmap thickOuterBlur = srcDst.extractAlpha(mOutlineBlurPaint, outerBlurOffset);
 
-        mBlurPaint.setMaskFilter(mThinOuterBlurMaskFilter);
+        mOutlineBlurPaint.setMaskFilter(mThinOuterBlurMaskFilter);
         int[] brightOutlineOffset = new int[2];
-        Bitmap brightOutline = srcDst.extractAlpha(mBlurPaint, brightOutlineOffset);
+        Bitmap brightOutline = srcDst.extractAlpha(mOutlineBlurPaint, brightOutlineOffset);
 
         // calculate the inner blur
-        srcDstCanvas.setBitmap(srcDst);
-        srcDstCanvas.drawColor(0xFF000000, PorterDuff.Mode.SRC_OUT);
-        mBlurPaint.setMaskFilter(mMediumInnerBlurMaskFilter);
+        mOutlineCanvas.setBitmap(srcDst);
+        mOutlineCanvas.drawColor(0xFF000000, PorterDuff.Mode.SRC_OUT);
+        mOutlineBlurPaint.setMaskFilter(mMediumInnerBlurMaskFilter);
         int[] thickInnerBlurOffset = new int[2];
-        Bitmap thickInnerBlur = srcDst.extractAlpha(mBlurPaint, thickInnerBlurOffset);
+        Bitmap thickInnerBlur = srcDst.extractAlpha(mOutlineBlurPaint, thickInnerBlurOffset);
 
         // mask out the inner blur
-        srcDstCanvas.setBitmap(thickInnerBlur);
-        srcDstCanvas.drawBitmap(srcDst, -thickInnerBlurOffset[0],
+        mOutlineCanvas.setBitmap(thickInnerBlur);
+        mOutlineCanvas.drawBitmap(srcDst, -thickInnerBlurOffset[0],
                 -thickInnerBlurOffset[1], mErasePaint);
-        srcDstCanvas.drawRect(0, 0, -thickInnerBlurOffset[0], thickInnerBlur.getHeight(),
+        mOutlineCanvas.drawRect(0, 0, -thickInnerBlurOffset[0], thickInnerBlur.getHeight(),
                 mErasePaint);
-        srcDstCanvas.drawRect(0, 0, thickInnerBlur.getWidth(), -thickInnerBlurOffset[1],
+        mOutlineCanvas.drawRect(0, 0, thickInnerBlur.getWidth(), -thickInnerBlurOffset[1],
                 mErasePaint);
 
         // draw the inner and outer blur
-        srcDstCanvas.setBitmap(srcDst);
-        srcDstCanvas.drawColor(0, PorterDuff.Mode.CLEAR);
-        srcDstCanvas.drawBitmap(thickInnerBlur, thickInnerBlurOffset[0], thickInnerBlurOffset[1],
+        mOutlineCanvas.setBitmap(srcDst);
+        mOutlineCanvas.drawColor(0, PorterDuff.Mode.CLEAR);
+        mOutlineCanvas.drawBitmap(thickInnerBlur, thickInnerBlurOffset[0], thickInnerBlurOffset[1],
                 mDrawPaint);
-        srcDstCanvas.drawBitmap(thickOuterBlur, outerBlurOffset[0], outerBlurOffset[1],
+        mOutlineCanvas.drawBitmap(thickOuterBlur, outerBlurOffset[0], outerBlurOffset[1],
                 mDrawPaint);
 
         // draw the bright outline
-        srcDstCanvas.drawBitmap(brightOutline, brightOutlineOffset[0], brightOutlineOffset[1],
+        mOutlineCanvas.drawBitmap(brightOutline, brightOutlineOffset[0], brightOutlineOffset[1],
                 mDrawPaint);
 
         // cleanup
-        srcDstCanvas.setBitmap(null);
+        mOutlineCanvas.setBitmap(null);
         brightOutline.recycle();
         thickOuterBlur.recycle();
         thickInnerBlur.recycle();
@@ -170,6 +181,7 @@ public class HolographicOutlineHelper {
         Bitmap cache = mBitmapCache.get(key);
         if (cache == null) {
             cache = Bitmap.createBitmap(bitmapWidth, bitmapHeight, Bitmap.Config.ALPHA_8);
+            BitmapAccounting.track(BitmapAccounting.OWNER_OUTLINES, cache);
             mCanvas.setBitmap(cache);
             mBitmapCache.put(key, cache);
         } else {
@@ -194,6 +206,7 @@ public class HolographicOutlineHelper {
         Bitmap result = mBitmapCache.get(key);
         if (result == null) {
             result = Bitmap.createBitmap(resultWidth, resultHeight, Bitmap.Config.ALPHA_8);
+            BitmapAccounting.track(BitmapAccounting.OWNER_OUTLINES, result);
             mCanvas.setBitmap(result);
         } else {
             // Use put instead of delete, to avoid unnecessary shrinking of cache array
@@ -9,21 +9,22 @@ import android.util.Pair;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.config.FeatureFlags;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.DateFormat;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Wrapper around {@link Log} to allow writing to a file.
  * This class can safely be called from main thread.
  *
+ * The calling thread only adds the raw record to a {@link LogRingBuffer}. A background thread
+ * appends the records to binary, memory-mapped {@link LogSegmentFile}s, and the text formatting
+ * (date and stack traces) only happens when the logs are dumped.
+ *
  * Note: This should only be used for logging errors which have a persistent effect on user's data,
  * but whose effect may not be visible immediately.
  */
@@ -35,9 +36,13 @@ public final class FileLog {
     private static final DateFormat DATE_FORMAT =
             DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
 
-    private static final long MAX_LOG_FILE_SIZE = 4 << 20;  // 4 mb
+    private static final int SEGMENT_SIZE = 1 << 20;  // 1 mb
+    private static final int RING_BUFFER_SIZE = 256;
+
+    private static final LogRingBuffer sBuffer = new LogRingBuffer(RING_BUFFER_SIZE);
+    private static final AtomicBoolean sWriteScheduled = new AtomicBoolean();
 
-    private static Handler sHandler = null;
+    private static volatile Handler sHandler = null;
     private static File sLogsDirectory = null;
 
     public static void setDir(File logsDir) {
@@ -47,6 +52,8 @@ public final class FileLog {
                 if (sHandler != null && !logsDir.equals(sLogsDirectory)) {
                     ((HandlerThread) sHandler.getLooper().getThread()).quit();
                     sHandler = null;
+                    // Any pending write message was dropped with the thread.
+                    sWriteScheduled.set(false);
                 }
             }
         }
@@ -81,22 +88,25 @@ public final class FileLog {
         if (!ENABLED) {
             return;
         }
-        String out = String.format("%s %s %s", DATE_FORMAT.format(new Date()), tag, msg);
-        if (e != null) {
-            out += "\n" + Log.getStackTraceString(e);
+        sBuffer.offer(System.currentTimeMillis(), tag, msg, e);
+        if (sWriteScheduled.compareAndSet(false, true)) {
+            getHandler().sendEmptyMessage(LogWriterCallback.MSG_WRITE);
         }
-        Message.obtain(getHandler(), LogWriterCallback.MSG_WRITE, out).sendToTarget();
     }
 
     private static Handler getHandler() {
+        Handler handler = sHandler;
+        if (handler != null) {
+            return handler;
+        }
         synchronized (DATE_FORMAT) {
             if (sHandler == null) {
                 HandlerThread thread = new HandlerThread("file-logger");
                 thread.start();
                 sHandler = new Handler(thread.getLooper(), new LogWriterCallback());
             }
+            return sHandler;
         }
-        return sHandler;
     }
 
     /**
@@ -116,23 +126,117 @@ public final class FileLog {
 
     /**
      * Writes logs to the file.
-     * Log files are named log-0 for even days of the year and log-1 for odd days of the year.
-     * Logs older than 36 hours are purged.
+     * Logs are appended to log-0 or log-1, switching to the other file and truncating it when the
+     * current one is full. Logs older than 36 hours are purged.
      */
-    private static class LogWriterCallback implements Handler.Callback {
+    private static class LogWriterCallback
+            implements Handler.Callback, LogRingBuffer.RecordConsumer {
 
         private static final long CLOSE_DELAY = 5000;  // 5 seconds
+        private static final long MAX_LOG_AGE = 36 * 60 * 60 * 1000;  // 36 hours
 
         private static final int MSG_WRITE = 1;
         private static final int MSG_CLOSE = 2;
         private static final int MSG_FLUSH = 3;
 
-        private String mCurrentFileName = null;
-        private PrintWriter mCurrentWriter = null;
+        private int mCurrentIndex = -1;
+        private LogSegmentFile mCurrentSegment = null;
+
+        // Mapped segments are kept for the lifetime of the thread and reused after an idle close,
+        // as a mapping is only released when it is garbage collected.
+        private final LogSegmentFile[] mSegments = new LogSegmentFile[2];
 
         private void closeWriter() {
-            Utilities.closeSilently(mCurrentWriter);
-            mCurrentWriter = null;
+            if (mCurrentSegment != null) {
+                mCurrentSegment.flush();
+                mCurrentSegment = null;
+            }
+        }
+
+        private void releaseSegments() {
+            closeWriter();
+            mSegments[0] = mSegments[1] = null;
+        }
+
+        private void writePending() {
+            sWriteScheduled.set(false);
+            if (sBuffer.drain(this) > 0) {
+                // Auto close file after some time.
+                sHandler.removeMessages(MSG_CLOSE);
+                sHandler.sendEmptyMessageDelayed(MSG_CLOSE, CLOSE_DELAY);
+            }
+            int dropped = sBuffer.getAndResetDropped();
+            if (dropped > 0) {
+                accept(System.currentTimeMillis(), "FileLog",
+                        dropped + " log records dropped", null);
+            }
+        }
+
+        @Override
+        public void accept(long time, String tag, String msg, Throwable error) {
+            try {
+                String trace = error == null ? null : Log.getStackTraceString(error);
+                if (mCurrentSegment == null) {
+                    openCurrentSegment();
+                }
+                if (!mCurrentSegment.append(time, tag, msg, trace)
+                        && !mCurrentSegment.isEmpty()) {
+                    // Current file is full, rotate to the other one.
+                    closeWriter();
+                    mCurrentIndex = 1 - mCurrentIndex;
+                    mCurrentSegment = getSegment(mCurrentIndex, true);
+                    mCurrentSegment.append(time, tag, msg, trace);
+                }
+            } catch (Exception e) {
+                Log.e("FileLog", "Error writing logs to file", e);
+                // Drop the mappings, will try reopening during next log
+                releaseSegments();
+            }
+        }
+
+        private void openCurrentSegment() throws IOException {
+            long now = System.currentTimeMillis();
+            File file0 = getLogFile(0);
+            File file1 = getLogFile(1);
+            if (mCurrentIndex < 0) {
+                // Continue with the most recently modified file.
+                mCurrentIndex = file1.lastModified() > file0.lastModified() ? 1 : 0;
+            }
+            File current = mCurrentIndex == 0 ? file0 : file1;
+            File other = mCurrentIndex == 0 ? file1 : file0;
+
+            // If the file was modified more that 36 hours ago, purge the file.
+            boolean purge = current.exists() && now - current.lastModified() > MAX_LOG_AGE;
+            if (other.exists() && now - other.lastModified() > MAX_LOG_AGE) {
+                LogSegmentFile otherSegment = mSegments[1 - mCurrentIndex];
+                if (otherSegment != null) {
+                    // The file is still mapped, clear it in place.
+                    otherSegment.reset();
+                    otherSegment.flush();
+                } else {
+                    other.delete();
+                }
+            }
+            mCurrentSegment = getSegment(mCurrentIndex, purge);
+        }
+
+        /**
+         * Returns the segment for {@param index}, mapping the file only if it is not already
+         * mapped.
+         */
+        private LogSegmentFile getSegment(int index, boolean reset) throws IOException {
+            LogSegmentFile segment = mSegments[index];
+            if (segment != null && segment.getFile().exists()) {
+                if (reset) {
+                    segment.reset();
+                }
+                return segment;
+            }
+            // Drop the old mapping before mapping the file again.
+            mSegments[index] = null;
+            segment = LogSegmentFile.open(getLogFile(index), SEGMENT_SIZE, reset);
+            mSegments[index] = segment;
+            return segment;
         }
 
         @Override
@@ -142,44 +246,7 @@ public final class FileLog {
             }
             switch (msg.what) {
                 case MSG_WRITE: {
-                    Calendar cal = Calendar.getInstance();
-                    // suffix with 0 or 1 based on the day of the year.
-                    String fileName = FILE_NAME_PREFIX + (cal.get(Calendar.DAY_OF_YEAR) & 1);
-
-                    if (!fileName.equals(mCurrentFileName)) {
-                        closeWriter();
-                    }
-
-                    try {
-                        if (mCurrentWriter == null) {
-                            mCurrentFileName = fileName;
-
-                            boolean append = false;
-                            File logFile = new File(sLogsDirectory, fileName);
-                            if (logFile.exists()) {
-                                Calendar modifiedTime = Calendar.getInstance();
-                                modifiedTime.setTimeInMillis(logFile.lastModified());
-
-                                // If the file was modified more that 36 hours ago, purge the file.
-                                // We use instead of 24 to account for day-365 followed by day-1
-                                modifiedTime.add(Calendar.HOUR, 36);
-                                append = cal.before(modifiedTime)
-                                        && logFile.length() < MAX_LOG_FILE_SIZE;
-                            }
-                            mCurrentWriter = new PrintWriter(new FileWriter(logFile, append));
-                        }
-
-                        mCurrentWriter.println((String) msg.obj);
-                        mCurrentWriter.flush();
-
-                        // Auto close file stream after some time.
-                        sHandler.removeMessages(MSG_CLOSE);
-                        sHandler.sendEmptyMessageDelayed(MSG_CLOSE, CLOSE_DELAY);
-                    } catch (Exception e) {
-                        Log.e("FileLog", "Error writing logs to file", e);
-                        // Close stream, will try reopening during next log
-                        closeWriter();
-                    }
+                    writePending();
                     return true;
                 }
                 case MSG_CLOSE: {
@@ -187,13 +254,16 @@ public final class FileLog {
                     return true;
                 }
                 case MSG_FLUSH: {
+                    writePending();
                     closeWriter();
                     Pair<PrintWriter, CountDownLatch> p =
                             (Pair<PrintWriter, CountDownLatch>) msg.obj;
 
                     if (p.first != null) {
-                        dumpFile(p.first, FILE_NAME_PREFIX + 0);
-                        dumpFile(p.first, FILE_NAME_PREFIX + 1);
+                        // Print the older file first.
+                        int lastIndex = mCurrentIndex < 0 ? 1 : mCurrentIndex;
+                        dumpFile(p.first, 1 - lastIndex);
+                        dumpFile(p.first, lastIndex);
                     }
                     p.second.countDown();
                     return true;
@@ -203,24 +273,16 @@ public final class FileLog {
         }
     }
 
-    private static void dumpFile(PrintWriter out, String fileName) {
-        File logFile = new File(sLogsDirectory, fileName);
-        if (logFile.exists()) {
+    private static File getLogFile(int index) {
+        return new File(sLogsDirectory, FILE_NAME_PREFIX + index);
+    }
 
-            BufferedReader in = null;
-            try {
-                in = new BufferedReader(new FileReader(logFile));
-                out.println();
-                out.println("--- logfile: " + fileName + " ---");
-                String line;
-                while ((line = in.readLine()) != null) {
-                    out.println(line);
-                }
-            } catch (Exception e) {
-                // ignore
-            } finally {
-                Utilities.closeSilently(in);
-            }
+    private static void dumpFile(PrintWriter out, int index) {
+        File logFile = getLogFile(index);
+        if (logFile.exists()) {
+            out.println();
+            out.println("--- logfile: " + logFile.getName() + " ---");
+            LogSegmentFile.dump(logFile, out, DATE_FORMAT);
         }
     }
 }
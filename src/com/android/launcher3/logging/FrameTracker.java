@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.view.Choreographer;
+
+import com.android.launcher3.model.nano.LauncherDumpProto.FrameStats;
+import com.android.launcher3.model.nano.LauncherDumpProto.InteractionType;
+import com.android.launcher3.util.Preconditions;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Collects the timing of the frames drawn during launcher interactions, like scrolling the
+ * workspace or opening a folder, so that builds can be compared without external tools.
+ *
+ * While an interaction is running, a frame callback measures the time between consecutive frames.
+ * Each frame is counted for all the running interactions, in a histogram of durations, and the
+ * vsyncs skipped by a long frame are counted as missed frames. The stats are kept for the life of
+ * the process, and are reported in dumps and in the proto dump of the model.
+ *
+ * {@link #begin(int)} and {@link #end(int)} are called on the UI thread.
+ */
+public class FrameTracker implements Choreographer.FrameCallback {
+
+    // Interactions are indexed by their InteractionType.
+    private static final int INTERACTION_COUNT = InteractionType.STATE_TRANSITION + 1;
+
+    // Interactions which are not ended, for example if their end callback is missed, are ended
+    // after this time so that the frame callback is not posted forever.
+    private static final long MAX_INTERACTION_NANOS = 10 * 1000000000L;
+
+    private static final int BUCKET_MS = 4;
+    private static final int BUCKET_COUNT = 17; // Up to 64ms, then all the longer frames.
+
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    private static volatile FrameTracker sInstance;
+    private static float sRefreshRate = DEFAULT_REFRESH_RATE;
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    private final boolean[] mRunning = new boolean[INTERACTION_COUNT];
+    private final long[] mBeginTimeNanos = new long[INTERACTION_COUNT];
+    private int mRunningCount;
+    private long mLastFrameTimeNanos;
+    private boolean mFrameCallbackPosted;
+
+    // Stats, guarded by this as the model can be dumped from a binder thread.
+    private final int[] mInteractionCounts = new int[INTERACTION_COUNT];
+    private final int[] mFrameCounts = new int[INTERACTION_COUNT];
+    private final int[] mMissedFrameCounts = new int[INTERACTION_COUNT];
+    private final int[] mMaxFrameMs = new int[INTERACTION_COUNT];
+    private final int[][] mHistograms = new int[INTERACTION_COUNT][BUCKET_COUNT];
+
+    // Time from the touch down of a long press to the first frame of the drag view, guarded by
+    // the class.
+    private static final LatencyStats sDragStartLatency = new LatencyStats("drag_start_latency");
+
+    // Time from a long press to the shortcuts shown in the popup, depending on whether they were
+    // prefetched, guarded by the class.
+    private static final LatencyStats sPopupShortcutsLatency =
+            new LatencyStats("popup_shortcuts_latency");
+    private static final LatencyStats sPrefetchedPopupShortcutsLatency =
+            new LatencyStats("prefetched_popup_shortcuts_latency");
+
+    /**
+     * Sets the refresh rate of the display, used to count the missed frames.
+     */
+    public static void setRefreshRate(float refreshRate) {
+        sRefreshRate = refreshRate > 0 ? refreshRate : DEFAULT_REFRESH_RATE;
+    }
+
+    /**
+     * Starts counting the frames for {@param interaction}, one of {@link InteractionType}. Does
+     * nothing if the interaction is already running.
+     */
+    public static void begin(int interaction) {
+        Preconditions.assertUIThread();
+        if (sInstance == null) {
+            sInstance = new FrameTracker();
+        }
+        sInstance.beginInteraction(interaction);
+    }
+
+    /**
+     * Stops counting the frames for {@param interaction}.
+     */
+    public static void end(int interaction) {
+        Preconditions.assertUIThread();
+        if (sInstance != null) {
+            sInstance.endInteraction(interaction);
+        }
+    }
+
+    /**
+     * Counts the frames for {@param interaction} while {@param animator} runs.
+     */
+    public static void trackAnimator(Animator animator, final int interaction) {
+        animator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationStart(Animator animation) {
+                begin(interaction);
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                end(interaction);
+            }
+        });
+    }
+
+    /**
+     * Records the time between the touch down of the long press starting a drag and the first
+     * frame of the drag view. This includes the long press timeout.
+     */
+    public static synchronized void recordDragStartLatency(long latencyMs) {
+        sDragStartLatency.record(latencyMs);
+    }
+
+    /**
+     * Records the time between the long press opening a popup and its shortcuts being shown.
+     */
+    public static synchronized void recordPopupShortcutsLatency(long latencyMs,
+            boolean prefetched) {
+        (prefetched ? sPrefetchedPopupShortcutsLatency : sPopupShortcutsLatency).record(latencyMs);
+    }
+
+    /**
+     * Returns the stats of the interactions which drew at least one frame.
+     */
+    public static FrameStats[] getFrameStats() {
+        FrameTracker tracker = sInstance;
+        return tracker == null ? new FrameStats[0] : tracker.toProto();
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "FrameTracker: refreshRate=" + sRefreshRate);
+        for (FrameStats stats : getFrameStats()) {
+            writer.println(prefix + "  " + getInteractionName(stats.interaction)
+                    + ": interactions=" + stats.interactionCount
+                    + " frames=" + stats.frameCount
+                    + " missed=" + stats.missedFrameCount
+                    + " max=" + stats.maxFrameDurationMs + "ms");
+            writer.println(prefix + "    histogram(" + BUCKET_MS + "ms)="
+                    + Arrays.toString(stats.frameDurationHistogram));
+        }
+        synchronized (FrameTracker.class) {
+            sDragStartLatency.dump(prefix + "  ", writer);
+            sPopupShortcutsLatency.dump(prefix + "  ", writer);
+            sPrefetchedPopupShortcutsLatency.dump(prefix + "  ", writer);
+        }
+    }
+
+    private static String getInteractionName(int interaction) {
+        switch (interaction) {
+            case InteractionType.WORKSPACE_SCROLL:
+                return "workspace_scroll";
+            case InteractionType.ALL_APPS_TRANSITION:
+                return "all_apps_transition";
+            case InteractionType.FOLDER_OPEN:
+                return "folder_open";
+            case InteractionType.FOLDER_CLOSE:
+                return "folder_close";
+            case InteractionType.DRAG:
+                return "drag";
+            case InteractionType.STATE_TRANSITION:
+                return "state_transition";
+            default:
+                return "unknown";
+        }
+    }
+
+    private void beginInteraction(int interaction) {
+        if (interaction < 0 || interaction >= INTERACTION_COUNT || mRunning[interaction]) {
+            return;
+        }
+        mRunning[interaction] = true;
+        mBeginTimeNanos[interaction] = System.nanoTime();
+        mRunningCount++;
+        synchronized (this) {
+            mInteractionCounts[interaction]++;
+        }
+        if (!mFrameCallbackPosted) {
+            // The first frame only sets the start time.
+            mLastFrameTimeNanos = 0;
+            mChoreographer.postFrameCallback(this);
+            mFrameCallbackPosted = true;
+        }
+    }
+
+    private void endInteraction(int interaction) {
+        if (interaction < 0 || interaction >= INTERACTION_COUNT || !mRunning[interaction]) {
+            return;
+        }
+        mRunning[interaction] = false;
+        mRunningCount--;
+        if (mRunningCount == 0 && mFrameCallbackPosted) {
+            mChoreographer.removeFrameCallback(this);
+            mFrameCallbackPosted = false;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameCallbackPosted = false;
+        if (mLastFrameTimeNanos != 0) {
+            recordFrame(frameTimeNanos - mLastFrameTimeNanos);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        for (int i = 0; i < INTERACTION_COUNT; i++) {
+            if (mRunning[i] && frameTimeNanos - mBeginTimeNanos[i] > MAX_INTERACTION_NANOS) {
+                mRunning[i] = false;
+                mRunningCount--;
+            }
+        }
+        if (mRunningCount > 0) {
+            mChoreographer.postFrameCallback(this);
+            mFrameCallbackPosted = true;
+        }
+    }
+
+    private synchronized void recordFrame(long durationNanos) {
+        float frameIntervalNanos = 1e9f / sRefreshRate;
+        int missedFrames = Math.max(0, Math.round(durationNanos / frameIntervalNanos) - 1);
+        int durationMs = (int) (durationNanos / 1000000);
+        int bucket = Math.min(durationMs / BUCKET_MS, BUCKET_COUNT - 1);
+
+        for (int i = 0; i < INTERACTION_COUNT; i++) {
+            if (mRunning[i]) {
+                mFrameCounts[i]++;
+                mMissedFrameCounts[i] += missedFrames;
+                mMaxFrameMs[i] = Math.max(mMaxFrameMs[i], durationMs);
+                mHistograms[i][bucket]++;
+            }
+        }
+    }
+
+    private synchronized FrameStats[] toProto() {
+        int count = 0;
+        for (int i = 0; i < INTERACTION_COUNT; i++) {
+            if (mFrameCounts[i] > 0) {
+                count++;
+            }
+        }
+        FrameStats[] result = new FrameStats[count];
+        count = 0;
+        for (int i = 0; i < INTERACTION_COUNT; i++) {
+            if (mFrameCounts[i] > 0) {
+                FrameStats stats = new FrameStats();
+                stats.interaction = i;
+                stats.interactionCount = mInteractionCounts[i];
+                stats.frameCount = mFrameCounts[i];
+                stats.missedFrameCount = mMissedFrameCounts[i];
+                stats.maxFrameDurationMs = mMaxFrameMs[i];
+                stats.frameDurationHistogram = mHistograms[i].clone();
+                stats.histogramBucketMs = BUCKET_MS;
+                result[count++] = stats;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count, average and maximum of a latency, guarded by the class.
+     */
+    private static class LatencyStats {
+        private final String mName;
+        private int mCount;
+        private long mTotalMs;
+        private long mMaxMs;
+
+        LatencyStats(String name) {
+            mName = name;
+        }
+
+        void record(long latencyMs) {
+            mCount++;
+            mTotalMs += latencyMs;
+            mMaxMs = Math.max(mMaxMs, latencyMs);
+        }
+
+        void dump(String prefix, PrintWriter writer) {
+            if (mCount > 0) {
+                writer.println(prefix + mName + ": count=" + mCount + " avg=" + mTotalMs / mCount
+                        + "ms max=" + mMaxMs + "ms");
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.logging;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free queue of log records with many producers and a single consumer.
+ *
+ * Producers claim a slot by advancing the head sequence and publish it by writing the sequence
+ * into the slot, so {@link #offer} never blocks. When the buffer is full the record is dropped
+ * and counted instead, as logging must never stall the calling thread.
+ */
+class LogRingBuffer {
+
+    /**
+     * Receives the records removed from the buffer.
+     */
+    interface RecordConsumer {
+        void accept(long time, String tag, String msg, Throwable error);
+    }
+
+    private final int mMask;
+
+    private final long[] mTimes;
+    private final String[] mTags;
+    private final String[] mMessages;
+    private final Throwable[] mErrors;
+
+    // Sequence last published in each slot.
+    private final AtomicLongArray mPublished;
+
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicInteger mDropped = new AtomicInteger();
+
+    // Only written by the consumer thread.
+    private volatile long mTail;
+
+    /**
+     * @param capacity the number of slots, must be a power of two.
+     */
+    LogRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        mMask = capacity - 1;
+        mTimes = new long[capacity];
+        mTags = new String[capacity];
+        mMessages = new String[capacity];
+        mErrors = new Throwable[capacity];
+        mPublished = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            mPublished.set(i, -1);
+        }
+    }
+
+    /**
+     * Adds a record to the buffer. Can be called from any thread.
+     * @return false if the buffer was full and the record was dropped.
+     */
+    boolean offer(long time, String tag, String msg, Throwable error) {
+        long seq;
+        do {
+            seq = mHead.get();
+            if (seq - mTail > mMask) {
+                mDropped.incrementAndGet();
+                return false;
+            }
+        } while (!mHead.compareAndSet(seq, seq + 1));
+
+        int index = (int) seq & mMask;
+        mTimes[index] = time;
+        mTags[index] = tag;
+        mMessages[index] = msg;
+        mErrors[index] = error;
+        mPublished.lazySet(index, seq);
+        return true;
+    }
+
+    /**
+     * Removes all the published records in order. Must only be called from the consumer thread.
+     * @return the number of records consumed.
+     */
+    int drain(RecordConsumer consumer) {
+        long tail = mTail;
+        int count = 0;
+        while (true) {
+            int index = (int) tail & mMask;
+            if (mPublished.get(index) != tail) {
+                break;
+            }
+            consumer.accept(mTimes[index], mTags[index], mMessages[index], mErrors[index]);
+            mTags[index] = null;
+            mMessages[index] = null;
+            mErrors[index] = null;
+
+            tail++;
+            mTail = tail;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of records dropped since the last call.
+     */
+    int getAndResetDropped() {
+        return mDropped.getAndSet(0);
+    }
+}
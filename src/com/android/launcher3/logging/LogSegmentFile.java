@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.logging;
+
+import com.android.launcher3.Utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * A fixed size, memory-mapped log file holding binary log records.
+ *
+ * Layout:
+ *   header: int magic, int version, int end offset of the last complete record
+ *   records, each starting with a type byte:
+ *     RECORD_TAG:   short tag id, short length, utf-8 tag
+ *     RECORD_ENTRY: long time, short tag id, int length, utf-8 message, int length, utf-8 trace
+ *
+ * Tags are written once per file and referenced by id afterwards. The end offset is only
+ * updated after a record is fully written, so a partially written record is ignored.
+ *
+ * The file descriptor is closed as soon as the file is mapped. The mapping itself can not be
+ * released explicitly and stays alive as long as this object is reachable, so callers should keep
+ * and reuse a single instance per file instead of opening it again.
+ */
+class LogSegmentFile {
+
+    private static final int MAGIC = 0x4c4f4731;  // "LOG1"
+    private static final int VERSION = 1;
+
+    private static final int OFFSET_END = 8;
+    private static final int HEADER_SIZE = 12;
+
+    private static final byte RECORD_TAG = 1;
+    private static final byte RECORD_ENTRY = 2;
+
+    // Longer strings are truncated, so that a single record always fits in an empty file.
+    private static final int MAX_STRING_BYTES = 16 << 10;  // 16 kb
+
+    private final File mFile;
+    private final MappedByteBuffer mBuffer;
+    private final HashMap<String, Short> mTagIds = new HashMap<>();
+
+    private boolean mModified = false;
+
+    private LogSegmentFile(File file, MappedByteBuffer buffer) {
+        mFile = file;
+        mBuffer = buffer;
+    }
+
+    /**
+     * Opens the file for appending, mapping {@param size} bytes. The existing content is kept if
+     * it is valid, unless {@param reset} is true.
+     */
+    static LogSegmentFile open(File file, int size, boolean reset) throws IOException {
+        MappedByteBuffer buffer;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // The mapping remains valid after the channel is closed.
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            Utilities.closeSilently(raf);
+        }
+        LogSegmentFile segment = new LogSegmentFile(file, buffer);
+        if (reset || !segment.readExisting()) {
+            segment.reset();
+        }
+        return segment;
+    }
+
+    private boolean readExisting() {
+        ByteBuffer in = mBuffer.duplicate();
+        if (in.getInt(0) != MAGIC || in.getInt(4) != VERSION) {
+            return false;
+        }
+        int end = in.getInt(OFFSET_END);
+        if (end < HEADER_SIZE || end > in.capacity()) {
+            return false;
+        }
+        in.position(HEADER_SIZE);
+        in.limit(end);
+        try {
+            while (in.hasRemaining()) {
+                byte type = in.get();
+                if (type == RECORD_TAG) {
+                    short id = in.getShort();
+                    mTagIds.put(readString(in, in.getShort()), id);
+                } else if (type == RECORD_ENTRY) {
+                    skipEntry(in);
+                } else {
+                    return false;
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            return false;
+        }
+        mBuffer.position(end);
+        return true;
+    }
+
+    /**
+     * Discards all the records in the file.
+     */
+    void reset() {
+        mTagIds.clear();
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        mBuffer.putInt(OFFSET_END, HEADER_SIZE);
+        mBuffer.position(HEADER_SIZE);
+        mModified = true;
+    }
+
+    /**
+     * Appends a log entry.
+     * @return false if there is not enough space left in the file.
+     */
+    boolean append(long time, String tag, String msg, String trace) {
+        byte[] msgBytes = toBytes(msg);
+        byte[] traceBytes = toBytes(trace);
+
+        Short tagId = mTagIds.get(tag);
+        byte[] tagBytes = null;
+        int required = 1 + 8 + 2 + 4 + msgBytes.length + 4 + traceBytes.length;
+        if (tagId == null) {
+            tagBytes = toBytes(tag);
+            required += 1 + 2 + 2 + tagBytes.length;
+        }
+        if (mBuffer.remaining() < required) {
+            return false;
+        }
+
+        if (tagId == null) {
+            tagId = (short) mTagIds.size();
+            mTagIds.put(tag, tagId);
+            mBuffer.put(RECORD_TAG).putShort(tagId).putShort((short) tagBytes.length)
+                    .put(tagBytes);
+        }
+        mBuffer.put(RECORD_ENTRY).putLong(time).putShort(tagId)
+                .putInt(msgBytes.length).put(msgBytes)
+                .putInt(traceBytes.length).put(traceBytes);
+        mBuffer.putInt(OFFSET_END, mBuffer.position());
+        mModified = true;
+        return true;
+    }
+
+    /**
+     * Returns true if nothing has been written to this file since it was reset.
+     */
+    boolean isEmpty() {
+        return mBuffer.position() == HEADER_SIZE;
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Called when the writer goes idle. The mapping is kept, so that the next write does not
+     * need to map the file again.
+     */
+    void flush() {
+        if (mModified) {
+            // Writes through the mapping are not guaranteed to update the modified time, which
+            // is used to find the latest file and to purge old logs.
+            mFile.setLastModified(System.currentTimeMillis());
+            mModified = false;
+        }
+    }
+
+    /**
+     * Decodes the log entries in {@param file} and prints them as text.
+     * @return false if the file does not contain valid logs.
+     */
+    static boolean dump(File file, PrintWriter out, DateFormat dateFormat) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC
+                    || raf.readInt() != VERSION) {
+                return false;
+            }
+            int end = raf.readInt();
+            if (end < HEADER_SIZE || end > raf.length()) {
+                return false;
+            }
+            byte[] data = new byte[end - HEADER_SIZE];
+            raf.readFully(data);
+
+            ByteBuffer in = ByteBuffer.wrap(data);
+            ArrayList<String> tags = new ArrayList<>();
+            Date date = new Date();
+            while (in.hasRemaining()) {
+                byte type = in.get();
+                if (type == RECORD_TAG) {
+                    short id = in.getShort();
+                    String tag = readString(in, in.getShort());
+                    while (tags.size() <= id) {
+                        tags.add(null);
+                    }
+                    tags.set(id, tag);
+                } else if (type == RECORD_ENTRY) {
+                    date.setTime(in.getLong());
+                    short tagId = in.getShort();
+                    String msg = readString(in, in.getInt());
+                    String trace = readString(in, in.getInt());
+
+                    out.print(dateFormat.format(date));
+                    out.print(' ');
+                    out.print(tagId < tags.size() ? tags.get(tagId) : null);
+                    out.print(' ');
+                    out.println(msg);
+                    if (!trace.isEmpty()) {
+                        out.println(trace);
+                    }
+                } else {
+                    break;
+                }
+            }
+            return true;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            return false;
+        } finally {
+            Utilities.closeSilently(raf);
+        }
+    }
+
+    private static void skipEntry(ByteBuffer in) {
+        in.position(in.position() + 8 + 2);
+        int msgLength = in.getInt();
+        in.position(in.position() + msgLength);
+        int traceLength = in.getInt();
+        in.position(in.position() + traceLength);
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toBytes(String str) {
+        if (str == null) {
+            return new byte[0];
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            // The cut may split a multi-byte character, which the decoder replaces.
+            byte[] truncated = new byte[MAX_STRING_BYTES];
+            System.arraycopy(bytes, 0, truncated, 0, MAX_STRING_BYTES);
+            return truncated;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.logging;
+
+import android.os.Handler;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver.OnDrawListener;
+
+import com.android.launcher3.LauncherModel;
+import com.android.launcher3.Utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.text.DateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Always-on recorder of the time spent in the main steps of a launcher start, from
+ * {@link com.android.launcher3.Launcher#onCreate} until the widgets are bound.
+ *
+ * Each start records the start and end of a fixed set of spans, and the icon cache DB lookups.
+ * Spans are identified by a constant, so recording one only reads the clock. Once the start
+ * completes, it is written on the worker thread to a slot of a small ring file, which keeps the
+ * last {@link #SLOT_COUNT} starts across process restarts. The starts are printed in the dump of
+ * the launcher activity.
+ *
+ * The first start of a process is a cold start, the following ones are warm starts.
+ */
+public final class StartupTracer {
+
+    private static final String TAG = "StartupTracer";
+
+    public static final int SPAN_ON_CREATE = 0;
+    public static final int SPAN_FIRST_DRAW = 1;
+    public static final int SPAN_OPEN_DB = 2;
+    public static final int SPAN_LOAD_WORKSPACE = 3;
+    public static final int SPAN_BIND_WORKSPACE = 4;
+    public static final int SPAN_LOAD_ALL_APPS = 5;
+    public static final int SPAN_BIND_ALL_APPS = 6;
+    public static final int SPAN_UPDATE_ICON_CACHE = 7;
+    public static final int SPAN_LOAD_DEEP_SHORTCUTS = 8;
+    public static final int SPAN_LOAD_WIDGETS = 9;
+    public static final int SPAN_BIND_WIDGETS = 10;
+
+    private static final String[] SPAN_NAMES = {"onCreate", "firstDraw", "openDb",
+            "loadWorkspace", "bindWorkspace", "loadAllApps", "bindAllApps", "updateIconCache",
+            "loadDeepShortcuts", "loadWidgets", "bindWidgets"};
+    private static final int SPAN_COUNT = SPAN_NAMES.length;
+
+    private static final String FILE_NAME = "startup_traces";
+
+    /**
+     * Layout:
+     *   header: int magic, int version, int index of the next slot to write
+     *   slots, each holding a start:
+     *     long wall time, byte flags, byte span count, int time from the process start in ms,
+     *     int icon DB hits, int icon DB misses, int icon DB time in ms,
+     *     then for each span: byte span id, int start in ms, int duration in ms
+     * The span times are relative to the start of onCreate. Slots with no flags are empty.
+     */
+    private static final int MAGIC = 0x53545231;  // "STR1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int SLOT_COUNT = 16;
+    private static final int SLOT_HEADER_SIZE = 26;
+    private static final int SPAN_SIZE = 9;
+    private static final int SLOT_SIZE = SLOT_HEADER_SIZE + SPAN_COUNT * SPAN_SIZE;
+
+    private static final int FLAG_VALID = 1;
+    private static final int FLAG_COLD = 2;
+    private static final int FLAG_COMPLETE = 4;
+
+    private static final DateFormat DATE_FORMAT =
+            DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM);
+
+    private static final Object sLock = new Object();
+    private static volatile boolean sSessionActive;
+    private static boolean sColdStartPending = true;
+    private static File sDir;
+    private static Handler sWorker;
+
+    // Current start, guarded by sLock.
+    private static long sSessionWallTime;
+    private static long sSessionStartNanos;
+    private static int sProcessStartMs;
+    private static boolean sSessionCold;
+    private static final long[] sSpanStarts = new long[SPAN_COUNT];
+    private static final long[] sSpanEnds = new long[SPAN_COUNT];
+    private static int sIconDbHits;
+    private static int sIconDbMisses;
+    private static long sIconDbNanos;
+
+    private StartupTracer() { }
+
+    public static void setDir(File dir) {
+        synchronized (sLock) {
+            sDir = dir;
+        }
+    }
+
+    /**
+     * Starts recording a launcher start, which also begins {@link #SPAN_ON_CREATE} and
+     * {@link #SPAN_FIRST_DRAW}. A start which did not complete is saved as incomplete.
+     */
+    public static void beginSession() {
+        synchronized (sLock) {
+            if (sSessionActive) {
+                finishSessionLocked(false);
+            }
+            sSessionWallTime = System.currentTimeMillis();
+            sSessionStartNanos = SystemClock.elapsedRealtimeNanos();
+            sSessionCold = sColdStartPending;
+            sColdStartPending = false;
+            sProcessStartMs = sSessionCold && Utilities.ATLEAST_NOUGAT
+                    ? (int) (SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime())
+                    : -1;
+            Arrays.fill(sSpanStarts, 0);
+            Arrays.fill(sSpanEnds, 0);
+            sIconDbHits = sIconDbMisses = 0;
+            sIconDbNanos = 0;
+            sSpanStarts[SPAN_ON_CREATE] = sSpanStarts[SPAN_FIRST_DRAW] = sSessionStartNanos;
+            sSessionActive = true;
+        }
+    }
+
+    /**
+     * Begins {@param span} of the current start. Each span is only recorded once per start.
+     */
+    public static void begin(int span) {
+        if (!sSessionActive) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtimeNanos();
+        synchronized (sLock) {
+            if (sSessionActive && sSpanStarts[span] == 0) {
+                sSpanStarts[span] = now;
+            }
+        }
+    }
+
+    /**
+     * Ends {@param span} of the current start. The start completes with
+     * {@link #SPAN_BIND_WIDGETS}, the last step of the loader.
+     */
+    public static void end(int span) {
+        if (!sSessionActive) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtimeNanos();
+        synchronized (sLock) {
+            if (sSessionActive && sSpanStarts[span] != 0 && sSpanEnds[span] == 0) {
+                sSpanEnds[span] = now;
+                if (span == SPAN_BIND_WIDGETS) {
+                    finishSessionLocked(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a lookup in the icon cache DB, which took {@param nanos}.
+     */
+    public static void onIconDbLookup(boolean hit, long nanos) {
+        if (!sSessionActive) {
+            return;
+        }
+        synchronized (sLock) {
+            if (hit) {
+                sIconDbHits++;
+            } else {
+                sIconDbMisses++;
+            }
+            sIconDbNanos += nanos;
+        }
+    }
+
+    /**
+     * Ends {@link #SPAN_FIRST_DRAW} when {@param view} is first drawn.
+     */
+    public static void trackFirstDraw(final View view) {
+        view.getViewTreeObserver().addOnDrawListener(new OnDrawListener() {
+            private boolean mDrawn;
+
+            @Override
+            public void onDraw() {
+                if (mDrawn) {
+                    return;
+                }
+                mDrawn = true;
+                end(SPAN_FIRST_DRAW);
+                // The listener can't be removed while the listeners are dispatched.
+                final OnDrawListener listener = this;
+                view.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        view.getViewTreeObserver().removeOnDrawListener(listener);
+                    }
+                });
+            }
+        });
+    }
+
+    private static void finishSessionLocked(boolean complete) {
+        sSessionActive = false;
+        if (sDir == null) {
+            return;
+        }
+
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+        slot.putLong(sSessionWallTime);
+        slot.put((byte) (FLAG_VALID | (sSessionCold ? FLAG_COLD : 0)
+                | (complete ? FLAG_COMPLETE : 0)));
+        int spanCountPosition = slot.position();
+        slot.put((byte) 0);
+        slot.putInt(sProcessStartMs);
+        slot.putInt(sIconDbHits);
+        slot.putInt(sIconDbMisses);
+        slot.putInt(toMillis(sIconDbNanos));
+        byte spanCount = 0;
+        for (int i = 0; i < SPAN_COUNT; i++) {
+            if (sSpanStarts[i] != 0 && sSpanEnds[i] != 0) {
+                slot.put((byte) i);
+                slot.putInt(toMillis(sSpanStarts[i] - sSessionStartNanos));
+                slot.putInt(toMillis(sSpanEnds[i] - sSpanStarts[i]));
+                spanCount++;
+            }
+        }
+        slot.put(spanCountPosition, spanCount);
+
+        final File file = new File(sDir, FILE_NAME);
+        final byte[] data = slot.array();
+        if (sWorker == null) {
+            sWorker = new Handler(LauncherModel.getWorkerLooper());
+        }
+        sWorker.post(new Runnable() {
+            @Override
+            public void run() {
+                writeSlot(file, data);
+            }
+        });
+    }
+
+    private static int toMillis(long nanos) {
+        return (int) (nanos / 1000000);
+    }
+
+    private static void writeSlot(File file, byte[] data) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            int next = 0;
+            if (raf.length() != HEADER_SIZE + SLOT_COUNT * SLOT_SIZE
+                    || raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                // New or incompatible file, start over.
+                raf.setLength(0);
+                raf.setLength(HEADER_SIZE + SLOT_COUNT * SLOT_SIZE);
+                raf.seek(0);
+                raf.writeInt(MAGIC);
+                raf.writeInt(VERSION);
+            } else {
+                next = raf.readInt();
+                if (next < 0 || next >= SLOT_COUNT) {
+                    next = 0;
+                }
+            }
+            raf.seek(HEADER_SIZE + next * SLOT_SIZE);
+            raf.write(data);
+            raf.seek(8);
+            raf.writeInt((next + 1) % SLOT_COUNT);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing startup traces", e);
+        }
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        File dir;
+        synchronized (sLock) {
+            dir = sDir;
+        }
+        writer.println(prefix + "Startup traces (oldest first):");
+        if (dir == null) {
+            return;
+        }
+        File file = new File(dir, FILE_NAME);
+        if (!file.exists()) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() != HEADER_SIZE + SLOT_COUNT * SLOT_SIZE
+                    || raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                return;
+            }
+            int next = raf.readInt();
+            byte[] data = new byte[SLOT_SIZE];
+            for (int i = 0; i < SLOT_COUNT; i++) {
+                raf.seek(HEADER_SIZE + ((next + i) % SLOT_COUNT) * SLOT_SIZE);
+                raf.readFully(data);
+                dumpSlot(prefix + "  ", writer, ByteBuffer.wrap(data));
+            }
+        } catch (IOException e) {
+            writer.println(prefix + "  Error reading startup traces: " + e);
+        }
+    }
+
+    private static void dumpSlot(String prefix, PrintWriter writer, ByteBuffer slot) {
+        long wallTime = slot.getLong();
+        int flags = slot.get();
+        if ((flags & FLAG_VALID) == 0) {
+            return;
+        }
+        int spanCount = slot.get();
+        int processStartMs = slot.getInt();
+        int iconDbHits = slot.getInt();
+        int iconDbMisses = slot.getInt();
+        int iconDbMs = slot.getInt();
+
+        writer.println(prefix + DATE_FORMAT.format(new Date(wallTime))
+                + ((flags & FLAG_COLD) != 0 ? " cold" : " warm")
+                + ((flags & FLAG_COMPLETE) != 0 ? "" : " (incomplete)")
+                + (processStartMs >= 0 ? " processStart=-" + processStartMs + "ms" : "")
+                + " iconDb=" + iconDbHits + " hits, " + iconDbMisses + " misses, "
+                + iconDbMs + "ms");
+        for (int i = 0; i < spanCount; i++) {
+            int span = slot.get();
+            int startMs = slot.getInt();
+            int durationMs = slot.getInt();
+            writer.println(prefix + "  " + (span >= 0 && span < SPAN_COUNT
+                    ? SPAN_NAMES[span] : Integer.toString(span))
+                    + " @" + startMs + "ms: " + durationMs + "ms");
+        }
+    }
+}
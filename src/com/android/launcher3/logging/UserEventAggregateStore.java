@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.logging;
+
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.LongSparseArray;
+
+import com.android.launcher3.userevent.nano.LauncherLogProto.Action;
+import com.android.launcher3.userevent.nano.LauncherLogProto.ContainerType;
+import com.android.launcher3.userevent.nano.LauncherLogProto.ControlType;
+import com.android.launcher3.userevent.nano.LauncherLogProto.ItemType;
+import com.android.launcher3.userevent.nano.LauncherLogProto.LauncherEvent;
+import com.android.launcher3.userevent.nano.LauncherLogProto.Target;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Persistent event counts, aggregated by action and by the type and container of the target.
+ *
+ * File format: int version, int entry count, followed by (long key, int count) pairs.
+ */
+public class UserEventAggregateStore {
+
+    private static final String TAG = "UserEventStore";
+
+    private static final int VERSION = 1;
+
+    // Each field of the key is stored in 12 bits.
+    private static final int FIELD_BITS = 12;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+
+    private final AtomicFile mFile;
+    private final LongSparseArray<int[]> mCounts = new LongSparseArray<>();
+    private boolean mDirty = false;
+
+    public UserEventAggregateStore(File file) {
+        mFile = new AtomicFile(file);
+        load();
+    }
+
+    private void load() {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(mFile.openRead());
+            if (in.readInt() != VERSION) {
+                return;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                long key = in.readLong();
+                mCounts.put(key, new int[] {in.readInt()});
+            }
+        } catch (FileNotFoundException e) {
+            // No events logged yet.
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read event counts", e);
+            mCounts.clear();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    public synchronized void add(LauncherEvent event) {
+        long key = getKey(event);
+        int[] count = mCounts.get(key);
+        if (count == null) {
+            mCounts.put(key, new int[] {1});
+        } else {
+            count[0]++;
+        }
+        mDirty = true;
+    }
+
+    /**
+     * Returns the number of events recorded for the given action and target.
+     * @param detail the item type, control type or container type of the target, based on
+     *               {@param targetType}.
+     */
+    public synchronized int getCount(int actionType, int action, int targetType, int detail,
+            int containerType) {
+        int[] count = mCounts.get(makeKey(actionType, action, targetType, detail, containerType));
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * Writes the counts to disk if they have changed since the last save.
+     */
+    public synchronized void save() {
+        if (!mDirty) {
+            return;
+        }
+        FileOutputStream fos = null;
+        try {
+            fos = mFile.startWrite();
+            DataOutputStream out = new DataOutputStream(fos);
+            out.writeInt(VERSION);
+            int size = mCounts.size();
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(mCounts.keyAt(i));
+                out.writeInt(mCounts.valueAt(i)[0]);
+            }
+            out.flush();
+            mFile.finishWrite(fos);
+            mDirty = false;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write event counts", e);
+            if (fos != null) {
+                mFile.failWrite(fos);
+            }
+        }
+    }
+
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "User event counts");
+        for (int i = 0; i < mCounts.size(); i++) {
+            long key = mCounts.keyAt(i);
+            int containerType = getField(key, 0);
+            int detail = getField(key, 1);
+            int targetType = getField(key, 2);
+            int action = getField(key, 3);
+            int actionType = getField(key, 4);
+
+            Class detailClass = targetType == Target.Type.ITEM ? ItemType.class
+                    : targetType == Target.Type.CONTROL ? ControlType.class : ContainerType.class;
+            writer.println(prefix + "  "
+                    + LoggerUtils.getFieldName(actionType, Action.Type.class) + ":"
+                    + LoggerUtils.getFieldName(action, actionType == Action.Type.COMMAND
+                            ? Action.Command.class : Action.Touch.class)
+                    + " " + LoggerUtils.getFieldName(targetType, Target.Type.class)
+                    + ":" + LoggerUtils.getFieldName(detail, detailClass)
+                    + " in " + LoggerUtils.getFieldName(containerType, ContainerType.class)
+                    + " = " + mCounts.valueAt(i)[0]);
+        }
+    }
+
+    private static long getKey(LauncherEvent event) {
+        int action = event.action.type == Action.Type.COMMAND
+                ? event.action.command : event.action.touch;
+        Target child = event.srcTarget.length > 0 ? event.srcTarget[0] : null;
+        if (child == null) {
+            return makeKey(event.action.type, action, 0, 0, 0);
+        }
+        Target parent = event.srcTarget.length > 1 ? event.srcTarget[1] : child;
+
+        int detail;
+        switch (child.type) {
+            case Target.Type.ITEM:
+                detail = child.itemType;
+                break;
+            case Target.Type.CONTROL:
+                detail = child.controlType;
+                break;
+            default:
+                detail = child.containerType;
+                break;
+        }
+        return makeKey(event.action.type, action, child.type, detail, parent.containerType);
+    }
+
+    private static long makeKey(int actionType, int action, int targetType, int detail,
+            int containerType) {
+        return ((long) (actionType & FIELD_MASK) << (4 * FIELD_BITS))
+                | ((long) (action & FIELD_MASK) << (3 * FIELD_BITS))
+                | ((long) (targetType & FIELD_MASK) << (2 * FIELD_BITS))
+                | ((long) (detail & FIELD_MASK) << FIELD_BITS)
+                | (containerType & FIELD_MASK);
+    }
+
+    private static int getField(long key, int index) {
+        return (int) (key >> (index * FIELD_BITS)) & FIELD_MASK;
+    }
+}
@@ -38,6 +38,8 @@ import com.android.launcher3.userevent.nano.LauncherLogProto.LauncherEvent;
 import com.android.launcher3.userevent.nano.LauncherLogProto.Target;
 import com.android.launcher3.util.LogConfig;
 
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
 import java.util.Locale;
 import java.util.UUID;
 
@@ -60,7 +62,7 @@ public class UserEventDispatcher {
     private final static int MAXIMUM_VIEW_HIERARCHY_LEVEL = 5;
 
     private static final String TAG = "UserEvent";
-    private static final boolean IS_VERBOSE =
+    static final boolean IS_VERBOSE =
             FeatureFlags.IS_DOGFOOD_BUILD && Utilities.isPropertyEnabled(LogConfig.USEREVENT);
     private static final String UUID_STORAGE = "uuid";
 
@@ -77,6 +79,7 @@ public class UserEventDispatcher {
         ued.mIsInLandscapeMode = isInLandscapeMode;
         ued.mIsInMultiWindowMode = isInMultiWindowMode;
         ued.mUuidStr = uuidStr;
+        ued.mEventQueue = UserEventQueue.getInstance(context);
         return ued;
     }
 
@@ -97,7 +100,9 @@ public class UserEventDispatcher {
     }
 
     /**
-     * Recursively finds the parent of the given child which implements IconLogInfoProvider
+     * Recursively finds the parent of the given child which implements IconLogInfoProvider.
+     * The result is cached on attached views until they are detached or moved to a different
+     * parent. Moving any of their parents detaches them as well.
      */
     public static LogContainerProvider getLaunchProviderRecursive(@Nullable View v) {
         ViewParent parent;
@@ -107,16 +112,73 @@ public class UserEventDispatcher {
             return null;
         }
 
+        Object tag = v.getTag(R.id.log_container_provider_cache);
+        if (tag instanceof ProviderCacheEntry) {
+            ProviderCacheEntry cached = (ProviderCacheEntry) tag;
+            if (cached.isValid(parent)) {
+                return cached.getProvider();
+            }
+            cached.clear(v);
+        }
+
+        LogContainerProvider provider = null;
+        ViewParent current = parent;
         // Optimization to only check up to 5 parents.
         int count = MAXIMUM_VIEW_HIERARCHY_LEVEL;
-        while (parent != null && count-- > 0) {
-            if (parent instanceof LogContainerProvider) {
-                return (LogContainerProvider) parent;
+        while (current != null && count-- > 0) {
+            if (current instanceof LogContainerProvider) {
+                provider = (LogContainerProvider) current;
+                break;
             } else {
-                parent = parent.getParent();
+                current = current.getParent();
             }
         }
-        return null;
+        if (parent != null && v.isAttachedToWindow()) {
+            new ProviderCacheEntry(parent, provider).attach(v);
+        }
+        return provider;
+    }
+
+    /**
+     * The provider found for a view, which is dropped when the view is detached.
+     */
+    private static class ProviderCacheEntry implements View.OnAttachStateChangeListener {
+        private final WeakReference<ViewParent> mParent;
+        private final WeakReference<LogContainerProvider> mProvider;
+        private final boolean mHasProvider;
+
+        ProviderCacheEntry(ViewParent parent, LogContainerProvider provider) {
+            mParent = new WeakReference<>(parent);
+            mProvider = new WeakReference<>(provider);
+            mHasProvider = provider != null;
+        }
+
+        void attach(View v) {
+            v.setTag(R.id.log_container_provider_cache, this);
+            v.addOnAttachStateChangeListener(this);
+        }
+
+        void clear(View v) {
+            v.setTag(R.id.log_container_provider_cache, null);
+            v.removeOnAttachStateChangeListener(this);
+        }
+
+        boolean isValid(ViewParent parent) {
+            return parent != null && mParent.get() == parent
+                    && (!mHasProvider || mProvider.get() != null);
+        }
+
+        LogContainerProvider getProvider() {
+            return mProvider.get();
+        }
+
+        @Override
+        public void onViewAttachedToWindow(View v) { }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            clear(v);
+        }
     }
 
     private long mElapsedContainerMillis;
@@ -125,6 +187,7 @@ public class UserEventDispatcher {
     private boolean mIsInMultiWindowMode;
     private boolean mIsInLandscapeMode;
     private String mUuidStr;
+    private UserEventQueue mEventQueue;
 
     //                      APP_ICON    SHORTCUT    WIDGET
     // --------------------------------------------------------------
@@ -152,10 +215,8 @@ public class UserEventDispatcher {
         LauncherEvent event = newLauncherEvent(newTouchAction(Action.Touch.TAP),
                 newItemTarget(v), newTarget(Target.Type.CONTAINER));
 
-        if (fillInLogContainerData(event, v)) {
-            fillIntentInfo(event.srcTarget[0], intent);
-        }
-        dispatchUserEvent(event, intent);
+        // The intent info is added by fillInSessionData, off the UI thread.
+        dispatchUserEvent(event, fillInLogContainerData(event, v) ? intent : null);
     }
 
     protected void fillIntentInfo(Target target, Intent intent) {
@@ -302,12 +363,46 @@ public class UserEventDispatcher {
         mActionDurationMillis = SystemClock.uptimeMillis();
     }
 
+    /**
+     * Hands the event over to be logged. The event is completed by
+     * {@link #fillInSessionData} and processed on a background thread, and must not be modified
+     * after this call.
+     *
+     * @param intent if not null, its hashes are added to the first source target.
+     */
     public void dispatchUserEvent(LauncherEvent ev, Intent intent) {
+        long elapsedContainerMillis = SystemClock.uptimeMillis() - mElapsedContainerMillis;
+        long elapsedSessionMillis = SystemClock.uptimeMillis() - mElapsedSessionMillis;
+
+        if (mEventQueue != null) {
+            mEventQueue.enqueue(this, ev, intent, elapsedContainerMillis, elapsedSessionMillis);
+        } else {
+            fillInSessionData(ev, intent, elapsedContainerMillis, elapsedSessionMillis);
+            printEvent(ev);
+        }
+    }
+
+    /**
+     * Fills in the fields which do not depend on the views.
+     */
+    void fillInSessionData(LauncherEvent ev, Intent intent, long elapsedContainerMillis,
+            long elapsedSessionMillis) {
         ev.isInLandscapeMode = mIsInLandscapeMode;
         ev.isInMultiWindowMode = mIsInMultiWindowMode;
-        ev.elapsedContainerMillis = SystemClock.uptimeMillis() - mElapsedContainerMillis;
-        ev.elapsedSessionMillis = SystemClock.uptimeMillis() - mElapsedSessionMillis;
+        ev.elapsedContainerMillis = elapsedContainerMillis;
+        ev.elapsedSessionMillis = elapsedSessionMillis;
+        if (intent != null && ev.srcTarget != null && ev.srcTarget.length > 0) {
+            fillIntentInfo(ev.srcTarget[0], intent);
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        if (mEventQueue != null) {
+            mEventQueue.dump(prefix, writer);
+        }
+    }
 
+    static void printEvent(LauncherEvent ev) {
         if (!IS_VERBOSE) {
             return;
         }
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.logging;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.android.launcher3.LauncherFiles;
+import com.android.launcher3.userevent.nano.LauncherLogProto.LauncherEvent;
+import com.google.protobuf.nano.MessageNano;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Processes {@link LauncherEvent}s in batches on a background thread, so that the UI thread only
+ * fills in the data read from the views. Repeated identical events are dropped, the session data
+ * is added, and the events are aggregated in a {@link UserEventAggregateStore}, on the background
+ * thread.
+ */
+public class UserEventQueue implements Handler.Callback {
+
+    private static final int MSG_PROCESS = 1;
+    private static final int MSG_SAVE = 2;
+
+    private static final int BATCH_SIZE = 20;
+    private static final long BATCH_DELAY = 1000;
+    private static final long SAVE_DELAY = 30000;
+
+    // Identical events dispatched within this window are counted once.
+    private static final long DUPLICATE_WINDOW = 100;
+
+    private static UserEventQueue sInstance;
+
+    public static synchronized UserEventQueue getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new UserEventQueue(new File(context.getApplicationContext().getFilesDir(),
+                    LauncherFiles.USER_EVENT_COUNTS));
+        }
+        return sInstance;
+    }
+
+    private final File mStoreFile;
+    private final Handler mHandler;
+
+    private final Object mLock = new Object();
+    // Guarded by mLock.
+    private ArrayList<PendingEvent> mPending = new ArrayList<>();
+
+    // Only accessed on the background thread.
+    private ArrayList<PendingEvent> mProcessing = new ArrayList<>();
+    // Only accessed on the background thread.
+    private byte[] mLastEventData;
+    private Intent mLastEventIntent;
+    private long mLastEventTime;
+    // Written on the background thread, read by dump.
+    private volatile UserEventAggregateStore mStore;
+    private volatile int mDuplicateCount;
+
+    private UserEventQueue(File storeFile) {
+        mStoreFile = storeFile;
+        HandlerThread thread = new HandlerThread("user-event-logger",
+                Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper(), this);
+    }
+
+    /**
+     * Adds an event to be completed by {@param dispatcher} and processed in the next batch. The
+     * event must not be modified afterwards.
+     */
+    public void enqueue(UserEventDispatcher dispatcher, LauncherEvent event, Intent intent,
+            long elapsedContainerMillis, long elapsedSessionMillis) {
+        int size;
+        synchronized (mLock) {
+            mPending.add(new PendingEvent(dispatcher, event, intent, SystemClock.uptimeMillis(),
+                    elapsedContainerMillis, elapsedSessionMillis));
+            size = mPending.size();
+        }
+        if (size == 1) {
+            mHandler.sendEmptyMessageDelayed(MSG_PROCESS, BATCH_DELAY);
+        } else if (size == BATCH_SIZE) {
+            mHandler.removeMessages(MSG_PROCESS);
+            mHandler.sendEmptyMessage(MSG_PROCESS);
+        }
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_PROCESS: {
+                processPending();
+                if (!mHandler.hasMessages(MSG_SAVE)) {
+                    mHandler.sendEmptyMessageDelayed(MSG_SAVE, SAVE_DELAY);
+                }
+                return true;
+            }
+            case MSG_SAVE: {
+                getStore().save();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void processPending() {
+        synchronized (mLock) {
+            ArrayList<PendingEvent> batch = mPending;
+            mPending = mProcessing;
+            mProcessing = batch;
+        }
+        UserEventAggregateStore store = getStore();
+        for (PendingEvent pending : mProcessing) {
+            if (isDuplicate(pending)) {
+                continue;
+            }
+            pending.dispatcher.fillInSessionData(pending.event, pending.intent,
+                    pending.elapsedContainerMillis, pending.elapsedSessionMillis);
+            UserEventDispatcher.printEvent(pending.event);
+            store.add(pending.event);
+        }
+        mProcessing.clear();
+    }
+
+    private UserEventAggregateStore getStore() {
+        if (mStore == null) {
+            mStore = new UserEventAggregateStore(mStoreFile);
+        }
+        return mStore;
+    }
+
+    /**
+     * Called before the session data is added, so the elapsed times, which always differ, are
+     * not part of the comparison.
+     */
+    private boolean isDuplicate(PendingEvent pending) {
+        byte[] data = MessageNano.toByteArray(pending.event);
+        boolean isDuplicate = pending.time - mLastEventTime < DUPLICATE_WINDOW
+                && pending.intent == mLastEventIntent && Arrays.equals(data, mLastEventData);
+        mLastEventData = data;
+        mLastEventIntent = pending.intent;
+        mLastEventTime = pending.time;
+        if (isDuplicate) {
+            mDuplicateCount++;
+        }
+        return isDuplicate;
+    }
+
+    /**
+     * Prints the counts without waiting for the background thread. Events which are not processed
+     * yet, and counts which are not loaded yet, are only reported as such.
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        int pendingCount;
+        synchronized (mLock) {
+            pendingCount = mPending.size();
+        }
+        writer.println(prefix + "Duplicate user events dropped: " + mDuplicateCount);
+        writer.println(prefix + "Pending user events: " + pendingCount);
+        UserEventAggregateStore store = mStore;
+        if (store != null) {
+            store.dump(prefix, writer);
+        } else {
+            writer.println(prefix + "User event counts not loaded");
+        }
+    }
+
+    private static class PendingEvent {
+        final UserEventDispatcher dispatcher;
+        final LauncherEvent event;
+        final Intent intent;
+        final long time;
+        final long elapsedContainerMillis;
+        final long elapsedSessionMillis;
+
+        PendingEvent(UserEventDispatcher dispatcher, LauncherEvent event, Intent intent,
+                long time, long elapsedContainerMillis, long elapsedSessionMillis) {
+            this.dispatcher = dispatcher;
+            this.event = event;
+            this.intent = intent;
+            this.time = time;
+            this.elapsedContainerMillis = elapsedContainerMillis;
+            this.elapsedSessionMillis = elapsedSessionMillis;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.ShortcutInfo;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.logging.DumpTargetWrapper;
+import com.android.launcher3.logging.FrameTracker;
 import com.android.launcher3.model.nano.LauncherDumpProto;
 import com.android.launcher3.model.nano.LauncherDumpProto.ContainerType;
 import com.android.launcher3.model.nano.LauncherDumpProto.DumpTarget;
@@ -230,6 +231,7 @@ public class BgDataModel {
             for (int i = 0; i < targetList.size(); i++) {
                 proto.targets[i] = targetList.get(i);
             }
+            proto.frameStats = FrameTracker.getFrameStats();
             FileOutputStream fos = new FileOutputStream(fd);
             try {
 
@@ -954,7 +954,7 @@ public class GridSizeMigrationTask {
         }
     }
 
-    protected static HashSet<String> getValidPackages(Context context) {
+    public static HashSet<String> getValidPackages(Context context) {
         // Initialize list of valid packages. This contain all the packages which are already on
         // the device and packages which are being installed. Any item which doesn't belong to
         // this set is removed.
@@ -971,12 +971,13 @@ public class GridSizeMigrationTask {
     }
 
     /**
-     * Removes any broken item from the hotseat.
+     * Removes any broken item from the hotseat, using the provided set of valid packages.
      * @return a map with occupied hotseat position set to non-null value.
      */
-    public static LongArrayMap<Object> removeBrokenHotseatItems(Context context) throws Exception {
+    public static LongArrayMap<Object> removeBrokenHotseatItems(Context context,
+            HashSet<String> validPackages) throws Exception {
         GridSizeMigrationTask task = new GridSizeMigrationTask(
-                context, LauncherAppState.getIDP(context), getValidPackages(context),
+                context, LauncherAppState.getIDP(context), validPackages,
                 Integer.MAX_VALUE, Integer.MAX_VALUE);
 
         // Load all the valid entries
@@ -26,12 +26,14 @@ import android.database.Cursor;
 import android.database.CursorWrapper;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.net.Uri;
 import android.os.UserHandle;
 import android.provider.BaseColumns;
 import android.text.TextUtils;
 import android.util.Log;
 import android.util.LongSparseArray;
 
+import com.android.launcher3.AppInfo;
 import com.android.launcher3.IconCache;
 import com.android.launcher3.InvariantDeviceProfile;
 import com.android.launcher3.ItemInfo;
@@ -86,6 +88,7 @@ public class LoaderCursor extends CursorWrapper {
     private final int profileIdIndex;
     private final int restoredIndex;
     private final int intentIndex;
+    private final int launchComponentIndex;
 
     // Properties loaded per iteration
     public long serialNumber;
@@ -117,6 +120,8 @@ public class LoaderCursor extends CursorWrapper {
         profileIdIndex = getColumnIndexOrThrow(LauncherSettings.Favorites.PROFILE_ID);
         restoredIndex = getColumnIndexOrThrow(LauncherSettings.Favorites.RESTORED);
         intentIndex = getColumnIndexOrThrow(LauncherSettings.Favorites.INTENT);
+        // Optional, the intent is parsed if the column is not present.
+        launchComponentIndex = getColumnIndex(LauncherSettings.Favorites.LAUNCH_COMPONENT);
     }
 
     @Override
@@ -135,6 +140,16 @@ public class LoaderCursor extends CursorWrapper {
     }
 
     public Intent parseIntent() {
+        if (launchComponentIndex >= 0 && !isNull(launchComponentIndex)) {
+            // Launch intent of an activity, which is most items, avoid parsing it.
+            String component = getString(launchComponentIndex);
+            ComponentName cn = ComponentName.unflattenFromString(
+                    component.indexOf('%') < 0 ? component : Uri.decode(component));
+            if (cn != null) {
+                return AppInfo.makeLaunchIntent(cn);
+            }
+        }
+
         String intentDescription = getString(intentIndex);
         try {
             return TextUtils.isEmpty(intentDescription) ?
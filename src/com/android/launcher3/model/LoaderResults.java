@@ -32,6 +32,7 @@ import com.android.launcher3.MainThreadExecutor;
 import com.android.launcher3.PagedView;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.logging.StartupTracer;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.LooperIdleLock;
 import com.android.launcher3.util.MultiHashMap;
@@ -132,6 +133,7 @@ public class LoaderResults {
             public void run() {
                 Callbacks callbacks = mCallbacks.get();
                 if (callbacks != null) {
+                    StartupTracer.begin(StartupTracer.SPAN_BIND_WORKSPACE);
                     callbacks.clearPendingBinds();
                     callbacks.startBinding();
                 }
@@ -181,6 +183,7 @@ public class LoaderResults {
                 Callbacks callbacks = mCallbacks.get();
                 if (callbacks != null) {
                     callbacks.finishBindingItems();
+                    StartupTracer.end(StartupTracer.SPAN_BIND_WORKSPACE);
                 }
             }
         };
@@ -354,7 +357,9 @@ public class LoaderResults {
             public void run() {
                 Callbacks callbacks = mCallbacks.get();
                 if (callbacks != null) {
+                    StartupTracer.begin(StartupTracer.SPAN_BIND_ALL_APPS);
                     callbacks.bindAllApplications(list);
+                    StartupTracer.end(StartupTracer.SPAN_BIND_ALL_APPS);
                 }
             }
         };
@@ -368,7 +373,9 @@ public class LoaderResults {
             public void run() {
                 Callbacks callbacks = mCallbacks.get();
                 if (callbacks != null) {
+                    StartupTracer.begin(StartupTracer.SPAN_BIND_WIDGETS);
                     callbacks.bindAllWidgets(widgets);
+                    StartupTracer.end(StartupTracer.SPAN_BIND_WIDGETS);
                 }
             }
         };
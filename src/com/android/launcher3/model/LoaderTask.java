@@ -57,6 +57,7 @@ import com.android.launcher3.folder.FolderIcon;
 import com.android.launcher3.folder.FolderIconPreviewVerifier;
 import com.android.launcher3.graphics.LauncherIcons;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.StartupTracer;
 import com.android.launcher3.provider.ImportDataTask;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.shortcuts.ShortcutInfoCompat;
@@ -144,7 +145,9 @@ public class LoaderTask implements Runnable {
         try (LauncherModel.LoaderTransaction transaction = mApp.getModel().beginLoader(this)) {
             long now = 0;
             if (DEBUG_LOADERS) Log.d(TAG, "step 1.1: loading workspace");
+            StartupTracer.begin(StartupTracer.SPAN_LOAD_WORKSPACE);
             loadWorkspace();
+            StartupTracer.end(StartupTracer.SPAN_LOAD_WORKSPACE);
 
             verifyNotStopped();
             if (DEBUG_LOADERS) Log.d(TAG, "step 1.2: bind workspace workspace");
@@ -161,7 +164,9 @@ public class LoaderTask implements Runnable {
 
             // second step
             if (DEBUG_LOADERS) Log.d(TAG, "step 2.1: loading all apps");
+            StartupTracer.begin(StartupTracer.SPAN_LOAD_ALL_APPS);
             loadAllApps();
+            StartupTracer.end(StartupTracer.SPAN_LOAD_ALL_APPS);
 
             if (DEBUG_LOADERS) Log.d(TAG, "step 2.2: Binding all apps");
             verifyNotStopped();
@@ -169,7 +174,9 @@ public class LoaderTask implements Runnable {
 
             verifyNotStopped();
             if (DEBUG_LOADERS) Log.d(TAG, "step 2.3: Update icon cache");
+            StartupTracer.begin(StartupTracer.SPAN_UPDATE_ICON_CACHE);
             updateIconCache();
+            StartupTracer.end(StartupTracer.SPAN_UPDATE_ICON_CACHE);
 
             // Take a break
             if (DEBUG_LOADERS) {
@@ -182,7 +189,9 @@ public class LoaderTask implements Runnable {
 
             // third step
             if (DEBUG_LOADERS) Log.d(TAG, "step 3.1: loading deep shortcuts");
+            StartupTracer.begin(StartupTracer.SPAN_LOAD_DEEP_SHORTCUTS);
             loadDeepShortcuts();
+            StartupTracer.end(StartupTracer.SPAN_LOAD_DEEP_SHORTCUTS);
 
             verifyNotStopped();
             if (DEBUG_LOADERS) Log.d(TAG, "step 3.2: bind deep shortcuts");
@@ -195,7 +204,9 @@ public class LoaderTask implements Runnable {
 
             // fourth step
             if (DEBUG_LOADERS) Log.d(TAG, "step 4.1: loading widgets");
+            StartupTracer.begin(StartupTracer.SPAN_LOAD_WIDGETS);
             mBgDataModel.widgetsModel.update(mApp, null);
+            StartupTracer.end(StartupTracer.SPAN_LOAD_WIDGETS);
 
             verifyNotStopped();
             if (DEBUG_LOADERS) Log.d(TAG, "step 4.2: Binding widgets");
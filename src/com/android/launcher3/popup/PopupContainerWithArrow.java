@@ -35,6 +35,7 @@ import android.graphics.drawable.ShapeDrawable;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.IntDef;
 import android.util.AttributeSet;
 import android.view.Gravity;
@@ -66,10 +67,12 @@ import com.android.launcher3.dragndrop.DragLayer;
 import com.android.launcher3.dragndrop.DragOptions;
 import com.android.launcher3.graphics.IconPalette;
 import com.android.launcher3.graphics.TriangleShape;
+import com.android.launcher3.logging.FrameTracker;
 import com.android.launcher3.notification.NotificationItemView;
 import com.android.launcher3.notification.NotificationKeyData;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.shortcuts.DeepShortcutView;
+import com.android.launcher3.shortcuts.ShortcutInfoCompat;
 import com.android.launcher3.shortcuts.ShortcutsItemView;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Themes;
@@ -126,6 +129,7 @@ public class PopupContainerWithArrow extends AbstractFloatingView implements Dra
     private final Rect mEndRect = new Rect();
 
     private boolean mShouldAnimate = false;
+    private long mPopulateStartTime;
 
     public PopupContainerWithArrow(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
@@ -190,6 +194,7 @@ public class PopupContainerWithArrow extends AbstractFloatingView implements Dra
                 R.dimen.popup_arrow_vertical_offset);
 
         mOriginalIcon = originalIcon;
+        mPopulateStartTime = SystemClock.uptimeMillis();
 
         // Add dummy views first, and populate with real info when ready.
         PopupPopulator.Item[] itemsToPopulate = PopupPopulator
@@ -247,6 +252,16 @@ public class PopupContainerWithArrow extends AbstractFloatingView implements Dra
         mLauncher.getDragController().addDragListener(this);
         mOriginalIcon.forceHideBadge(true);
 
+        // Use the shortcuts loaded since the icon was touched, if they are ready, so that they are
+        // shown in the first frame.
+        List<ShortcutInfoCompat> prefetchedShortcuts = shortcutViews.isEmpty() ? null
+                : mLauncher.getPopupDataProvider().getPrefetcher()
+                        .takeShortcuts(originalItemInfo, shortcutIds);
+        if (prefetchedShortcuts != null && PopupPopulator.updateShortcutViewsFromCache(
+                mLauncher, this, prefetchedShortcuts, shortcutViews, notificationKeys)) {
+            shortcutViews = Collections.EMPTY_LIST;
+        }
+
         // Load the shortcuts on a background thread and update the container as it animates.
         final Looper workerLooper = LauncherModel.getWorkerLooper();
         new Handler(workerLooper).postAtFrontOfQueue(PopupPopulator.createUpdateRunnable(
@@ -255,6 +270,14 @@ public class PopupContainerWithArrow extends AbstractFloatingView implements Dra
                 systemShortcuts, systemShortcutViews));
     }
 
+    /**
+     * Called once the shortcut children are populated.
+     */
+    void onShortcutsPopulated(boolean prefetched) {
+        FrameTracker.recordPopupShortcutsLatency(
+                SystemClock.uptimeMillis() - mPopulateStartTime, prefetched);
+    }
+
     private void addDummyViews(PopupPopulator.Item[] itemTypesToPopulate, int numNotifications) {
         final Resources res = getResources();
         final LayoutInflater inflater = mLauncher.getLayoutInflater();
@@ -32,6 +32,7 @@ import com.android.launcher3.notification.NotificationKeyData;
 import com.android.launcher3.notification.NotificationListener;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.shortcuts.DeepShortcutManagerBackport;
+import com.android.launcher3.shortcuts.ShortcutIconCache;
 import com.android.launcher3.shortcuts.ShortcutInfoCompat;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.MultiHashMap;
@@ -61,6 +62,8 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     };
 
     private final Launcher mLauncher;
+    private final ShortcutIconCache mShortcutIconCache = new ShortcutIconCache();
+    private final PopupPrefetcher mPrefetcher;
 
     /** Maps launcher activity components to their list of shortcut ids. */
     private MultiHashMap<ComponentKey, String> mDeepShortcutMap = new MultiHashMap<>();
@@ -69,6 +72,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
 
     public PopupDataProvider(Launcher launcher) {
         mLauncher = launcher;
+        mPrefetcher = new PopupPrefetcher(launcher, mShortcutIconCache);
     }
 
     @Override
@@ -242,6 +246,14 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
         return ids == null ? Collections.EMPTY_LIST : ids;
     }
 
+    public ShortcutIconCache getShortcutIconCache() {
+        return mShortcutIconCache;
+    }
+
+    public PopupPrefetcher getPrefetcher() {
+        return mPrefetcher;
+    }
+
     public BadgeInfo getBadgeInfoForItem(ItemInfo info) {
         if (!DeepShortcutManager.supportsShortcuts(info)) {
             return null;
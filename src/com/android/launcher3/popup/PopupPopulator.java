@@ -18,6 +18,7 @@ package com.android.launcher3.popup;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.os.Handler;
 import android.os.UserHandle;
 import android.service.notification.StatusBarNotification;
@@ -31,12 +32,12 @@ import com.android.launcher3.ItemInfo;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.R;
 import com.android.launcher3.ShortcutInfo;
-import com.android.launcher3.graphics.LauncherIcons;
 import com.android.launcher3.notification.NotificationInfo;
 import com.android.launcher3.notification.NotificationItemView;
 import com.android.launcher3.notification.NotificationKeyData;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.shortcuts.DeepShortcutView;
+import com.android.launcher3.shortcuts.ShortcutIconCache;
 import com.android.launcher3.shortcuts.ShortcutInfoCompat;
 import com.android.launcher3.util.PackageUserKey;
 
@@ -198,20 +199,11 @@ public class PopupPopulator {
                     uiHandler.post(new UpdateNotificationChild(notificationView, infos));
                 }
 
-                List<ShortcutInfoCompat> shortcuts = DeepShortcutManager.getInstance(launcher)
-                        .queryForShortcutsContainer(activity, shortcutIds, user);
-                String shortcutIdToDeDupe = notificationKeys.isEmpty() ? null
-                        : notificationKeys.get(0).shortcutId;
-                shortcuts = PopupPopulator.sortAndFilterShortcuts(shortcuts, shortcutIdToDeDupe);
-                for (int i = 0; i < shortcuts.size() && i < shortcutViews.size(); i++) {
-                    final ShortcutInfoCompat shortcut = shortcuts.get(i);
-                    ShortcutInfo si = new ShortcutInfo(shortcut, launcher);
-                    // Use unbadged icon for the menu.
-                    si.iconBitmap = LauncherIcons.createShortcutIcon(
-                            shortcut, launcher, false /* badged */);
-                    si.rank = i;
-                    uiHandler.post(new UpdateShortcutChild(container, shortcutViews.get(i),
-                            si, shortcut));
+                if (!shortcutViews.isEmpty()) {
+                    List<ShortcutInfoCompat> shortcuts = DeepShortcutManager.getInstance(launcher)
+                            .queryForShortcutsContainer(activity, shortcutIds, user);
+                    updateShortcutViews(launcher, container, shortcuts, shortcutViews,
+                            notificationKeys, uiHandler);
                 }
 
                 // This ensures that mLauncher.getWidgetsForPackageUser()
@@ -232,6 +224,79 @@ public class PopupPopulator {
         };
     }
 
+    /**
+     * Filters the shortcuts and posts the updates of the shortcut children of the container to
+     * {@param uiHandler}. Called on the worker thread, as the icons are rendered if they are not
+     * cached.
+     */
+    private static void updateShortcutViews(Launcher launcher, PopupContainerWithArrow container,
+            List<ShortcutInfoCompat> shortcuts, List<DeepShortcutView> shortcutViews,
+            List<NotificationKeyData> notificationKeys, Handler uiHandler) {
+        shortcuts = filterShortcuts(shortcuts, notificationKeys);
+        ShortcutIconCache iconCache = launcher.getPopupDataProvider().getShortcutIconCache();
+        for (int i = 0; i < shortcuts.size() && i < shortcutViews.size(); i++) {
+            final ShortcutInfoCompat shortcut = shortcuts.get(i);
+            ShortcutInfo si = new ShortcutInfo(shortcut, launcher);
+            // Use unbadged icon for the menu.
+            si.iconBitmap = iconCache.getUnbadgedIcon(shortcut, launcher);
+            si.rank = i;
+            uiHandler.post(new UpdateShortcutChild(container, shortcutViews.get(i),
+                    si, shortcut));
+        }
+        uiHandler.post(new OnShortcutsPopulated(container, false /* prefetched */));
+    }
+
+    /**
+     * Filters the shortcuts and updates the shortcut children of the container with them right
+     * away, on the UI thread. Only the cached icons are used.
+     * @return false, without updating any child, if an icon is not cached.
+     */
+    public static boolean updateShortcutViewsFromCache(Launcher launcher,
+            PopupContainerWithArrow container, List<ShortcutInfoCompat> shortcuts,
+            List<DeepShortcutView> shortcutViews, List<NotificationKeyData> notificationKeys) {
+        shortcuts = filterShortcuts(shortcuts, notificationKeys);
+        ShortcutIconCache iconCache = launcher.getPopupDataProvider().getShortcutIconCache();
+        int count = Math.min(shortcuts.size(), shortcutViews.size());
+        Bitmap[] icons = new Bitmap[count];
+        for (int i = 0; i < count; i++) {
+            icons[i] = iconCache.getCachedUnbadgedIcon(shortcuts.get(i));
+            if (icons[i] == null) {
+                return false;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            final ShortcutInfoCompat shortcut = shortcuts.get(i);
+            ShortcutInfo si = new ShortcutInfo(shortcut, launcher);
+            si.iconBitmap = icons[i];
+            si.rank = i;
+            new UpdateShortcutChild(container, shortcutViews.get(i), si, shortcut).run();
+        }
+        new OnShortcutsPopulated(container, true /* prefetched */).run();
+        return true;
+    }
+
+    private static List<ShortcutInfoCompat> filterShortcuts(List<ShortcutInfoCompat> shortcuts,
+            List<NotificationKeyData> notificationKeys) {
+        String shortcutIdToDeDupe = notificationKeys.isEmpty() ? null
+                : notificationKeys.get(0).shortcutId;
+        return PopupPopulator.sortAndFilterShortcuts(shortcuts, shortcutIdToDeDupe);
+    }
+
+    private static class OnShortcutsPopulated implements Runnable {
+        private final PopupContainerWithArrow mContainer;
+        private final boolean mPrefetched;
+
+        OnShortcutsPopulated(PopupContainerWithArrow container, boolean prefetched) {
+            mContainer = container;
+            mPrefetched = prefetched;
+        }
+
+        @Override
+        public void run() {
+            mContainer.onShortcutsPopulated(mPrefetched);
+        }
+    }
+
     /** Updates the shortcut child of this container based on the given shortcut info. */
     private static class UpdateShortcutChild implements Runnable {
         private final PopupContainerWithArrow mContainer;
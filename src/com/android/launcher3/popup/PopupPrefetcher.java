@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.popup;
+
+import android.content.ComponentName;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.support.annotation.Nullable;
+
+import com.android.launcher3.ItemInfo;
+import com.android.launcher3.Launcher;
+import com.android.launcher3.LauncherModel;
+import com.android.launcher3.Utilities;
+import com.android.launcher3.shortcuts.DeepShortcutManager;
+import com.android.launcher3.shortcuts.ShortcutIconCache;
+import com.android.launcher3.shortcuts.ShortcutInfoCompat;
+
+import java.util.List;
+
+/**
+ * Speculatively loads the deep shortcuts of an icon, and renders their icons, once the icon was
+ * held for half of the long press timeout without moving. This runs on the worker thread during
+ * the rest of the timeout, so that the popup can be populated as it opens instead of after
+ * another round trip to the worker thread.
+ *
+ * Only accessed on the UI thread, except for the prefetch itself.
+ */
+public class PopupPrefetcher {
+
+    // The result of a prefetch is not used by popups opened later than this after the prefetch,
+    // as the shortcuts may have changed since.
+    private static final long MAX_PREFETCH_AGE = 2000;
+
+    private final Launcher mLauncher;
+    private final ShortcutIconCache mIconCache;
+    private final Handler mWorkerHandler;
+
+    private Prefetch mPrefetch;
+
+    public PopupPrefetcher(Launcher launcher, ShortcutIconCache iconCache) {
+        mLauncher = launcher;
+        mIconCache = iconCache;
+        mWorkerHandler = new Handler(LauncherModel.getWorkerLooper());
+    }
+
+    /**
+     * Starts loading the shortcuts of the item, if it has any.
+     */
+    public void prefetch(ItemInfo info) {
+        if (!Utilities.ATLEAST_NOUGAT_MR1) {
+            // The shortcut ids would be parsed from the app manifest, on the UI thread.
+            return;
+        }
+        List<String> shortcutIds = mLauncher.getPopupDataProvider().getShortcutIdsForItem(info);
+        if (shortcutIds.isEmpty()) {
+            return;
+        }
+        ComponentName activity = info.getTargetComponent();
+        if (mPrefetch != null && mPrefetch.matches(activity, info.user, shortcutIds)) {
+            // Touched again, the shortcuts are already loaded or loading.
+            return;
+        }
+        if (mPrefetch != null) {
+            mWorkerHandler.removeCallbacks(mPrefetch);
+        }
+        mPrefetch = new Prefetch(activity, info.user, shortcutIds);
+        mWorkerHandler.post(mPrefetch);
+    }
+
+    /**
+     * Returns the shortcuts of the item loaded by the last prefetch, before filtering, or null if
+     * they are not loaded yet. The result is only returned once.
+     */
+    @Nullable List<ShortcutInfoCompat> takeShortcuts(ItemInfo info, List<String> shortcutIds) {
+        Prefetch prefetch = mPrefetch;
+        mPrefetch = null;
+        if (prefetch == null
+                || !prefetch.matches(info.getTargetComponent(), info.user, shortcutIds)) {
+            return null;
+        }
+        mWorkerHandler.removeCallbacks(prefetch);
+        return prefetch.mShortcuts;
+    }
+
+    private class Prefetch implements Runnable {
+        private final ComponentName mActivity;
+        private final UserHandle mUser;
+        private final List<String> mShortcutIds;
+        private final long mStartTime = SystemClock.uptimeMillis();
+
+        // Set on the worker thread when the icons are rendered.
+        private volatile List<ShortcutInfoCompat> mShortcuts;
+
+        Prefetch(ComponentName activity, UserHandle user, List<String> shortcutIds) {
+            mActivity = activity;
+            mUser = user;
+            mShortcutIds = shortcutIds;
+        }
+
+        boolean matches(ComponentName activity, UserHandle user, List<String> shortcutIds) {
+            return mActivity.equals(activity) && mUser.equals(user)
+                    && mShortcutIds.equals(shortcutIds)
+                    && SystemClock.uptimeMillis() - mStartTime < MAX_PREFETCH_AGE;
+        }
+
+        @Override
+        public void run() {
+            List<ShortcutInfoCompat> shortcuts = DeepShortcutManager.getInstance(mLauncher)
+                    .queryForShortcutsContainer(mActivity, mShortcutIds, mUser);
+            // The popup filters the shortcuts when it opens, as it depends on its notifications.
+            for (int i = 0; i < shortcuts.size(); i++) {
+                mIconCache.getUnbadgedIcon(shortcuts.get(i), mLauncher);
+            }
+            mShortcuts = shortcuts;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.provider;
+
+import android.content.ContentValues;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+
+import com.android.launcher3.LauncherProvider.DatabaseHelper;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Writes items directly to the launcher DB in a single transaction, for restore and import tasks
+ * which write up to thousands of rows. Rows are inserted with compiled statements, one for each
+ * table and set of columns, instead of going through the provider for each row.
+ *
+ * Nothing is written unless {@link #commit()} is called before {@link #close()}. Closing the
+ * writer otherwise, because the task failed or was cancelled, rolls back all the changes.
+ */
+public class BulkRestoreWriter implements AutoCloseable {
+
+    /**
+     * Listener notified of the progress of the writer, on the writing thread.
+     */
+    public interface ProgressListener {
+        void onProgress(int rowsWritten);
+    }
+
+    // Number of rows written between two progress updates.
+    private static final int PROGRESS_INTERVAL = 100;
+
+    private final DatabaseHelper mHelper;
+    private final SQLiteDatabase mDb;
+    private final SQLiteTransaction mTransaction;
+    private final CancellationSignal mCancellationSignal;
+    private final ArrayMap<String, InsertStatement> mInsertStatements = new ArrayMap<>();
+    private final long mModifiedTime = System.currentTimeMillis();
+
+    private ProgressListener mProgressListener;
+    private int mRowCount;
+
+    public BulkRestoreWriter(DatabaseHelper helper,
+            @Nullable CancellationSignal cancellationSignal) {
+        mHelper = helper;
+        mDb = helper.getWritableDatabase();
+        mTransaction = new SQLiteTransaction(mDb);
+        mCancellationSignal = cancellationSignal;
+    }
+
+    public void setProgressListener(ProgressListener listener) {
+        mProgressListener = listener;
+    }
+
+    /**
+     * Returns the database being written, to run other statements in the same transaction.
+     */
+    public SQLiteDatabase getDatabase() {
+        return mDb;
+    }
+
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    /**
+     * Inserts a row in the table. Like the provider, the values must have an id, and the modified
+     * time and launch component are set.
+     * @throws android.os.OperationCanceledException if the writer was cancelled.
+     */
+    public void insert(String table, ContentValues values) {
+        throwIfCanceled();
+        if (!values.containsKey(Favorites._ID)) {
+            throw new SQLException("Attempting to add item without specifying an id");
+        }
+        values.put(Favorites.MODIFIED, mModifiedTime);
+        mHelper.checkId(table, values);
+        if (Favorites.TABLE_NAME.equals(table)) {
+            Favorites.putLaunchComponent(values);
+        }
+
+        ArrayList<String> columns = new ArrayList<>(values.keySet());
+        Collections.sort(columns);
+        String key = table + ':' + TextUtils.join(",", columns);
+        InsertStatement insert = mInsertStatements.get(key);
+        if (insert == null) {
+            insert = new InsertStatement(table, columns);
+            mInsertStatements.put(key, insert);
+        }
+        insert.execute(values);
+
+        mRowCount++;
+        if (mProgressListener != null && mRowCount % PROGRESS_INTERVAL == 0) {
+            mProgressListener.onProgress(mRowCount);
+        }
+    }
+
+    /**
+     * Marks the changes to be committed when the writer is closed.
+     * @throws android.os.OperationCanceledException if the writer was cancelled.
+     */
+    public void commit() {
+        throwIfCanceled();
+        mTransaction.commit();
+        if (mProgressListener != null) {
+            mProgressListener.onProgress(mRowCount);
+        }
+    }
+
+    private void throwIfCanceled() {
+        if (mCancellationSignal != null) {
+            mCancellationSignal.throwIfCanceled();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int i = mInsertStatements.size() - 1; i >= 0; i--) {
+            mInsertStatements.valueAt(i).statement.close();
+        }
+        mInsertStatements.clear();
+        mTransaction.close();
+    }
+
+    private class InsertStatement {
+        final SQLiteStatement statement;
+        final String[] columns;
+
+        InsertStatement(String table, ArrayList<String> columnList) {
+            columns = columnList.toArray(new String[columnList.size()]);
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                    .append(TextUtils.join(",", columns)).append(") VALUES (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            statement = mDb.compileStatement(sql.append(')').toString());
+        }
+
+        void execute(ContentValues values) {
+            statement.clearBindings();
+            for (int i = 0; i < columns.length; i++) {
+                Object value = values.get(columns[i]);
+                int index = i + 1;
+                if (value == null) {
+                    statement.bindNull(index);
+                } else if (value instanceof byte[]) {
+                    statement.bindBlob(index, (byte[]) value);
+                } else if (value instanceof Float || value instanceof Double) {
+                    statement.bindDouble(index, ((Number) value).doubleValue());
+                } else if (value instanceof Number) {
+                    statement.bindLong(index, ((Number) value).longValue());
+                } else if (value instanceof Boolean) {
+                    statement.bindLong(index, (Boolean) value ? 1 : 0);
+                } else {
+                    statement.bindString(index, value.toString());
+                }
+            }
+            if (statement.executeInsert() < 0) {
+                throw new SQLException("Failed to insert " + values.get(Favorites._ID));
+            }
+        }
+    }
+}
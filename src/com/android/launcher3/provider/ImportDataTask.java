@@ -18,7 +18,7 @@ package com.android.launcher3.provider;
 
 import static com.android.launcher3.Utilities.getDevicePrefs;
 
-import android.content.ContentProviderOperation;
+import android.content.ComponentName;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
@@ -29,6 +29,7 @@ import android.content.pm.ProviderInfo;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.os.Bundle;
 import android.os.Process;
 import android.text.TextUtils;
 import android.util.ArrayMap;
@@ -38,7 +39,6 @@ import com.android.launcher3.AutoInstallsLayout.LayoutParserCallback;
 import com.android.launcher3.DefaultLayoutParser;
 import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherAppWidgetInfo;
-import com.android.launcher3.LauncherProvider;
 import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.LauncherSettings.Favorites;
 import com.android.launcher3.LauncherSettings.Settings;
@@ -65,10 +65,11 @@ public class ImportDataTask {
 
     private static final String TAG = "ImportDataTask";
     private static final int MIN_ITEM_COUNT_FOR_SUCCESSFUL_MIGRATION = 6;
-    // Insert items progressively to avoid OOM exception when loading icons.
-    private static final int BATCH_INSERT_SIZE = 15;
 
     private final Context mContext;
+    private final BulkRestoreWriter mWriter;
+    // Packages installed or being installed, items of other packages are not imported.
+    private final HashSet<String> mValidPackages;
 
     private final Uri mOtherScreensUri;
     private final Uri mOtherFavoritesUri;
@@ -77,14 +78,16 @@ public class ImportDataTask {
     private int mMaxGridSizeX;
     private int mMaxGridSizeY;
 
-    private ImportDataTask(Context context, String sourceAuthority) {
+    private ImportDataTask(Context context, String sourceAuthority, BulkRestoreWriter writer) {
         mContext = context;
+        mWriter = writer;
+        mValidPackages = GridSizeMigrationTask.getValidPackages(context);
         mOtherScreensUri = Uri.parse("content://" +
                 sourceAuthority + "/" + WorkspaceScreens.TABLE_NAME);
         mOtherFavoritesUri = Uri.parse("content://" + sourceAuthority + "/" + Favorites.TABLE_NAME);
     }
 
-    public boolean importWorkspace() throws Exception {
+    private boolean importWorkspace() throws Exception {
         ArrayList<Long> allScreens = LauncherDbUtils.getScreenIdsFromCursor(
                 mContext.getContentResolver().query(mOtherScreensUri, null, null, null,
                         LauncherSettings.WorkspaceScreens.SCREEN_RANK));
@@ -99,27 +102,27 @@ public class ImportDataTask {
 
         mHotseatSize = mMaxGridSizeX = mMaxGridSizeY = 0;
 
-        // Build screen update
-        ArrayList<ContentProviderOperation> screenOps = new ArrayList<>();
+        // Insert the screens
         int count = allScreens.size();
         LongSparseArray<Long> screenIdMap = new LongSparseArray<>(count);
+        ContentValues v = new ContentValues();
         for (int i = 0; i < count; i++) {
-            ContentValues v = new ContentValues();
+            v.clear();
             v.put(LauncherSettings.WorkspaceScreens._ID, i);
             v.put(LauncherSettings.WorkspaceScreens.SCREEN_RANK, i);
             screenIdMap.put(allScreens.get(i), (long) i);
-            screenOps.add(ContentProviderOperation.newInsert(
-                    LauncherSettings.WorkspaceScreens.CONTENT_URI).withValues(v).build());
+            mWriter.insert(WorkspaceScreens.TABLE_NAME, v);
         }
-        mContext.getContentResolver().applyBatch(LauncherProvider.AUTHORITY, screenOps);
         importWorkspaceItems(allScreens.get(0), screenIdMap);
+        return true;
+    }
 
+    /**
+     * Marks the imported grid for migration. Called once the import is committed, so that a
+     * rolled back import does not leave the grid size of the other launcher.
+     */
+    public void markForMigration() {
         GridSizeMigrationTask.markForMigration(mContext, mMaxGridSizeX, mMaxGridSizeY, mHotseatSize);
-
-        // Create empty DB flag.
-        LauncherSettings.Settings.call(mContext.getContentResolver(),
-                LauncherSettings.Settings.METHOD_CLEAR_EMPTY_DB_FLAG);
-        return true;
     }
 
     /**
@@ -144,8 +147,6 @@ public class ImportDataTask {
             }
         }
 
-        ArrayList<ContentProviderOperation> insertOperations = new ArrayList<>(BATCH_INSERT_SIZE);
-
         // Set of package names present in hotseat
         final HashSet<String> hotseatTargetApps = new HashSet<>();
         int maxId = 0;
@@ -233,16 +234,27 @@ public class ImportDataTask {
                         break;
                     }
                     case Favorites.ITEM_TYPE_APPWIDGET: {
+                        String providerName = c.getString(widgetProviderIndex);
+                        ComponentName provider = TextUtils.isEmpty(providerName)
+                                ? null : ComponentName.unflattenFromString(providerName);
+                        if (provider == null || !isValidPackage(provider.getPackageName())) {
+                            FileLog.d(TAG, String.format("Skipping widget %d, not available", id));
+                            continue;
+                        }
                         values.put(Favorites.RESTORED,
                                 LauncherAppWidgetInfo.FLAG_ID_NOT_VALID |
                                         LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY |
                                         LauncherAppWidgetInfo.FLAG_UI_NOT_READY);
-                        values.put(Favorites.APPWIDGET_PROVIDER, c.getString(widgetProviderIndex));
+                        values.put(Favorites.APPWIDGET_PROVIDER, providerName);
                         break;
                     }
                     case Favorites.ITEM_TYPE_SHORTCUT:
                     case Favorites.ITEM_TYPE_APPLICATION: {
                         intent = Intent.parseUri(c.getString(intentIndex), 0);
+                        if (!isValidPackage(getPackage(intent))) {
+                            FileLog.d(TAG, String.format("Skipping item %d, not available", id));
+                            continue;
+                        }
                         if (Utilities.isLauncherAppTarget(intent)) {
                             type = Favorites.ITEM_TYPE_APPLICATION;
                         } else {
@@ -281,30 +293,19 @@ public class ImportDataTask {
                 values.put(Favorites.SPANX, spanX);
                 values.put(Favorites.SPANY, spanY);
                 values.put(Favorites.TITLE, c.getString(titleIndex));
-                insertOperations.add(ContentProviderOperation
-                        .newInsert(Favorites.CONTENT_URI).withValues(values).build());
+                mWriter.insert(Favorites.TABLE_NAME, values);
                 if (container < 0) {
                     totalItemsOnWorkspace++;
                 }
-
-                if (insertOperations.size() >= BATCH_INSERT_SIZE) {
-                    mContext.getContentResolver().applyBatch(LauncherProvider.AUTHORITY,
-                            insertOperations);
-                    insertOperations.clear();
-                }
             }
         }
         FileLog.d(TAG, totalItemsOnWorkspace + " items imported from external source");
         if (totalItemsOnWorkspace < MIN_ITEM_COUNT_FOR_SUCCESSFUL_MIGRATION) {
             throw new Exception("Insufficient data");
         }
-        if (!insertOperations.isEmpty()) {
-            mContext.getContentResolver().applyBatch(LauncherProvider.AUTHORITY,
-                    insertOperations);
-            insertOperations.clear();
-        }
 
-        LongArrayMap<Object> hotseatItems = GridSizeMigrationTask.removeBrokenHotseatItems(mContext);
+        LongArrayMap<Object> hotseatItems =
+                GridSizeMigrationTask.removeBrokenHotseatItems(mContext, mValidPackages);
         int myHotseatCount = LauncherAppState.getIDP(mContext).numHotseatIcons;
         if (!FeatureFlags.NO_ALL_APPS_ICON) {
             myHotseatCount--;
@@ -312,27 +313,31 @@ public class ImportDataTask {
         if (hotseatItems.size() < myHotseatCount) {
             // Insufficient hotseat items. Add a few more.
             HotseatParserCallback parserCallback = new HotseatParserCallback(
-                    hotseatTargetApps, hotseatItems, insertOperations, maxId + 1, myHotseatCount);
+                    hotseatTargetApps, hotseatItems, mWriter, maxId + 1, myHotseatCount);
             new HotseatLayoutParser(mContext,
                     parserCallback).loadLayout(null, new ArrayList<Long>());
             mHotseatSize = (int) hotseatItems.keyAt(hotseatItems.size() - 1) + 1;
-
-            if (!insertOperations.isEmpty()) {
-                mContext.getContentResolver().applyBatch(LauncherProvider.AUTHORITY,
-                        insertOperations);
-            }
         }
     }
 
+    /**
+     * Returns whether items of the package can be imported. Items which do not target a package
+     * are always imported.
+     */
+    private boolean isValidPackage(String packageName) {
+        return packageName == null || mValidPackages.contains(packageName);
+    }
+
     private static String getPackage(Intent intent) {
         return intent.getComponent() != null ? intent.getComponent().getPackageName()
             : intent.getPackage();
     }
 
     /**
-     * Performs data import if possible.
-     * @return true on successful data import, false if it was not available
-     * @throws Exception if the import failed
+     * Performs data import if possible. The import runs in the launcher provider, which writes
+     * the imported data in a single transaction.
+     * @return true on successful data import, false if it was not available or failed, in which
+     *         case nothing was imported.
      */
     public static boolean performImportIfPossible(Context context) throws Exception {
         SharedPreferences devicePrefs = getDevicePrefs(context);
@@ -368,7 +373,9 @@ public class ImportDataTask {
                             context.checkPermission(info.readPermission, Process.myPid(),
                                     Process.myUid()) == PackageManager.PERMISSION_GRANTED) {
                         // All checks passed, run the import task.
-                        return new ImportDataTask(context, sourceAuthority).importWorkspace();
+                        Bundle result = Settings.call(context.getContentResolver(),
+                                Settings.METHOD_IMPORT_DATA, sourceAuthority);
+                        return result != null && result.getBoolean(Settings.EXTRA_VALUE);
                     }
                 }
             }
@@ -376,6 +383,18 @@ public class ImportDataTask {
         return false;
     }
 
+    /**
+     * Imports the workspace of the other launcher with the writer, which the caller commits.
+     * @return the task, to call {@link #markForMigration()} after the commit, or null if there is
+     *         no data to import.
+     * @throws Exception if the import failed.
+     */
+    public static ImportDataTask importWorkspace(Context context, String sourceAuthority,
+            BulkRestoreWriter writer) throws Exception {
+        ImportDataTask task = new ImportDataTask(context, sourceAuthority, writer);
+        return task.importWorkspace() ? task : null;
+    }
+
     private static int getMyHotseatLayoutId(Context context) {
         return LauncherAppState.getIDP(context).numHotseatIcons <= 5
                 ? R.xml.dw_phone_hotseat
@@ -407,16 +426,16 @@ public class ImportDataTask {
     private static class HotseatParserCallback implements LayoutParserCallback {
         private final HashSet<String> mExistingApps;
         private final LongArrayMap<Object> mExistingItems;
-        private final ArrayList<ContentProviderOperation> mOutOps;
+        private final BulkRestoreWriter mWriter;
         private final int mRequiredSize;
         private int mStartItemId;
 
         HotseatParserCallback(
                 HashSet<String> existingApps, LongArrayMap<Object> existingItems,
-                ArrayList<ContentProviderOperation> outOps, int startItemId, int requiredSize) {
+                BulkRestoreWriter writer, int startItemId, int requiredSize) {
             mExistingApps = existingApps;
             mExistingItems = existingItems;
-            mOutOps = outOps;
+            mWriter = writer;
             mRequiredSize = requiredSize;
             mStartItemId = startItemId;
         }
@@ -452,7 +471,7 @@ public class ImportDataTask {
             }
             mExistingItems.put(screen, intent);
             values.put(Favorites.SCREEN, screen);
-            mOutOps.add(ContentProviderOperation.newInsert(Favorites.CONTENT_URI).withValues(values).build());
+            mWriter.insert(Favorites.TABLE_NAME, values);
             return 0;
         }
     }
@@ -76,20 +76,17 @@ public class RestoreDbTask {
             FileLog.d(TAG, itemsDeleted + " items belonging to a managed profile, were deleted");
         }
 
-        // Mark all items as restored.
+        // Mark all items as restored, and widgets with appropriate restore flag, in a single pass.
         boolean keepAllIcons = Utilities.isPropertyEnabled(LogConfig.KEEP_ALL_ICONS);
-        ContentValues values = new ContentValues();
-        values.put(Favorites.RESTORED, ShortcutInfo.FLAG_RESTORED_ICON
-                | (keepAllIcons ? ShortcutInfo.FLAG_RESTORE_STARTED : 0));
-        db.update(Favorites.TABLE_NAME, values, null, null);
-
-        // Mark widgets with appropriate restore flag
-        values.put(Favorites.RESTORED,  LauncherAppWidgetInfo.FLAG_ID_NOT_VALID |
+        int itemFlags = ShortcutInfo.FLAG_RESTORED_ICON
+                | (keepAllIcons ? ShortcutInfo.FLAG_RESTORE_STARTED : 0);
+        int widgetFlags = LauncherAppWidgetInfo.FLAG_ID_NOT_VALID |
                 LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY |
                 LauncherAppWidgetInfo.FLAG_UI_NOT_READY |
-                (keepAllIcons ? LauncherAppWidgetInfo.FLAG_RESTORE_STARTED : 0));
-        db.update(Favorites.TABLE_NAME, values, "itemType = ?",
-                new String[]{Integer.toString(Favorites.ITEM_TYPE_APPWIDGET)});
+                (keepAllIcons ? LauncherAppWidgetInfo.FLAG_RESTORE_STARTED : 0);
+        db.execSQL("UPDATE " + Favorites.TABLE_NAME + " SET " + Favorites.RESTORED
+                + " = CASE WHEN " + Favorites.ITEM_TYPE + " = " + Favorites.ITEM_TYPE_APPWIDGET
+                + " THEN " + widgetFlags + " ELSE " + itemFlags + " END");
 
         long myProfileId = helper.getDefaultUserSerial();
         if (Utilities.longCompare(oldProfileId, myProfileId) != 0) {
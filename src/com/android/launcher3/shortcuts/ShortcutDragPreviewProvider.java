@@ -26,7 +26,6 @@ import android.view.View;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.graphics.DragPreviewProvider;
-import com.android.launcher3.graphics.HolographicOutlineHelper;
 
 /**
  * Extension of {@link DragPreviewProvider} which generates bitmaps scaled to the default icon size.
@@ -41,13 +40,8 @@ public class ShortcutDragPreviewProvider extends DragPreviewProvider {
     }
 
     @Override
-    public Bitmap createDragOutline(Canvas canvas) {
-        Bitmap b = drawScaledPreview(canvas, Bitmap.Config.ALPHA_8);
-
-        HolographicOutlineHelper.getInstance(mView.getContext())
-                .applyExpensiveOutlineWithBlur(b, canvas);
-        canvas.setBitmap(null);
-        return b;
+    protected Bitmap createDragOutlineShape(Canvas canvas) {
+        return drawScaledPreview(canvas, Bitmap.Config.ALPHA_8);
     }
 
     @Override
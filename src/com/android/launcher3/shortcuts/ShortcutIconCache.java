@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.shortcuts;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.android.launcher3.graphics.LauncherIcons;
+
+/**
+ * Caches the unbadged shortcut icons shown in the popups, so that the icons are not rendered
+ * again each time the popup of an app opens. Icons are bounded by their size in bytes, and
+ * validated against the last changed timestamp of their shortcut, which changes with the icon.
+ *
+ * Can be accessed from any thread.
+ */
+public class ShortcutIconCache {
+
+    // Fits the icons of a few dozens of shortcuts.
+    private static final int CACHE_SIZE_BYTES = 4 * 1024 * 1024;
+
+    private final LruCache<ShortcutKey, CachedIcon> mIcons =
+            new LruCache<ShortcutKey, CachedIcon>(CACHE_SIZE_BYTES) {
+                @Override
+                protected int sizeOf(ShortcutKey key, CachedIcon value) {
+                    return value.icon.getByteCount();
+                }
+            };
+
+    /**
+     * Returns the unbadged icon of the shortcut, rendering it if it is not cached.
+     */
+    public Bitmap getUnbadgedIcon(ShortcutInfoCompat shortcut, Context context) {
+        Bitmap icon = getCachedUnbadgedIcon(shortcut);
+        if (icon != null) {
+            return icon;
+        }
+        icon = LauncherIcons.createShortcutIcon(shortcut, context, false /* badged */);
+        if (!(shortcut instanceof ShortcutInfoCompatBackport)) {
+            mIcons.put(ShortcutKey.fromInfo(shortcut),
+                    new CachedIcon(icon, shortcut.getLastChangedTimestamp()));
+        }
+        return icon;
+    }
+
+    /**
+     * Returns the unbadged icon of the shortcut if it is cached, without rendering it.
+     */
+    @Nullable public Bitmap getCachedUnbadgedIcon(ShortcutInfoCompat shortcut) {
+        if (shortcut instanceof ShortcutInfoCompatBackport) {
+            // Backported shortcuts do not track changes.
+            return null;
+        }
+        CachedIcon cached = mIcons.get(ShortcutKey.fromInfo(shortcut));
+        return cached != null && cached.lastChangedTimestamp == shortcut.getLastChangedTimestamp()
+                ? cached.icon : null;
+    }
+
+    private static class CachedIcon {
+        final Bitmap icon;
+        final long lastChangedTimestamp;
+
+        CachedIcon(Bitmap icon, long lastChangedTimestamp) {
+            this.icon = icon;
+            this.lastChangedTimestamp = lastChangedTimestamp;
+        }
+    }
+}
@@ -34,6 +34,7 @@ import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.android.launcher3.graphics.BitmapAccounting;
 import com.android.launcher3.util.Thunk;
 
 public class WeightWatcher extends LinearLayout {
@@ -159,7 +160,9 @@ public class WeightWatcher extends LinearLayout {
                     1f
             );
 
-            addView(mText, params);
+            // The text of the app process has a second line for the bitmaps.
+            addView(mText, new LinearLayout.LayoutParams(
+                    0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
             params.leftMargin = (int)(4*dp);
             params.weight = 0f;
             params.width = (int)(200 * dp);
@@ -218,6 +221,9 @@ public class WeightWatcher extends LinearLayout {
                           + ") up " + getUptimeString()
                           + " P=" + mMemInfo.currentPss
                           + " U=" + mMemInfo.currentUss
+                          + (mPid == android.os.Process.myPid()
+                                ? "\nBitmaps(KB) " + BitmapAccounting.getSummary()
+                                : "")
                           );
             mRamGraph.invalidate();
         }
@@ -83,6 +83,42 @@ public class FocusLogic {
 
     public static int handleKeyEvent(int keyCode, int [][] map, int iconIdx, int pageIndex,
             int pageCount, boolean isRtl) {
+        return handleKeyEvent(keyCode, map, null, iconIdx, pageIndex, pageCount, isRtl);
+    }
+
+    /**
+     * Same as {@link #handleKeyEvent(int, int[][], int, int, int, boolean)}, but the arrow keys are
+     * looked up in the neighbours precomputed by {@param focusMap}, which can be null.
+     */
+    public static int handleKeyEvent(int keyCode, FocusMap focusMap, int iconIdx, int pageIndex,
+            int pageCount, boolean isRtl) {
+        return handleKeyEvent(keyCode, focusMap == null ? null : focusMap.matrix, focusMap,
+                iconIdx, pageIndex, pageCount, isRtl);
+    }
+
+    /**
+     * Returns the item to focus when the focus enters the page of {@param focusMap} from the
+     * item at {@param row} of the adjacent page, with {@param keyCode} being
+     * {@link KeyEvent#KEYCODE_DPAD_LEFT} or {@link KeyEvent#KEYCODE_DPAD_RIGHT}.
+     *
+     * This is the result of {@link #handleKeyEvent} for the {@link #PIVOT} of the matrix created by
+     * {@link #createSparseMatrixWithPivotColumn}, with the pivot on the side of the adjacent page.
+     */
+    public static int handlePageEntry(int keyCode, FocusMap focusMap, int row, boolean isRtl) {
+        int increment = keyCode == KeyEvent.KEYCODE_DPAD_LEFT ? -1 : 1;
+        int newIndex = focusMap.getPageEntry(increment, row);
+        if (newIndex != NOOP) {
+            return newIndex;
+        }
+        // Same as Rule3 of handleDpadHorizontal.
+        if (isRtl) {
+            return increment < 0 ? NEXT_PAGE_FIRST_ITEM : PREVIOUS_PAGE_LAST_ITEM;
+        }
+        return increment < 0 ? PREVIOUS_PAGE_LAST_ITEM : NEXT_PAGE_FIRST_ITEM;
+    }
+
+    private static int handleKeyEvent(int keyCode, int [][] map, FocusMap focusMap, int iconIdx,
+            int pageIndex, int pageCount, boolean isRtl) {
 
         int cntX = map == null ? -1 : map.length;
         int cntY = map == null ? -1 : map[0].length;
@@ -96,7 +132,8 @@ public class FocusLogic {
         int newIndex = NOOP;
         switch (keyCode) {
             case KeyEvent.KEYCODE_DPAD_LEFT:
-                newIndex = handleDpadHorizontal(iconIdx, cntX, cntY, map, -1 /*increment*/, isRtl);
+                newIndex = handleDpadHorizontal(iconIdx, cntX, cntY, map, focusMap,
+                        -1 /*increment*/, isRtl);
                 if (!isRtl && newIndex == NOOP && pageIndex > 0) {
                     newIndex = PREVIOUS_PAGE_RIGHT_COLUMN;
                 } else if (isRtl && newIndex == NOOP && pageIndex < pageCount - 1) {
@@ -104,7 +141,8 @@ public class FocusLogic {
                 }
                 break;
             case KeyEvent.KEYCODE_DPAD_RIGHT:
-                newIndex = handleDpadHorizontal(iconIdx, cntX, cntY, map, 1 /*increment*/, isRtl);
+                newIndex = handleDpadHorizontal(iconIdx, cntX, cntY, map, focusMap,
+                        1 /*increment*/, isRtl);
                 if (!isRtl && newIndex == NOOP && pageIndex < pageCount - 1) {
                     newIndex = NEXT_PAGE_LEFT_COLUMN;
                 } else if (isRtl && newIndex == NOOP && pageIndex > 0) {
@@ -112,10 +150,11 @@ public class FocusLogic {
                 }
                 break;
             case KeyEvent.KEYCODE_DPAD_DOWN:
-                newIndex = handleDpadVertical(iconIdx, cntX, cntY, map, 1  /*increment*/);
+                newIndex = handleDpadVertical(iconIdx, cntX, cntY, map, focusMap, 1  /*increment*/);
                 break;
             case KeyEvent.KEYCODE_DPAD_UP:
-                newIndex = handleDpadVertical(iconIdx, cntX, cntY, map, -1  /*increment*/);
+                newIndex = handleDpadVertical(iconIdx, cntX, cntY, map, focusMap,
+                        -1  /*increment*/);
                 break;
             case KeyEvent.KEYCODE_MOVE_HOME:
                 newIndex = handleMoveHome();
@@ -323,11 +362,17 @@ public class FocusLogic {
      */
     // TODO: add unit tests to verify all permutation.
     private static int handleDpadHorizontal(int iconIdx, int cntX, int cntY,
-            int[][] matrix, int increment, boolean isRtl) {
+            int[][] matrix, FocusMap focusMap, int increment, boolean isRtl) {
         if(matrix == null) {
             throw new IllegalStateException("Dpad navigation requires a matrix.");
         }
-        int newIconIndex = NOOP;
+        if (focusMap != null) {
+            int neighbour = focusMap.getNeighbour(
+                    increment < 0 ? FocusMap.DIRECTION_LEFT : FocusMap.DIRECTION_RIGHT, iconIdx);
+            if (neighbour != FocusMap.UNKNOWN) {
+                return neighbour;
+            }
+        }
 
         int xPos = -1;
         int yPos = -1;
@@ -345,6 +390,27 @@ public class FocusLogic {
                     xPos, yPos, iconIdx));
         }
 
+        int newIconIndex = searchHorizontal(xPos, yPos, cntX, cntY, matrix, increment);
+
+        // Rule3: if switching between pages, do a brute-force search to find an item that was
+        //        missed by rules 1 and 2 (such as when going from a bottom right icon to top left)
+        if (iconIdx == PIVOT && (newIconIndex == NOOP || newIconIndex == ALL_APPS_COLUMN)) {
+            if (isRtl) {
+                return increment < 0 ? NEXT_PAGE_FIRST_ITEM : PREVIOUS_PAGE_LAST_ITEM;
+            }
+            return increment < 0 ? PREVIOUS_PAGE_LAST_ITEM : NEXT_PAGE_FIRST_ITEM;
+        }
+        return newIconIndex;
+    }
+
+    /**
+     * Rules 1 and 2 of {@link #handleDpadHorizontal}, from the item at {@param xPos},
+     * {@param yPos}.
+     */
+    static int searchHorizontal(int xPos, int yPos, int cntX, int cntY, int[][] matrix,
+            int increment) {
+        int newIconIndex = NOOP;
+
         // Rule1: check first in the horizontal direction
         for (int x = xPos + increment; 0 <= x && x < cntX; x += increment) {
             if ((newIconIndex = inspectMatrix(x, yPos, cntX, cntY, matrix)) != NOOP
@@ -383,15 +449,6 @@ public class FocusLogic {
                 }
             }
         }
-
-        // Rule3: if switching between pages, do a brute-force search to find an item that was
-        //        missed by rules 1 and 2 (such as when going from a bottom right icon to top left)
-        if (iconIdx == PIVOT) {
-            if (isRtl) {
-                return increment < 0 ? NEXT_PAGE_FIRST_ITEM : PREVIOUS_PAGE_LAST_ITEM;
-            }
-            return increment < 0 ? PREVIOUS_PAGE_LAST_ITEM : NEXT_PAGE_FIRST_ITEM;
-        }
         return newIconIndex;
     }
 
@@ -406,11 +463,17 @@ public class FocusLogic {
      */
     // TODO: add unit tests to verify all permutation.
     private static int handleDpadVertical(int iconIndex, int cntX, int cntY,
-            int [][] matrix, int increment) {
-        int newIconIndex = NOOP;
+            int [][] matrix, FocusMap focusMap, int increment) {
         if(matrix == null) {
             throw new IllegalStateException("Dpad navigation requires a matrix.");
         }
+        if (focusMap != null) {
+            int neighbour = focusMap.getNeighbour(
+                    increment < 0 ? FocusMap.DIRECTION_UP : FocusMap.DIRECTION_DOWN, iconIndex);
+            if (neighbour != FocusMap.UNKNOWN) {
+                return neighbour;
+            }
+        }
 
         int xPos = -1;
         int yPos = -1;
@@ -428,6 +491,15 @@ public class FocusLogic {
             Log.v(TAG, String.format("\thandleDpadVertical: \t[x, y]=[%d, %d] iconIndex=%d",
                     xPos, yPos, iconIndex));
         }
+        return searchVertical(xPos, yPos, cntX, cntY, matrix, increment);
+    }
+
+    /**
+     * Rules 1 and 2 of {@link #handleDpadVertical}, from the item at {@param xPos}, {@param yPos}.
+     */
+    static int searchVertical(int xPos, int yPos, int cntX, int cntY, int[][] matrix,
+            int increment) {
+        int newIconIndex = NOOP;
 
         // Rule1: check first in the dpad direction
         for (int y = yPos + increment; 0 <= y && y <cntY && 0 <= y; y += increment) {
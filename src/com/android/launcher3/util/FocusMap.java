@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import com.android.launcher3.CellLayout;
+
+import java.util.Arrays;
+
+/**
+ * Focus navigation of a sparse matrix of items, as created by {@link FocusLogic}, with the item
+ * reached by each arrow key from each item computed once. This way, holding an arrow key does not
+ * search the matrix on every key event.
+ *
+ * Maps of a single {@link CellLayout} also keep, for each row, the item reached when the focus
+ * enters the page from either side. A map is only valid until the items of its layout change, see
+ * {@link CellLayout#getFocusMap()}.
+ */
+public class FocusMap {
+
+    static final int DIRECTION_LEFT = 0;
+    static final int DIRECTION_RIGHT = 1;
+    static final int DIRECTION_UP = 2;
+    static final int DIRECTION_DOWN = 3;
+    private static final int DIRECTION_COUNT = 4;
+
+    /** Returned for the items which are not in the matrix. */
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    public final int[][] matrix;
+
+    // Item reached from each item, indexed by direction and then by item index.
+    private final int[][] mNeighbours;
+
+    // Item reached when entering the page at each row, with the left and the right keys.
+    private final int[] mEntriesFromRight;
+    private final int[] mEntriesFromLeft;
+
+    private FocusMap(int[][] matrix, int[] entriesFromRight, int[] entriesFromLeft) {
+        this.matrix = matrix;
+        mEntriesFromRight = entriesFromRight;
+        mEntriesFromLeft = entriesFromLeft;
+
+        int cntX = matrix.length;
+        int cntY = cntX == 0 ? 0 : matrix[0].length;
+        int itemCount = 0;
+        for (int[] column : matrix) {
+            for (int index : column) {
+                itemCount = Math.max(itemCount, index + 1);
+            }
+        }
+
+        mNeighbours = new int[DIRECTION_COUNT][itemCount];
+        for (int[] neighbours : mNeighbours) {
+            Arrays.fill(neighbours, UNKNOWN);
+        }
+        // Same order as the search of the item in FocusLogic, so that the last cell wins if an
+        // index is set twice.
+        for (int x = 0; x < cntX; x++) {
+            for (int y = 0; y < cntY; y++) {
+                int index = matrix[x][y];
+                if (index < 0) {
+                    continue;
+                }
+                mNeighbours[DIRECTION_LEFT][index] =
+                        FocusLogic.searchHorizontal(x, y, cntX, cntY, matrix, -1);
+                mNeighbours[DIRECTION_RIGHT][index] =
+                        FocusLogic.searchHorizontal(x, y, cntX, cntY, matrix, 1);
+                mNeighbours[DIRECTION_UP][index] =
+                        FocusLogic.searchVertical(x, y, cntX, cntY, matrix, -1);
+                mNeighbours[DIRECTION_DOWN][index] =
+                        FocusLogic.searchVertical(x, y, cntX, cntY, matrix, 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the map of the items of {@param layout}, including the entries of the page.
+     */
+    public static FocusMap forLayout(CellLayout layout) {
+        int cntX = layout.getCountX();
+        int cntY = layout.getCountY();
+        int[] entriesFromRight = new int[cntY];
+        int[] entriesFromLeft = new int[cntY];
+
+        // The pivot column is empty, so the same matrix is used for all the rows.
+        int[][] pivotMatrix = FocusLogic.createSparseMatrixWithPivotColumn(layout, cntX, 0);
+        for (int row = 0; row < cntY; row++) {
+            pivotMatrix[cntX][row] = FocusLogic.PIVOT;
+            entriesFromRight[row] = FocusLogic.searchHorizontal(
+                    cntX, row, cntX + 1, cntY, pivotMatrix, -1);
+            pivotMatrix[cntX][row] = FocusLogic.EMPTY;
+        }
+        pivotMatrix = FocusLogic.createSparseMatrixWithPivotColumn(layout, -1, 0);
+        for (int row = 0; row < cntY; row++) {
+            pivotMatrix[0][row] = FocusLogic.PIVOT;
+            entriesFromLeft[row] = FocusLogic.searchHorizontal(
+                    0, row, cntX + 1, cntY, pivotMatrix, 1);
+            pivotMatrix[0][row] = FocusLogic.EMPTY;
+        }
+
+        return new FocusMap(FocusLogic.createSparseMatrix(layout),
+                entriesFromRight, entriesFromLeft);
+    }
+
+    /**
+     * Returns the map of {@param matrix}, without entries of the page.
+     */
+    public static FocusMap forMatrix(int[][] matrix) {
+        return new FocusMap(matrix, null, null);
+    }
+
+    /**
+     * Returns the item reached from {@param index} in {@param direction}, {@link FocusLogic#NOOP}
+     * if there is none, or {@link #UNKNOWN} if the item is not in the matrix.
+     */
+    int getNeighbour(int direction, int index) {
+        int[] neighbours = mNeighbours[direction];
+        return index >= 0 && index < neighbours.length ? neighbours[index] : UNKNOWN;
+    }
+
+    /**
+     * Returns the item reached when entering the page at {@param row}, moving in the direction of
+     * {@param increment}, or {@link FocusLogic#NOOP} if there is none.
+     */
+    int getPageEntry(int increment, int row) {
+        int[] entries = increment < 0 ? mEntriesFromRight : mEntriesFromLeft;
+        return entries != null && row >= 0 && row < entries.length ? entries[row] : FocusLogic.NOOP;
+    }
+}
@@ -0,0 +1,97 @@
+package com.google.android.apps.nexuslauncher;
+
+import com.android.launcher3.Utilities;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of the app launches, which can be pulled from the device and replayed with
+ * PredictionReplay, from the unit tests, to evaluate the predictions offline.
+ *
+ * Each record is a long time followed by the utf component. Once the log reaches
+ * {@link #MAX_SIZE}, it is moved to a backup file, so at most twice that size is kept.
+ */
+public class AppLaunchLog {
+
+    private static final long MAX_SIZE = 256 << 10;  // 256 kb
+
+    private final File mFile;
+    private final File mBackupFile;
+
+    public AppLaunchLog(File file) {
+        mFile = file;
+        mBackupFile = new File(file.getPath() + ".old");
+    }
+
+    public void append(String component, long time) throws IOException {
+        if (mFile.length() > MAX_SIZE) {
+            mBackupFile.delete();
+            mFile.renameTo(mBackupFile);
+        }
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new FileOutputStream(mFile, true));
+            out.writeLong(time);
+            out.writeUTF(component);
+        } finally {
+            Utilities.closeSilently(out);
+        }
+    }
+
+    public void clear() {
+        mFile.delete();
+        mBackupFile.delete();
+    }
+
+    /**
+     * Returns all the recorded launches, oldest first.
+     */
+    public List<Launch> read() throws IOException {
+        ArrayList<Launch> launches = new ArrayList<>();
+        read(mBackupFile, launches);
+        read(mFile, launches);
+        return launches;
+    }
+
+    /**
+     * Adds the launches recorded in {@param file} to {@param out}.
+     */
+    public static void read(File file, List<Launch> out) throws IOException {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException e) {
+            return;
+        }
+        try {
+            while (true) {
+                long time = in.readLong();
+                out.add(new Launch(in.readUTF(), time));
+            }
+        } catch (EOFException e) {
+            // End of the log, a record may have been partially written.
+        } finally {
+            Utilities.closeSilently(in);
+        }
+    }
+
+    public static class Launch {
+        public final String component;
+        public final long time;
+
+        public Launch(String component, long time) {
+            this.component = component;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.google.android.apps.nexuslauncher;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Table of time-decayed launch scores, which keeps track of its top entries.
+ *
+ * Scores halve every {@link #HALF_LIFE}. Instead of decaying every entry over time, a launch at
+ * time t adds 2^((t - baseTime) / HALF_LIFE) to the score, so the relative order of the entries
+ * never changes without a launch. A launch therefore only updates a single entry, and the top
+ * entries are maintained incrementally.
+ *
+ * This class is not thread safe.
+ */
+public class AppPredictionStore {
+
+    static final long HALF_LIFE = TimeUnit.DAYS.toMillis(7);
+
+    private static final int VERSION = 1;
+    static final int MAX_ENTRIES = 200;
+
+    // Scores are rebased once launch weights reach 2^MAX_EXPONENT, to stay within double range.
+    private static final double MAX_EXPONENT = 64;
+
+    private static final Comparator<Entry> SCORE_COMPARATOR = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return Double.compare(b.score, a.score);
+        }
+    };
+
+    private final int mMaxTopEntries;
+    private final HashMap<String, Entry> mEntries = new HashMap<>();
+    // Entries with the highest score, in descending order.
+    private final ArrayList<Entry> mTopEntries = new ArrayList<>();
+
+    private long mBaseTime;
+
+    public AppPredictionStore(int maxTopEntries) {
+        mMaxTopEntries = maxTopEntries;
+    }
+
+    /**
+     * Returns a deep copy of this store.
+     */
+    public AppPredictionStore copy() {
+        AppPredictionStore copy = new AppPredictionStore(mMaxTopEntries);
+        copy.mBaseTime = mBaseTime;
+        for (Entry entry : mEntries.values()) {
+            Entry entryCopy = new Entry(entry.component);
+            entryCopy.score = entry.score;
+            copy.mEntries.put(entryCopy.component, entryCopy);
+        }
+        for (int i = 0; i < mTopEntries.size(); i++) {
+            copy.mTopEntries.add(copy.mEntries.get(mTopEntries.get(i).component));
+        }
+        return copy;
+    }
+
+    /**
+     * Adds {@param weight} launches of {@param component} at {@param time}.
+     */
+    public void addLaunch(String component, long time, double weight) {
+        if (mEntries.isEmpty()) {
+            mBaseTime = time;
+        }
+        double exponent = (double) (time - mBaseTime) / HALF_LIFE;
+        if (exponent > MAX_EXPONENT) {
+            rebase(time);
+            exponent = 0;
+        }
+
+        Entry entry = mEntries.get(component);
+        if (entry == null) {
+            entry = new Entry(component);
+            mEntries.put(component, entry);
+        }
+        entry.score += weight * Math.pow(2, exponent);
+        updateTopEntries(entry);
+
+        if (mEntries.size() > MAX_ENTRIES) {
+            removeLowestEntry();
+        }
+    }
+
+    private void rebase(long time) {
+        double factor = Math.pow(2, (double) (mBaseTime - time) / HALF_LIFE);
+        for (Entry entry : mEntries.values()) {
+            entry.score *= factor;
+        }
+        mBaseTime = time;
+    }
+
+    private void updateTopEntries(Entry entry) {
+        int index = mTopEntries.indexOf(entry);
+        if (index < 0) {
+            int last = mTopEntries.size() - 1;
+            if (mTopEntries.size() < mMaxTopEntries) {
+                mTopEntries.add(entry);
+                index = last + 1;
+            } else if (last >= 0 && entry.score > mTopEntries.get(last).score) {
+                mTopEntries.set(last, entry);
+                index = last;
+            } else {
+                return;
+            }
+        }
+        // The score only increased, move the entry up.
+        while (index > 0 && mTopEntries.get(index - 1).score < entry.score) {
+            Collections.swap(mTopEntries, index, index - 1);
+            index--;
+        }
+    }
+
+    private void removeLowestEntry() {
+        Entry lowest = null;
+        for (Entry entry : mEntries.values()) {
+            if (lowest == null || entry.score < lowest.score) {
+                lowest = entry;
+            }
+        }
+        mEntries.remove(lowest.component);
+        if (mTopEntries.remove(lowest)) {
+            rebuildTopEntries();
+        }
+    }
+
+    /**
+     * Removes the entries of the given components.
+     */
+    public void removeAll(List<String> components) {
+        boolean topChanged = false;
+        for (String component : components) {
+            Entry entry = mEntries.remove(component);
+            if (entry != null) {
+                topChanged |= mTopEntries.remove(entry);
+            }
+        }
+        if (topChanged) {
+            rebuildTopEntries();
+        }
+    }
+
+    private void rebuildTopEntries() {
+        ArrayList<Entry> entries = new ArrayList<>(mEntries.values());
+        Collections.sort(entries, SCORE_COMPARATOR);
+        mTopEntries.clear();
+        mTopEntries.addAll(entries.subList(0, Math.min(entries.size(), mMaxTopEntries)));
+    }
+
+    public void clear() {
+        mEntries.clear();
+        mTopEntries.clear();
+    }
+
+    /**
+     * Returns the components with the highest score, in descending order.
+     */
+    public List<String> getTopComponents() {
+        ArrayList<String> result = new ArrayList<>(mTopEntries.size());
+        addTopComponents(result);
+        return result;
+    }
+
+    /**
+     * Adds the components with the highest score to {@param out}, in descending order.
+     */
+    public void addTopComponents(List<String> out) {
+        for (int i = 0; i < mTopEntries.size(); i++) {
+            out.add(mTopEntries.get(i).component);
+        }
+    }
+
+    public boolean contains(String component) {
+        return mEntries.containsKey(component);
+    }
+
+    /**
+     * Returns the decayed score of the component at {@param time}, which is the number of
+     * launches weighted by their age.
+     */
+    public double getScore(String component, long time) {
+        Entry entry = mEntries.get(component);
+        return entry == null ? 0
+                : entry.score * Math.pow(2, (double) (mBaseTime - time) / HALF_LIFE);
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeLong(mBaseTime);
+        out.writeInt(mEntries.size());
+        for (Entry entry : mEntries.values()) {
+            out.writeUTF(entry.component);
+            out.writeDouble(entry.score);
+        }
+    }
+
+    /**
+     * Replaces the content of the store with the data written by {@link #writeTo}.
+     */
+    public void readFrom(DataInputStream in) throws IOException {
+        clear();
+        if (in.readInt() != VERSION) {
+            return;
+        }
+        mBaseTime = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Entry entry = new Entry(in.readUTF());
+            entry.score = in.readDouble();
+            mEntries.put(entry.component, entry);
+        }
+        rebuildTopEntries();
+    }
+
+    /**
+     * Returns the components whose package matches the {@param filter}.
+     */
+    public List<String> getComponents(PackageFilter filter) {
+        ArrayList<String> result = new ArrayList<>();
+        for (String component : mEntries.keySet()) {
+            if (filter.matches(getPackage(component))) {
+                result.add(component);
+            }
+        }
+        return result;
+    }
+
+    static String getPackage(String component) {
+        int index = component.indexOf('/');
+        return index < 0 ? component : component.substring(0, index);
+    }
+
+    public interface PackageFilter {
+        boolean matches(String packageName);
+    }
+
+    private static class Entry {
+        final String component;
+        double score;
+
+        Entry(String component) {
+            this.component = component;
+        }
+    }
+}
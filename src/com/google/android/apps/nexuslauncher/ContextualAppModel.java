@@ -0,0 +1,389 @@
+package com.google.android.apps.nexuslauncher;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Predicts app launches from the launch history, combining:
+ *   - the decayed launch frequency, from {@link AppPredictionStore},
+ *   - how often the app is launched in the current time of day bucket and day of the week,
+ *   - how often the app is launched right after the last launched app.
+ *
+ * Memory is bounded: features are only kept for the apps tracked by the store, and each app
+ * keeps at most {@link #MAX_SUCCESSORS} successors. Only the top apps of the store and the
+ * successors of the last app are scored, each in constant time, so a prediction costs a few
+ * microseconds.
+ *
+ * This class is not thread safe, but {@link #predict} does not modify the model, so a
+ * {@link #copy} which is not modified anymore can be read from any thread.
+ */
+public class ContextualAppModel {
+
+    private static final int VERSION = 2;
+
+    static final int CANDIDATE_COUNT = 30;
+    static final int TIME_BUCKETS = 8;  // 3 hours each
+    static final int DAYS = 7;
+    static final int MAX_SUCCESSORS = 6;
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    // Launches further apart are not considered a transition.
+    private static final long SESSION_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+    // Weight of the transition probability, when the last launch is recent.
+    private static final double TRANSITION_WEIGHT = 0.4;
+    // Additive smoothing for the time and day distributions, in launches.
+    private static final double SMOOTHING = 1;
+    // Feature weights are rebased once they reach 2^MAX_EXPONENT.
+    private static final double MAX_EXPONENT = 64;
+    // Features of apps dropped by the store are pruned once this many are left behind.
+    private static final int PRUNE_THRESHOLD = 20;
+
+    private final AppPredictionStore mStore;
+    private final HashMap<String, Features> mFeatures = new HashMap<>();
+    private TimeZone mTimeZone = TimeZone.getDefault();
+
+    // Base time of the feature weights, which grow over time like the scores of the store.
+    private long mBaseTime;
+    private String mLastComponent;
+    private long mLastLaunchTime;
+
+    public ContextualAppModel() {
+        this(new AppPredictionStore(CANDIDATE_COUNT));
+    }
+
+    private ContextualAppModel(AppPredictionStore store) {
+        mStore = store;
+    }
+
+    /**
+     * Returns a deep copy of this model.
+     */
+    public ContextualAppModel copy() {
+        ContextualAppModel copy = new ContextualAppModel(mStore.copy());
+        for (Map.Entry<String, Features> entry : mFeatures.entrySet()) {
+            copy.mFeatures.put(entry.getKey(), entry.getValue().copy());
+        }
+        copy.mTimeZone = mTimeZone;
+        copy.mBaseTime = mBaseTime;
+        copy.mLastComponent = mLastComponent;
+        copy.mLastLaunchTime = mLastLaunchTime;
+        return copy;
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    /**
+     * Records a launch of {@param component} at {@param time}.
+     */
+    public void onLaunch(String component, long time) {
+        mStore.addLaunch(component, time, 1);
+
+        if (mFeatures.isEmpty()) {
+            mBaseTime = time;
+        }
+        double exponent = (double) (time - mBaseTime) / AppPredictionStore.HALF_LIFE;
+        if (exponent > MAX_EXPONENT) {
+            rebase(time);
+            exponent = 0;
+        }
+        double weight = Math.pow(2, exponent);
+
+        Features features = mFeatures.get(component);
+        if (features == null) {
+            features = new Features();
+            mFeatures.put(component, features);
+        }
+        long localTime = time + mTimeZone.getOffset(time);
+        features.total += weight;
+        features.timeCounts[getTimeBucket(localTime)] += weight;
+        features.dayCounts[getDay(localTime)] += weight;
+
+        if (mLastComponent != null && !mLastComponent.equals(component)
+                && time - mLastLaunchTime < SESSION_TIMEOUT) {
+            Features last = mFeatures.get(mLastComponent);
+            if (last != null) {
+                last.addSuccessor(component, weight);
+            }
+        }
+        mLastComponent = component;
+        mLastLaunchTime = time;
+
+        if (mFeatures.size() > AppPredictionStore.MAX_ENTRIES + PRUNE_THRESHOLD) {
+            pruneFeatures();
+        }
+    }
+
+    /**
+     * Adds launches without any context, which only contribute to the launch frequency.
+     */
+    public void importLaunches(String component, long time, double count) {
+        mStore.addLaunch(component, time, count);
+    }
+
+    private void rebase(long time) {
+        double factor = Math.pow(2, (double) (mBaseTime - time) / AppPredictionStore.HALF_LIFE);
+        for (Features features : mFeatures.values()) {
+            features.scale(factor);
+        }
+        mBaseTime = time;
+    }
+
+    private void pruneFeatures() {
+        Iterator<String> it = mFeatures.keySet().iterator();
+        while (it.hasNext()) {
+            if (!mStore.contains(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Adds up to {@param count} components most likely to be launched at {@param time} to
+     * {@param out}, in descending order of likelihood.
+     */
+    public void predict(long time, int count, List<String> out) {
+        ArrayList<String> candidates = new ArrayList<>(CANDIDATE_COUNT + MAX_SUCCESSORS);
+        mStore.addTopComponents(candidates);
+
+        Features last = mLastComponent != null && time - mLastLaunchTime < SESSION_TIMEOUT
+                ? mFeatures.get(mLastComponent) : null;
+        if (last != null) {
+            for (int i = 0; i < last.successorCount; i++) {
+                String successor = last.successors[i];
+                if (!candidates.contains(successor) && mStore.contains(successor)) {
+                    candidates.add(successor);
+                }
+            }
+        }
+
+        int size = candidates.size();
+        double[] scores = new double[size];
+
+        long localTime = time + mTimeZone.getOffset(time);
+        int timeBucket = getTimeBucket(localTime);
+        int day = getDay(localTime);
+        // Smoothing is expressed in launches at the current time.
+        double smoothing = SMOOTHING
+                * Math.pow(2, (double) (time - mBaseTime) / AppPredictionStore.HALF_LIFE);
+
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            String candidate = candidates.get(i);
+            double score = mStore.getScore(candidate, time);
+            Features features = mFeatures.get(candidate);
+            if (features != null) {
+                score *= features.getLift(features.timeCounts[timeBucket], TIME_BUCKETS, smoothing)
+                        * features.getLift(features.dayCounts[day], DAYS, smoothing);
+            }
+            scores[i] = score;
+            sum += score;
+        }
+        for (int i = 0; i < size; i++) {
+            double score = sum > 0 ? scores[i] / sum : 0;
+            if (last != null) {
+                score = (1 - TRANSITION_WEIGHT) * score
+                        + TRANSITION_WEIGHT * last.getTransitionProbability(candidates.get(i));
+            }
+            scores[i] = score;
+        }
+
+        // Selection of the best candidates, the lists are too short for anything fancier.
+        for (int n = 0; n < count && n < size; n++) {
+            int best = -1;
+            for (int i = 0; i < size; i++) {
+                if (scores[i] >= 0 && (best < 0 || scores[i] > scores[best])) {
+                    best = i;
+                }
+            }
+            out.add(candidates.get(best));
+            scores[best] = -1;
+        }
+    }
+
+    /**
+     * Removes the given components from the model.
+     */
+    public void removeAll(List<String> components) {
+        mStore.removeAll(components);
+        for (String component : components) {
+            mFeatures.remove(component);
+        }
+    }
+
+    /**
+     * Returns the components whose package matches the {@param filter}.
+     */
+    public List<String> getComponents(AppPredictionStore.PackageFilter filter) {
+        return mStore.getComponents(filter);
+    }
+
+    public void clear() {
+        mStore.clear();
+        mFeatures.clear();
+        mLastComponent = null;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(VERSION);
+        mStore.writeTo(out);
+        out.writeLong(mBaseTime);
+        out.writeUTF(mLastComponent == null ? "" : mLastComponent);
+        out.writeLong(mLastLaunchTime);
+        out.writeInt(mFeatures.size());
+        for (Map.Entry<String, Features> entry : mFeatures.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    /**
+     * Replaces the content of the model with the data written by {@link #writeTo}.
+     */
+    public void readFrom(DataInputStream in) throws IOException {
+        clear();
+        if (in.readInt() != VERSION) {
+            return;
+        }
+        mStore.readFrom(in);
+        mBaseTime = in.readLong();
+        mLastComponent = in.readUTF();
+        if (mLastComponent.isEmpty()) {
+            mLastComponent = null;
+        }
+        mLastLaunchTime = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String component = in.readUTF();
+            Features features = new Features();
+            features.readFrom(in);
+            mFeatures.put(component, features);
+        }
+    }
+
+    private static int getTimeBucket(long localTime) {
+        int hour = (int) ((localTime / HOUR) % 24);
+        return hour * TIME_BUCKETS / 24;
+    }
+
+    private static int getDay(long localTime) {
+        // The epoch was a Thursday, and Sunday is day 0.
+        return (int) ((localTime / DAY + 4) % DAYS);
+    }
+
+    private static class Features {
+        double total;
+        final double[] timeCounts = new double[TIME_BUCKETS];
+        final double[] dayCounts = new double[DAYS];
+
+        final String[] successors = new String[MAX_SUCCESSORS];
+        final double[] successorCounts = new double[MAX_SUCCESSORS];
+        int successorCount;
+
+        /**
+         * Returns how much more likely the app is launched in a bucket than on average.
+         */
+        double getLift(double bucketCount, int bucketTotal, double smoothing) {
+            return (bucketCount + smoothing) / (total + smoothing * bucketTotal) * bucketTotal;
+        }
+
+        double getTransitionProbability(String component) {
+            for (int i = 0; i < successorCount; i++) {
+                if (successors[i].equals(component)) {
+                    return total > 0 ? successorCounts[i] / total : 0;
+                }
+            }
+            return 0;
+        }
+
+        void addSuccessor(String component, double weight) {
+            int lowest = 0;
+            for (int i = 0; i < successorCount; i++) {
+                if (successors[i].equals(component)) {
+                    successorCounts[i] += weight;
+                    return;
+                }
+                if (successorCounts[i] < successorCounts[lowest]) {
+                    lowest = i;
+                }
+            }
+            if (successorCount < MAX_SUCCESSORS) {
+                successors[successorCount] = component;
+                successorCounts[successorCount] = weight;
+                successorCount++;
+            } else if (successorCounts[lowest] < weight) {
+                // Replace the least frequent successor, which older launches have decayed.
+                successors[lowest] = component;
+                successorCounts[lowest] = weight;
+            }
+        }
+
+        Features copy() {
+            Features copy = new Features();
+            copy.total = total;
+            System.arraycopy(timeCounts, 0, copy.timeCounts, 0, TIME_BUCKETS);
+            System.arraycopy(dayCounts, 0, copy.dayCounts, 0, DAYS);
+            System.arraycopy(successors, 0, copy.successors, 0, successorCount);
+            System.arraycopy(successorCounts, 0, copy.successorCounts, 0, successorCount);
+            copy.successorCount = successorCount;
+            return copy;
+        }
+
+        void scale(double factor) {
+            total *= factor;
+            for (int i = 0; i < TIME_BUCKETS; i++) {
+                timeCounts[i] *= factor;
+            }
+            for (int i = 0; i < DAYS; i++) {
+                dayCounts[i] *= factor;
+            }
+            for (int i = 0; i < successorCount; i++) {
+                successorCounts[i] *= factor;
+            }
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeDouble(total);
+            for (double count : timeCounts) {
+                out.writeDouble(count);
+            }
+            for (double count : dayCounts) {
+                out.writeDouble(count);
+            }
+            out.writeInt(successorCount);
+            for (int i = 0; i < successorCount; i++) {
+                out.writeUTF(successors[i]);
+                out.writeDouble(successorCounts[i]);
+            }
+        }
+
+        void readFrom(DataInputStream in) throws IOException {
+            total = in.readDouble();
+            for (int i = 0; i < TIME_BUCKETS; i++) {
+                timeCounts[i] = in.readDouble();
+            }
+            for (int i = 0; i < DAYS; i++) {
+                dayCounts[i] = in.readDouble();
+            }
+            successorCount = in.readInt();
+            if (successorCount > MAX_SUCCESSORS) {
+                throw new IOException("Invalid successor count " + successorCount);
+            }
+            for (int i = 0; i < successorCount; i++) {
+                successors[i] = in.readUTF();
+                successorCounts[i] = in.readDouble();
+            }
+        }
+    }
+}
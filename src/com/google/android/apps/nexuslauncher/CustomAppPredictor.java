@@ -5,34 +5,73 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.os.Handler;
 import android.os.Process;
+import android.os.UserHandle;
+import android.util.AtomicFile;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewParent;
 
 import com.android.launcher3.AppInfo;
+import com.android.launcher3.LauncherModel;
+import com.android.launcher3.MainThreadExecutor;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.allapps.AllAppsContainerView;
+import com.android.launcher3.compat.LauncherAppsCompat;
+import com.android.launcher3.compat.LauncherAppsCompat.OnAppsChangedCallbackCompat;
 import com.android.launcher3.logging.UserEventDispatcher;
+import com.android.launcher3.shortcuts.ShortcutInfoCompat;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.ComponentKeyMapper;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Predicts apps from the launches in all apps, ranked by {@link ContextualAppModel}.
+ *
+ * The model is loaded and updated on the worker thread, which publishes an immutable copy after
+ * each change. Predictions are computed from that copy on demand for the current time, which only
+ * takes a few microseconds, so that the UI thread never touches the disk or the package manager,
+ * and never waits for the worker thread.
+ */
 public class CustomAppPredictor extends UserEventDispatcher implements SharedPreferences.OnSharedPreferenceChangeListener {
     private static final int MAX_PREDICTIONS = 10;
-    private static final int BOOST_ON_OPEN = 7;
+    private static final String PREDICTION_FILE = "app_predictions";
+    private static final String LAUNCH_LOG_FILE = "app_launch_log";
+    private static final long SAVE_DELAY = 5000;
+    // Preferences used before the prediction store, imported once.
     private static final String PREDICTION_SET = "pref_prediction_set";
     private static final String PREDICTION_PREFIX = "pref_prediction_count_";
+    // Increment of the legacy launch counts on each launch.
+    private static final int LEGACY_BOOST_ON_OPEN = 7;
     private static final Set<String> EMPTY_SET = new HashSet<>();
     private final Context mContext;
     private final SharedPreferences mPrefs;
     private final PackageManager mPackageManager;
+    private final Handler mWorkerHandler;
+    private final AtomicFile mPredictionFile;
+    private final AppLaunchLog mLaunchLog;
+
+    // Only accessed on the worker thread.
+    private final ContextualAppModel mModel = new ContextualAppModel();
+    // Copy of the model used for the predictions, null until the model is loaded.
+    private volatile ContextualAppModel mSnapshot;
+    private volatile List<ComponentName> mPlaceHolderComponents = Collections.emptyList();
+    // Only accessed on the UI thread.
+    private Runnable mOnModelLoadedCallback;
 
     private final static String[] PLACE_HOLDERS = new String[] {
             "com.google.android.apps.photos",
@@ -72,41 +111,56 @@ public class CustomAppPredictor extends UserEventDispatcher implements SharedPre
         mPrefs = Utilities.getPrefs(context);
         mPrefs.registerOnSharedPreferenceChangeListener(this);
         mPackageManager = context.getPackageManager();
+        mWorkerHandler = new Handler(LauncherModel.getWorkerLooper());
+        mPredictionFile = new AtomicFile(new File(context.getFilesDir(), PREDICTION_FILE));
+        mLaunchLog = new AppLaunchLog(new File(context.getFilesDir(), LAUNCH_LOG_FILE));
+        LauncherAppsCompat.getInstance(context).addOnAppsChangedCallback(mAppsChangedCallback);
+
+        mWorkerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                loadPredictions();
+            }
+        });
+    }
+
+    /**
+     * Sets a callback run on the UI thread once the model is loaded, as {@link #getPredictions}
+     * only returns the place holders until then.
+     */
+    void setOnModelLoadedCallback(Runnable callback) {
+        mOnModelLoadedCallback = callback;
+    }
+
+    /**
+     * Stops listening to the package changes, when the launcher is destroyed.
+     */
+    void onDestroy() {
+        LauncherAppsCompat.getInstance(mContext).removeOnAppsChangedCallback(mAppsChangedCallback);
     }
 
     List<ComponentKeyMapper<AppInfo>> getPredictions() {
         List<ComponentKeyMapper<AppInfo>> list = new ArrayList<>();
-        if (isPredictorEnabled()) {
-            clearNonExistentPackages();
-
-            List<String> predictionList = new ArrayList<>(getStringSetCopy());
+        if (!isPredictorEnabled()) {
+            return list;
+        }
 
-            Collections.sort(predictionList, new Comparator<String>() {
-                @Override
-                public int compare(String o1, String o2) {
-                    return Integer.compare(getLaunchCount(o2), getLaunchCount(o1));
-                }
-            });
+        ArrayList<String> predictions = new ArrayList<>(MAX_PREDICTIONS);
+        ContextualAppModel snapshot = mSnapshot;
+        if (snapshot != null) {
+            snapshot.predict(System.currentTimeMillis(), MAX_PREDICTIONS, predictions);
+        }
+        for (String prediction : predictions) {
+            list.add(getComponentFromString(prediction));
+        }
 
-            for (String prediction : predictionList) {
-                list.add(getComponentFromString(prediction));
+        for (ComponentName placeHolder : mPlaceHolderComponents) {
+            if (list.size() >= MAX_PREDICTIONS) {
+                break;
             }
-
-            if (list.size() < MAX_PREDICTIONS) {
-                for (String placeHolder : PLACE_HOLDERS) {
-                    Intent intent = mPackageManager.getLaunchIntentForPackage(placeHolder);
-                    if (intent != null) {
-                        ComponentName componentInfo = intent.getComponent();
-                        String prediction = componentInfo.getPackageName() + '/' + componentInfo.getClassName();
-                        if (!predictionList.contains(prediction)) {
-                            list.add(new ComponentKeyMapper<AppInfo>(new ComponentKey(componentInfo, Process.myUserHandle())));
-                        }
-                    }
-                }
-            }
-
-            if (list.size() > MAX_PREDICTIONS) {
-                list = list.subList(0, MAX_PREDICTIONS);
+            String prediction = placeHolder.getPackageName() + '/' + placeHolder.getClassName();
+            if (!predictions.contains(prediction)) {
+                list.add(new ComponentKeyMapper<AppInfo>(new ComponentKey(placeHolder, Process.myUserHandle())));
             }
         }
         return list;
@@ -116,53 +170,185 @@ public class CustomAppPredictor extends UserEventDispatcher implements SharedPre
     public void logAppLaunch(View v, Intent intent) {
         super.logAppLaunch(v, intent);
         if (isPredictorEnabled() && recursiveIsDrawer(v)) {
-            clearNonExistentPackages();
-
             ComponentName componentInfo = intent.getComponent();
-            String prediction = componentInfo.getPackageName() + '/' + componentInfo.getClassName();
+            final String prediction = componentInfo.getPackageName() + '/' + componentInfo.getClassName();
+            final long time = System.currentTimeMillis();
+            mWorkerHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mModel.onLaunch(prediction, time);
+                    publishSnapshot();
+                    try {
+                        mLaunchLog.append(prediction, time);
+                    } catch (IOException e) {
+                        Log.e("Predictor", "Unable to log launch", e);
+                    }
+                    scheduleSave();
+                }
+            });
+        }
+    }
 
-            Set<String> predictionSet = getStringSetCopy();
-            SharedPreferences.Editor edit = mPrefs.edit();
+    private void loadPredictions() {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(mPredictionFile.openRead()));
+            mModel.readFrom(in);
+        } catch (FileNotFoundException e) {
+            importLegacyPredictions();
+        } catch (IOException e) {
+            Log.e("Predictor", "Unable to read predictions", e);
+            mModel.clear();
+        } finally {
+            Utilities.closeSilently(in);
+        }
 
-            if (predictionSet.contains(prediction)) {
-                edit.putInt(PREDICTION_PREFIX + prediction, getLaunchCount(prediction) + BOOST_ON_OPEN);
-            } else if (predictionSet.size() < MAX_PREDICTIONS || decayHasSpotFree(predictionSet, edit)) {
-                predictionSet.add(prediction);
+        // Drop the apps which were uninstalled while the launcher was not running.
+        mModel.removeAll(mModel.getComponents(new AppPredictionStore.PackageFilter() {
+            @Override
+            public boolean matches(String packageName) {
+                return !isPackageInstalled(packageName);
             }
+        }));
 
-            edit.putStringSet(PREDICTION_SET, predictionSet);
-            edit.apply();
+        List<ComponentName> placeHolders = new ArrayList<>();
+        for (String placeHolder : PLACE_HOLDERS) {
+            Intent intent = mPackageManager.getLaunchIntentForPackage(placeHolder);
+            if (intent != null) {
+                placeHolders.add(intent.getComponent());
+            }
         }
-    }
+        mPlaceHolderComponents = Collections.unmodifiableList(placeHolders);
+        publishSnapshot();
 
-    private boolean decayHasSpotFree(Set<String> toDecay, SharedPreferences.Editor edit) {
-        boolean spotFree = false;
-        Set<String> toRemove = new HashSet<>();
-        for (String prediction : toDecay) {
-            int launchCount = getLaunchCount(prediction);
-            if (launchCount > 0) {
-                edit.putInt(PREDICTION_PREFIX + prediction, --launchCount);
-            } else if (!spotFree) {
-                edit.remove(PREDICTION_PREFIX + prediction);
-                toRemove.add(prediction);
-                spotFree = true;
+        new MainThreadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mOnModelLoadedCallback != null) {
+                    mOnModelLoadedCallback.run();
+                }
             }
+        });
+    }
+
+    /**
+     * Moves the launch counts stored in the shared preferences to the model.
+     */
+    private void importLegacyPredictions() {
+        Set<String> predictionSet = mPrefs.getStringSet(PREDICTION_SET, EMPTY_SET);
+        if (predictionSet.isEmpty()) {
+            return;
         }
-        for (String prediction : toRemove) {
-            toDecay.remove(prediction);
+        long time = System.currentTimeMillis();
+        SharedPreferences.Editor edit = mPrefs.edit();
+        for (String prediction : predictionSet) {
+            int count = mPrefs.getInt(PREDICTION_PREFIX + prediction, 0);
+            mModel.importLaunches(prediction, time, (double) count / LEGACY_BOOST_ON_OPEN + 1);
+            edit.remove(PREDICTION_PREFIX + prediction);
         }
-        return spotFree;
+        edit.remove(PREDICTION_SET).apply();
+        scheduleSave();
     }
 
     /**
-     * Zero-based launch count of a shortcut
-     * @param component serialized component
-     * @return the number of launches, at least zero
+     * Removes the apps of a package which is uninstalled while running.
      */
-    private int getLaunchCount(String component) {
-        return mPrefs.getInt(PREDICTION_PREFIX + component, 0);
+    private void removePackage(final String packageName) {
+        List<String> removed = mModel.getComponents(new AppPredictionStore.PackageFilter() {
+            @Override
+            public boolean matches(String componentPackage) {
+                return componentPackage.equals(packageName);
+            }
+        });
+        if (!removed.isEmpty()) {
+            mModel.removeAll(removed);
+            publishSnapshot();
+            scheduleSave();
+        }
     }
 
+    private final OnAppsChangedCallbackCompat mAppsChangedCallback =
+            new OnAppsChangedCallbackCompat() {
+        @Override
+        public void onPackageRemoved(final String packageName, UserHandle user) {
+            // The predictions are only made for the apps of the current user.
+            if (!Process.myUserHandle().equals(user)) {
+                return;
+            }
+            mWorkerHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    removePackage(packageName);
+                }
+            });
+        }
+
+        @Override
+        public void onPackageAdded(String packageName, UserHandle user) { }
+
+        @Override
+        public void onPackageChanged(String packageName, UserHandle user) { }
+
+        @Override
+        public void onPackagesAvailable(String[] packageNames, UserHandle user,
+                boolean replacing) { }
+
+        @Override
+        public void onPackagesUnavailable(String[] packageNames, UserHandle user,
+                boolean replacing) { }
+
+        @Override
+        public void onPackagesSuspended(String[] packageNames, UserHandle user) { }
+
+        @Override
+        public void onPackagesUnsuspended(String[] packageNames, UserHandle user) { }
+
+        @Override
+        public void onShortcutsChanged(String packageName, List<ShortcutInfoCompat> shortcuts,
+                UserHandle user) { }
+    };
+
+    /**
+     * Publishes a copy of the model for the predictions. Called on the worker thread after each
+     * change of the model.
+     */
+    private void publishSnapshot() {
+        mSnapshot = mModel.copy();
+    }
+
+    private boolean isPackageInstalled(String packageName) {
+        try {
+            mPackageManager.getPackageInfo(packageName, 0);
+            return true;
+        } catch (PackageManager.NameNotFoundException e) {
+            return false;
+        }
+    }
+
+    private void scheduleSave() {
+        mWorkerHandler.removeCallbacks(mSaveRunnable);
+        mWorkerHandler.postDelayed(mSaveRunnable, SAVE_DELAY);
+    }
+
+    private final Runnable mSaveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            FileOutputStream fos = null;
+            try {
+                fos = mPredictionFile.startWrite();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+                mModel.writeTo(out);
+                out.flush();
+                mPredictionFile.finishWrite(fos);
+            } catch (IOException e) {
+                Log.e("Predictor", "Unable to write predictions", e);
+                if (fos != null) {
+                    mPredictionFile.failWrite(fos);
+                }
+            }
+        }
+    };
+
     private boolean recursiveIsDrawer(View v) {
         if (v != null) {
             ViewParent parent = v.getParent();
@@ -183,15 +369,16 @@ public class CustomAppPredictor extends UserEventDispatcher implements SharedPre
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
         if (key.equals(SettingsActivity.SHOW_PREDICTIONS_PREF) && !isPredictorEnabled()) {
-            Set<String> predictionSet = getStringSetCopy();
-
-            SharedPreferences.Editor edit = mPrefs.edit();
-            for (String prediction : predictionSet) {
-                Log.i("Predictor", "Clearing " + prediction + " at " + getLaunchCount(prediction));
-                edit.remove(PREDICTION_PREFIX + prediction);
-            }
-            edit.putStringSet(PREDICTION_SET, EMPTY_SET);
-            edit.apply();
+            mWorkerHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.i("Predictor", "Clearing predictions");
+                    mModel.clear();
+                    publishSnapshot();
+                    mLaunchLog.clear();
+                    scheduleSave();
+                }
+            });
         }
     }
 
@@ -199,28 +386,4 @@ public class CustomAppPredictor extends UserEventDispatcher implements SharedPre
         int index = str.indexOf('/');
         return new ComponentKeyMapper<>(new ComponentKey(new ComponentName(str.substring(0, index), str.substring(index + 1)), Process.myUserHandle()));
     }
-
-    private void clearNonExistentPackages() {
-        Set<String> originalSet = mPrefs.getStringSet(PREDICTION_SET, EMPTY_SET);
-        Set<String> predictionSet = new HashSet<>(originalSet);
-
-        SharedPreferences.Editor edit = mPrefs.edit();
-        for (String prediction : originalSet) {
-            try {
-                mPackageManager.getPackageInfo(prediction.substring(0, prediction.indexOf('/')), 0);
-            } catch (PackageManager.NameNotFoundException e) {
-                predictionSet.remove(prediction);
-                edit.remove(PREDICTION_PREFIX + prediction);
-            }
-        }
-
-        edit.putStringSet(PREDICTION_SET, predictionSet);
-        edit.apply();
-    }
-
-    private Set<String> getStringSetCopy() {
-        Set<String> set = new HashSet<>();
-        set.addAll(mPrefs.getStringSet(PREDICTION_SET, EMPTY_SET));
-        return set;
-    }
 }
@@ -92,7 +92,7 @@ public class CustomBottomSheet extends WidgetsBottomSheet {
             CustomDrawableFactory factory = (CustomDrawableFactory) DrawableFactory.get(context);
 
             ComponentName componentName = itemInfo.getTargetComponent();
-            boolean enable = factory.packCalendars.containsKey(componentName) || factory.packComponents.containsKey(componentName);
+            boolean enable = factory.getPackIndex().contains(componentName);
             mPrefPack.setEnabled(enable);
             mPrefPack.setChecked(enable && CustomIconProvider.isEnabledForApp(context, mComponentName));
             if (enable) {
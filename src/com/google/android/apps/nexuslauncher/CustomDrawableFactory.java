@@ -8,9 +8,12 @@ import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
 import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
 
 import com.android.launcher3.FastBitmapDrawable;
 import com.android.launcher3.ItemInfo;
+import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherModel;
 import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.Utilities;
@@ -19,22 +22,21 @@ import com.google.android.apps.nexuslauncher.clock.CustomClock;
 import com.google.android.apps.nexuslauncher.clock.DynamicClock;
 import com.google.android.apps.nexuslauncher.utils.ActionIntentFilter;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.Semaphore;
 
 public class CustomDrawableFactory extends DynamicDrawableFactory implements Runnable {
+    private static final String TAG = "CustomDrawableFactory";
+
     private final Context mContext;
     private final BroadcastReceiver mAutoUpdatePack;
     private boolean mRegistered = false;
 
     String iconPack;
-    final Map<ComponentName, Integer> packComponents = new HashMap<>();
-    final Map<ComponentName, String> packCalendars = new HashMap<>();
-    final Map<Integer, CustomClock.Metadata> packClocks = new HashMap<>();
+    private volatile IconPackIndex mPackIndex = IconPackIndex.EMPTY;
 
     private CustomClock mCustomClockDrawer;
     private Semaphore waiter = new Semaphore(0);
+    private final long mCreateTime = SystemClock.uptimeMillis();
 
     public CustomDrawableFactory(Context context) {
         super(context);
@@ -76,12 +78,9 @@ public class CustomDrawableFactory extends DynamicDrawableFactory implements Run
             mRegistered = true;
         }
 
-        packComponents.clear();
-        packCalendars.clear();
-        packClocks.clear();
-        if (CustomIconUtils.isPackProvider(mContext, iconPack)) {
-            CustomIconUtils.parsePack(this, mContext.getPackageManager(), iconPack);
-        }
+        mPackIndex = CustomIconUtils.isPackProvider(mContext, iconPack)
+                ? CustomIconUtils.loadPack(mContext, iconPack)
+                : IconPackIndex.EMPTY;
     }
 
     synchronized void ensureInitialLoadComplete() {
@@ -89,22 +88,35 @@ public class CustomDrawableFactory extends DynamicDrawableFactory implements Run
             waiter.acquireUninterruptibly();
             waiter.release();
             waiter = null;
+            if (LauncherAppState.PROFILE_STARTUP) {
+                Log.d(TAG, "Icon pack available " + (SystemClock.uptimeMillis() - mCreateTime)
+                        + "ms after creation");
+            }
         }
     }
 
+    /**
+     * Returns the index of the current icon pack, which is replaced as a whole on reload.
+     */
+    IconPackIndex getPackIndex() {
+        return mPackIndex;
+    }
+
     @Override
     public FastBitmapDrawable newIcon(Bitmap icon, ItemInfo info) {
         ensureInitialLoadComplete();
         ComponentName componentName = info.getTargetComponent();
-        if (packComponents.containsKey(info.getTargetComponent()) &&
+        IconPackIndex index = mPackIndex;
+        int drawableId = componentName == null ? 0 : index.getDrawableId(componentName);
+        if (drawableId != 0 &&
                 CustomIconProvider.isEnabledForApp(mContext, componentName.toString())) {
             if (Utilities.ATLEAST_OREO &&
                     info.itemType == LauncherSettings.Favorites.ITEM_TYPE_APPLICATION &&
                     info.user.equals(Process.myUserHandle())) {
-                int drawableId = packComponents.get(componentName);
-                if (packClocks.containsKey(drawableId)) {
+                CustomClock.Metadata clock = index.getClock(drawableId);
+                if (clock != null) {
                     Drawable drawable = mContext.getPackageManager().getDrawable(iconPack, drawableId, null);
-                    return mCustomClockDrawer.drawIcon(icon, drawable, packClocks.get(drawableId));
+                    return mCustomClockDrawer.drawIcon(icon, drawable, clock);
                 }
             }
             return new FastBitmapDrawable(icon);
@@ -6,11 +6,10 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.LauncherActivityInfo;
 import android.content.pm.PackageManager;
-import android.content.res.AssetManager;
 import android.content.res.Resources;
-import android.content.res.XmlResourceParser;
 import android.graphics.drawable.AdaptiveIconDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
@@ -25,19 +24,18 @@ import com.android.launcher3.graphics.DrawableFactory;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.google.android.apps.nexuslauncher.clock.CustomClock;
 
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserException;
-
-import java.io.IOException;
+import java.io.File;
 import java.util.Calendar;
 import java.util.HashSet;
 import java.util.Set;
 
 public class CustomIconProvider extends DynamicIconProvider {
     public final static String DISABLE_PACK_PREF = "all_apps_disable_pack";
+    private final static String ROUND_ICONS_FILE = "round_icons";
 
     private final Context mContext;
     private CustomDrawableFactory mFactory;
+    private final RoundIconCache mRoundIcons;
     private final BroadcastReceiver mDateChangeReceiver;
     private int mDateOfMonth;
 
@@ -45,6 +43,8 @@ public class CustomIconProvider extends DynamicIconProvider {
         super(context);
         mContext = context;
         mFactory = (CustomDrawableFactory) DrawableFactory.get(context);
+        mRoundIcons = new RoundIconCache(context, new File(context.getCacheDir(), ROUND_ICONS_FILE));
+        mRoundIcons.preloadAsync();
 
         mDateChangeReceiver = new BroadcastReceiver() {
             @Override
@@ -61,7 +61,7 @@ public class CustomIconProvider extends DynamicIconProvider {
                 DeepShortcutManager shortcutManager = DeepShortcutManager.getInstance(context);
                 for (UserHandle user : UserManagerCompat.getInstance(context).getUserProfiles()) {
                     Set<String> packages = new HashSet<>();
-                    for (ComponentName componentName : mFactory.packCalendars.keySet()) {
+                    for (ComponentName componentName : mFactory.getPackIndex().getCalendarComponents()) {
                         String pkg = componentName.getPackageName();
                         if (!apps.getActivityList(pkg, user).isEmpty()) {
                             packages.add(pkg);
@@ -91,44 +91,46 @@ public class CustomIconProvider extends DynamicIconProvider {
         Drawable drawable = null;
         if (isEnabledForApp(mContext, component.toString())) {
             PackageManager pm = mContext.getPackageManager();
-            if (mFactory.packCalendars.containsKey(component)) {
+            IconPackIndex index = mFactory.getPackIndex();
+            String calendarPrefix = index.getCalendarPrefix(component);
+            if (calendarPrefix != null) {
                 try {
                     Resources res = pm.getResourcesForApplication(mFactory.iconPack);
-                    int drawableId = res.getIdentifier(mFactory.packCalendars.get(component)
+                    int drawableId = res.getIdentifier(calendarPrefix
                             + Calendar.getInstance().get(Calendar.DAY_OF_MONTH), "drawable", mFactory.iconPack);
                     if (drawableId != 0) {
                         drawable = pm.getDrawable(mFactory.iconPack, drawableId, null);
                     }
                 } catch (PackageManager.NameNotFoundException ignored) {
                 }
-            } else if (mFactory.packComponents.containsKey(component)) {
-                int drawableId = mFactory.packComponents.get(component);
-                drawable = pm.getDrawable(mFactory.iconPack, mFactory.packComponents.get(component), null);
-                if (Utilities.ATLEAST_OREO && mFactory.packClocks.containsKey(drawableId)) {
-                    drawable = CustomClock.getClock(mContext, drawable, mFactory.packClocks.get(drawableId), iconDpi);
+            } else {
+                int drawableId = index.getDrawableId(component);
+                if (drawableId != 0) {
+                    drawable = pm.getDrawable(mFactory.iconPack, drawableId, null);
+                    CustomClock.Metadata clock = Utilities.ATLEAST_OREO ? index.getClock(drawableId) : null;
+                    if (clock != null) {
+                        drawable = CustomClock.getClock(mContext, drawable, clock, iconDpi);
+                    }
                 }
             }
         }
 
         if (drawable == null && !"com.google.android.calendar".equals(packageName)) {
-            drawable = getRoundIcon(packageName, iconDpi);
+            drawable = getRoundIcon(launcherActivityInfo.getApplicationInfo(),
+                    launcherActivityInfo.getUser(), iconDpi);
         }
         return drawable == null ? super.getIcon(launcherActivityInfo, iconDpi, flattenDrawable) : drawable;
     }
 
-    private Drawable getRoundIcon(String packageName, int iconDpi) {
-        try {
-            Resources resourcesForApplication = mContext.getPackageManager().getResourcesForApplication(packageName);
-            AssetManager assets = resourcesForApplication.getAssets();
-            XmlResourceParser parseXml = assets.openXmlResourceParser("AndroidManifest.xml");
-            while (parseXml.next() != XmlPullParser.END_DOCUMENT)
-                if (parseXml.getEventType() == XmlPullParser.START_TAG && parseXml.getName().equals("application"))
-                    for (int i = 0; i < parseXml.getAttributeCount(); i++)
-                        if (parseXml.getAttributeName(i).equals("roundIcon"))
-                            return resourcesForApplication.getDrawableForDensity(Integer.parseInt(parseXml.getAttributeValue(i).substring(1)), iconDpi);
-            parseXml.close();
-        } catch (PackageManager.NameNotFoundException | Resources.NotFoundException | IOException | XmlPullParserException ex) {
-            ex.printStackTrace();
+    private Drawable getRoundIcon(ApplicationInfo appInfo, UserHandle user, int iconDpi) {
+        int roundIconId = mRoundIcons.getRoundIconId(appInfo, user);
+        if (roundIconId != 0) {
+            try {
+                return mContext.getPackageManager().getResourcesForApplication(appInfo)
+                        .getDrawableForDensity(roundIconId, iconDpi);
+            } catch (PackageManager.NameNotFoundException | Resources.NotFoundException ex) {
+                ex.printStackTrace();
+            }
         }
         return null;
     }
@@ -152,7 +154,7 @@ public class CustomIconProvider extends DynamicIconProvider {
         setDisabledApps(context, disabledApps);
     }
 
-    private static Set<String> getDisabledApps(Context context) {
+    static Set<String> getDisabledApps(Context context) {
         return new HashSet<>(Utilities.getPrefs(context).getStringSet(DISABLE_PACK_PREF, new HashSet<String>()));
     }
 
@@ -5,12 +5,17 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.LauncherActivityInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.res.Resources;
 import android.content.res.XmlResourceParser;
+import android.os.SystemClock;
 import android.os.UserHandle;
+import android.text.TextUtils;
+import android.util.Log;
 
+import com.android.launcher3.IconCache;
 import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherModel;
 import com.android.launcher3.Utilities;
@@ -21,18 +26,24 @@ import com.android.launcher3.graphics.DrawableFactory;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.shortcuts.ShortcutInfoCompat;
 import com.android.launcher3.util.LooperExecutor;
-import com.google.android.apps.nexuslauncher.clock.CustomClock;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class CustomIconUtils {
+    private static final String TAG = "CustomIconUtils";
+    // Directory of the cache dir holding the compiled icon pack indexes.
+    private static final String ICON_PACK_INDEX_DIR = "icon_pack_index";
+
     private final static String[] ICON_INTENTS = new String[] {
             "com.fede.launcher.THEME_ICONPACK",
             "com.anddoes.launcher.THEME",
@@ -76,40 +87,97 @@ public class CustomIconUtils {
         edit.apply();
     }
 
+    /**
+     * Applies the current icon pack, only re-rendering the icons whose mapping changed.
+     */
     static void applyIconPackAsync(final Context context) {
         new LooperExecutor(LauncherModel.getWorkerLooper()).execute(new Runnable() {
             @Override
             public void run() {
                 UserManagerCompat userManagerCompat = UserManagerCompat.getInstance(context);
                 LauncherModel model = LauncherAppState.getInstance(context).getModel();
+                CustomDrawableFactory factory = (CustomDrawableFactory) DrawableFactory.get(context);
 
+                boolean hadPack = !factory.iconPack.isEmpty();
                 boolean noPack = CustomIconUtils.getCurrentPack(context).isEmpty();
                 Utilities.getPrefs(context).edit().putBoolean(DefaultAppSearchAlgorithm.SEARCH_HIDDEN_APPS, !noPack).apply();
                 if (noPack) {
                     CustomAppFilter.resetAppFilter(context);
                 }
-                for (UserHandle user : userManagerCompat.getUserProfiles()) {
-                    model.onPackagesReload(user);
+                if (noPack == hadPack) {
+                    // The app filter only depends on whether a pack is applied.
+                    for (UserHandle user : userManagerCompat.getUserProfiles()) {
+                        model.onPackagesReload(user);
+                    }
                 }
 
+                IconPackIndex oldIndex = factory.getPackIndex();
+                Set<String> disabledApps = CustomIconProvider.getDisabledApps(context);
                 CustomIconProvider.clearDisabledApps(context);
-                ((CustomDrawableFactory) DrawableFactory.get(context)).reloadIconPack();
+                factory.reloadIconPack();
+                IconPackIndex newIndex = factory.getPackIndex();
 
+                IconCache iconCache = LauncherAppState.getInstance(context).getIconCache();
                 DeepShortcutManager shortcutManager = DeepShortcutManager.getInstance(context);
                 LauncherAppsCompat launcherApps = LauncherAppsCompat.getInstance(context);
+                int updated = 0;
+                int skipped = 0;
                 for (UserHandle user : userManagerCompat.getUserProfiles()) {
-                    HashSet<String> pkgsSet = new HashSet<>();
+                    HashMap<String, Set<ComponentName>> changes = new HashMap<>();
                     for (LauncherActivityInfo info : launcherApps.getActivityList(null, user)) {
-                        pkgsSet.add(info.getComponentName().getPackageName());
+                        ComponentName component = info.getComponentName();
+                        if (isIconChanged(oldIndex, newIndex, disabledApps, component)) {
+                            Set<ComponentName> components = changes.get(component.getPackageName());
+                            if (components == null) {
+                                components = new HashSet<>();
+                                changes.put(component.getPackageName(), components);
+                            }
+                            components.add(component);
+                            updated++;
+                        } else {
+                            skipped++;
+                        }
+                    }
+                    if (changes.isEmpty()) {
+                        continue;
                     }
-                    for (String pkg : pkgsSet) {
-                        reloadIcon(shortcutManager, model, user, pkg);
+
+                    for (Map.Entry<String, Set<ComponentName>> entry : changes.entrySet()) {
+                        iconCache.updateIconsForComponents(entry.getKey(), entry.getValue(), user);
+                        List<ShortcutInfoCompat> shortcuts =
+                                shortcutManager.queryForPinnedShortcuts(entry.getKey(), user);
+                        if (!shortcuts.isEmpty()) {
+                            model.updatePinnedShortcuts(entry.getKey(), shortcuts, user);
+                        }
                     }
+                    // Binds all the updated apps and shortcuts of the user at once.
+                    model.onPackageIconsUpdated(new HashSet<>(changes.keySet()), user);
                 }
+                Log.d(TAG, "Applied icon pack, re-rendered " + updated + " icons, skipped " + skipped);
             }
         });
     }
 
+    /**
+     * Returns whether the icon of {@param component} changes from {@param oldIndex} to
+     * {@param newIndex}, given the apps for which the pack was disabled.
+     */
+    private static boolean isIconChanged(IconPackIndex oldIndex, IconPackIndex newIndex,
+            Set<String> disabledApps, ComponentName component) {
+        boolean disabled = disabledApps.contains(component.toString());
+        int oldId = disabled ? 0 : oldIndex.getDrawableId(component);
+        String oldCalendar = disabled ? null : oldIndex.getCalendarPrefix(component);
+        int newId = newIndex.getDrawableId(component);
+        String newCalendar = newIndex.getCalendarPrefix(component);
+
+        if (oldId == 0 && oldCalendar == null && newId == 0 && newCalendar == null) {
+            // Not themed by either pack.
+            return false;
+        }
+        return !oldIndex.isSameVersion(newIndex) || oldId != newId
+                || !TextUtils.equals(oldCalendar, newCalendar);
+    }
+
     static void reloadIcons(final Context context, String pkg) {
         LauncherModel model = LauncherAppState.getInstance(context).getModel();
         DeepShortcutManager shortcutManager = DeepShortcutManager.getInstance(context);
@@ -130,7 +198,76 @@ public class CustomIconUtils {
         }
     }
 
-    static void parsePack(CustomDrawableFactory factory, PackageManager pm, String iconPack) {
+    /**
+     * Returns the index of {@param iconPack}, compiling it from the appfilter.xml of the pack
+     * unless an index was already compiled for the installed version of the pack.
+     */
+    static IconPackIndex loadPack(Context context, String iconPack) {
+        PackageManager pm = context.getPackageManager();
+        PackageInfo info;
+        try {
+            info = pm.getPackageInfo(iconPack, 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            return IconPackIndex.EMPTY;
+        }
+
+        long start = SystemClock.uptimeMillis();
+        File dir = new File(context.getCacheDir(), ICON_PACK_INDEX_DIR);
+        File file = new File(dir, iconPack);
+        IconPackIndex index = IconPackIndex.load(file, iconPack, info.versionCode,
+                info.lastUpdateTime);
+        if (index != null) {
+            if (LauncherAppState.PROFILE_STARTUP) {
+                Log.d(TAG, "Mapped icon pack index of " + index.getComponentCount()
+                        + " components in " + (SystemClock.uptimeMillis() - start) + "ms");
+            }
+            return index;
+        }
+
+        IconPackIndex.Builder builder = new IconPackIndex.Builder(iconPack, info.versionCode,
+                info.lastUpdateTime);
+        parsePack(builder, pm, iconPack);
+        deleteStaleIndexes(pm, dir);
+        dir.mkdirs();
+        try {
+            index = builder.build(file);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to save icon pack index", e);
+            try {
+                index = IconPackIndex.read(ByteBuffer.wrap(builder.toByteArray()), iconPack,
+                        info.versionCode, info.lastUpdateTime);
+            } catch (IOException e2) {
+                Log.e(TAG, "Unable to compile icon pack index", e2);
+            }
+        }
+        if (index == null) {
+            return IconPackIndex.EMPTY;
+        }
+        if (LauncherAppState.PROFILE_STARTUP) {
+            Log.d(TAG, "Compiled icon pack index of " + index.getComponentCount()
+                    + " components in " + (SystemClock.uptimeMillis() - start) + "ms");
+        }
+        return index;
+    }
+
+    /**
+     * Deletes the indexes of the icon packs which are no longer installed.
+     */
+    private static void deleteStaleIndexes(PackageManager pm, File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            try {
+                pm.getPackageInfo(file.getName(), 0);
+            } catch (PackageManager.NameNotFoundException e) {
+                file.delete();
+            }
+        }
+    }
+
+    private static void parsePack(IconPackIndex.Builder builder, PackageManager pm, String iconPack) {
         try {
             Resources res = pm.getResourcesForApplication(iconPack);
             int resId = res.getIdentifier("appfilter", "xml", iconPack);
@@ -153,11 +290,11 @@ public class CustomIconUtils {
                                 ComponentName parsed = ComponentName.unflattenFromString(componentName);
                                 if (parsed != null) {
                                     if (isCalendar) {
-                                        factory.packCalendars.put(parsed, drawableName);
+                                        builder.addCalendar(parsed, drawableName);
                                     } else {
                                         int drawableId = res.getIdentifier(drawableName, "drawable", iconPack);
                                         if (drawableId != 0) {
-                                            factory.packComponents.put(parsed, drawableId);
+                                            builder.addComponent(parsed, drawableId);
                                         }
                                     }
                                 }
@@ -167,13 +304,13 @@ public class CustomIconUtils {
                             if (drawableName != null) {
                                 int drawableId = res.getIdentifier(drawableName, "drawable", iconPack);
                                 if (drawableId != 0) {
-                                    factory.packClocks.put(drawableId, new CustomClock.Metadata(
+                                    builder.addClock(drawableId,
                                             parseXml.getAttributeIntValue(null, "hourLayerIndex", -1),
                                             parseXml.getAttributeIntValue(null, "minuteLayerIndex", -1),
                                             parseXml.getAttributeIntValue(null, "secondLayerIndex", -1),
                                             parseXml.getAttributeIntValue(null, "defaultHour", 0),
                                             parseXml.getAttributeIntValue(null, "defaultMinute", 0),
-                                            parseXml.getAttributeIntValue(null, "defaultSecond", 0)));
+                                            parseXml.getAttributeIntValue(null, "defaultSecond", 0));
                                 }
                             }
                         }
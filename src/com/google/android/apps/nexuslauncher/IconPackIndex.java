@@ -0,0 +1,442 @@
+package com.google.android.apps.nexuslauncher;
+
+import android.content.ComponentName;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.google.android.apps.nexuslauncher.clock.CustomClock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled mapping of an icon pack's appfilter.xml, with the drawable ids already resolved.
+ *
+ * The index is written to a file which is memory mapped on the next starts and searched in place,
+ * so that neither the xml parse nor the resource lookups are repeated, and no map of the
+ * thousands of entries of a pack is built. The file is tied to the version code and the update
+ * time of the pack, as resource ids are only stable for a given apk.
+ *
+ * File format, all strings being a short length followed by utf-8 bytes:
+ *   header:     magic, version, pack, version code, update time, table sizes
+ *   components: (hash, component offset, drawable id), sorted by hash
+ *   calendars:  (hash, component offset, prefix offset), sorted by hash
+ *   clocks:     (drawable id, 6 clock metadata values), sorted by drawable id
+ *   strings:    components and calendar prefixes, at absolute offsets
+ */
+public class IconPackIndex {
+
+    private static final String TAG = "IconPackIndex";
+
+    private static final int MAGIC = 0x49504b31;  // IPK1
+    private static final int VERSION = 1;
+
+    private static final int ENTRY_SIZE = 12;
+    private static final int CLOCK_VALUES = 6;
+    private static final int CLOCK_SIZE = 4 * (1 + CLOCK_VALUES);
+
+    public static final IconPackIndex EMPTY =
+            new IconPackIndex(ByteBuffer.allocate(0), "", 0, 0, 0, 0, 0, 0);
+
+    private final String mPack;
+    private final long mVersionCode;
+    private final long mLastUpdateTime;
+
+    private final ByteBuffer mBuffer;
+    private final int mComponentCount;
+    private final int mCalendarCount;
+    private final int mClockCount;
+
+    private final int mComponentsStart;
+    private final int mCalendarsStart;
+    private final int mClocksStart;
+
+    private IconPackIndex(ByteBuffer buffer, String pack, long versionCode, long lastUpdateTime,
+            int tablesStart, int componentCount, int calendarCount, int clockCount) {
+        mPack = pack;
+        mVersionCode = versionCode;
+        mLastUpdateTime = lastUpdateTime;
+        mBuffer = buffer;
+        mComponentCount = componentCount;
+        mCalendarCount = calendarCount;
+        mClockCount = clockCount;
+
+        mComponentsStart = tablesStart;
+        mCalendarsStart = mComponentsStart + componentCount * ENTRY_SIZE;
+        mClocksStart = mCalendarsStart + calendarCount * ENTRY_SIZE;
+    }
+
+    /**
+     * Maps the index stored in {@param file}, or returns null if it is missing, corrupt, or was
+     * compiled for another version of the pack.
+     */
+    public static IconPackIndex load(File file, String pack, long versionCode,
+            long lastUpdateTime) {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            // The mapping stays valid once the file is closed.
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    pack, versionCode, lastUpdateTime);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to map icon pack index", e);
+            return null;
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the index stored in {@param buffer}, or returns null if it is invalid or does not
+     * match the pack.
+     */
+    public static IconPackIndex read(ByteBuffer buffer, String pack, long versionCode,
+            long lastUpdateTime) {
+        try {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            int offset = 8;
+            if (!pack.equals(readString(buffer, offset))) {
+                return null;
+            }
+            offset += 2 + (buffer.getShort(offset) & 0xFFFF);
+            if (buffer.getLong(offset) != versionCode
+                    || buffer.getLong(offset + 8) != lastUpdateTime) {
+                return null;
+            }
+            offset += 16;
+            int componentCount = buffer.getInt(offset);
+            int calendarCount = buffer.getInt(offset + 4);
+            int clockCount = buffer.getInt(offset + 8);
+            offset += 12;
+
+            if (componentCount < 0 || calendarCount < 0 || clockCount < 0
+                    || offset + (long) (componentCount + calendarCount) * ENTRY_SIZE
+                    + (long) clockCount * CLOCK_SIZE > buffer.limit()) {
+                Log.e(TAG, "Invalid icon pack index");
+                return null;
+            }
+            return new IconPackIndex(buffer, pack, versionCode, lastUpdateTime, offset,
+                    componentCount, calendarCount, clockCount);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            Log.e(TAG, "Invalid icon pack index", e);
+            return null;
+        }
+    }
+
+    public int getComponentCount() {
+        return mComponentCount;
+    }
+
+    /**
+     * Returns whether both indexes were compiled from the same apk, in which case equal drawable
+     * ids refer to the same drawables.
+     */
+    public boolean isSameVersion(IconPackIndex other) {
+        return mPack.equals(other.mPack) && mVersionCode == other.mVersionCode
+                && mLastUpdateTime == other.mLastUpdateTime;
+    }
+
+    public boolean contains(ComponentName component) {
+        byte[] key = getKey(component);
+        return find(mComponentsStart, mComponentCount, key) >= 0
+                || find(mCalendarsStart, mCalendarCount, key) >= 0;
+    }
+
+    /**
+     * Returns the drawable id of the icon of {@param component}, or 0 if it is not themed.
+     */
+    public int getDrawableId(ComponentName component) {
+        int entry = find(mComponentsStart, mComponentCount, getKey(component));
+        return entry < 0 ? 0 : mBuffer.getInt(entry + 8);
+    }
+
+    /**
+     * Returns the drawable name prefix of the calendar icons of {@param component}, or null if it
+     * does not have any.
+     */
+    public String getCalendarPrefix(ComponentName component) {
+        int entry = find(mCalendarsStart, mCalendarCount, getKey(component));
+        return entry < 0 ? null : readString(mBuffer, mBuffer.getInt(entry + 8));
+    }
+
+    public List<ComponentName> getCalendarComponents() {
+        ArrayList<ComponentName> result = new ArrayList<>(mCalendarCount);
+        for (int i = 0; i < mCalendarCount; i++) {
+            int entry = mCalendarsStart + i * ENTRY_SIZE;
+            ComponentName component = ComponentName.unflattenFromString(
+                    readString(mBuffer, mBuffer.getInt(entry + 4)));
+            if (component != null) {
+                result.add(component);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the metadata of the dynamic clock drawn by {@param drawableId}, or null if it is
+     * not a clock.
+     */
+    public CustomClock.Metadata getClock(int drawableId) {
+        int low = 0;
+        int high = mClockCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = mClocksStart + mid * CLOCK_SIZE;
+            int id = mBuffer.getInt(entry);
+            if (id < drawableId) {
+                low = mid + 1;
+            } else if (id > drawableId) {
+                high = mid - 1;
+            } else {
+                return new CustomClock.Metadata(
+                        mBuffer.getInt(entry + 4), mBuffer.getInt(entry + 8),
+                        mBuffer.getInt(entry + 12), mBuffer.getInt(entry + 16),
+                        mBuffer.getInt(entry + 20), mBuffer.getInt(entry + 24));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the offset of the entry of {@param key} in the given table, or -1.
+     */
+    private int find(int start, int count, byte[] key) {
+        int hash = hash(key);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midHash = mBuffer.getInt(start + mid * ENTRY_SIZE);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                // Go back to the first entry of the hash, then compare the colliding keys.
+                while (mid > 0 && mBuffer.getInt(start + (mid - 1) * ENTRY_SIZE) == hash) {
+                    mid--;
+                }
+                for (; mid < count; mid++) {
+                    int entry = start + mid * ENTRY_SIZE;
+                    if (mBuffer.getInt(entry) != hash) {
+                        break;
+                    }
+                    if (stringEquals(mBuffer, mBuffer.getInt(entry + 4), key)) {
+                        return entry;
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] getKey(ComponentName component) {
+        return component.flattenToString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(byte[] key) {
+        int hash = 0;
+        for (byte b : key) {
+            hash = 31 * hash + b;
+        }
+        return hash;
+    }
+
+    private static boolean stringEquals(ByteBuffer buffer, int offset, byte[] key) {
+        if ((buffer.getShort(offset) & 0xFFFF) != key.length) {
+            return false;
+        }
+        offset += 2;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readString(ByteBuffer buffer, int offset) {
+        byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects the entries of an icon pack, to be compiled into an index.
+     */
+    public static class Builder {
+        private final String mPack;
+        private final long mVersionCode;
+        private final long mLastUpdateTime;
+
+        // Later entries replace earlier ones, like the appfilter.xml of launchers usually do.
+        private final HashMap<String, Integer> mComponents = new HashMap<>();
+        private final HashMap<String, String> mCalendars = new HashMap<>();
+        private final HashMap<Integer, int[]> mClocks = new HashMap<>();
+
+        public Builder(String pack, long versionCode, long lastUpdateTime) {
+            mPack = pack;
+            mVersionCode = versionCode;
+            mLastUpdateTime = lastUpdateTime;
+        }
+
+        public void addComponent(ComponentName component, int drawableId) {
+            mComponents.put(component.flattenToString(), drawableId);
+        }
+
+        public void addCalendar(ComponentName component, String prefix) {
+            mCalendars.put(component.flattenToString(), prefix);
+        }
+
+        public void addClock(int drawableId, int hourIndex, int minuteIndex, int secondIndex,
+                int defaultHour, int defaultMinute, int defaultSecond) {
+            mClocks.put(drawableId, new int[] {hourIndex, minuteIndex, secondIndex,
+                    defaultHour, defaultMinute, defaultSecond});
+        }
+
+        public byte[] toByteArray() throws IOException {
+            byte[] pack = mPack.getBytes(StandardCharsets.UTF_8);
+            int tablesStart = 8 + 2 + pack.length + 16 + 12;
+            int stringsStart = tablesStart + (mComponents.size() + mCalendars.size()) * ENTRY_SIZE
+                    + mClocks.size() * CLOCK_SIZE;
+            StringPool strings = new StringPool(stringsStart);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, pack);
+            out.writeLong(mVersionCode);
+            out.writeLong(mLastUpdateTime);
+            out.writeInt(mComponents.size());
+            out.writeInt(mCalendars.size());
+            out.writeInt(mClocks.size());
+
+            for (Map.Entry<byte[], Integer> entry : sortByHash(mComponents)) {
+                out.writeInt(hash(entry.getKey()));
+                out.writeInt(strings.add(entry.getKey()));
+                out.writeInt(entry.getValue());
+            }
+            for (Map.Entry<byte[], String> entry : sortByHash(mCalendars)) {
+                out.writeInt(hash(entry.getKey()));
+                out.writeInt(strings.add(entry.getKey()));
+                out.writeInt(strings.add(entry.getValue().getBytes(StandardCharsets.UTF_8)));
+            }
+            ArrayList<Integer> clockIds = new ArrayList<>(mClocks.keySet());
+            Collections.sort(clockIds);
+            for (Integer drawableId : clockIds) {
+                out.writeInt(drawableId);
+                for (int value : mClocks.get(drawableId)) {
+                    out.writeInt(value);
+                }
+            }
+
+            strings.writeTo(out);
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Compiles the index, and saves it to {@param file} so that it can be loaded on the
+         * next starts.
+         */
+        public IconPackIndex build(File file) throws IOException {
+            byte[] data = toByteArray();
+            AtomicFile atomicFile = new AtomicFile(file);
+            FileOutputStream out = null;
+            try {
+                out = atomicFile.startWrite();
+                out.write(data);
+                atomicFile.finishWrite(out);
+            } catch (IOException e) {
+                if (out != null) {
+                    atomicFile.failWrite(out);
+                }
+                throw e;
+            }
+            return read(ByteBuffer.wrap(data), mPack, mVersionCode, mLastUpdateTime);
+        }
+
+        private static <T> List<Map.Entry<byte[], T>> sortByHash(Map<String, T> map) {
+            ArrayList<Map.Entry<byte[], T>> entries = new ArrayList<>(map.size());
+            for (Map.Entry<String, T> entry : map.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(
+                        entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()));
+            }
+            Collections.sort(entries, new Comparator<Map.Entry<byte[], T>>() {
+                @Override
+                public int compare(Map.Entry<byte[], T> a, Map.Entry<byte[], T> b) {
+                    return Integer.compare(hash(a.getKey()), hash(b.getKey()));
+                }
+            });
+            return entries;
+        }
+
+        private static void writeString(DataOutputStream out, byte[] bytes) throws IOException {
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("String too long: " + bytes.length);
+            }
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Strings written after the tables, deduplicated since calendar prefixes are often shared.
+     */
+    private static class StringPool {
+        private final int mStart;
+        private final HashMap<String, Integer> mOffsets = new HashMap<>();
+        private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+        private final DataOutputStream mOut = new DataOutputStream(mBytes);
+
+        StringPool(int start) {
+            mStart = start;
+        }
+
+        int add(byte[] bytes) throws IOException {
+            String key = new String(bytes, StandardCharsets.UTF_8);
+            Integer offset = mOffsets.get(key);
+            if (offset == null) {
+                offset = mStart + mOut.size();
+                Builder.writeString(mOut, bytes);
+                mOffsets.put(key, offset);
+            }
+            return offset;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            mBytes.writeTo(out);
+        }
+    }
+}
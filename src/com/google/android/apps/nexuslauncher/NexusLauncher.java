@@ -20,6 +20,7 @@ import com.android.launcher3.dynamicui.WallpaperColorInfo;
 import com.android.launcher3.graphics.DrawableFactory;
 import com.android.launcher3.util.ComponentKeyMapper;
 import com.android.launcher3.util.Themes;
+import com.google.android.apps.nexuslauncher.clock.ClockTicker;
 import com.google.android.apps.nexuslauncher.search.ItemInfoUpdateReceiver;
 import com.google.android.apps.nexuslauncher.smartspace.SmartspaceView;
 import com.google.android.apps.nexuslauncher.smartspace.SmartspaceController;
@@ -70,6 +71,7 @@ public class NexusLauncher {
 
         public void dump(final String s, final FileDescriptor fileDescriptor, final PrintWriter printWriter, final String[] array) {
             SmartspaceController.get(fB).cX(s, printWriter);
+            ClockTicker.getInstance().dump(s, printWriter);
         }
 
         public void finishBindingItems(final boolean b) {
@@ -120,6 +122,16 @@ public class NexusLauncher {
             onExtractedColorsChanged(instance);
 
             getUpdateReceiver().onCreate();
+
+            // The predictions only contain the place holders until the model is loaded.
+            ((CustomAppPredictor) fB.getUserEventDispatcher()).setOnModelLoadedCallback(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            fB.tryAndUpdatePredictedApps();
+                            getUpdateReceiver().di();
+                        }
+                    });
         }
 
         public void onDestroy() {
@@ -127,6 +139,9 @@ public class NexusLauncher {
             Utilities.getPrefs(fB).unregisterOnSharedPreferenceChangeListener(this);
 
             getUpdateReceiver().onDestroy();
+            CustomAppPredictor predictor = (CustomAppPredictor) fB.getUserEventDispatcher();
+            predictor.setOnModelLoadedCallback(null);
+            predictor.onDestroy();
         }
 
         public void onDetachedFromWindow() {
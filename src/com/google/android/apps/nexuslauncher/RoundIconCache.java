@@ -0,0 +1,334 @@
+package com.google.android.apps.nexuslauncher;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.XmlResourceParser;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.support.annotation.VisibleForTesting;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.LauncherModel;
+import com.android.launcher3.compat.LauncherAppsCompat;
+import com.android.launcher3.compat.UserManagerCompat;
+import com.android.launcher3.util.PackageUserKey;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Persistent cache of the round icon resource ids declared in the manifests of the apps, so that
+ * loading an icon does not parse the binary manifest of its apk.
+ *
+ * Entries are keyed by package and user. They are validated against the version code and update
+ * time of the installed packages once per process on the worker thread, with a single package
+ * manager query, and against the apk path on each lookup, since the path changes whenever a
+ * package is updated while running. Lookups made before the validation parse the manifest
+ * without caching it.
+ *
+ * The entries are kept in a map which is never modified once published, and replaced as a whole
+ * when entries are added, so that lookups do not lock and manifests are parsed outside the lock.
+ *
+ * File format: int version, int entry count, followed by (utf package, long user serial,
+ * utf apk path, int version code, long update time, int resource id) entries.
+ */
+class RoundIconCache {
+
+    private static final String TAG = "RoundIconCache";
+
+    private static final int VERSION = 2;
+    private static final long SAVE_DELAY = 5000;
+
+    private final Context mContext;
+    private final PackageManager mPackageManager;
+    private final AtomicFile mFile;
+    private final Handler mWorkerHandler;
+
+    private final Object mLock = new Object();
+    // Never modified once published, replaced under mLock.
+    private volatile HashMap<PackageUserKey, CacheEntry> mEntries = new HashMap<>();
+    // Set on the worker thread once the saved entries are loaded and validated.
+    private volatile boolean mValidated = false;
+    // Guarded by mLock.
+    private boolean mDirty = false;
+
+    RoundIconCache(Context context, File file) {
+        mContext = context;
+        mPackageManager = context.getPackageManager();
+        mFile = new AtomicFile(file);
+        mWorkerHandler = new Handler(LauncherModel.getWorkerLooper());
+    }
+
+    /**
+     * Validates the saved entries and resolves the round icons of all the launchable packages
+     * which are not cached yet, on the worker thread, so that the icon loads which follow only
+     * look them up.
+     */
+    void preloadAsync() {
+        mWorkerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                preload();
+            }
+        });
+    }
+
+    @VisibleForTesting
+    void preload() {
+        long start = SystemClock.uptimeMillis();
+        if (!mValidated) {
+            HashMap<PackageUserKey, CacheEntry> entries = new HashMap<>();
+            boolean dropped = loadValidEntries(entries);
+            synchronized (mLock) {
+                // Lookups do not add entries until the cache is validated.
+                mEntries = entries;
+                mDirty |= dropped;
+            }
+            mValidated = true;
+        }
+
+        HashMap<PackageUserKey, CacheEntry> entries = mEntries;
+        HashMap<PackageUserKey, CacheEntry> resolved = new HashMap<>();
+        LauncherAppsCompat launcherApps = LauncherAppsCompat.getInstance(mContext);
+        for (UserHandle user : UserManagerCompat.getInstance(mContext).getUserProfiles()) {
+            for (LauncherActivityInfo info : launcherApps.getActivityList(null, user)) {
+                ApplicationInfo appInfo = info.getApplicationInfo();
+                PackageUserKey key = new PackageUserKey(appInfo.packageName, user);
+                if (!resolved.containsKey(key) && getValidEntry(entries, key, appInfo) == null) {
+                    resolved.put(key, resolve(appInfo));
+                }
+            }
+        }
+        publish(resolved);
+        if (LauncherAppState.PROFILE_STARTUP) {
+            Log.d(TAG, "Preloaded round icons, resolved " + resolved.size() + " of "
+                    + mEntries.size() + " packages in " + (SystemClock.uptimeMillis() - start)
+                    + "ms");
+        }
+        save();
+    }
+
+    /**
+     * Returns the resource id of the round icon declared by the app, or 0 if it has none.
+     */
+    int getRoundIconId(ApplicationInfo appInfo, UserHandle user) {
+        if (!mValidated) {
+            return parseRoundIconId(appInfo);
+        }
+        PackageUserKey key = new PackageUserKey(appInfo.packageName, user);
+        CacheEntry entry = getValidEntry(mEntries, key, appInfo);
+        if (entry == null) {
+            entry = resolve(appInfo);
+            publish(Collections.singletonMap(key, entry));
+            mWorkerHandler.removeCallbacks(mSaveRunnable);
+            mWorkerHandler.postDelayed(mSaveRunnable, SAVE_DELAY);
+        }
+        return entry.resId;
+    }
+
+    private static CacheEntry getValidEntry(HashMap<PackageUserKey, CacheEntry> entries,
+            PackageUserKey key, ApplicationInfo appInfo) {
+        CacheEntry entry = entries.get(key);
+        return entry != null && entry.sourceDir.equals(appInfo.sourceDir) ? entry : null;
+    }
+
+    /**
+     * Publishes a copy of the entries with {@param added}.
+     */
+    private void publish(Map<PackageUserKey, CacheEntry> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        synchronized (mLock) {
+            HashMap<PackageUserKey, CacheEntry> entries = new HashMap<>(mEntries);
+            entries.putAll(added);
+            mEntries = entries;
+            mDirty = true;
+        }
+    }
+
+    private CacheEntry resolve(ApplicationInfo appInfo) {
+        CacheEntry entry = new CacheEntry(appInfo.sourceDir);
+        try {
+            // Also matches the packages which are only installed in another profile.
+            PackageInfo info = mPackageManager.getPackageInfo(appInfo.packageName,
+                    PackageManager.GET_UNINSTALLED_PACKAGES);
+            entry.versionCode = info.versionCode;
+            entry.lastUpdateTime = info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            // Not cached across restarts, see validation.
+        }
+        entry.resId = parseRoundIconId(appInfo);
+        return entry;
+    }
+
+    private int parseRoundIconId(ApplicationInfo appInfo) {
+        XmlResourceParser parseXml = null;
+        try {
+            parseXml = mPackageManager.getResourcesForApplication(appInfo).getAssets()
+                    .openXmlResourceParser("AndroidManifest.xml");
+            while (parseXml.next() != XmlPullParser.END_DOCUMENT) {
+                if (parseXml.getEventType() == XmlPullParser.START_TAG
+                        && parseXml.getName().equals("application")) {
+                    for (int i = 0; i < parseXml.getAttributeCount(); i++) {
+                        if (parseXml.getAttributeName(i).equals("roundIcon")) {
+                            return Integer.parseInt(parseXml.getAttributeValue(i).substring(1));
+                        }
+                    }
+                    // The application tag is the only one which can declare it.
+                    break;
+                }
+            }
+        } catch (PackageManager.NameNotFoundException | IOException | XmlPullParserException
+                | NumberFormatException ex) {
+            Log.e(TAG, "Unable to parse manifest of " + appInfo.packageName, ex);
+        } finally {
+            if (parseXml != null) {
+                parseXml.close();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds the saved entries to {@param out}, except those of removed users and of packages which
+     * were updated or removed since.
+     * @return whether any saved entry was dropped.
+     */
+    private boolean loadValidEntries(HashMap<PackageUserKey, CacheEntry> out) {
+        boolean dropped = load(out);
+
+        HashMap<String, PackageInfo> packages = new HashMap<>();
+        for (PackageInfo info : mPackageManager.getInstalledPackages(
+                PackageManager.GET_UNINSTALLED_PACKAGES)) {
+            packages.put(info.packageName, info);
+        }
+        Iterator<Map.Entry<PackageUserKey, CacheEntry>> it = out.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<PackageUserKey, CacheEntry> entry = it.next();
+            PackageInfo info = packages.get(entry.getKey().mPackageName);
+            if (info == null || info.versionCode != entry.getValue().versionCode
+                    || info.lastUpdateTime != entry.getValue().lastUpdateTime) {
+                it.remove();
+                dropped = true;
+            }
+        }
+        return dropped;
+    }
+
+    private boolean load(HashMap<PackageUserKey, CacheEntry> out) {
+        UserManagerCompat userManager = UserManagerCompat.getInstance(mContext);
+        boolean dropped = false;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(mFile.openRead());
+            if (in.readInt() != VERSION) {
+                return true;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String packageName = in.readUTF();
+                UserHandle user = userManager.getUserForSerialNumber(in.readLong());
+                CacheEntry entry = new CacheEntry(in.readUTF());
+                entry.versionCode = in.readInt();
+                entry.lastUpdateTime = in.readLong();
+                entry.resId = in.readInt();
+                if (user != null) {
+                    out.put(new PackageUserKey(packageName, user), entry);
+                } else {
+                    dropped = true;
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing cached yet.
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read round icons", e);
+            out.clear();
+            dropped = true;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+        return dropped;
+    }
+
+    @VisibleForTesting
+    void save() {
+        HashMap<PackageUserKey, CacheEntry> entries;
+        synchronized (mLock) {
+            if (!mDirty) {
+                return;
+            }
+            mDirty = false;
+            entries = mEntries;
+        }
+        UserManagerCompat userManager = UserManagerCompat.getInstance(mContext);
+        FileOutputStream fos = null;
+        try {
+            fos = mFile.startWrite();
+            DataOutputStream out = new DataOutputStream(fos);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<PackageUserKey, CacheEntry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey().mPackageName);
+                out.writeLong(userManager.getSerialNumberForUser(entry.getKey().mUser));
+                out.writeUTF(entry.getValue().sourceDir);
+                out.writeInt(entry.getValue().versionCode);
+                out.writeLong(entry.getValue().lastUpdateTime);
+                out.writeInt(entry.getValue().resId);
+            }
+            out.flush();
+            mFile.finishWrite(fos);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write round icons", e);
+            if (fos != null) {
+                mFile.failWrite(fos);
+            }
+            synchronized (mLock) {
+                mDirty = true;
+            }
+        }
+    }
+
+    private final Runnable mSaveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            save();
+        }
+    };
+
+    private static class CacheEntry {
+        final String sourceDir;
+        // Unknown if the package info could not be read, so that the entry is dropped on the
+        // next validation.
+        int versionCode = -1;
+        long lastUpdateTime = -1;
+        int resId;
+
+        CacheEntry(String sourceDir) {
+            this.sourceDir = sourceDir;
+        }
+    }
+}
@@ -3,25 +3,25 @@ package com.google.android.apps.nexuslauncher.clock;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Rect;
-import android.os.SystemClock;
+import android.view.View;
 
 import com.android.launcher3.FastBitmapDrawable;
 
 import java.util.TimeZone;
 
-public class AutoUpdateClock extends FastBitmapDrawable implements Runnable {
+/**
+ * Clock icon updated by a {@link ClockTicker}.
+ */
+public class AutoUpdateClock extends FastBitmapDrawable {
+    private final ClockTicker mTicker;
     private ClockLayers mLayers;
+    // Whether the clock is updated by the ticker, only accessed on the UI thread.
+    boolean mRegistered;
 
-    AutoUpdateClock(Bitmap bitmap, ClockLayers layers) {
+    AutoUpdateClock(Bitmap bitmap, ClockLayers layers, ClockTicker ticker) {
         super(bitmap);
         mLayers = layers;
-    }
-
-    private void rescheduleUpdate() {
-        long millisInSecond = 1000L;
-        unscheduleSelf(this);
-        long uptimeMillis = SystemClock.uptimeMillis();
-        scheduleSelf(this, uptimeMillis - uptimeMillis % millisInSecond + millisInSecond);
+        mTicker = ticker;
     }
 
     void updateLayers(ClockLayers layers) {
@@ -39,17 +39,47 @@ public class AutoUpdateClock extends FastBitmapDrawable implements Runnable {
         }
     }
 
+    boolean hasSecondHand() {
+        return mLayers != null && mLayers.mSecondIndex != -1;
+    }
+
+    /**
+     * Returns whether the clock is drawn by a view which is currently shown.
+     */
+    boolean isShown() {
+        Callback callback = getCallback();
+        if (callback == null || !isVisible()) {
+            return false;
+        }
+        return !(callback instanceof View) || ((View) callback).isShown();
+    }
+
+    /**
+     * Called by the {@link ClockTicker}, returns whether the hands moved.
+     */
+    boolean onTick() {
+        if (mLayers != null && mLayers.updateAngles()) {
+            invalidateSelf();
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
         if (mLayers == null) {
             return;
         }
-        mLayers.updateAngles();
+        // The time may be outdated if the clock was not shown since the last ticks.
+        if (mTicker.register(this)) {
+            mLayers.updateAngles();
+        }
         Rect bounds = getBounds();
+        int count = canvas.save();
         canvas.scale(mLayers.scale, mLayers.scale, bounds.exactCenterX(), bounds.exactCenterY());
         mLayers.mDrawable.draw(canvas);
-        rescheduleUpdate();
+        canvas.restoreToCount(count);
     }
 
     @Override
@@ -59,13 +89,4 @@ public class AutoUpdateClock extends FastBitmapDrawable implements Runnable {
             mLayers.mDrawable.setBounds(bounds);
         }
     }
-
-    @Override
-    public void run() {
-        if (mLayers.updateAngles()) {
-            invalidateSelf();
-        } else {
-            rescheduleUpdate();
-        }
-    }
 }
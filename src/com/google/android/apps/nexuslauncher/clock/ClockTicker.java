@@ -0,0 +1,137 @@
+package com.google.android.apps.nexuslauncher.clock;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+import android.view.Choreographer;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Single time source of the animated clock icons.
+ *
+ * Instead of every clock scheduling its own update each second, the ticker wakes up once at the
+ * next second, or minute if no registered clock has a second hand, and updates all the clocks on
+ * the following display frame. Clocks which are not shown are dropped from the ticker, and
+ * register again when they are drawn.
+ *
+ * The clocks are only updated on the UI thread. Draws on other threads, which render the icon
+ * once into another bitmap, do not register the clock.
+ */
+public class ClockTicker implements Runnable, Choreographer.FrameCallback {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+
+    private static ClockTicker sInstance;
+
+    public static synchronized ClockTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new ClockTicker();
+        }
+        return sInstance;
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<AutoUpdateClock> mClocks = new ArrayList<>();
+    // Uptime of the next tick, or -1 if none is scheduled.
+    private long mNextTickTime = -1;
+
+    // Statistics, reported in dumps.
+    private long mFirstTickTime = -1;
+    private int mTickCount;
+    private int mUpdateCount;
+    private int mDroppedCount;
+    private long mTickNanos;
+
+    @VisibleForTesting
+    ClockTicker() { }
+
+    /**
+     * Adds a clock to update on the next ticks.
+     * @return whether the clock was not registered, in which case its time may be outdated.
+     *         Always false when not called on the UI thread.
+     */
+    boolean register(AutoUpdateClock clock) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return false;
+        }
+        if (clock.mRegistered) {
+            return false;
+        }
+        clock.mRegistered = true;
+        mClocks.add(clock);
+        scheduleTick();
+        return true;
+    }
+
+    @VisibleForTesting
+    int getTickCount() {
+        return mTickCount;
+    }
+
+    @VisibleForTesting
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private void scheduleTick() {
+        long interval = MINUTE;
+        for (int i = 0; i < mClocks.size(); i++) {
+            if (mClocks.get(i).hasSecondHand()) {
+                interval = SECOND;
+                break;
+            }
+        }
+        // Align the ticks on the wall clock.
+        long tickTime = SystemClock.uptimeMillis() + interval - currentTimeMillis() % interval;
+        if (mNextTickTime >= 0 && mNextTickTime <= tickTime) {
+            return;
+        }
+        mHandler.removeCallbacks(this);
+        mHandler.postAtTime(this, tickTime);
+        mNextTickTime = tickTime;
+    }
+
+    @Override
+    public void run() {
+        mNextTickTime = -1;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        long start = System.nanoTime();
+        if (mFirstTickTime < 0) {
+            mFirstTickTime = SystemClock.uptimeMillis();
+        }
+        mTickCount++;
+        for (int i = mClocks.size() - 1; i >= 0; i--) {
+            AutoUpdateClock clock = mClocks.get(i);
+            if (!clock.isShown()) {
+                mClocks.remove(i);
+                clock.mRegistered = false;
+                mDroppedCount++;
+            } else if (clock.onTick()) {
+                mUpdateCount++;
+            }
+        }
+        mTickNanos += System.nanoTime() - start;
+        if (!mClocks.isEmpty()) {
+            scheduleTick();
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        float seconds = mFirstTickTime < 0
+                ? 0 : (SystemClock.uptimeMillis() - mFirstTickTime) / 1000f;
+        writer.println(prefix + "ClockTicker: " + mClocks.size() + " clocks");
+        writer.println(prefix + String.format(Locale.US,
+                "  ticks=%d (%.3f/s) updated=%d dropped=%d avgTick=%.1fus",
+                mTickCount, seconds > 0 ? mTickCount / seconds : 0, mUpdateCount, mDroppedCount,
+                mTickCount > 0 ? mTickNanos / 1000f / mTickCount : 0));
+    }
+}
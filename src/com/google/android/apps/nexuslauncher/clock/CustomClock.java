@@ -82,7 +82,8 @@ public class CustomClock {
                 drawableForDensity,
                 metadata,
                 LauncherAppState.getIDP(mContext).fillResIconDpi,
-                !FeatureFlags.LAUNCHER3_DISABLE_ICON_NORMALIZATION).clone());
+                !FeatureFlags.LAUNCHER3_DISABLE_ICON_NORMALIZATION).clone(),
+                ClockTicker.getInstance());
         mUpdaters.add(updater);
         return updater;
     }
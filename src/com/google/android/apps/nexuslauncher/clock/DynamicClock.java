@@ -143,7 +143,8 @@ public class DynamicClock extends BroadcastReceiver
     }
     
     public AutoUpdateClock drawIcon(Bitmap bitmap) {
-        final AutoUpdateClock updater = new AutoUpdateClock(bitmap, mLayers.clone());
+        final AutoUpdateClock updater = new AutoUpdateClock(bitmap, mLayers.clone(),
+                ClockTicker.getInstance());
         mUpdaters.add(updater);
         return updater;
     }
@@ -17,6 +17,7 @@ import android.view.View;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
+import com.android.launcher3.graphics.BitmapAccounting;
 import com.android.launcher3.graphics.ShadowGenerator;
 import com.google.android.apps.nexuslauncher.smartspace.nano.SmartspaceProto.b;
 import com.google.android.apps.nexuslauncher.smartspace.nano.SmartspaceProto.c;
@@ -43,6 +44,7 @@ public class SmartspaceCard {
         this.dM = dm;
         this.mIntent = mIntent;
         this.mIcon = mIcon;
+        BitmapAccounting.track(BitmapAccounting.OWNER_SMARTSPACE, mIcon);
         this.dN = dn;
         this.dJ = dj;
         this.dK = dk;
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3;
+
+import android.content.pm.LauncherActivityInfo;
+import android.os.Process;
+
+import com.android.launcher3.benchmark.BenchmarkRule;
+import com.android.launcher3.benchmark.SyntheticData;
+import com.android.launcher3.compat.LauncherAppsCompat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks of the lookups of {@link IconCache}, for 100 apps per iteration.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IconCacheBenchmark {
+
+    private static final int APP_COUNT = 100;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private IconCache mIconCache;
+    private List<LauncherActivityInfo> mActivities;
+    private AppInfo[] mApps;
+
+    @Before
+    public void setUp() {
+        SyntheticData generator = new SyntheticData().setAppCount(APP_COUNT);
+        generator.installInventory(RuntimeEnvironment.application);
+        mActivities = LauncherAppsCompat.getInstance(RuntimeEnvironment.application)
+                .getActivityList(null, Process.myUserHandle());
+
+        mIconCache = new IconCache(RuntimeEnvironment.application,
+                generator.createDeviceProfile());
+        mApps = new AppInfo[APP_COUNT];
+        for (int i = 0; i < APP_COUNT; i++) {
+            mApps[i] = new AppInfo(mActivities.get(i), Process.myUserHandle(), false);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        SyntheticData.uninstallInventory();
+    }
+
+    @Test
+    public void testGetTitleAndIcon_memoryHit() {
+        lookUpAll();
+        while (mBenchmark.keepRunning()) {
+            lookUpAll();
+        }
+        assertEquals(mActivities.get(0).getLabel(), mApps[0].title);
+    }
+
+    /**
+     * Measures the lookups of entries which are neither in memory nor in the database, which
+     * create the icons from the activities.
+     */
+    @Test
+    public void testGetTitleAndIcon_miss() {
+        while (mBenchmark.keepRunning()) {
+            mBenchmark.pauseTiming();
+            for (AppInfo app : mApps) {
+                mIconCache.remove(app.componentName, app.user);
+            }
+            mBenchmark.resumeTiming();
+
+            lookUpAll();
+        }
+        assertEquals(mActivities.get(0).getLabel(), mApps[0].title);
+    }
+
+    private void lookUpAll() {
+        for (int i = 0; i < APP_COUNT; i++) {
+            mIconCache.getTitleAndIcon(mApps[i], mActivities.get(i), false);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.accessibility;
+
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeProviderCompat;
+import android.view.View;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.Launcher;
+import com.android.launcher3.ShortcutInfo;
+import com.android.launcher3.accessibility.LauncherAccessibilityDelegate.DragInfo;
+import com.android.launcher3.accessibility.LauncherAccessibilityDelegate.DragType;
+import com.android.launcher3.benchmark.BenchmarkRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks of the traversal of the virtual views of a 6x6 {@link CellLayout} during an
+ * accessible icon drag, as done by a screen reader: when the drag starts, and once the drop
+ * targets and descriptions of the cells are cached.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AccessibleDragTraversalBenchmark {
+
+    private static final int GRID_SIZE = 6;
+    private static final int LAYOUT_SIZE = 1200;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private WorkspaceAccessibilityHelper mHelper;
+    private AccessibilityNodeProviderCompat mProvider;
+
+    @Before
+    public void setUp() {
+        Launcher launcher = Robolectric.setupActivity(Launcher.class);
+        CellLayout layout = new CellLayout(launcher);
+        layout.setGridSize(GRID_SIZE, GRID_SIZE);
+        int spec = View.MeasureSpec.makeMeasureSpec(LAYOUT_SIZE, View.MeasureSpec.EXACTLY);
+        layout.measure(spec, spec);
+        layout.layout(0, 0, LAYOUT_SIZE, LAYOUT_SIZE);
+
+        final DragInfo dragInfo = new DragInfo();
+        dragInfo.dragType = DragType.ICON;
+        dragInfo.info = new ShortcutInfo();
+        mHelper = new WorkspaceAccessibilityHelper(layout) {
+            @Override
+            protected DragInfo getDragInfo() {
+                return dragInfo;
+            }
+        };
+        mProvider = mHelper.getAccessibilityNodeProvider(layout);
+    }
+
+    @Test
+    public void testTraverse_dragStart() {
+        int childCount = 0;
+        while (mBenchmark.keepRunning()) {
+            mBenchmark.pauseTiming();
+            // Clearing all the cells is the same as starting a new drag.
+            mHelper.onCellsChanged(0, 0, GRID_SIZE, GRID_SIZE);
+            mBenchmark.resumeTiming();
+
+            childCount = traverse();
+        }
+        assertEquals(GRID_SIZE * GRID_SIZE, childCount);
+    }
+
+    @Test
+    public void testTraverse_cached() {
+        int childCount = traverse();
+        while (mBenchmark.keepRunning()) {
+            childCount = traverse();
+        }
+        assertEquals(GRID_SIZE * GRID_SIZE, childCount);
+    }
+
+    /**
+     * Creates the nodes of the layout and of all its virtual views, and returns the number of
+     * virtual views.
+     */
+    private int traverse() {
+        AccessibilityNodeInfoCompat host = mProvider.createAccessibilityNodeInfo(View.NO_ID);
+        int childCount = host.getChildCount();
+        host.recycle();
+
+        for (int id = 0; id < GRID_SIZE * GRID_SIZE; id++) {
+            mProvider.createAccessibilityNodeInfo(id).recycle();
+        }
+        return childCount;
+    }
+}
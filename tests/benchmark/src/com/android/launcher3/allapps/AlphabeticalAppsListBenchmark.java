@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.Launcher;
+import com.android.launcher3.benchmark.BenchmarkRule;
+import com.android.launcher3.benchmark.SyntheticData;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks of the rebuilds of {@link AlphabeticalAppsList} for 1000 apps.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AlphabeticalAppsListBenchmark {
+
+    private static final int APP_COUNT = 1000;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private AlphabeticalAppsList mAppsList;
+    private List<AppInfo> mApps;
+
+    @Before
+    public void setUp() {
+        // The list only needs the resources of the launcher, so the activity is not created.
+        Launcher launcher = Robolectric.buildActivity(Launcher.class).get();
+        mAppsList = new AlphabeticalAppsList(launcher);
+        mAppsList.setNumAppsPerRow(5, 5);
+        mApps = new SyntheticData().setAppCount(APP_COUNT).createApps();
+    }
+
+    @Test
+    public void testSetApps() {
+        while (mBenchmark.keepRunning()) {
+            mAppsList.setApps(mApps);
+        }
+        assertEquals(APP_COUNT, mAppsList.getNumFilteredApps());
+    }
+
+    /**
+     * Measures the update of the list when a single app changes, which rebuilds the whole list.
+     */
+    @Test
+    public void testAddOrUpdateApps_oneApp() {
+        mAppsList.setApps(mApps.subList(1, APP_COUNT));
+        List<AppInfo> installedApp = Collections.singletonList(mApps.get(0));
+        while (mBenchmark.keepRunning()) {
+            mAppsList.addOrUpdateApps(installedApp);
+        }
+        assertEquals(APP_COUNT, mAppsList.getNumFilteredApps());
+    }
+}
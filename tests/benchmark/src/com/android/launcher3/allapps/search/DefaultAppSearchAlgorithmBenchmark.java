@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import com.android.launcher3.benchmark.BenchmarkRule;
+import com.android.launcher3.benchmark.SyntheticData;
+import com.android.launcher3.benchmark.WorkloadGenerator;
+import com.android.launcher3.benchmark.WorkloadGenerator.TitleScript;
+import com.android.launcher3.discovery.AppDiscoveryItem;
+import com.android.launcher3.discovery.AppDiscoveryUpdateState;
+import com.android.launcher3.util.ComponentKey;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmarks of the searches of {@link DefaultAppSearchAlgorithm} among 1000 apps with Latin
+ * titles, and among 5000 apps of several scripts.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DefaultAppSearchAlgorithmBenchmark {
+
+    private static final int APP_COUNT = 1000;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    @Test
+    public void testSearch_oneLetter() {
+        benchmarkSearch(new SyntheticData().setAppCount(APP_COUNT), "k", true);
+    }
+
+    @Test
+    public void testSearch_word() {
+        benchmarkSearch(new SyntheticData().setAppCount(APP_COUNT), "kalo", true);
+    }
+
+    @Test
+    public void testSearch_noMatch() {
+        benchmarkSearch(new SyntheticData().setAppCount(APP_COUNT), "xyz", false);
+    }
+
+    /**
+     * Measures a search among 5000 apps whose titles use several scripts, as with the apps of
+     * a user having several locales.
+     */
+    @Test
+    public void testSearch_5000Apps_mixedScripts() {
+        benchmarkSearch(new WorkloadGenerator()
+                .setAppCount(5000)
+                .setTitleScripts(TitleScript.values()), "ka", true);
+    }
+
+    private void benchmarkSearch(SyntheticData apps, String query, boolean hasResults) {
+        DefaultAppSearchAlgorithm algorithm = new DefaultAppSearchAlgorithm(
+                RuntimeEnvironment.application, apps.createApps());
+        // The main looper is not paused, so the results are delivered before doSearch returns.
+        SearchCallbacks callbacks = new SearchCallbacks();
+        while (mBenchmark.keepRunning()) {
+            algorithm.doSearch(query, callbacks);
+        }
+        if (hasResults) {
+            assertFalse(callbacks.mResult.isEmpty());
+        } else {
+            assertTrue(callbacks.mResult.isEmpty());
+        }
+    }
+
+    private static class SearchCallbacks implements AllAppsSearchBarController.Callbacks {
+
+        ArrayList<ComponentKey> mResult;
+
+        @Override
+        public void onSearchResult(String query, ArrayList<ComponentKey> apps) {
+            mResult = apps;
+        }
+
+        @Override
+        public void clearSearchResult() { }
+
+        @Override
+        public void onAppDiscoverySearchUpdate(AppDiscoveryItem app,
+                AppDiscoveryUpdateState state) { }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.anim;
+
+import android.support.animation.DynamicAnimation;
+import android.support.animation.SpringAnimation;
+import android.view.View;
+
+import com.android.launcher3.benchmark.BenchmarkRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Benchmarks of the all apps springs for 40 icons, about a full all apps page: one
+ * SpringAnimation per icon, as all apps used before, against a {@link SpringSystem}. Each
+ * iteration runs the 60 frames of an overscroll. The frames are driven directly, so this does not
+ * include the time spent scheduling the frame callbacks.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpringSystemBenchmark {
+
+    // Same values as the all apps springs.
+    private static final float DAMPING_RATIO = 0.55f;
+    private static final float FRAME_SECONDS = 0.016f;
+
+    private static final int SPRING_COUNT = 40;
+    private static final int FRAME_COUNT = 60;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private View[] mViews;
+
+    @Before
+    public void setUp() {
+        mViews = new View[SPRING_COUNT];
+        for (int i = 0; i < mViews.length; i++) {
+            mViews[i] = new View(RuntimeEnvironment.application);
+        }
+    }
+
+    @Test
+    public void testFrames_springAnimations() {
+        SpringAnimation[] animations = new SpringAnimation[mViews.length];
+        while (mBenchmark.keepRunning()) {
+            mBenchmark.pauseTiming();
+            for (int i = 0; i < mViews.length; i++) {
+                animations[i] = new SpringAnimation(mViews[i], DynamicAnimation.TRANSLATION_Y, 0);
+                animations[i].setMinValue(-getMaxValue(i)).setMaxValue(getMaxValue(i))
+                        .getSpring().setStiffness(getStiffness(i)).setDampingRatio(DAMPING_RATIO);
+                animations[i].setStartValue(-1);
+                animations[i].setStartVelocity(5000);
+                animations[i].start();
+            }
+            mBenchmark.resumeTiming();
+
+            long frameTime = 0;
+            for (int frame = 0; frame < FRAME_COUNT; frame++) {
+                frameTime += (long) (FRAME_SECONDS * 1000);
+                for (SpringAnimation animation : animations) {
+                    if (animation.isRunning()) {
+                        animation.doAnimationFrame(frameTime);
+                    }
+                }
+            }
+
+            mBenchmark.pauseTiming();
+            for (SpringAnimation animation : animations) {
+                animation.skipToEnd();
+            }
+            mBenchmark.resumeTiming();
+        }
+        for (SpringAnimation animation : animations) {
+            assertFalse(animation.isRunning());
+        }
+    }
+
+    @Test
+    public void testFrames_springSystem() {
+        SpringSystem springs = null;
+        while (mBenchmark.keepRunning()) {
+            mBenchmark.pauseTiming();
+            springs = new SpringSystem(true);
+            for (int i = 0; i < mViews.length; i++) {
+                springs.setSpring(mViews[i], getStiffness(i), DAMPING_RATIO,
+                        -getMaxValue(i), getMaxValue(i));
+            }
+            springs.setStartVelocity(5000);
+            springs.animateToFinalPosition(0, -1);
+            mBenchmark.resumeTiming();
+
+            long frameTimeNanos = 0;
+            for (int frame = 0; frame < FRAME_COUNT; frame++) {
+                frameTimeNanos += (long) (FRAME_SECONDS * 1e9);
+                springs.doFrame(frameTimeNanos);
+            }
+
+            mBenchmark.pauseTiming();
+            springs.skipToEnd();
+            mBenchmark.resumeTiming();
+        }
+        assertFalse(springs.isRunning());
+    }
+
+    /**
+     * Stiffness of the spring at {@param index}, for a grid of 5 columns as in all apps.
+     */
+    private static float getStiffness(int index) {
+        return Math.max(900f - (index / 5) * 50f, 580f);
+    }
+
+    private static float getMaxValue(int index) {
+        return 100 * (1 + (index / 5) * 0.5f);
+    }
+}
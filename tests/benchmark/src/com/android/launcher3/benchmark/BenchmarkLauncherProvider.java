@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.benchmark;
+
+import android.content.Context;
+import android.content.pm.ProviderInfo;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.android.launcher3.LauncherProvider;
+
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * {@link LauncherProvider} registered with Robolectric, with its own database file.
+ */
+public class BenchmarkLauncherProvider extends LauncherProvider {
+
+    private static final String DB_NAME = "benchmark_launcher.db";
+
+    /**
+     * Registers a new provider with an empty database, which replaces the previous one.
+     */
+    public static BenchmarkLauncherProvider install() {
+        RuntimeEnvironment.application.deleteDatabase(DB_NAME);
+        ProviderInfo info = new ProviderInfo();
+        info.authority = LauncherProvider.AUTHORITY;
+        return Robolectric.buildContentProvider(BenchmarkLauncherProvider.class).create(info).get();
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    protected synchronized void createDbIfNotExists() {
+        if (mOpenHelper == null) {
+            mOpenHelper = new BenchmarkDatabaseHelper(getContext());
+        }
+    }
+
+    /**
+     * Opens the database again, so that the provider uses the ids of the items and screens which
+     * were written directly with {@link #getDb()}.
+     */
+    public synchronized void reopen() {
+        if (mOpenHelper != null) {
+            mOpenHelper.close();
+            mOpenHelper = null;
+        }
+    }
+
+    /**
+     * Returns the database, to write the items of a benchmark without going through the provider.
+     */
+    public SQLiteDatabase getDb() {
+        createDbIfNotExists();
+        return mOpenHelper.getWritableDatabase();
+    }
+
+    @Override
+    protected void notifyListeners() { }
+
+    private static class BenchmarkDatabaseHelper extends DatabaseHelper {
+
+        BenchmarkDatabaseHelper(Context context) {
+            super(context, null, DB_NAME);
+            initIds();
+        }
+
+        @Override
+        protected void onEmptyDbCreated() { }
+
+        @Override
+        protected void handleOneTimeDataUpgrade(SQLiteDatabase db) { }
+    }
+}
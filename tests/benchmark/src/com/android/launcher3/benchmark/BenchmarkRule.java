@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.benchmark;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Rule to measure the code of a benchmark, run as a test on the host:
+ *
+ *   while (mBenchmark.keepRunning()) {
+ *       // Measured code
+ *   }
+ *
+ * The code is first run until {@link #WARMUP_NS} has elapsed, so that it is compiled, and is then
+ * measured {@link #SAMPLE_COUNT} times. The work needed to prepare an iteration can be excluded
+ * from the measure with {@link #pauseTiming()} and {@link #resumeTiming()}.
+ *
+ * The results are printed, and appended as one JSON object per line to the file set by the
+ * {@link #RESULTS_PROPERTY} system property, to track them across builds.
+ */
+public class BenchmarkRule implements TestRule {
+
+    public static final String RESULTS_PROPERTY = "launcher.benchmark.results";
+
+    private static final long WARMUP_NS = 1_000_000_000L;
+    private static final int MIN_WARMUP_ITERATIONS = 5;
+    private static final int SAMPLE_COUNT = 50;
+
+    private static final int STATE_NOT_STARTED = 0;
+    private static final int STATE_WARMUP = 1;
+    private static final int STATE_RUNNING = 2;
+    private static final int STATE_FINISHED = 3;
+
+    private final long[] mSamples = new long[SAMPLE_COUNT];
+
+    private int mState = STATE_NOT_STARTED;
+    private int mSampleCount;
+    private int mWarmupIterations;
+    private long mWarmupEndNs;
+    private long mIterationStartNs;
+    private long mPauseStartNs;
+    private long mPausedNs;
+    private boolean mPaused;
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                mState = STATE_NOT_STARTED;
+                mSampleCount = 0;
+                mWarmupIterations = 0;
+                mPaused = false;
+                base.evaluate();
+                if (mState != STATE_FINISHED) {
+                    throw new IllegalStateException(
+                            "The benchmark did not run until keepRunning() returned false");
+                }
+                report(description.getTestClass().getSimpleName(),
+                        description.getMethodName());
+            }
+        };
+    }
+
+    /**
+     * Returns true while the measured code should run one more iteration.
+     */
+    public boolean keepRunning() {
+        long now = System.nanoTime();
+        if (mPaused) {
+            throw new IllegalStateException("The timing is paused at the end of an iteration");
+        }
+        switch (mState) {
+            case STATE_NOT_STARTED:
+                mState = STATE_WARMUP;
+                mWarmupEndNs = now + WARMUP_NS;
+                break;
+            case STATE_WARMUP:
+                mWarmupIterations++;
+                if (now >= mWarmupEndNs && mWarmupIterations >= MIN_WARMUP_ITERATIONS) {
+                    mState = STATE_RUNNING;
+                }
+                break;
+            case STATE_RUNNING:
+                mSamples[mSampleCount++] = now - mIterationStartNs - mPausedNs;
+                if (mSampleCount == SAMPLE_COUNT) {
+                    mState = STATE_FINISHED;
+                    return false;
+                }
+                break;
+            default:
+                throw new IllegalStateException("The benchmark has already finished");
+        }
+        mPausedNs = 0;
+        mIterationStartNs = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Stops measuring the current iteration, until {@link #resumeTiming()} is called.
+     */
+    public void pauseTiming() {
+        if (mPaused) {
+            throw new IllegalStateException("The timing is already paused");
+        }
+        mPaused = true;
+        mPauseStartNs = System.nanoTime();
+    }
+
+    public void resumeTiming() {
+        if (!mPaused) {
+            throw new IllegalStateException("The timing is not paused");
+        }
+        mPausedNs += System.nanoTime() - mPauseStartNs;
+        mPaused = false;
+    }
+
+    private void report(String className, String methodName) throws IOException {
+        long[] samples = Arrays.copyOf(mSamples, mSampleCount);
+        Arrays.sort(samples);
+        long total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+        String result = String.format(Locale.US,
+                "{\"class\":\"%s\",\"benchmark\":\"%s\",\"samples\":%d,\"warmup_iterations\":%d,"
+                        + "\"min_ns\":%d,\"median_ns\":%d,\"mean_ns\":%d,\"max_ns\":%d}",
+                className, methodName, samples.length, mWarmupIterations, samples[0],
+                samples[samples.length / 2], total / samples.length, samples[samples.length - 1]);
+        System.out.println(result);
+
+        String path = System.getProperty(RESULTS_PROPERTY);
+        if (path == null) {
+            return;
+        }
+        synchronized (BenchmarkRule.class) {
+            File file = new File(path);
+            file.getParentFile().mkdirs();
+            try (Writer writer = new FileWriter(file, true)) {
+                writer.write(result);
+                writer.write('\n');
+            }
+        }
+    }
+}
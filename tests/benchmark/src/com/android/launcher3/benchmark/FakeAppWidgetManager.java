@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.benchmark;
+
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.UserHandle;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import com.android.launcher3.LauncherAppWidgetProviderInfo;
+import com.android.launcher3.compat.AppWidgetManagerCompat;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.PackageUserKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link AppWidgetManagerCompat} returning the providers added to it, as the app widget service
+ * is not available on the host. Installed with {@link AppWidgetManagerCompat#setInstance}.
+ *
+ * The {@link LauncherAppWidgetProviderInfo} of a provider needs the device profiles of
+ * {@link com.android.launcher3.LauncherAppState}, so they are never returned: the grid migration
+ * then assumes that the widgets can be resized down to 2x2.
+ */
+public class FakeAppWidgetManager extends AppWidgetManagerCompat {
+
+    private final LinkedHashMap<ComponentKey, AppWidgetProviderInfo> mProviders =
+            new LinkedHashMap<>();
+    private final SparseArray<AppWidgetProviderInfo> mBoundWidgets = new SparseArray<>();
+
+    public FakeAppWidgetManager(Context context) {
+        super(context);
+    }
+
+    public void addProvider(AppWidgetProviderInfo info, UserHandle user) {
+        mProviders.put(new ComponentKey(info.provider, user), info);
+    }
+
+    @Override
+    public AppWidgetProviderInfo getAppWidgetInfo(int appWidgetId) {
+        return mBoundWidgets.get(appWidgetId);
+    }
+
+    @Override
+    public LauncherAppWidgetProviderInfo getLauncherAppWidgetInfo(int appWidgetId) {
+        return null;
+    }
+
+    @Override
+    public List<AppWidgetProviderInfo> getAllProviders(@Nullable PackageUserKey packageUser) {
+        ArrayList<AppWidgetProviderInfo> result = new ArrayList<>();
+        for (Map.Entry<ComponentKey, AppWidgetProviderInfo> entry : mProviders.entrySet()) {
+            ComponentKey key = entry.getKey();
+            if (packageUser == null || (key.user.equals(packageUser.mUser)
+                    && key.componentName.getPackageName().equals(packageUser.mPackageName))) {
+                result.add(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean bindAppWidgetIdIfAllowed(
+            int appWidgetId, AppWidgetProviderInfo info, Bundle options) {
+        mBoundWidgets.put(appWidgetId, info);
+        return true;
+    }
+
+    @Override
+    public LauncherAppWidgetProviderInfo findProvider(ComponentName provider, UserHandle user) {
+        return null;
+    }
+
+    @Override
+    public HashMap<ComponentKey, AppWidgetProviderInfo> getAllProvidersMap() {
+        return new HashMap<>(mProviders);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.benchmark;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.LauncherActivityInfo;
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.UserHandle;
+import android.support.annotation.Nullable;
+
+import com.android.launcher3.compat.LauncherAppsCompat;
+import com.android.launcher3.compat.ShortcutConfigActivityInfo;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.PackageUserKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link LauncherAppsCompat} returning the activities added to it, as the launcher apps service is
+ * not available on the host. Installed with {@link LauncherAppsCompat#setInstance}.
+ */
+public class FakeLauncherApps extends LauncherAppsCompat {
+
+    private final LinkedHashMap<ComponentKey, LauncherActivityInfo> mActivities =
+            new LinkedHashMap<>();
+    private final HashMap<PackageUserKey, ApplicationInfo> mPackages = new HashMap<>();
+
+    /**
+     * Adds a launcher activity named {@param label}, with a plain icon.
+     */
+    public LauncherActivityInfo addActivity(ComponentName cn, UserHandle user, String label) {
+        PackageUserKey packageKey = new PackageUserKey(cn.getPackageName(), user);
+        ApplicationInfo appInfo = mPackages.get(packageKey);
+        if (appInfo == null) {
+            appInfo = new ApplicationInfo();
+            appInfo.packageName = cn.getPackageName();
+            appInfo.targetSdkVersion = Build.VERSION_CODES.M;
+            appInfo.flags = ApplicationInfo.FLAG_INSTALLED;
+            appInfo.enabled = true;
+            mPackages.put(packageKey, appInfo);
+        }
+
+        LauncherActivityInfo info = mock(LauncherActivityInfo.class);
+        when(info.getComponentName()).thenReturn(cn);
+        when(info.getUser()).thenReturn(user);
+        when(info.getLabel()).thenReturn(label);
+        when(info.getApplicationInfo()).thenReturn(appInfo);
+        when(info.getIcon(anyInt())).thenReturn(new ColorDrawable(label.hashCode() | 0xFF000000));
+        mActivities.put(new ComponentKey(cn, user), info);
+        return info;
+    }
+
+    public void clear() {
+        mActivities.clear();
+        mPackages.clear();
+    }
+
+    @Override
+    public List<LauncherActivityInfo> getActivityList(String packageName, UserHandle user) {
+        ArrayList<LauncherActivityInfo> result = new ArrayList<>();
+        for (LauncherActivityInfo info : mActivities.values()) {
+            if (info.getUser().equals(user) && (packageName == null
+                    || packageName.equals(info.getComponentName().getPackageName()))) {
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public LauncherActivityInfo resolveActivity(Intent intent, UserHandle user) {
+        ComponentName cn = intent.getComponent();
+        return cn == null ? null : mActivities.get(new ComponentKey(cn, user));
+    }
+
+    @Override
+    public ApplicationInfo getApplicationInfo(String packageName, int flags, UserHandle user) {
+        return mPackages.get(new PackageUserKey(packageName, user));
+    }
+
+    @Override
+    public boolean isPackageEnabledForProfile(String packageName, UserHandle user) {
+        return mPackages.containsKey(new PackageUserKey(packageName, user));
+    }
+
+    @Override
+    public boolean isActivityEnabledForProfile(ComponentName component, UserHandle user) {
+        return mActivities.containsKey(new ComponentKey(component, user));
+    }
+
+    @Override
+    public List<ShortcutConfigActivityInfo> getCustomShortcutActivityList(
+            @Nullable PackageUserKey packageUser) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void startActivityForProfile(ComponentName component, UserHandle user,
+            Rect sourceBounds, Bundle opts) { }
+
+    @Override
+    public void showAppDetailsForProfile(ComponentName component, UserHandle user,
+            Rect sourceBounds, Bundle opts) { }
+
+    @Override
+    public void addOnAppsChangedCallback(OnAppsChangedCallbackCompat listener) { }
+
+    @Override
+    public void removeOnAppsChangedCallback(OnAppsChangedCallbackCompat listener) { }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.benchmark;
+
+import android.os.UserHandle;
+
+import com.android.launcher3.compat.UserManagerCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link UserManagerCompat} with a fixed list of unlocked profiles, whose serial numbers are their
+ * positions in the list. Installed with {@link UserManagerCompat#setInstance}.
+ */
+public class FakeUserManager extends UserManagerCompat {
+
+    private final List<UserHandle> mProfiles;
+
+    public FakeUserManager(List<UserHandle> profiles) {
+        mProfiles = Collections.unmodifiableList(new ArrayList<>(profiles));
+    }
+
+    @Override
+    public void enableAndResetCache() { }
+
+    @Override
+    public List<UserHandle> getUserProfiles() {
+        return mProfiles;
+    }
+
+    @Override
+    public long getSerialNumberForUser(UserHandle user) {
+        return mProfiles.indexOf(user);
+    }
+
+    @Override
+    public UserHandle getUserForSerialNumber(long serialNumber) {
+        return serialNumber >= 0 && serialNumber < mProfiles.size()
+                ? mProfiles.get((int) serialNumber) : null;
+    }
+
+    @Override
+    public CharSequence getBadgedLabelForUser(CharSequence label, UserHandle user) {
+        return label;
+    }
+
+    @Override
+    public long getUserCreationTime(UserHandle user) {
+        return 0;
+    }
+
+    @Override
+    public boolean isQuietModeEnabled(UserHandle user) {
+        return false;
+    }
+
+    @Override
+    public boolean isUserUnlocked(UserHandle user) {
+        return true;
+    }
+
+    @Override
+    public boolean isDemoUser() {
+        return false;
+    }
+}
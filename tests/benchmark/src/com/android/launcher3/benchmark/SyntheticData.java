@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.benchmark;
+
+import android.content.ComponentName;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Process;
+import android.os.UserHandle;
+import android.util.DisplayMetrics;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.LauncherSettings.WorkspaceScreens;
+import com.android.launcher3.compat.AppWidgetManagerCompat;
+import com.android.launcher3.compat.LauncherAppsCompat;
+import com.android.launcher3.compat.UserManagerCompat;
+import com.android.launcher3.util.GridOccupancy;
+
+import org.robolectric.Shadows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates repeatable apps and workspaces for the benchmarks: the apps of the current user, with
+ * their packages, and a workspace of pages and folders using them. The same parameters always
+ * give the same data.
+ *
+ * {@link WorkloadGenerator} extends it with profiles, widgets and titles in other scripts.
+ */
+public class SyntheticData {
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ne", "ru", "ta", "shi", "vo", "pe", "zu", "an", "el", "or", "im"
+    };
+
+    private static final int ICON_BITMAP_SIZE = 192;
+
+    private long mSeed = 42;
+    private int mAppCount = 100;
+    private int mPageCount = 1;
+    private int mCountX = 5;
+    private int mCountY = 5;
+    private int mHotseatCount = 5;
+    private float mFolderDensity = 1 / 8f;
+
+    private String[] mTitles;
+
+    public SyntheticData setSeed(long seed) {
+        mSeed = seed;
+        mTitles = null;
+        return this;
+    }
+
+    /**
+     * Sets the number of apps installed in each profile. The workspace uses them in turn, so they
+     * are on it more than once when it has more items than apps.
+     */
+    public SyntheticData setAppCount(int appCount) {
+        if (appCount < 1) {
+            throw new IllegalArgumentException("At least one app is needed: " + appCount);
+        }
+        mAppCount = appCount;
+        mTitles = null;
+        return this;
+    }
+
+    public SyntheticData setPageCount(int pageCount) {
+        mPageCount = pageCount;
+        return this;
+    }
+
+    public SyntheticData setGridSize(int countX, int countY, int hotseatCount) {
+        mCountX = countX;
+        mCountY = countY;
+        mHotseatCount = hotseatCount;
+        return this;
+    }
+
+    /**
+     * Sets the probability that a vacant cell of the workspace gets a folder of three to eight
+     * apps instead of an app.
+     */
+    public SyntheticData setFolderDensity(float folderDensity) {
+        mFolderDensity = folderDensity;
+        return this;
+    }
+
+    /**
+     * Returns a profile with the grid of the data, as the profiles of the device are not
+     * available on the host.
+     */
+    public InvariantDeviceProfile createDeviceProfile() {
+        InvariantDeviceProfile idp = new InvariantDeviceProfile();
+        idp.numColumns = mCountX;
+        idp.numRows = mCountY;
+        idp.numHotseatIcons = mHotseatCount;
+        idp.numFolderColumns = 3;
+        idp.numFolderRows = 3;
+        idp.iconBitmapSize = ICON_BITMAP_SIZE;
+        idp.fillResIconDpi = DisplayMetrics.DENSITY_XXXHIGH;
+        return idp;
+    }
+
+    /**
+     * Returns the profiles having the apps, the first one being the current user.
+     */
+    public List<UserHandle> getProfiles() {
+        return Collections.singletonList(Process.myUserHandle());
+    }
+
+    /**
+     * Returns the apps of all the profiles, in the order of the profiles.
+     */
+    public List<AppInfo> createApps() {
+        String[] titles = getTitles();
+        List<UserHandle> profiles = getProfiles();
+        ArrayList<AppInfo> apps = new ArrayList<>(mAppCount * profiles.size());
+        for (UserHandle user : profiles) {
+            for (int i = 0; i < mAppCount; i++) {
+                AppInfo app = new AppInfo();
+                app.componentName = getComponent(i);
+                app.intent = AppInfo.makeLaunchIntent(app.componentName);
+                app.title = titles[i];
+                app.user = user;
+                apps.add(app);
+            }
+        }
+        return apps;
+    }
+
+    /**
+     * Returns the packages of the apps, as expected by
+     * {@link com.android.launcher3.model.GridSizeMigrationTask}.
+     */
+    public HashSet<String> getPackageNames() {
+        HashSet<String> packageNames = new HashSet<>(mAppCount);
+        for (int i = 0; i < mAppCount; i++) {
+            packageNames.add(getComponent(i).getPackageName());
+        }
+        return packageNames;
+    }
+
+    /**
+     * Installs fake profiles and launcher apps with the apps of the data, and adds their packages
+     * to the package manager. Robolectric resets the package manager after each test, and
+     * {@link #uninstallInventory()} resets the rest.
+     */
+    public void installInventory(Context context) {
+        List<UserHandle> profiles = getProfiles();
+        UserManagerCompat.setInstance(new FakeUserManager(profiles));
+
+        String[] titles = getTitles();
+        FakeLauncherApps launcherApps = new FakeLauncherApps();
+        for (UserHandle user : profiles) {
+            for (int i = 0; i < mAppCount; i++) {
+                launcherApps.addActivity(getComponent(i), user, titles[i]);
+            }
+        }
+        LauncherAppsCompat.setInstance(launcherApps);
+
+        for (int i = 0; i < mAppCount; i++) {
+            String packageName = getComponent(i).getPackageName();
+            PackageInfo packageInfo = new PackageInfo();
+            packageInfo.packageName = packageName;
+            packageInfo.versionCode = 1;
+            packageInfo.applicationInfo = launcherApps.getApplicationInfo(
+                    packageName, 0, profiles.get(0));
+            Shadows.shadowOf(context.getPackageManager()).addPackage(packageInfo);
+        }
+    }
+
+    public static void uninstallInventory() {
+        UserManagerCompat.setInstance(null);
+        LauncherAppsCompat.setInstance(null);
+        AppWidgetManagerCompat.setInstance(null);
+    }
+
+    /**
+     * Fills the pages and the hotseat of the workspace in {@param db}, which should be empty.
+     * The inventory needs to be installed first, for the serial numbers of the profiles.
+     *
+     * @return the number of items, including the folders and their apps.
+     */
+    public int fillWorkspace(Context context, SQLiteDatabase db) {
+        UserManagerCompat userManager = UserManagerCompat.getInstance(context);
+        List<UserHandle> profiles = getProfiles();
+        long[] serials = new long[profiles.size()];
+        for (int i = 0; i < serials.length; i++) {
+            serials[i] = userManager.getSerialNumberForUser(profiles.get(i));
+        }
+
+        String[] titles = getTitles();
+        Random random = new Random(mSeed);
+        GridOccupancy occupied = new GridOccupancy(mCountX, mCountY);
+        WorkspaceWriter writer = new WorkspaceWriter(db);
+
+        db.beginTransaction();
+        try {
+            for (int rank = 0; rank < mHotseatCount; rank++) {
+                writer.insertApp(serials[random.nextInt(serials.length)],
+                        Favorites.CONTAINER_HOTSEAT, rank, rank, 0, rank);
+            }
+
+            for (int page = 0; page < mPageCount; page++) {
+                long screenId = page;
+                ContentValues values = new ContentValues();
+                values.put(WorkspaceScreens._ID, screenId);
+                values.put(WorkspaceScreens.SCREEN_RANK, page);
+                db.insertOrThrow(WorkspaceScreens.TABLE_NAME, null, values);
+
+                occupied.clear();
+                for (int y = 0; y < mCountY; y++) {
+                    for (int x = 0; x < mCountX; x++) {
+                        if (occupied.cells[x][y]) {
+                            continue;
+                        }
+                        long serial = serials[random.nextInt(serials.length)];
+                        if (fillCell(writer, random, occupied, serial, screenId, x, y)) {
+                            continue;
+                        }
+                        occupied.cells[x][y] = true;
+
+                        if (random.nextFloat() >= mFolderDensity) {
+                            writer.insertApp(serial, Favorites.CONTAINER_DESKTOP, screenId,
+                                    x, y, 0);
+                            continue;
+                        }
+
+                        long folderId = writer.insertItem(Favorites.ITEM_TYPE_FOLDER, serial,
+                                Favorites.CONTAINER_DESKTOP, screenId, x, y, 0,
+                                newTitleValues(titles[random.nextInt(titles.length)]));
+                        int folderSize = 3 + random.nextInt(6);
+                        for (int rank = 0; rank < folderSize; rank++) {
+                            writer.insertApp(serial, folderId, 0, rank % 3, rank / 3, rank);
+                        }
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return writer.getItemCount();
+    }
+
+    /**
+     * Returns the component of the app at {@param index}, with one app per package.
+     */
+    public static ComponentName getComponent(int index) {
+        String packageName = "com.example.app" + index;
+        return new ComponentName(packageName, packageName + ".MainActivity");
+    }
+
+    public int getAppCount() {
+        return mAppCount;
+    }
+
+    /**
+     * Fills the vacant cell at {@param x}, {@param y} with an item other than an app or a folder,
+     * and marks the cells it uses in {@param occupied}.
+     *
+     * @return false to fill the cell with an app or a folder instead.
+     */
+    protected boolean fillCell(WorkspaceWriter writer, Random random, GridOccupancy occupied,
+            long serial, long screenId, int x, int y) {
+        return false;
+    }
+
+    /**
+     * Returns the title of an app, of one to three words.
+     */
+    protected String createTitle(Random random) {
+        return createTitle(random, " ", SYLLABLES);
+    }
+
+    /**
+     * Drops the titles, for them to be created again with the new parameters.
+     */
+    protected void resetTitles() {
+        mTitles = null;
+    }
+
+    protected String[] getTitles() {
+        if (mTitles == null) {
+            Random random = new Random(mSeed);
+            mTitles = new String[mAppCount];
+            for (int i = 0; i < mAppCount; i++) {
+                mTitles[i] = createTitle(random);
+            }
+        }
+        return mTitles;
+    }
+
+    protected static String createTitle(Random random, String wordSeparator,
+            String[] syllables) {
+        StringBuilder title = new StringBuilder();
+        int wordCount = 1 + random.nextInt(3);
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                title.append(wordSeparator);
+            }
+            int syllableCount = 1 + random.nextInt(3);
+            for (int j = 0; j < syllableCount; j++) {
+                String syllable = syllables[random.nextInt(syllables.length)];
+                title.append(j == 0 ? Character.toUpperCase(syllable.charAt(0))
+                        + syllable.substring(1) : syllable);
+            }
+        }
+        return title.toString();
+    }
+
+    private static ContentValues newTitleValues(String title) {
+        ContentValues values = new ContentValues();
+        values.put(Favorites.TITLE, title);
+        return values;
+    }
+
+    /**
+     * Writes the items of a workspace, with consecutive ids, using the apps in turn.
+     */
+    protected class WorkspaceWriter {
+
+        private final SQLiteDatabase mDb;
+        private long mNextId = 1;
+        private int mNextApp = 0;
+
+        WorkspaceWriter(SQLiteDatabase db) {
+            mDb = db;
+        }
+
+        void insertApp(long serial, long container, long screen, int cellX, int cellY,
+                int rank) {
+            ContentValues values = new ContentValues();
+            values.put(Favorites.INTENT, AppInfo.makeLaunchIntent(
+                    getComponent(mNextApp++ % mAppCount)).toUri(0));
+            insertItem(Favorites.ITEM_TYPE_APPLICATION, serial, container, screen,
+                    cellX, cellY, rank, values);
+        }
+
+        /**
+         * Inserts an item with {@param values}, which can set the spans.
+         *
+         * @return the id of the item.
+         */
+        protected long insertItem(int itemType, long serial, long container, long screen,
+                int cellX, int cellY, int rank, ContentValues values) {
+            long id = mNextId++;
+            values.put(Favorites._ID, id);
+            values.put(Favorites.ITEM_TYPE, itemType);
+            values.put(Favorites.PROFILE_ID, serial);
+            values.put(Favorites.CONTAINER, container);
+            values.put(Favorites.SCREEN, screen);
+            values.put(Favorites.CELLX, cellX);
+            values.put(Favorites.CELLY, cellY);
+            if (!values.containsKey(Favorites.SPANX)) {
+                values.put(Favorites.SPANX, 1);
+                values.put(Favorites.SPANY, 1);
+            }
+            values.put(Favorites.RANK, rank);
+            mDb.insertOrThrow(Favorites.TABLE_NAME, null, values);
+            return id;
+        }
+
+        int getItemCount() {
+            return (int) (mNextId - 1);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.benchmark;
+
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.ComponentName;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.graphics.Point;
+import android.os.Parcel;
+import android.os.Process;
+import android.os.UserHandle;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.compat.AppWidgetManagerCompat;
+import com.android.launcher3.util.GridOccupancy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link SyntheticData} with the apps of more than one profile, widgets on the workspace and
+ * titles in several scripts, to measure how the launcher scales up to thousands of apps.
+ *
+ *   WorkloadGenerator generator = new WorkloadGenerator()
+ *           .setAppCount(5000)
+ *           .setPageCount(20)
+ *           .setProfileCount(2)
+ *           .setTitleScripts(TitleScript.LATIN, TitleScript.CJK);
+ *   generator.installInventory(context);
+ *   generator.fillWorkspace(context, db);
+ *
+ * The items are written to the database directly, with the schema created by the
+ * {@link com.android.launcher3.LauncherProvider} of the tree.
+ */
+public class WorkloadGenerator extends SyntheticData {
+
+    /**
+     * Writing systems of the generated titles, each made of syllables of that script.
+     */
+    public enum TitleScript {
+        LATIN(" ", "ka", "lo", "mi", "ne", "ru", "ta", "shi", "vo", "pe", "zu", "an", "el", "or",
+                "im"),
+        CYRILLIC(" ", "ка", "ло", "ми", "не", "ру", "та", "ши", "во", "пе", "зу", "ан", "ел"),
+        GREEK(" ", "κα", "λο", "μι", "νε", "ρυ", "τα", "πε", "ζυ", "αν", "ελ"),
+        ARABIC(" ", "كا", "لو", "مي", "نه", "رو", "تا", "شي", "فو", "بي", "زو"),
+        DEVANAGARI(" ", "का", "लो", "मी", "ने", "रु", "ता", "शि", "वो", "पे", "ज़ु"),
+        CJK("", "电", "子", "邮", "件", "日", "月", "山", "川", "地", "图", "音", "乐"),
+        HANGUL("", "다", "운", "로", "드", "라", "이", "브", "가", "나", "마", "사", "지");
+
+        private final String mWordSeparator;
+        private final String[] mSyllables;
+
+        TitleScript(String wordSeparator, String... syllables) {
+            mWordSeparator = wordSeparator;
+            mSyllables = syllables;
+        }
+    }
+
+    private static final int FIRST_PROFILE_ID = 10;
+
+    private float mWidgetDensity = 0;
+    private Point[] mWidgetSpans = { new Point(2, 2), new Point(4, 2), new Point(4, 1) };
+    private int mProfileCount = 1;
+    private TitleScript[] mTitleScripts = { TitleScript.LATIN };
+
+    private List<UserHandle> mProfiles;
+
+    // State of the workspace being filled.
+    private AppWidgetManagerCompat mWidgetManager;
+    private AppWidgetProviderInfo[] mWidgetProviders;
+    private int mNextAppWidgetId;
+
+    // The setters of SyntheticData, returning a WorkloadGenerator.
+
+    @Override
+    public WorkloadGenerator setSeed(long seed) {
+        super.setSeed(seed);
+        return this;
+    }
+
+    @Override
+    public WorkloadGenerator setAppCount(int appCount) {
+        super.setAppCount(appCount);
+        return this;
+    }
+
+    @Override
+    public WorkloadGenerator setPageCount(int pageCount) {
+        super.setPageCount(pageCount);
+        return this;
+    }
+
+    @Override
+    public WorkloadGenerator setGridSize(int countX, int countY, int hotseatCount) {
+        super.setGridSize(countX, countY, hotseatCount);
+        return this;
+    }
+
+    @Override
+    public WorkloadGenerator setFolderDensity(float folderDensity) {
+        super.setFolderDensity(folderDensity);
+        return this;
+    }
+
+    /**
+     * Sets the probability that a vacant cell of the workspace gets a widget, picked among
+     * {@param spans}. The cell gets an app or a folder when the picked widget does not fit there.
+     */
+    public WorkloadGenerator setWidgetMix(float widgetDensity, Point... spans) {
+        mWidgetDensity = widgetDensity;
+        if (spans.length > 0) {
+            mWidgetSpans = spans;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of profiles, the first one being the current user. Each profile has the
+     * same apps, as a work profile where the apps of the user are cloned.
+     */
+    public WorkloadGenerator setProfileCount(int profileCount) {
+        if (profileCount < 1) {
+            throw new IllegalArgumentException("At least one profile is needed: " + profileCount);
+        }
+        mProfileCount = profileCount;
+        mProfiles = null;
+        return this;
+    }
+
+    /**
+     * Sets the scripts of the titles, each title being written in one of them.
+     */
+    public WorkloadGenerator setTitleScripts(TitleScript... titleScripts) {
+        if (titleScripts.length == 0) {
+            throw new IllegalArgumentException("At least one script is needed");
+        }
+        mTitleScripts = titleScripts;
+        resetTitles();
+        return this;
+    }
+
+    @Override
+    public List<UserHandle> getProfiles() {
+        if (mProfiles == null) {
+            mProfiles = new ArrayList<>(mProfileCount);
+            mProfiles.add(Process.myUserHandle());
+            for (int i = 1; i < mProfileCount; i++) {
+                // The constructor taking the id of the user is hidden.
+                Parcel p = Parcel.obtain();
+                p.writeInt(FIRST_PROFILE_ID + i - 1);
+                p.setDataPosition(0);
+                mProfiles.add(new UserHandle(p));
+                p.recycle();
+            }
+        }
+        return mProfiles;
+    }
+
+    /**
+     * Also installs fake app widgets with the widgets of the workload.
+     */
+    @Override
+    public void installInventory(Context context) {
+        super.installInventory(context);
+
+        FakeAppWidgetManager widgetManager = new FakeAppWidgetManager(context);
+        for (AppWidgetProviderInfo info : createWidgetProviders()) {
+            for (UserHandle user : getProfiles()) {
+                widgetManager.addProvider(info, user);
+            }
+        }
+        AppWidgetManagerCompat.setInstance(widgetManager);
+    }
+
+    /**
+     * The inventory needs to be installed first, also for the ids of the widgets.
+     */
+    @Override
+    public int fillWorkspace(Context context, SQLiteDatabase db) {
+        mWidgetManager = AppWidgetManagerCompat.getInstance(context);
+        mWidgetProviders = createWidgetProviders();
+        mNextAppWidgetId = 1;
+        try {
+            return super.fillWorkspace(context, db);
+        } finally {
+            mWidgetManager = null;
+            mWidgetProviders = null;
+        }
+    }
+
+    @Override
+    protected boolean fillCell(WorkspaceWriter writer, Random random, GridOccupancy occupied,
+            long serial, long screenId, int x, int y) {
+        if (random.nextFloat() >= mWidgetDensity) {
+            return false;
+        }
+        int widget = random.nextInt(mWidgetProviders.length);
+        Point spans = mWidgetSpans[widget];
+        if (!occupied.isRegionVacant(x, y, spans.x, spans.y)) {
+            return false;
+        }
+        int appWidgetId = mNextAppWidgetId++;
+        mWidgetManager.bindAppWidgetIdIfAllowed(appWidgetId, mWidgetProviders[widget], null);
+        ContentValues values = new ContentValues();
+        values.put(Favorites.SPANX, spans.x);
+        values.put(Favorites.SPANY, spans.y);
+        values.put(Favorites.APPWIDGET_ID, appWidgetId);
+        values.put(Favorites.APPWIDGET_PROVIDER,
+                mWidgetProviders[widget].provider.flattenToString());
+        writer.insertItem(Favorites.ITEM_TYPE_APPWIDGET, serial, Favorites.CONTAINER_DESKTOP,
+                screenId, x, y, 0, values);
+        occupied.markCells(x, y, spans.x, spans.y, true);
+        return true;
+    }
+
+    @Override
+    protected String createTitle(Random random) {
+        TitleScript script = mTitleScripts[random.nextInt(mTitleScripts.length)];
+        return createTitle(random, script.mWordSeparator, script.mSyllables);
+    }
+
+    /**
+     * Returns the providers of the widgets, one for each spans, each belonging to the app at the
+     * same index.
+     */
+    private AppWidgetProviderInfo[] createWidgetProviders() {
+        String[] titles = getTitles();
+        AppWidgetProviderInfo[] providers = new AppWidgetProviderInfo[mWidgetSpans.length];
+        for (int i = 0; i < providers.length; i++) {
+            Point spans = mWidgetSpans[i];
+            String packageName = getComponent(i % getAppCount()).getPackageName();
+            AppWidgetProviderInfo info = new AppWidgetProviderInfo();
+            info.provider = new ComponentName(packageName,
+                    packageName + ".Widget" + spans.x + "x" + spans.y);
+            info.label = titles[i % getAppCount()];
+            // Sizes given by the guidelines of the app widgets, for the spans of a handset.
+            info.minWidth = 70 * spans.x - 30;
+            info.minHeight = 70 * spans.y - 30;
+            info.resizeMode = AppWidgetProviderInfo.RESIZE_BOTH;
+            providers[i] = info;
+        }
+        return providers;
+    }
+}
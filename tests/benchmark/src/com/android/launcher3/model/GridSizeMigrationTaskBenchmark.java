@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.graphics.Point;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.LauncherSettings.WorkspaceScreens;
+import com.android.launcher3.benchmark.BenchmarkLauncherProvider;
+import com.android.launcher3.benchmark.BenchmarkRule;
+import com.android.launcher3.benchmark.SyntheticData;
+import com.android.launcher3.benchmark.WorkloadGenerator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmarks of {@link GridSizeMigrationTask}, from a full 5x5 grid to a 4x4 grid. The database
+ * is filled again before each iteration, which is not measured.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GridSizeMigrationTaskBenchmark {
+
+    private static final int SRC_SIZE = 5;
+    private static final int TRG_SIZE = 4;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private Context mContext;
+    private BenchmarkLauncherProvider mProvider;
+    private InvariantDeviceProfile mIdp;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mProvider = BenchmarkLauncherProvider.install();
+        mIdp = new SyntheticData().setGridSize(TRG_SIZE, TRG_SIZE, TRG_SIZE)
+                .createDeviceProfile();
+    }
+
+    @After
+    public void tearDown() {
+        SyntheticData.uninstallInventory();
+    }
+
+    @Test
+    public void testMigrateWorkspace_1Page() throws Exception {
+        benchmarkMigrateWorkspace(new SyntheticData().setGridSize(SRC_SIZE, SRC_SIZE, SRC_SIZE)
+                .setPageCount(1));
+    }
+
+    @Test
+    public void testMigrateWorkspace_3Pages() throws Exception {
+        benchmarkMigrateWorkspace(new SyntheticData().setGridSize(SRC_SIZE, SRC_SIZE, SRC_SIZE)
+                .setPageCount(3));
+    }
+
+    @Test
+    public void testMigrateWorkspace_20Pages_widgets() throws Exception {
+        benchmarkMigrateWorkspace(new WorkloadGenerator()
+                .setGridSize(SRC_SIZE, SRC_SIZE, SRC_SIZE)
+                .setAppCount(5000)
+                .setPageCount(20)
+                .setWidgetMix(0.1f));
+    }
+
+    @Test
+    public void testMigrateHotseat() throws Exception {
+        SyntheticData generator = new SyntheticData().setGridSize(SRC_SIZE, SRC_SIZE, SRC_SIZE);
+        HashSet<String> validPackages = installInventory(generator);
+        boolean changed = false;
+        while (mBenchmark.keepRunning()) {
+            mBenchmark.pauseTiming();
+            fillDb(generator);
+            mBenchmark.resumeTiming();
+
+            changed = new GridSizeMigrationTask(mContext, mIdp, validPackages,
+                    SRC_SIZE, TRG_SIZE).migrateHotseat();
+        }
+        assertTrue(changed);
+    }
+
+    private void benchmarkMigrateWorkspace(SyntheticData generator) throws Exception {
+        HashSet<String> validPackages = installInventory(generator);
+        boolean changed = false;
+        while (mBenchmark.keepRunning()) {
+            mBenchmark.pauseTiming();
+            fillDb(generator);
+            mBenchmark.resumeTiming();
+
+            changed = new GridSizeMigrationTask(mContext, mIdp, validPackages,
+                    new Point(SRC_SIZE, SRC_SIZE), new Point(TRG_SIZE, TRG_SIZE))
+                    .migrateWorkspace();
+        }
+        assertTrue(changed);
+    }
+
+    private HashSet<String> installInventory(SyntheticData generator) {
+        generator.installInventory(mContext);
+        return generator.getPackageNames();
+    }
+
+    private void fillDb(SyntheticData generator) {
+        SQLiteDatabase db = mProvider.getDb();
+        db.delete(Favorites.TABLE_NAME, null, null);
+        db.delete(WorkspaceScreens.TABLE_NAME, null, null);
+        generator.fillWorkspace(mContext, db);
+        // Reads the ids of the new items, for the screens added by the migration.
+        mProvider.reopen();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.content.Context;
+import android.graphics.Point;
+
+import com.android.launcher3.AllAppsList;
+import com.android.launcher3.AppFilter;
+import com.android.launcher3.IconCache;
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.LauncherModel;
+import com.android.launcher3.benchmark.BenchmarkLauncherProvider;
+import com.android.launcher3.benchmark.BenchmarkRule;
+import com.android.launcher3.benchmark.SyntheticData;
+import com.android.launcher3.benchmark.WorkloadGenerator;
+import com.android.launcher3.benchmark.WorkloadGenerator.TitleScript;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmarks of {@link LoaderTask#run()} on launcher databases of 1 to 20 pages and inventories
+ * of up to 5000 apps. The binding is not measured: the results are dropped, and the loader does
+ * not wait for the UI thread between its steps. The icons are in the memory cache after the
+ * warmup, so the icon rendering is not measured.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LoaderTaskBenchmark {
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private Context mContext;
+    private BenchmarkLauncherProvider mProvider;
+    private BgDataModel mBgDataModel;
+    private AllAppsList mAllAppsList;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mProvider = BenchmarkLauncherProvider.install();
+    }
+
+    @After
+    public void tearDown() {
+        SyntheticData.uninstallInventory();
+    }
+
+    @Test
+    public void testLoad_1Page() {
+        benchmarkLoad(new SyntheticData().setPageCount(1));
+    }
+
+    @Test
+    public void testLoad_5Pages() {
+        benchmarkLoad(new SyntheticData().setPageCount(5));
+    }
+
+    @Test
+    public void testLoad_20Pages() {
+        benchmarkLoad(new SyntheticData().setPageCount(20));
+    }
+
+    /**
+     * Measures a workspace of 20 pages with widgets, among the apps of a user and a work profile.
+     */
+    @Test
+    public void testLoad_20Pages_widgetsAndWorkProfile() {
+        benchmarkLoad(new WorkloadGenerator()
+                .setAppCount(1000)
+                .setPageCount(20)
+                .setProfileCount(2)
+                .setWidgetMix(0.1f, new Point(2, 2), new Point(4, 2), new Point(5, 3)));
+    }
+
+    @Test
+    public void testLoad_1000Apps() {
+        benchmarkLoad(new SyntheticData().setAppCount(1000));
+    }
+
+    @Test
+    public void testLoad_5000Apps_twoProfiles() {
+        benchmarkLoad(new WorkloadGenerator()
+                .setAppCount(2500)
+                .setProfileCount(2)
+                .setTitleScripts(TitleScript.LATIN, TitleScript.CYRILLIC, TitleScript.CJK));
+    }
+
+    private void benchmarkLoad(SyntheticData generator) {
+        LoaderTask loaderTask = createLoaderTask(generator);
+        int itemCount = generator.fillWorkspace(mContext, mProvider.getDb());
+
+        while (mBenchmark.keepRunning()) {
+            loaderTask.run();
+        }
+        // No item was removed as invalid, and all the apps were loaded.
+        assertEquals(itemCount, mBgDataModel.itemsIdMap.size());
+        assertEquals(generator.createApps().size(), mAllAppsList.size());
+    }
+
+    private LoaderTask createLoaderTask(SyntheticData generator) {
+        generator.installInventory(mContext);
+
+        InvariantDeviceProfile idp = generator.createDeviceProfile();
+        IconCache iconCache = new IconCache(mContext, idp);
+        LauncherModel model = mock(LauncherModel.class);
+        when(model.beginLoader(any(LoaderTask.class)))
+                .thenReturn(mock(LauncherModel.LoaderTransaction.class));
+        LauncherAppState appState = mock(LauncherAppState.class);
+        when(appState.getContext()).thenReturn(mContext);
+        when(appState.getIconCache()).thenReturn(iconCache);
+        when(appState.getInvariantDeviceProfile()).thenReturn(idp);
+        when(appState.getModel()).thenReturn(model);
+
+        mBgDataModel = new BgDataModel();
+        mAllAppsList = new AllAppsList(iconCache, new AppFilter());
+        return new LoaderTask(appState, mAllAppsList, mBgDataModel, mock(LoaderResults.class)) {
+            @Override
+            protected synchronized void waitForIdle() { }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.provider;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.android.launcher3.LauncherProvider.DatabaseHelper;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.LauncherSettings.WorkspaceScreens;
+import com.android.launcher3.benchmark.BenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks of {@link BulkRestoreWriter} for a backup of 5000 items, much larger than a real
+ * workspace, against {@link SQLiteDatabase#insert} in one transaction. The tables are emptied
+ * before each iteration, which is not measured.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BulkRestoreWriterBenchmark {
+
+    private static final int SCREEN_COUNT = 50;
+    private static final int ITEM_COUNT = 5000;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private DatabaseHelper mHelper;
+    private ContentValues[] mItems;
+
+    @Before
+    public void setUp() {
+        mHelper = new DatabaseHelper(RuntimeEnvironment.application, null, null) {
+            @Override
+            protected void onEmptyDbCreated() { }
+        };
+        mItems = new ContentValues[ITEM_COUNT];
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            mItems[i] = createItem(i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mHelper.close();
+    }
+
+    @Test
+    public void testInsert_writer() {
+        ContentValues values = new ContentValues();
+        while (mBenchmark.keepRunning()) {
+            mBenchmark.pauseTiming();
+            clearDb();
+            mBenchmark.resumeTiming();
+
+            try (BulkRestoreWriter writer = new BulkRestoreWriter(mHelper, null)) {
+                for (int i = 0; i < SCREEN_COUNT; i++) {
+                    values.clear();
+                    values.put(WorkspaceScreens._ID, i);
+                    values.put(WorkspaceScreens.SCREEN_RANK, i);
+                    writer.insert(WorkspaceScreens.TABLE_NAME, values);
+                }
+                for (ContentValues item : mItems) {
+                    writer.insert(Favorites.TABLE_NAME, item);
+                }
+                writer.commit();
+            }
+        }
+        assertEquals(ITEM_COUNT, getItemCount());
+    }
+
+    @Test
+    public void testInsert_sqliteInsert() {
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        while (mBenchmark.keepRunning()) {
+            mBenchmark.pauseTiming();
+            clearDb();
+            mBenchmark.resumeTiming();
+
+            try (LauncherDbUtils.SQLiteTransaction t = new LauncherDbUtils.SQLiteTransaction(db)) {
+                for (int i = 0; i < SCREEN_COUNT; i++) {
+                    values.clear();
+                    values.put(WorkspaceScreens._ID, i);
+                    values.put(WorkspaceScreens.SCREEN_RANK, i);
+                    db.insert(WorkspaceScreens.TABLE_NAME, null, values);
+                }
+                for (ContentValues item : mItems) {
+                    db.insert(Favorites.TABLE_NAME, null, item);
+                }
+                t.commit();
+            }
+        }
+        assertEquals(ITEM_COUNT, getItemCount());
+    }
+
+    private void clearDb() {
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        db.delete(Favorites.TABLE_NAME, null, null);
+        db.delete(WorkspaceScreens.TABLE_NAME, null, null);
+    }
+
+    private int getItemCount() {
+        try (Cursor c = mHelper.getWritableDatabase()
+                .rawQuery("select * from " + Favorites.TABLE_NAME, null)) {
+            return c.getCount();
+        }
+    }
+
+    private static ContentValues createItem(int id) {
+        ContentValues values = new ContentValues();
+        values.put(Favorites._ID, id);
+        values.put(Favorites.CONTAINER, Favorites.CONTAINER_DESKTOP);
+        values.put(Favorites.SCREEN, id % SCREEN_COUNT);
+        values.put(Favorites.CELLX, id % 5);
+        values.put(Favorites.CELLY, (id / 5) % 5);
+        values.put(Favorites.SPANX, 1);
+        values.put(Favorites.SPANY, 1);
+        values.put(Favorites.TITLE, "item " + id);
+        values.put(Favorites.RESTORED, 1);
+        if (id % 10 == 0) {
+            // Some shortcuts with their own icon, as in a real backup.
+            values.put(Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_SHORTCUT);
+            values.put(Favorites.INTENT, "#Intent;action=android.intent.action.VIEW;end");
+            values.put(Favorites.ICON, new byte[1024]);
+        } else {
+            values.put(Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_APPLICATION);
+            values.put(Favorites.INTENT, Favorites.LAUNCH_INTENT_PREFIX
+                    + "com.example.app" + id + "/.Main" + Favorites.LAUNCH_INTENT_SUFFIX);
+        }
+        return values;
+    }
+}
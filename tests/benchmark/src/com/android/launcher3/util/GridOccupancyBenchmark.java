@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import com.android.launcher3.benchmark.BenchmarkRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmarks of the searches of {@link GridOccupancy}, which the reorder of CellLayout and the
+ * placement of new items repeat for each candidate cell. CellLayout itself needs a running
+ * launcher, so the reorder is measured through these searches on the host.
+ */
+public class GridOccupancyBenchmark {
+
+    private static final int COUNT_X = 6;
+    private static final int COUNT_Y = 6;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private GridOccupancy mOccupied;
+    private GridOccupancy mTmpOccupied;
+
+    @Before
+    public void setUp() {
+        mOccupied = new GridOccupancy(COUNT_X, COUNT_Y);
+        mTmpOccupied = new GridOccupancy(COUNT_X, COUNT_Y);
+
+        // Fills about three quarters of the grid, leaving the last cell of the grid vacant.
+        Random random = new Random(42);
+        for (int x = 0; x < COUNT_X; x++) {
+            for (int y = 0; y < COUNT_Y; y++) {
+                mOccupied.cells[x][y] = random.nextInt(4) != 0;
+            }
+        }
+        mOccupied.markCells(COUNT_X - 2, COUNT_Y - 2, 2, 2, false);
+    }
+
+    @Test
+    public void testFindVacantCell_2x2() {
+        int[] vacant = new int[2];
+        boolean found = false;
+        while (mBenchmark.keepRunning()) {
+            for (int i = 0; i < 1000; i++) {
+                found = mOccupied.findVacantCell(vacant, 2, 2);
+            }
+        }
+        assertTrue(found);
+    }
+
+    /**
+     * Measures the checks of all the regions of a 2x2 item, on a copy of the grid as done for
+     * each solution of a reorder.
+     */
+    @Test
+    public void testCopyAndCheckAllRegions_2x2() {
+        int vacantCount = 0;
+        while (mBenchmark.keepRunning()) {
+            for (int i = 0; i < 100; i++) {
+                mOccupied.copyTo(mTmpOccupied);
+                vacantCount = 0;
+                for (int x = 0; x < COUNT_X; x++) {
+                    for (int y = 0; y < COUNT_Y; y++) {
+                        if (mTmpOccupied.isRegionVacant(x, y, 2, 2)) {
+                            vacantCount++;
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(vacantCount > 0);
+    }
+}
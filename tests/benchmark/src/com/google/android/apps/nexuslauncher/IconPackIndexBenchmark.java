@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.apps.nexuslauncher;
+
+import android.content.ComponentName;
+
+import com.android.launcher3.benchmark.BenchmarkRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Benchmarks of {@link IconPackIndex} for an icon pack of 5000 components, about the size of the
+ * largest packs.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IconPackIndexBenchmark {
+
+    private static final int ENTRY_COUNT = 5000;
+    private static final int CALENDAR_COUNT = 20;
+    private static final int LOOKUP_COUNT = 100;
+
+    private static final String PACK = "com.example.iconpack";
+    private static final long VERSION_CODE = 42;
+    private static final long UPDATE_TIME = 1000;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private IconPackIndex.Builder mBuilder;
+    private File mFile;
+    private ComponentName[] mComponents;
+
+    @Before
+    public void setUp() {
+        mBuilder = new IconPackIndex.Builder(PACK, VERSION_CODE, UPDATE_TIME);
+        mComponents = new ComponentName[ENTRY_COUNT];
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            mComponents[i] = new ComponentName("com.example.app" + i,
+                    "com.example.app" + i + ".MainActivity");
+            mBuilder.addComponent(mComponents[i], 0x7f020000 + i);
+        }
+        for (int i = 0; i < CALENDAR_COUNT; i++) {
+            mBuilder.addCalendar(new ComponentName("com.example.calendar" + i, ".Main"),
+                    "calendar_");
+        }
+        mBuilder.addClock(0x7f020000, 0, 1, 2, 10, 10, 0);
+        mFile = new File(RuntimeEnvironment.application.getCacheDir(), "icon_pack_index");
+    }
+
+    /**
+     * Measures the compilation of the index, done once per version of the pack.
+     */
+    @Test
+    public void testCompile() throws Exception {
+        IconPackIndex index = null;
+        while (mBenchmark.keepRunning()) {
+            index = mBuilder.build(mFile);
+        }
+        assertEquals(ENTRY_COUNT, index.getComponentCount());
+    }
+
+    /**
+     * Measures the mapping of a compiled index and its first lookup, done on each start.
+     */
+    @Test
+    public void testLoad_firstLookup() throws Exception {
+        mBuilder.build(mFile);
+        int drawableId = 0;
+        while (mBenchmark.keepRunning()) {
+            IconPackIndex index = IconPackIndex.load(mFile, PACK, VERSION_CODE, UPDATE_TIME);
+            drawableId = index.getDrawableId(mComponents[ENTRY_COUNT / 2]);
+        }
+        assertEquals(0x7f020000 + ENTRY_COUNT / 2, drawableId);
+    }
+
+    /**
+     * Measures {@link #LOOKUP_COUNT} lookups in a mapped index.
+     */
+    @Test
+    public void testGetDrawableId() throws Exception {
+        mBuilder.build(mFile);
+        IconPackIndex index = IconPackIndex.load(mFile, PACK, VERSION_CODE, UPDATE_TIME);
+        assertNotNull(index);
+        int found = 0;
+        while (mBenchmark.keepRunning()) {
+            found = 0;
+            for (int i = 0; i < LOOKUP_COUNT; i++) {
+                if (index.getDrawableId(mComponents[i * (ENTRY_COUNT / LOOKUP_COUNT)]) != 0) {
+                    found++;
+                }
+            }
+        }
+        assertEquals(LOOKUP_COUNT, found);
+    }
+}
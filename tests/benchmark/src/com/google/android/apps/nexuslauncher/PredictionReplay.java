@@ -0,0 +1,94 @@
+package com.google.android.apps.nexuslauncher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Evaluates {@link ContextualAppModel} offline, by replaying a recorded {@link AppLaunchLog}.
+ *
+ * Before each launch the model predicts {@link #TOP_K} apps, and the launch is a hit if the
+ * launched app is one of them. The frequency-only ranking of {@link AppPredictionStore} is
+ * replayed as a baseline. Only depends on the JVM, so it runs on a host with the unit test
+ * classpath, on a log pulled from a device:
+ *
+ * $ java com.google.android.apps.nexuslauncher.PredictionReplay app_launch_log [time zone id]
+ */
+public class PredictionReplay {
+
+    public static final int TOP_K = 5;
+
+    public static Result replay(List<AppLaunchLog.Launch> launches, TimeZone timeZone) {
+        ContextualAppModel model = new ContextualAppModel();
+        model.setTimeZone(timeZone);
+        AppPredictionStore baseline = new AppPredictionStore(TOP_K);
+
+        Result result = new Result();
+        ArrayList<String> predictions = new ArrayList<>(TOP_K);
+        for (AppLaunchLog.Launch launch : launches) {
+            predictions.clear();
+            long start = System.nanoTime();
+            model.predict(launch.time, TOP_K, predictions);
+            long duration = System.nanoTime() - start;
+
+            result.launches++;
+            result.totalScoringNanos += duration;
+            result.maxScoringNanos = Math.max(result.maxScoringNanos, duration);
+            if (predictions.contains(launch.component)) {
+                result.hits++;
+            }
+            if (baseline.getTopComponents().contains(launch.component)) {
+                result.baselineHits++;
+            }
+
+            model.onLaunch(launch.component, launch.time);
+            baseline.addLaunch(launch.component, launch.time, 1);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: PredictionReplay <launch log> [time zone id]");
+            System.exit(1);
+        }
+        List<AppLaunchLog.Launch> launches = new ArrayList<>();
+        AppLaunchLog.read(new File(args[0] + ".old"), launches);
+        AppLaunchLog.read(new File(args[0]), launches);
+        TimeZone timeZone = args.length > 1
+                ? TimeZone.getTimeZone(args[1]) : TimeZone.getDefault();
+        System.out.println(replay(launches, timeZone));
+    }
+
+    public static class Result {
+        public int launches;
+        public int hits;
+        public int baselineHits;
+        public long totalScoringNanos;
+        public long maxScoringNanos;
+
+        public float getHitRate() {
+            return launches == 0 ? 0 : (float) hits / launches;
+        }
+
+        public float getBaselineHitRate() {
+            return launches == 0 ? 0 : (float) baselineHits / launches;
+        }
+
+        public float getAverageScoringMicros() {
+            return launches == 0 ? 0 : totalScoringNanos / 1000f / launches;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "launches=%d top%d hit rate=%.3f (frequency baseline %.3f)"
+                            + " scoring avg=%.2fus max=%.2fus",
+                    launches, TOP_K, getHitRate(), getBaselineHitRate(),
+                    getAverageScoringMicros(), maxScoringNanos / 1000f);
+        }
+    }
+}
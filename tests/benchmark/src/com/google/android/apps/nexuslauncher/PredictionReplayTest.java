@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.apps.nexuslauncher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays a fixture {@link AppLaunchLog}, holding six weeks of a synthetic routine: a few apps
+ * launched at fixed times of the day, different on weekends, a camera to gallery transition, and
+ * occasional launches of 15 other apps at random times.
+ */
+public class PredictionReplayTest {
+
+    private static final String LAUNCH_LOG = "app_launch_log";
+
+    private List<AppLaunchLog.Launch> mLaunches;
+
+    @Before
+    public void setUp() throws Exception {
+        mLaunches = new ArrayList<>();
+        AppLaunchLog.read(new File(getClass().getResource(LAUNCH_LOG).toURI()), mLaunches);
+    }
+
+    @Test
+    public void testReadFixture() {
+        assertEquals(483, mLaunches.size());
+        for (int i = 1; i < mLaunches.size(); i++) {
+            assertTrue(mLaunches.get(i - 1).time <= mLaunches.get(i).time);
+        }
+    }
+
+    @Test
+    public void testHitRate() {
+        PredictionReplay.Result result =
+                PredictionReplay.replay(mLaunches, TimeZone.getTimeZone("UTC"));
+
+        assertEquals(mLaunches.size(), result.launches);
+        // The routine is only predictable from the time of day and the transitions.
+        assertTrue(result.toString(), result.getHitRate() > result.getBaselineHitRate());
+        assertTrue(result.toString(), result.getHitRate() >= 0.65f);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.apps.nexuslauncher;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.LauncherActivityInfo;
+import android.os.Process;
+
+import com.android.launcher3.benchmark.BenchmarkRule;
+import com.android.launcher3.benchmark.SyntheticData;
+import com.android.launcher3.compat.LauncherAppsCompat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmarks of {@link RoundIconCache} for 300 installed packages, once the round icons were
+ * resolved and saved by a previous start.
+ *
+ * The manifests of the fake packages can not be parsed on the host, so the cold resolution is not
+ * measured here, only what the cache costs on the following starts and icon loads.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RoundIconCacheBenchmark {
+
+    private static final int PACKAGE_COUNT = 300;
+
+    @Rule public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    private Context mContext;
+    private File mFile;
+    private List<LauncherActivityInfo> mActivities;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        new SyntheticData().setAppCount(PACKAGE_COUNT).installInventory(mContext);
+        mActivities = LauncherAppsCompat.getInstance(mContext)
+                .getActivityList(null, Process.myUserHandle());
+        for (LauncherActivityInfo info : mActivities) {
+            ApplicationInfo appInfo = info.getApplicationInfo();
+            appInfo.sourceDir = "/data/app/" + appInfo.packageName + "-1/base.apk";
+        }
+
+        mFile = new File(mContext.getCacheDir(), "round_icons");
+        mFile.delete();
+        new RoundIconCache(mContext, mFile).preload();
+        assertTrue(mFile.exists());
+    }
+
+    @After
+    public void tearDown() {
+        SyntheticData.uninstallInventory();
+    }
+
+    /**
+     * Measures the preload of a new process: reading the file, validating it against the
+     * installed packages and checking every launchable package.
+     */
+    @Test
+    public void testPreload_saved() {
+        long lastModified = mFile.lastModified();
+        while (mBenchmark.keepRunning()) {
+            new RoundIconCache(mContext, mFile).preload();
+        }
+        // All the saved entries were valid, so the file was not written again.
+        assertEquals(lastModified, mFile.lastModified());
+    }
+
+    /**
+     * Measures the lookups of all the packages in a validated cache, as done by an icon cache
+     * rebuild.
+     */
+    @Test
+    public void testGetRoundIconId() {
+        RoundIconCache cache = new RoundIconCache(mContext, mFile);
+        cache.preload();
+        while (mBenchmark.keepRunning()) {
+            for (LauncherActivityInfo info : mActivities) {
+                cache.getRoundIconId(info.getApplicationInfo(), info.getUser());
+            }
+        }
+        assertEquals(PACKAGE_COUNT, mActivities.size());
+    }
+}
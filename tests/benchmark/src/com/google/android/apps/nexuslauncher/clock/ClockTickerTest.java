@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.apps.nexuslauncher.clock;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.LayerDrawable;
+import android.graphics.drawable.RotateDrawable;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Counts the wakeups of {@link ClockTicker} for a workspace of clock icons. Before the ticker,
+ * every clock scheduled its own update each second, that is 3600 wakeups per clock and hour.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ClockTickerTest {
+
+    private static final int CLOCK_COUNT = 20;
+
+    private final Drawable.Callback mCallback = new Drawable.Callback() {
+        @Override
+        public void invalidateDrawable(Drawable who) { }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) { }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) { }
+    };
+
+    private ClockTicker mTicker;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mTicker = new ClockTicker() {
+            @Override
+            long currentTimeMillis() {
+                // Follow the scheduler, which does not move the wall clock.
+                return SystemClock.uptimeMillis();
+            }
+        };
+        mCanvas = new Canvas(Bitmap.createBitmap(48, 48, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void testTicks_minuteHands() {
+        drawClocks(createClocks(CLOCK_COUNT, false));
+        ShadowLooper.idleMainLooper(1, TimeUnit.HOURS);
+        assertEquals(60, mTicker.getTickCount());
+    }
+
+    @Test
+    public void testTicks_secondHand() {
+        ArrayList<AutoUpdateClock> clocks = createClocks(CLOCK_COUNT - 1, false);
+        clocks.addAll(createClocks(1, true));
+        drawClocks(clocks);
+        ShadowLooper.idleMainLooper(1, TimeUnit.HOURS);
+        // All the clocks are updated by one wakeup each second.
+        assertEquals(3600, mTicker.getTickCount());
+    }
+
+    @Test
+    public void testTicks_hiddenClocksDropped() {
+        ArrayList<AutoUpdateClock> clocks = createClocks(CLOCK_COUNT, true);
+        drawClocks(clocks);
+        for (AutoUpdateClock clock : clocks) {
+            clock.setVisible(false, false);
+        }
+        ShadowLooper.idleMainLooper(1, TimeUnit.HOURS);
+        assertEquals(1, mTicker.getTickCount());
+
+        // Clocks register again when they are drawn.
+        clocks.get(0).setVisible(true, false);
+        drawClocks(clocks.subList(0, 1));
+        ShadowLooper.idleMainLooper(1, TimeUnit.MINUTES);
+        assertEquals(61, mTicker.getTickCount());
+    }
+
+    @Test
+    public void testRegister_offUiThread() throws Exception {
+        final ArrayList<AutoUpdateClock> clocks = createClocks(CLOCK_COUNT, true);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drawClocks(clocks);
+            }
+        });
+        thread.start();
+        thread.join();
+        ShadowLooper.idleMainLooper(1, TimeUnit.HOURS);
+        assertEquals(0, mTicker.getTickCount());
+    }
+
+    private void drawClocks(Iterable<AutoUpdateClock> clocks) {
+        for (AutoUpdateClock clock : clocks) {
+            clock.draw(mCanvas);
+        }
+    }
+
+    private ArrayList<AutoUpdateClock> createClocks(int count, boolean secondHand) {
+        ClockLayers layers = new ClockLayers();
+        Drawable[] drawables = new Drawable[secondHand ? 4 : 3];
+        drawables[0] = new ColorDrawable(Color.WHITE);
+        for (int i = 1; i < drawables.length; i++) {
+            RotateDrawable hand = new RotateDrawable();
+            hand.setDrawable(new ColorDrawable(Color.BLACK));
+            drawables[i] = hand;
+        }
+        layers.mDrawable = new LayerDrawable(drawables);
+        layers.mHourIndex = 1;
+        layers.mMinuteIndex = 2;
+        layers.mSecondIndex = secondHand ? 3 : -1;
+        layers.scale = 1;
+
+        ArrayList<AutoUpdateClock> clocks = new ArrayList<>();
+        Bitmap bitmap = Bitmap.createBitmap(48, 48, Bitmap.Config.ARGB_8888);
+        for (int i = 0; i < count; i++) {
+            AutoUpdateClock clock = new AutoUpdateClock(bitmap, layers.clone(), mTicker);
+            clock.setBounds(0, 0, 48, 48);
+            clock.setCallback(mCallback);
+            clocks.add(clock);
+        }
+        return clocks;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3;
+
+import android.content.ComponentName;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.Workspace.ItemOperator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests for the indexes and the item mapping of {@link DeferredWorkspaceItems}. The workspace
+ * paths using it are tested by {@link LazyWorkspacePagesTest}.
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class DeferredWorkspaceItemsTest {
+
+    private static final long SCREEN_ID = 3;
+
+    private DeferredWorkspaceItems mItems;
+
+    private ShortcutInfo mShortcut;
+    private FolderInfo mFolder;
+    private ShortcutInfo mFolderShortcut;
+    private LauncherAppWidgetInfo mWidget;
+
+    @Before
+    public void setUp() {
+        mItems = new DeferredWorkspaceItems();
+
+        mShortcut = newShortcut(1, Favorites.CONTAINER_DESKTOP);
+        mFolder = new FolderInfo();
+        mFolder.id = 2;
+        mFolder.screenId = SCREEN_ID;
+        mFolder.container = Favorites.CONTAINER_DESKTOP;
+        mFolderShortcut = newShortcut(3, mFolder.id);
+        mFolder.contents.add(mFolderShortcut);
+        mWidget = new LauncherAppWidgetInfo(42, new ComponentName("com.example", ".Widget"));
+        mWidget.id = 4;
+        mWidget.screenId = SCREEN_ID;
+    }
+
+    @Test
+    public void testAdd_indexesByIdAndWidgetId() {
+        mItems.add(mShortcut);
+        mItems.add(mWidget);
+
+        assertTrue(mItems.containsScreen(SCREEN_ID));
+        assertSame(mShortcut, mItems.getItem(mShortcut.id));
+        assertSame(mWidget, mItems.getWidget(mWidget.appWidgetId));
+        assertNull(mItems.getItem(Favorites.CONTAINER_DESKTOP));
+    }
+
+    @Test
+    public void testMapOverItems_recurse_thenRemoveScreen() {
+        mItems.add(mShortcut);
+        mItems.add(mFolder);
+        assertSame(mFolder, mItems.getItem(mFolder.id));
+        assertNull(mItems.getWidget(mWidget.appWidgetId));
+
+        // The operator sees the items and the folder contents, without views.
+        final HashSet<ShortcutInfo> updates =
+                new HashSet<>(Arrays.asList(mShortcut, mFolderShortcut));
+        final ArrayList<ItemInfo> updated = new ArrayList<>();
+        mItems.mapOverItems(true /* recurse */, new ItemOperator() {
+            @Override
+            public boolean evaluate(ItemInfo info, View view) {
+                assertNull(view);
+                if (updates.contains(info)) {
+                    info.title = "updated";
+                    updated.add(info);
+                }
+                return false;
+            }
+        });
+        assertEquals(Arrays.<ItemInfo>asList(mShortcut, mFolderShortcut), updated);
+
+        // Removing the screen returns its items with their updates, and clears the indexes.
+        ArrayList<ItemInfo> items = mItems.removeScreen(SCREEN_ID);
+        assertEquals(Arrays.<ItemInfo>asList(mShortcut, mFolder), items);
+        assertEquals("updated", mShortcut.title);
+        assertEquals("updated", mFolder.contents.get(0).title);
+
+        assertTrue(mItems.isEmpty());
+        assertFalse(mItems.containsScreen(SCREEN_ID));
+        assertNull(mItems.getItem(mShortcut.id));
+        assertNull(mItems.getItem(mFolder.id));
+        assertNull(mItems.removeScreen(SCREEN_ID));
+    }
+
+    @Test
+    public void testMapOverItems_noRecurse() {
+        mItems.add(mFolder);
+        final ArrayList<ItemInfo> visited = new ArrayList<>();
+        boolean done = mItems.mapOverItems(false /* recurse */, new ItemOperator() {
+            @Override
+            public boolean evaluate(ItemInfo info, View view) {
+                visited.add(info);
+                return info == mFolder;
+            }
+        });
+        assertTrue(done);
+        assertEquals(Arrays.<ItemInfo>asList(mFolder), visited);
+    }
+
+    private ShortcutInfo newShortcut(long id, long container) {
+        ShortcutInfo info = new ShortcutInfo();
+        info.id = id;
+        info.screenId = SCREEN_ID;
+        info.container = container;
+        info.title = "shortcut" + id;
+        return info;
+    }
+}
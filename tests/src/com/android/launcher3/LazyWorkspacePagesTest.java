@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.os.Process;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.Workspace.ItemOperator;
+import com.android.launcher3.ui.AbstractLauncherUiTest;
+import com.android.launcher3.util.Condition;
+import com.android.launcher3.util.Wait;
+import com.android.launcher3.util.rule.LauncherActivityRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the deferred binding of the workspace pages away from the current page: the release of
+ * their icons, the deferred binds, the lookups and updates of their items, and the bind of their
+ * items when they are scrolled to.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class LazyWorkspacePagesTest extends AbstractLauncherUiTest {
+
+    // The pages after the first page of an empty workspace.
+    private static final long NEAR_SCREEN_ID = 101;
+    private static final long DISTANT_SCREEN_ID = 104;
+
+    @Rule public LauncherActivityRule mActivityMonitor = new LauncherActivityRule();
+
+    private Launcher mLauncher;
+    private Workspace mWorkspace;
+
+    private ShortcutInfo mNearShortcut;
+    private ShortcutInfo mShortcut;
+    private FolderInfo mFolder;
+    private ShortcutInfo mFolderShortcut;
+
+    @Before
+    public void setUpWorkspace() throws Throwable {
+        clearHomescreen();
+        mActivityMonitor.startLauncher();
+        assertTrue(Wait.atMost(Condition.runOnUiThread(new Condition() {
+            @Override
+            public boolean isTrue() {
+                Launcher launcher = mActivityMonitor.getActivity();
+                return launcher != null && !launcher.isWorkspaceLoading();
+            }
+        }), DEFAULT_ACTIVITY_TIMEOUT));
+        mLauncher = mActivityMonitor.getActivity();
+        mWorkspace = mLauncher.getWorkspace();
+
+        mNearShortcut = newShortcut(1001, NEAR_SCREEN_ID, Favorites.CONTAINER_DESKTOP, 0);
+        mShortcut = newShortcut(1002, DISTANT_SCREEN_ID, Favorites.CONTAINER_DESKTOP, 0);
+        mFolder = new FolderInfo();
+        mFolder.id = 1003;
+        mFolder.screenId = DISTANT_SCREEN_ID;
+        mFolder.container = Favorites.CONTAINER_DESKTOP;
+        mFolder.cellX = 1;
+        mFolder.title = "folder";
+        mFolderShortcut = newShortcut(1004, DISTANT_SCREEN_ID, mFolder.id, 0);
+        mFolder.contents.add(mFolderShortcut);
+
+        getOnUiThread(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (long screenId = NEAR_SCREEN_ID; screenId <= DISTANT_SCREEN_ID; screenId++) {
+                    mWorkspace.insertNewWorkspaceScreenBeforeEmptyScreen(screenId);
+                }
+                mWorkspace.setCurrentPage(
+                        mWorkspace.getPageIndexForScreenId(Workspace.FIRST_SCREEN_ID));
+                ArrayList<ItemInfo> items = new ArrayList<ItemInfo>(
+                        Arrays.asList(mNearShortcut, mShortcut, mFolder));
+                mLauncher.bindItems(items, 0, items.size(), false);
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testDematerializeDistantScreens_releasesIcons() {
+        getOnUiThread(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                // The workspace is loaded, so all the items are bound.
+                assertEquals(2, getBoundItemCount(DISTANT_SCREEN_ID));
+                assertTrue(mWorkspace.getDeferredItems(DISTANT_SCREEN_ID).isEmpty());
+
+                mWorkspace.dematerializeDistantScreens();
+
+                assertEquals(0, getBoundItemCount(DISTANT_SCREEN_ID));
+                assertEquals(new HashSet<ItemInfo>(Arrays.asList(mShortcut, mFolder)),
+                        new HashSet<>(mWorkspace.getDeferredItems(DISTANT_SCREEN_ID)));
+
+                // The page next to the current page keeps its icons.
+                assertEquals(1, getBoundItemCount(NEAR_SCREEN_ID));
+                assertTrue(mWorkspace.getDeferredItems(NEAR_SCREEN_ID).isEmpty());
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testDeferItemIfOffscreen() {
+        getOnUiThread(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                ShortcutInfo distant =
+                        newShortcut(1005, DISTANT_SCREEN_ID, Favorites.CONTAINER_DESKTOP, 2);
+                ShortcutInfo near =
+                        newShortcut(1006, NEAR_SCREEN_ID, Favorites.CONTAINER_DESKTOP, 2);
+
+                // Once loaded, only the items of released pages are deferred.
+                assertFalse(mWorkspace.deferItemIfOffscreen(distant));
+
+                mWorkspace.dematerializeDistantScreens();
+                assertTrue(mWorkspace.deferItemIfOffscreen(distant));
+                assertTrue(mWorkspace.getDeferredItems(DISTANT_SCREEN_ID).contains(distant));
+                assertFalse(mWorkspace.deferItemIfOffscreen(near));
+                assertFalse(mWorkspace.deferItemIfOffscreen(mFolderShortcut));
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testMapOverItems_visitsDeferredItems() {
+        getOnUiThread(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                mWorkspace.dematerializeDistantScreens();
+
+                final ArrayList<ItemInfo> deferred = new ArrayList<>();
+                mWorkspace.mapOverItems(true /* recurse */, new ItemOperator() {
+                    @Override
+                    public boolean evaluate(ItemInfo info, View view) {
+                        if (info.screenId == DISTANT_SCREEN_ID) {
+                            assertNull(view);
+                            deferred.add(info);
+                        } else if (info == mNearShortcut) {
+                            assertNotNull(view);
+                        }
+                        return false;
+                    }
+                });
+                assertEquals(new HashSet<ItemInfo>(Arrays.asList(mShortcut, mFolderShortcut)),
+                        new HashSet<>(deferred));
+
+                deferred.clear();
+                mWorkspace.mapOverItems(false /* recurse */, new ItemOperator() {
+                    @Override
+                    public boolean evaluate(ItemInfo info, View view) {
+                        if (info.screenId == DISTANT_SCREEN_ID) {
+                            deferred.add(info);
+                        }
+                        return false;
+                    }
+                });
+                assertEquals(new HashSet<ItemInfo>(Arrays.asList(mShortcut, mFolder)),
+                        new HashSet<>(deferred));
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testGetFirstMatch_bindsDeferredPage() {
+        getOnUiThread(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                mWorkspace.dematerializeDistantScreens();
+
+                // The item is updated while its page is released.
+                mShortcut.title = "updated";
+
+                View view = mWorkspace.getFirstMatch(new ItemOperator() {
+                    @Override
+                    public boolean evaluate(ItemInfo info, View v) {
+                        return info == mShortcut;
+                    }
+                });
+                assertNotNull(view);
+                assertSame(mShortcut, view.getTag());
+                assertEquals("updated", ((BubbleTextView) view).getText().toString());
+
+                assertEquals(2, getBoundItemCount(DISTANT_SCREEN_ID));
+                assertTrue(mWorkspace.getDeferredItems(DISTANT_SCREEN_ID).isEmpty());
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testScroll_materializesScreen() {
+        getOnUiThread(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                mWorkspace.dematerializeDistantScreens();
+                mWorkspace.setCurrentPage(mWorkspace.getPageIndexForScreenId(DISTANT_SCREEN_ID));
+                return null;
+            }
+        });
+        // The page is bound after the scroll is applied.
+        getOnUiThread(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                assertEquals(2, getBoundItemCount(DISTANT_SCREEN_ID));
+                assertTrue(mWorkspace.getDeferredItems(DISTANT_SCREEN_ID).isEmpty());
+                assertNotNull(mWorkspace.getHomescreenIconByItemId(mFolder.id));
+                return null;
+            }
+        });
+    }
+
+    private int getBoundItemCount(long screenId) {
+        return mWorkspace.getScreenWithId(screenId).getShortcutsAndWidgets().getChildCount();
+    }
+
+    private ShortcutInfo newShortcut(long id, long screenId, long container, int cellX) {
+        ShortcutInfo info = new ShortcutInfo();
+        info.id = id;
+        info.itemType = Favorites.ITEM_TYPE_APPLICATION;
+        info.screenId = screenId;
+        info.container = container;
+        info.cellX = cellX;
+        info.title = "shortcut" + id;
+        info.intent = new Intent(Intent.ACTION_MAIN)
+                .setComponent(new ComponentName(mTargetPackage, "Shortcut" + id));
+        info.user = Process.myUserHandle();
+        info.iconBitmap = LauncherAppState.getInstance(mTargetContext).getIconCache()
+                .getDefaultIcon(info.user);
+        return info;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.anim;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SpringSystem}
+ */
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class SpringSystemTest {
+
+    // Same values as the all apps springs.
+    private static final float STIFFNESS = 900f;
+    private static final float DAMPING_RATIO = 0.55f;
+    private static final float FRAME_SECONDS = 0.016f;
+
+    // About the icons of a full all apps page.
+    private static final int SPRING_COUNT = 40;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+    }
+
+    @Test
+    public void testUnderDamped_matchesSpringEquation() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                View view = new View(mContext);
+                SpringSystem springs = new SpringSystem(true);
+                springs.setSpring(view, STIFFNESS, DAMPING_RATIO, -1000, 1000);
+                springs.animateToFinalPosition(0, 100);
+                for (int i = 0; i < 10; i++) {
+                    springs.step(FRAME_SECONDS);
+                }
+
+                double omega = Math.sqrt(STIFFNESS);
+                double dampedOmega = omega * Math.sqrt(1 - DAMPING_RATIO * DAMPING_RATIO);
+                double t = 10 * FRAME_SECONDS;
+                double expected = 100 * Math.exp(-DAMPING_RATIO * omega * t)
+                        * (Math.cos(dampedOmega * t)
+                        + DAMPING_RATIO * omega / dampedOmega * Math.sin(dampedOmega * t));
+                assertEquals(expected, springs.getValue(view), 0.01);
+                springs.skipToEnd();
+            }
+        });
+    }
+
+    @Test
+    public void testDampingRatios_areContinuous() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                View under = new View(mContext);
+                View critical = new View(mContext);
+                View over = new View(mContext);
+                SpringSystem springs = new SpringSystem(true);
+                springs.setSpring(under, STIFFNESS, 0.999f, -1000, 1000);
+                springs.setSpring(critical, STIFFNESS, 1f, -1000, 1000);
+                springs.setSpring(over, STIFFNESS, 1.001f, -1000, 1000);
+                springs.setStartVelocity(-2000);
+                springs.animateToFinalPosition(0, 50);
+                for (int i = 0; i < 5; i++) {
+                    springs.step(FRAME_SECONDS);
+                }
+                assertEquals(springs.getValue(critical), springs.getValue(under), 0.1);
+                assertEquals(springs.getValue(critical), springs.getValue(over), 0.1);
+                springs.skipToEnd();
+            }
+        });
+    }
+
+    @Test
+    public void testSprings_settleWithinBounds() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                View[] views = new View[SPRING_COUNT];
+                SpringSystem springs = new SpringSystem(true);
+                for (int i = 0; i < views.length; i++) {
+                    views[i] = new View(mContext);
+                    springs.setSpring(views[i], getStiffness(i), DAMPING_RATIO,
+                            -getMaxValue(i), getMaxValue(i));
+                }
+                springs.setStartVelocity(5000);
+                springs.animateToFinalPosition(0, -1);
+                assertTrue(springs.isRunning());
+
+                // Run for at most 2 seconds.
+                for (int frame = 0; frame < 125 && springs.isRunning(); frame++) {
+                    springs.step(FRAME_SECONDS);
+                    for (int i = 0; i < views.length; i++) {
+                        float value = springs.getValue(views[i]);
+                        assertTrue(value <= getMaxValue(i) && value >= -getMaxValue(i));
+                    }
+                }
+                assertFalse(springs.isRunning());
+                for (View view : views) {
+                    assertEquals(0, springs.getValue(view), 0);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testRemove_endsSpring() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                View first = new View(mContext);
+                View second = new View(mContext);
+                SpringSystem springs = new SpringSystem(true);
+                springs.setSpring(first, STIFFNESS, DAMPING_RATIO, -100, 100);
+                springs.setSpring(second, STIFFNESS, DAMPING_RATIO, -100, 100);
+                springs.animateToFinalPosition(0, 50);
+                springs.step(FRAME_SECONDS);
+
+                springs.remove(first);
+                assertEquals(0, first.getTranslationY(), 0);
+                assertTrue(springs.isRunning());
+                springs.remove(second);
+                assertFalse(springs.isRunning());
+            }
+        });
+    }
+
+    @Test
+    public void testSetStartVelocity_newSpringJoinsRunningSprings() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                View running = new View(mContext);
+                View added = new View(mContext);
+                SpringSystem springs = new SpringSystem(true);
+                springs.setSpring(running, STIFFNESS, DAMPING_RATIO, -1000, 1000);
+                springs.setStartVelocity(2000);
+                springs.animateToFinalPosition(0, 0);
+                springs.step(FRAME_SECONDS);
+                float firstStepValue = springs.getValue(running);
+                assertTrue(firstStepValue > 0);
+
+                // A spring added during the animation moves from the same state as the others.
+                springs.setSpring(added, STIFFNESS, DAMPING_RATIO, -1000, 1000);
+                springs.setStartVelocity(added, 2000);
+                springs.step(FRAME_SECONDS);
+                assertEquals(firstStepValue, springs.getValue(added), 0);
+                springs.skipToEnd();
+            }
+        });
+    }
+
+    /**
+     * Stiffness of the spring at {@param index}, for a grid of 5 columns as in all apps.
+     */
+    private static float getStiffness(int index) {
+        return Math.max(900f - (index / 5) * 50f, 580f);
+    }
+
+    private static float getMaxValue(int index) {
+        return 100 * (1 + (index / 5) * 0.5f);
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
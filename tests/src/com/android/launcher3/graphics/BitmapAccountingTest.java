@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.graphics;
+
+import android.graphics.Bitmap;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.android.launcher3.graphics.BitmapAccounting.OWNER_BADGES;
+import static com.android.launcher3.graphics.BitmapAccounting.OWNER_OUTLINES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BitmapAccounting}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class BitmapAccountingTest {
+
+    // The totals are process wide, so the tests only look at the changes.
+
+    @Test
+    public void testTrack_countsBytesUntilUntracked() {
+        Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        long before = BitmapAccounting.getBytes()[OWNER_OUTLINES];
+
+        BitmapAccounting.track(OWNER_OUTLINES, bitmap);
+        assertEquals(before + 400, BitmapAccounting.getBytes()[OWNER_OUTLINES]);
+        // Tracking twice does not count the bitmap twice.
+        BitmapAccounting.track(OWNER_OUTLINES, bitmap);
+        assertEquals(before + 400, BitmapAccounting.getBytes()[OWNER_OUTLINES]);
+
+        BitmapAccounting.untrack(bitmap);
+        assertEquals(before, BitmapAccounting.getBytes()[OWNER_OUTLINES]);
+    }
+
+    @Test
+    public void testTrack_movesBitmapToNewOwner() {
+        Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ALPHA_8);
+        long[] before = BitmapAccounting.getBytes();
+
+        BitmapAccounting.track(OWNER_OUTLINES, bitmap);
+        BitmapAccounting.track(OWNER_BADGES, bitmap);
+        long[] after = BitmapAccounting.getBytes();
+        assertEquals(before[OWNER_OUTLINES], after[OWNER_OUTLINES]);
+        assertEquals(before[OWNER_BADGES] + 100, after[OWNER_BADGES]);
+
+        BitmapAccounting.untrack(bitmap);
+        assertEquals(before[OWNER_BADGES], BitmapAccounting.getBytes()[OWNER_BADGES]);
+    }
+
+    @Test
+    public void testSummary_keepsHighWaterMark() {
+        Bitmap bitmap = Bitmap.createBitmap(1024, 1024, Bitmap.Config.ALPHA_8);
+        BitmapAccounting.track(OWNER_BADGES, bitmap);
+        BitmapAccounting.untrack(bitmap);
+
+        String summary = BitmapAccounting.getSummary();
+        int start = summary.indexOf("badges=");
+        assertTrue(start >= 0);
+        String value = summary.substring(start + "badges=".length()).split(" ")[0];
+        assertTrue(Long.parseLong(value.split("/")[1]) >= 1024);
+    }
+}
@@ -88,6 +88,24 @@ public class DbDowngradeHelperTest {
         assertEquals(0, mSchemaFile.lastModified());
     }
 
+    @Test
+    public void testDowngrade_success_v27() throws Exception {
+        setupTestDb();
+
+        SQLiteOpenHelper helper = new TestOpenHelper(27);
+        assertEquals(27, helper.getWritableDatabase().getVersion());
+
+        try (Cursor c = helper.getWritableDatabase().query(Favorites.TABLE_NAME,
+                null, null, null, null, null, null)) {
+            // Check column does not exist
+            assertEquals(-1, c.getColumnIndex(Favorites.LAUNCH_COMPONENT));
+
+            // Check data is present
+            assertEquals(10, c.getCount());
+        }
+        helper.close();
+    }
+
     @Test
     public void testDowngrade_success_v24() throws Exception {
         setupTestDb();
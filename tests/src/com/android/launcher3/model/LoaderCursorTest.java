@@ -2,18 +2,23 @@ package com.android.launcher3.model;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.content.ContentValues;
 import android.content.Intent;
 import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.graphics.Bitmap;
+import android.net.Uri;
 import android.os.Process;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
 
+import com.android.launcher3.AppInfo;
 import com.android.launcher3.IconCache;
 import com.android.launcher3.InvariantDeviceProfile;
 import com.android.launcher3.ItemInfo;
 import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.LauncherSettings.Favorites;
 import com.android.launcher3.ShortcutInfo;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.compat.LauncherAppsCompat;
@@ -222,6 +227,57 @@ public class LoaderCursorTest {
                 newItemInfo(3, 3, 1, 1, CONTAINER_HOTSEAT, 3L), workspaceScreens));
     }
 
+    @Test
+    public void parseIntent_launchComponent() {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        Favorites.addTableToDb(db, 0, false);
+
+        Intent launchIntent = AppInfo.makeLaunchIntent(
+                new ComponentName(mContext.getPackageName(), "dummy$inner"));
+        Intent viewIntent = new Intent(Intent.ACTION_VIEW, Uri.parse("http://example.com"));
+        insertIntent(db, 1, launchIntent);
+        insertIntent(db, 2, viewIntent);
+
+        LoaderCursor c = new LoaderCursor(db.query(Favorites.TABLE_NAME,
+                null, null, null, null, null, _ID), mMockApp);
+        assertTrue(c.moveToNext());
+        assertNotNull(c.getString(c.getColumnIndex(Favorites.LAUNCH_COMPONENT)));
+        assertEquals(launchIntent.toUri(0), c.parseIntent().toUri(0));
+
+        assertTrue(c.moveToNext());
+        assertNull(c.getString(c.getColumnIndex(Favorites.LAUNCH_COMPONENT)));
+        assertEquals(viewIntent.toUri(0), c.parseIntent().toUri(0));
+        c.close();
+
+        // The component follows the intent updates
+        ContentValues values = new ContentValues();
+        values.put(INTENT, viewIntent.toUri(0));
+        db.update(Favorites.TABLE_NAME, values, "_id=1", null);
+        values.put(INTENT, launchIntent.toUri(0));
+        db.update(Favorites.TABLE_NAME, values, "_id=2", null);
+        c = new LoaderCursor(db.query(Favorites.TABLE_NAME,
+                null, null, null, null, null, _ID), mMockApp);
+        assertTrue(c.moveToNext());
+        assertNull(c.getString(c.getColumnIndex(Favorites.LAUNCH_COMPONENT)));
+        assertEquals(viewIntent.toUri(0), c.parseIntent().toUri(0));
+
+        // The trigger computes the same component as the writers
+        assertTrue(c.moveToNext());
+        assertEquals(Favorites.getLaunchComponent(launchIntent.toUri(0)),
+                c.getString(c.getColumnIndex(Favorites.LAUNCH_COMPONENT)));
+        assertEquals(launchIntent.toUri(0), c.parseIntent().toUri(0));
+        c.close();
+        db.close();
+    }
+
+    private void insertIntent(SQLiteDatabase db, long id, Intent intent) {
+        ContentValues values = new ContentValues();
+        values.put(_ID, id);
+        values.put(INTENT, intent.toUri(0));
+        Favorites.putLaunchComponent(values);
+        db.insert(Favorites.TABLE_NAME, null, values);
+    }
+
     private ItemInfo newItemInfo(int cellX, int cellY, int spanX, int spanY,
             long container, long screenId) {
         ItemInfo info = new ItemInfo();
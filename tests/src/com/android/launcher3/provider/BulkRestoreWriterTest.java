@@ -0,0 +1,147 @@
+package com.android.launcher3.provider;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.MediumTest;
+
+import com.android.launcher3.LauncherProvider.DatabaseHelper;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.LauncherSettings.WorkspaceScreens;
+
+/**
+ * Tests for {@link BulkRestoreWriter}
+ */
+@MediumTest
+public class BulkRestoreWriterTest extends AndroidTestCase {
+
+    // Size of the synthetic backup, much larger than a real workspace.
+    private static final int SCREEN_COUNT = 50;
+    private static final int ITEM_COUNT = 5000;
+
+    private DatabaseHelper mHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mHelper = new MyDatabaseHelper();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mHelper.close();
+        super.tearDown();
+    }
+
+    public void testInsert_largeBackup() {
+        try (BulkRestoreWriter writer = new BulkRestoreWriter(mHelper, null)) {
+            insertBackup(writer);
+            writer.commit();
+        }
+
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        assertEquals(SCREEN_COUNT, getCount(db, "select * from workspaceScreens"));
+        assertEquals(ITEM_COUNT, getCount(db, "select * from favorites"));
+        assertEquals(ITEM_COUNT / 10, getCount(db, "select * from favorites where icon not null"));
+        assertEquals(0, getCount(db, "select * from favorites where modified = 0"));
+        // Ids are tracked as with the provider.
+        assertEquals(ITEM_COUNT, mHelper.generateNewItemId());
+    }
+
+    public void testClose_withoutCommit_rollsBack() {
+        try (BulkRestoreWriter writer = new BulkRestoreWriter(mHelper, null)) {
+            insertBackup(writer);
+        }
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        assertEquals(0, getCount(db, "select * from workspaceScreens"));
+        assertEquals(0, getCount(db, "select * from favorites"));
+    }
+
+    public void testCancel_rollsBack() {
+        CancellationSignal signal = new CancellationSignal();
+        try (BulkRestoreWriter writer = new BulkRestoreWriter(mHelper, signal)) {
+            writer.insert(Favorites.TABLE_NAME, createItem(0));
+            signal.cancel();
+            writer.insert(Favorites.TABLE_NAME, createItem(1));
+            fail("Insert should fail after cancel");
+        } catch (OperationCanceledException e) {
+            // Expected
+        }
+        assertEquals(0, getCount(mHelper.getWritableDatabase(), "select * from favorites"));
+    }
+
+    public void testProgress() {
+        final int[] progress = new int[1];
+        try (BulkRestoreWriter writer = new BulkRestoreWriter(mHelper, null)) {
+            writer.setProgressListener(new BulkRestoreWriter.ProgressListener() {
+                @Override
+                public void onProgress(int rowsWritten) {
+                    assertTrue(rowsWritten >= progress[0]);
+                    progress[0] = rowsWritten;
+                }
+            });
+            for (int i = 0; i < 250; i++) {
+                writer.insert(Favorites.TABLE_NAME, createItem(i));
+            }
+            assertEquals(200, progress[0]);
+            writer.commit();
+        }
+        assertEquals(250, progress[0]);
+    }
+
+    private void insertBackup(BulkRestoreWriter writer) {
+        ContentValues values = new ContentValues();
+        for (int i = 0; i < SCREEN_COUNT; i++) {
+            values.clear();
+            values.put(WorkspaceScreens._ID, i);
+            values.put(WorkspaceScreens.SCREEN_RANK, i);
+            writer.insert(WorkspaceScreens.TABLE_NAME, values);
+        }
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            writer.insert(Favorites.TABLE_NAME, createItem(i));
+        }
+    }
+
+    private ContentValues createItem(int id) {
+        ContentValues values = new ContentValues();
+        values.put(Favorites._ID, id);
+        values.put(Favorites.CONTAINER, Favorites.CONTAINER_DESKTOP);
+        values.put(Favorites.SCREEN, id % SCREEN_COUNT);
+        values.put(Favorites.CELLX, id % 5);
+        values.put(Favorites.CELLY, (id / 5) % 5);
+        values.put(Favorites.SPANX, 1);
+        values.put(Favorites.SPANY, 1);
+        values.put(Favorites.TITLE, "item " + id);
+        values.put(Favorites.RESTORED, 1);
+        if (id % 10 == 0) {
+            // Some shortcuts with their own icon, as in a real backup.
+            values.put(Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_SHORTCUT);
+            values.put(Favorites.INTENT, "#Intent;action=android.intent.action.VIEW;end");
+            values.put(Favorites.ICON, new byte[1024]);
+        } else {
+            values.put(Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_APPLICATION);
+            values.put(Favorites.INTENT, Favorites.LAUNCH_INTENT_PREFIX
+                    + "com.example.app" + id + "/.Main" + Favorites.LAUNCH_INTENT_SUFFIX);
+        }
+        return values;
+    }
+
+    private int getCount(SQLiteDatabase db, String sql) {
+        try (Cursor c = db.rawQuery(sql, null)) {
+            return c.getCount();
+        }
+    }
+
+    private class MyDatabaseHelper extends DatabaseHelper {
+
+        MyDatabaseHelper() {
+            super(getContext(), null, null);
+        }
+
+        @Override
+        protected void onEmptyDbCreated() { }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.ui;
+
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeProviderCompat;
+import android.view.View;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.ItemInfo;
+import com.android.launcher3.ShortcutInfo;
+import com.android.launcher3.accessibility.LauncherAccessibilityDelegate.DragInfo;
+import com.android.launcher3.accessibility.LauncherAccessibilityDelegate.DragType;
+import com.android.launcher3.accessibility.WorkspaceAccessibilityHelper;
+import com.android.launcher3.util.rule.LauncherActivityRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests the traversal of the virtual views of a {@link CellLayout} during an accessible drag, as
+ * done by a screen reader, with the cached drop targets and descriptions.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class AccessibleDragTraversalTest extends AbstractLauncherUiTest {
+
+    private static final int GRID_SIZE = 6;
+    private static final int LAYOUT_SIZE = 1200;
+
+    @Rule public LauncherActivityRule mActivityMonitor = new LauncherActivityRule();
+
+    @Test
+    public void testTraverseVirtualViews_iconDrag() throws Throwable {
+        mActivityMonitor.startLauncher();
+        getOnUiThread(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                CellLayout layout = createLayout();
+                WorkspaceAccessibilityHelper helper =
+                        createHelper(layout, DragType.ICON, new ShortcutInfo());
+                AccessibilityNodeProviderCompat provider =
+                        helper.getAccessibilityNodeProvider(layout);
+
+                // All the cells of an empty grid are drop targets.
+                ArrayList<CharSequence> descriptions = new ArrayList<>();
+                assertEquals(GRID_SIZE * GRID_SIZE, traverse(provider, descriptions));
+
+                // The cached nodes are the same.
+                ArrayList<CharSequence> cachedDescriptions = new ArrayList<>();
+                assertEquals(GRID_SIZE * GRID_SIZE, traverse(provider, cachedDescriptions));
+                assertEquals(descriptions, cachedDescriptions);
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testTraverseVirtualViews_widgetDrag_cellsChanged() throws Throwable {
+        mActivityMonitor.startLauncher();
+        getOnUiThread(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                CellLayout layout = createLayout();
+                ShortcutInfo info = new ShortcutInfo();
+                info.spanX = info.spanY = 2;
+                WorkspaceAccessibilityHelper helper =
+                        createHelper(layout, DragType.WIDGET, info);
+                AccessibilityNodeProviderCompat provider =
+                        helper.getAccessibilityNodeProvider(layout);
+
+                // A 2x2 widget can be dropped with its top left corner on 5x5 cells.
+                int targets = (GRID_SIZE - 1) * (GRID_SIZE - 1);
+                assertEquals(targets, traverse(provider, new ArrayList<CharSequence>()));
+
+                // Occupying the first cell removes the only target covering it.
+                View child = new View(layout.getContext());
+                layout.addViewToCellLayout(child, -1, 0, new CellLayout.LayoutParams(0, 0, 1, 1),
+                        true);
+                helper.onCellsChanged(0, 0, 1, 1);
+                assertEquals(targets - 1, traverse(provider, new ArrayList<CharSequence>()));
+
+                layout.removeView(child);
+                helper.onCellsChanged(0, 0, 1, 1);
+                assertEquals(targets, traverse(provider, new ArrayList<CharSequence>()));
+                return null;
+            }
+        });
+    }
+
+    private CellLayout createLayout() {
+        CellLayout layout = new CellLayout(mActivityMonitor.getActivity());
+        layout.setGridSize(GRID_SIZE, GRID_SIZE);
+        int spec = View.MeasureSpec.makeMeasureSpec(LAYOUT_SIZE, View.MeasureSpec.EXACTLY);
+        layout.measure(spec, spec);
+        layout.layout(0, 0, LAYOUT_SIZE, LAYOUT_SIZE);
+        return layout;
+    }
+
+    private static WorkspaceAccessibilityHelper createHelper(
+            CellLayout layout, DragType dragType, ItemInfo info) {
+        final DragInfo dragInfo = new DragInfo();
+        dragInfo.dragType = dragType;
+        dragInfo.info = info;
+        return new WorkspaceAccessibilityHelper(layout) {
+            @Override
+            protected DragInfo getDragInfo() {
+                return dragInfo;
+            }
+        };
+    }
+
+    /**
+     * Creates the nodes of the layout and of all its virtual views, adds the descriptions of the
+     * virtual views to {@param outDescriptions} and returns the number of virtual views.
+     */
+    private static int traverse(AccessibilityNodeProviderCompat provider,
+            ArrayList<CharSequence> outDescriptions) {
+        AccessibilityNodeInfoCompat host =
+                provider.createAccessibilityNodeInfo(View.NO_ID);
+        int childCount = host.getChildCount();
+        host.recycle();
+
+        for (int id = 0; id < GRID_SIZE * GRID_SIZE; id++) {
+            AccessibilityNodeInfoCompat node = provider.createAccessibilityNodeInfo(id);
+            assertNotNull(node.getContentDescription());
+            outDescriptions.add(node.getContentDescription().toString());
+            node.recycle();
+        }
+        return childCount;
+    }
+}
@@ -242,6 +242,26 @@ public final class FocusLogicTest extends AndroidTestCase {
         assertEquals(4, i);
     }
 
+    public void testFocusMapMatchesMatrixSearch() {
+        int[][] map = transpose(new int[][]{
+                {-1, 0, -1, -1, 5},
+                {-1, 1, -1, -1, -1},
+                {-11, -11, -11, -11, 4},
+                {6, 2, -1, -1, -1},
+                {-1, 3, -1, 7, -1},
+        });
+        FocusMap focusMap = FocusMap.forMatrix(map);
+        int[] keyCodes = {KeyEvent.KEYCODE_DPAD_LEFT, KeyEvent.KEYCODE_DPAD_RIGHT,
+                KeyEvent.KEYCODE_DPAD_UP, KeyEvent.KEYCODE_DPAD_DOWN};
+        for (int keyCode : keyCodes) {
+            // Index 8 is not in the matrix, and falls back to the search.
+            for (int index = 0; index <= 8; index++) {
+                assertEquals(FocusLogic.handleKeyEvent(keyCode, map, index, 1, 3, false),
+                        FocusLogic.handleKeyEvent(keyCode, focusMap, index, 1, 3, false));
+            }
+        }
+    }
+
     /** Transposes the matrix so that we can write it in human-readable format in the tests. */
     private int[][] transpose(int[][] m) {
         int[][] t = new int[m[0].length][m.length];
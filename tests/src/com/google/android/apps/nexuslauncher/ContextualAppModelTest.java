@@ -0,0 +1,115 @@
+package com.google.android.apps.nexuslauncher;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link ContextualAppModel}
+ */
+@SmallTest
+public class ContextualAppModelTest extends TestCase {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private ContextualAppModel mModel;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mModel = new ContextualAppModel();
+        mModel.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    public void testTimeOfDay() {
+        // News in the morning, music in the evening, with music launched more often overall.
+        for (int day = 0; day < 14; day++) {
+            mModel.onLaunch("news/.Main", day * DAY + 8 * HOUR);
+            mModel.onLaunch("music/.Main", day * DAY + 20 * HOUR);
+            mModel.onLaunch("music/.Main", day * DAY + 21 * HOUR);
+        }
+
+        assertEquals("news/.Main", predict(14 * DAY + 8 * HOUR));
+        assertEquals("music/.Main", predict(14 * DAY + 20 * HOUR));
+    }
+
+    public void testTransition() {
+        for (int day = 0; day < 14; day++) {
+            mModel.onLaunch("camera/.Main", day * DAY + 12 * HOUR);
+            mModel.onLaunch("gallery/.Main", day * DAY + 12 * HOUR + 1000);
+            mModel.onLaunch("mail/.Main", day * DAY + 13 * HOUR);
+            mModel.onLaunch("mail/.Main", day * DAY + 15 * HOUR);
+        }
+
+        mModel.onLaunch("camera/.Main", 14 * DAY + 12 * HOUR);
+        assertEquals("gallery/.Main", predict(14 * DAY + 12 * HOUR + 1000));
+    }
+
+    public void testWriteAndRead() throws Exception {
+        for (int day = 0; day < 14; day++) {
+            mModel.onLaunch("news/.Main", day * DAY + 8 * HOUR);
+            mModel.onLaunch("music/.Main", day * DAY + 20 * HOUR);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mModel.writeTo(new DataOutputStream(bytes));
+
+        ContextualAppModel model = new ContextualAppModel();
+        model.setTimeZone(TimeZone.getTimeZone("UTC"));
+        model.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        long time = 14 * DAY + 8 * HOUR;
+        ArrayList<String> expected = new ArrayList<>();
+        mModel.predict(time, 5, expected);
+        ArrayList<String> actual = new ArrayList<>();
+        model.predict(time, 5, actual);
+        assertEquals(expected, actual);
+    }
+
+    public void testRemoveAll() {
+        mModel.onLaunch("news/.Main", 8 * HOUR);
+        mModel.onLaunch("music/.Main", 9 * HOUR);
+
+        ArrayList<String> removed = new ArrayList<>();
+        removed.add("music/.Main");
+        mModel.removeAll(removed);
+
+        ArrayList<String> predictions = new ArrayList<>();
+        mModel.predict(10 * HOUR, 5, predictions);
+        assertEquals(1, predictions.size());
+        assertEquals("news/.Main", predictions.get(0));
+    }
+
+    public void testCopy() {
+        for (int day = 0; day < 14; day++) {
+            mModel.onLaunch("news/.Main", day * DAY + 8 * HOUR);
+            mModel.onLaunch("music/.Main", day * DAY + 20 * HOUR);
+        }
+        ContextualAppModel copy = mModel.copy();
+
+        // Changes to the model are not visible in the copy.
+        long time = 14 * DAY + 8 * HOUR;
+        for (int i = 0; i < 30; i++) {
+            mModel.onLaunch("music/.Main", time - i * 1000);
+        }
+        assertEquals("music/.Main", predict(time));
+
+        ArrayList<String> predictions = new ArrayList<>();
+        copy.predict(time, 1, predictions);
+        assertEquals("news/.Main", predictions.get(0));
+    }
+
+    private String predict(long time) {
+        ArrayList<String> predictions = new ArrayList<>();
+        mModel.predict(time, 1, predictions);
+        return predictions.get(0);
+    }
+}